@@ -0,0 +1,174 @@
+/*************************************************************************************
+ *
+ *	Colorharmony - benchmarks
+ *
+ *	Bulk conversions, image harmonization and clamping
+ *
+ *************************************************************************************/
+package com.cage.colorharmony.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.cage.colorharmony.*;
+
+
+/*************************************************************************************
+ *
+ *	<b>BulkBenchmark class</b><br><br>
+ *	Whole frames of pixels (the size is a parameter, default a 1080p frame).
+ *	One operation is one frame.
+ *
+ *************************************************************************************/
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BulkBenchmark {
+
+	@Param({ "2073600" })
+	int pixelCount;
+
+	ColorHarmony colorHarmony;
+	ColorHarmony colorHarmonyTable;
+	ColorHarmony colorHarmonyFixed;
+
+	ColorExtractor medianCut;
+	ColorExtractor kmeans;
+
+	ColorRamp rampSmall;
+	ColorRamp rampLarge;
+
+	GamutClamp gamutClamp;
+
+	int[]   pixels;
+	int[]   clamped;
+	int[]   out;
+	float[] h, s, l;
+	float[] field;
+
+
+	@Setup
+	public void setup() {
+		colorHarmony      = new ColorHarmony();
+		colorHarmonyTable = new ColorHarmony();
+		colorHarmonyTable.UseHSLTable(true);
+		colorHarmonyFixed = new ColorHarmony();
+		colorHarmonyFixed.SetHSLBackend(ColorConvertor.HSL_FIXED);
+		medianCut         = new ColorExtractor();
+		kmeans            = new ColorExtractor(ColorExtractor.KMEANS, 1, false);
+		rampSmall         = new ColorRamp(new PaletteGenerator().Analogous(0x3366CC), ColorRamp.SMALL);
+		rampLarge         = new ColorRamp(new PaletteGenerator().Analogous(0x3366CC), ColorRamp.LARGE);
+		gamutClamp        = new GamutClamp(10, 60, 20, 60);
+
+		Random rand = new Random(42);
+		pixels = new int[pixelCount];
+		out    = new int[pixelCount];
+		h      = new float[pixelCount];
+		s      = new float[pixelCount];
+		l      = new float[pixelCount];
+		field  = new float[pixelCount];
+		for (int n = 0; n < pixelCount; n++) pixels[n] = rand.nextInt();
+		for (int n = 0; n < pixelCount; n++) field[n] = rand.nextFloat() * 100;
+		colorHarmony.RGB2HSL(pixels, h, s, l);
+
+		// A frame that is already within the limits (only the table lookups)
+		clamped = new int[pixelCount];
+		for (int n = 0; n < pixelCount; n++) {
+			int c;
+			do {
+				c = rand.nextInt();
+			} while (gamutClamp.clamp(c) != c);
+			clamped[n] = c;
+		}
+
+		// Build the lookup table before measuring
+		colorHarmonyTable.RGB2HSL(0, 0, 0);
+	} // setup()
+
+
+	@Benchmark
+	public float[] RGB2HSLBulk() {
+		colorHarmony.RGB2HSL(pixels, h, s, l);
+		return h;
+	}
+
+	@Benchmark
+	public float[] RGB2HSLBulkTable() {
+		colorHarmonyTable.RGB2HSL(pixels, h, s, l);
+		return h;
+	}
+
+	@Benchmark
+	public int[] HSL2RGBBulk() {
+		colorHarmony.HSL2RGB(h, s, l, out);
+		return out;
+	}
+
+	@Benchmark
+	public float[] RGB2HSLBulkFixed() {
+		colorHarmonyFixed.RGB2HSL(pixels, h, s, l);
+		return h;
+	}
+
+	@Benchmark
+	public int[] HSL2RGBBulkFixed() {
+		colorHarmonyFixed.HSL2RGB(h, s, l, out);
+		return out;
+	}
+
+	@Benchmark
+	public float[] RGB2LabBulk() {
+		colorHarmony.RGB2Lab(pixels, h, s, l);
+		return h;
+	}
+
+	@Benchmark
+	public float[] RGB2OKLabBulk() {
+		colorHarmony.RGB2OKLab(pixels, h, s, l);
+		return h;
+	}
+
+	@Benchmark
+	public int[] DominantColorsMedianCut() {
+		return medianCut.DominantColors(pixels, 5);
+	}
+
+	@Benchmark
+	public int[] DominantColorsKMeans() {
+		return kmeans.DominantColors(pixels, 5);
+	}
+
+	@Benchmark
+	public int[] RampMap() {
+		return rampSmall.map(field, 0, 100, out);
+	}
+
+	@Benchmark
+	public int[] RampMapLarge() {
+		return rampLarge.map(field, 0, 100, out);
+	}
+
+	@Benchmark
+	public int[] Clamp() {
+		gamutClamp.clamp(pixels, out);
+		return out;
+	}
+
+	@Benchmark
+	public int[] ClampInRange() {
+		gamutClamp.clamp(clamped, out);
+		return out;
+	}
+
+	@Benchmark
+	public int[] harmonize() {
+		System.arraycopy(pixels, 0, out, 0, pixelCount);
+		colorHarmony.harmonize(out, 3, 0xFF00FF);
+		return out;
+	}
+} // BulkBenchmark
@@ -0,0 +1,92 @@
+/*************************************************************************************
+ *
+ *	Colorharmony - benchmarks
+ *
+ *	WCAG contrast of palettes
+ *
+ *************************************************************************************/
+package com.cage.colorharmony.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.cage.colorharmony.*;
+
+
+/*************************************************************************************
+ *
+ *	<b>ContrastBenchmark class</b><br><br>
+ *	Contrast matrices and AA flags of a catalog of palettes with PaletteContrast.
+ *	Naive is the usual code outside the library (Math.pow per channel, every pair
+ *	of every palette) for comparison. One operation is the whole catalog.
+ *
+ *************************************************************************************/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ContrastBenchmark {
+
+	@Param({ "65536" })
+	int paletteCount;
+
+	PaletteContrast contrast;
+	int[]           colors;
+	float[]         matrices;
+	long[]          flags;
+
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(42);
+		int[] baseColors = new int[paletteCount];
+		for (int n = 0; n < paletteCount; n++) baseColors[n] = rand.nextInt(1 << 24);
+		colors   = new PaletteGenerator().generate(3, baseColors, new int[PaletteGenerator.SIZE * paletteCount]);
+		contrast = new PaletteContrast();
+		matrices = new float[64 * paletteCount];
+		flags    = new long[paletteCount];
+	} // setup()
+
+
+	@Benchmark
+	public float[] Matrices() {
+		return contrast.Matrices(colors, paletteCount, matrices);
+	}
+
+	@Benchmark
+	public long[] Flags() {
+		return contrast.Flags(colors, paletteCount, PaletteContrast.AA, flags);
+	}
+
+	@Benchmark
+	public long[] Naive() {
+		for (int n = 0; n < paletteCount; n++) {
+			long f = 0;
+			for (int i = 0; i < 8; i++) {
+				for (int j = 0; j < 8; j++) {
+					double y1 = luminance(colors[8 * n + i]);
+					double y2 = luminance(colors[8 * n + j]);
+					double ratio = (Math.max(y1, y2) + 0.05) / (Math.min(y1, y2) + 0.05);
+					if (ratio >= 4.5) f |= 1L << (8 * i + j);
+				}
+			}
+			flags[n] = f;
+		}
+		return flags;
+	}
+
+
+	static double luminance(int rgb) {
+		return 0.2126 * linear((rgb >> 16) & 0xFF) + 0.7152 * linear((rgb >> 8) & 0xFF) + 0.0722 * linear(rgb & 0xFF);
+	} // luminance()
+
+
+	static double linear(int c) {
+		double v = c / 255.0;
+		return v <= 0.04045 ? v / 12.92 : Math.pow((v + 0.055) / 1.055, 2.4);
+	} // linear()
+} // ContrastBenchmark
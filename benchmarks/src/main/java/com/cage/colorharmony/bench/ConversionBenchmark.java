@@ -0,0 +1,168 @@
+/*************************************************************************************
+ *
+ *	Colorharmony - benchmarks
+ *
+ *	Single color conversions of ColorConvertor
+ *
+ *************************************************************************************/
+package com.cage.colorharmony.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.cage.colorharmony.*;
+
+
+/*************************************************************************************
+ *
+ *	<b>ConversionBenchmark class</b><br><br>
+ *	Every benchmark converts the next color of a fixed set of random colors, so the
+ *	JIT can't fold the input. Throughput and sample time (latency percentiles) are
+ *	measured; run with -prof gc for the bytes allocated per operation.
+ *
+ *************************************************************************************/
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConversionBenchmark {
+
+	// Number of input colors (power of two)
+	static final int COLORS = 1024;
+
+	ColorHarmony colorHarmony;
+	ColorHarmony colorHarmonyTable;
+	ColorHarmony colorHarmonyFixed;
+
+	int[]    rgb;
+	String[] hex;
+	float[]  h, s, l;
+	float[]  lab;
+	int      i;
+
+
+	@Setup
+	public void setup() {
+		colorHarmony      = new ColorHarmony();
+		colorHarmonyTable = new ColorHarmony();
+		colorHarmonyTable.UseHSLTable(true);
+		colorHarmonyFixed = new ColorHarmony();
+		colorHarmonyFixed.SetHSLBackend(ColorConvertor.HSL_FIXED);
+
+		Random rand = new Random(42);
+		rgb = new int[COLORS];
+		hex = new String[COLORS];
+		lab = new float[3];
+		h   = new float[COLORS];
+		s   = new float[COLORS];
+		l   = new float[COLORS];
+		for (int n = 0; n < COLORS; n++) {
+			rgb[n] = rand.nextInt(1 << 24);
+			hex[n] = colorHarmony.RGB2Hex(rgb[n] >> 16, (rgb[n] >> 8) & 0xFF, rgb[n] & 0xFF);
+			float[] hsl = colorHarmony.RGB2HSL(rgb[n] >> 16, (rgb[n] >> 8) & 0xFF, rgb[n] & 0xFF);
+			h[n] = hsl[0];
+			s[n] = hsl[1];
+			l[n] = hsl[2];
+		}
+		// Build the lookup table before measuring
+		colorHarmonyTable.RGB2HSL(0, 0, 0);
+	} // setup()
+
+
+	int next() {
+		return i = (i + 1) & (COLORS - 1);
+	} // next()
+
+
+	@Benchmark
+	public int[] Hex2RGB() {
+		return colorHarmony.Hex2RGB(hex[next()]);
+	}
+
+	@Benchmark
+	public float[] Hex2HSL() {
+		return colorHarmony.Hex2HSL(hex[next()]);
+	}
+
+	@Benchmark
+	public int Hex2P5() {
+		return colorHarmony.Hex2P5(hex[next()]);
+	}
+
+	@Benchmark
+	public int Hex2Decimal() {
+		return colorHarmony.Hex2Decimal(hex[next()]);
+	}
+
+	@Benchmark
+	public String Decimal2Hex() {
+		return colorHarmony.Decimal2Hex(rgb[next()]);
+	}
+
+	@Benchmark
+	public float[] RGB2HSL() {
+		int c = rgb[next()];
+		return colorHarmony.RGB2HSL(c >> 16, (c >> 8) & 0xFF, c & 0xFF);
+	}
+
+	@Benchmark
+	public float[] RGB2HSLTable() {
+		int c = rgb[next()];
+		return colorHarmonyTable.RGB2HSL(c >> 16, (c >> 8) & 0xFF, c & 0xFF);
+	}
+
+	@Benchmark
+	public int[] HSL2RGB() {
+		int n = next();
+		return colorHarmony.HSL2RGB(h[n], s[n], l[n]);
+	}
+
+	@Benchmark
+	public float[] RGB2HSLFixed() {
+		int c = rgb[next()];
+		return colorHarmonyFixed.RGB2HSL(c >> 16, (c >> 8) & 0xFF, c & 0xFF);
+	}
+
+	@Benchmark
+	public int[] HSL2RGBFixed() {
+		int n = next();
+		return colorHarmonyFixed.HSL2RGB(h[n], s[n], l[n]);
+	}
+
+	@Benchmark
+	public String HSL2Hex() {
+		int n = next();
+		return colorHarmony.HSL2Hex(h[n], s[n], l[n]);
+	}
+
+	@Benchmark
+	public String RGB2Hex() {
+		int c = rgb[next()];
+		return colorHarmony.RGB2Hex(c >> 16, (c >> 8) & 0xFF, c & 0xFF);
+	}
+
+	@Benchmark
+	public float[] RGB2Lab() {
+		return colorHarmony.RGB2Lab(rgb[next()], lab);
+	}
+
+	@Benchmark
+	public float[] RGB2OKLab() {
+		return colorHarmony.RGB2OKLab(rgb[next()], lab);
+	}
+
+	@Benchmark
+	public int Lab2RGB() {
+		int n = next();
+		return colorHarmony.Lab2RGB(l[n], h[n] / 3 - 60, s[n] - 50);
+	}
+
+	@Benchmark
+	public String P52Hex() {
+		return colorHarmony.P52Hex(0xFF000000 | rgb[next()]);
+	}
+} // ConversionBenchmark
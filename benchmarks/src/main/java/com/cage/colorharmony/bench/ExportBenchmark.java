@@ -0,0 +1,67 @@
+/*************************************************************************************
+ *
+ *	Colorharmony - benchmarks
+ *
+ *	Palette export
+ *
+ *************************************************************************************/
+package com.cage.colorharmony.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.cage.colorharmony.*;
+
+
+/*************************************************************************************
+ *
+ *	<b>ExportBenchmark class</b><br><br>
+ *	Writes a batch of palettes (the seeded random palette stream) to a temporary
+ *	file in every format of PaletteWriter. One operation is one file.
+ *
+ *************************************************************************************/
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ExportBenchmark {
+
+	@Param({ "0", "1", "2", "3" })
+	int format;
+
+	@Param({ "100000" })
+	int paletteCount;
+
+	PaletteGenerator generator;
+	Palette[]        palettes;
+	Path             file;
+
+
+	@Setup
+	public void setup() throws IOException {
+		generator = new PaletteGenerator();
+		palettes  = generator.RandomPalettes(42, paletteCount).toArray(Palette[]::new);
+		file      = Files.createTempFile("palettes", ".out");
+	} // setup()
+
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	} // tearDown()
+
+
+	@Benchmark
+	public long Write() throws IOException {
+		try (PaletteWriter writer = new PaletteWriter(file, format)) {
+			for (Palette palette : palettes) writer.Write(palette);
+			return writer.GetCount();
+		}
+	}
+} // ExportBenchmark
@@ -0,0 +1,88 @@
+/*************************************************************************************
+ *
+ *	Colorharmony - benchmarks
+ *
+ *	Cost of ColorMetrics
+ *
+ *************************************************************************************/
+package com.cage.colorharmony.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.cage.colorharmony.*;
+
+
+/*************************************************************************************
+ *
+ *	<b>MetricsBenchmark class</b><br><br>
+ *	The same operations as ConversionBenchmark and PaletteBenchmark, with the
+ *	metrics switched on (the other benchmarks run with the metrics off). Add
+ *	-jvmArgs -XX:StartFlightRecording to include the JFR events.
+ *
+ *************************************************************************************/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MetricsBenchmark {
+
+	// Number of input colors (power of two)
+	static final int COLORS = 1024;
+
+	ColorHarmony colorHarmony;
+
+	int[]    rgb;
+	String[] hex;
+	int[]    colors;
+	float[]  lab;
+	int      i;
+
+
+	@Setup
+	public void setup() {
+		ColorMetrics.Enable();
+		colorHarmony = new ColorHarmony();
+
+		Random rand = new Random(42);
+		rgb    = new int[COLORS];
+		hex    = new String[COLORS];
+		colors = new int[8];
+		lab    = new float[3];
+		for (int n = 0; n < COLORS; n++) {
+			rgb[n] = rand.nextInt(1 << 24);
+			hex[n] = colorHarmony.RGB2Hex(rgb[n] >> 16, (rgb[n] >> 8) & 0xFF, rgb[n] & 0xFF);
+		}
+	} // setup()
+
+
+	@TearDown
+	public void tearDown() {
+		ColorMetrics.Disable();
+	} // tearDown()
+
+
+	int next() {
+		return i = (i + 1) & (COLORS - 1);
+	} // next()
+
+
+	@Benchmark
+	public int[] Hex2RGB() {
+		return colorHarmony.Hex2RGB(hex[next()]);
+	}
+
+	@Benchmark
+	public float[] RGB2Lab() {
+		return colorHarmony.RGB2Lab(rgb[next()], lab);
+	}
+
+	@Benchmark
+	public int[] TriadsPacked() {
+		return colorHarmony.Triads(rgb[next()], colors, 0);
+	}
+} // MetricsBenchmark
@@ -0,0 +1,188 @@
+/*************************************************************************************
+ *
+ *	Colorharmony - benchmarks
+ *
+ *	Palette generation
+ *
+ *************************************************************************************/
+package com.cage.colorharmony.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.cage.colorharmony.*;
+
+
+/*************************************************************************************
+ *
+ *	<b>PaletteBenchmark class</b><br><br>
+ *	The palette generators of ColorHarmony (hexadecimal string and packed integer
+ *	versions), PaletteGenerator and the palette cache. Run with -prof gc for the
+ *	bytes allocated per palette. The Loop and Batch benchmarks make the palettes of
+ *	BATCH base colors per operation.
+ *
+ *************************************************************************************/
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PaletteBenchmark {
+
+	// Number of base colors (power of two)
+	static final int COLORS = 1024;
+
+	// Number of base colors of the batch benchmarks
+	static final int BATCH = 1 << 16;
+
+	ColorHarmony     colorHarmony;
+	ColorHarmony     colorHarmonyCached;
+	PaletteGenerator generator;
+	PaletteTransition transition;
+
+	int[]    rgb;
+	String[] hex;
+	int[]    colors;
+	int[]    batch;
+	int[]    batchColors;
+	int      i;
+
+
+	@Setup
+	public void setup() {
+		colorHarmony       = new ColorHarmony();
+		colorHarmonyCached = new ColorHarmony();
+		// Big enough for all base colors and types: only hits after the warm-up
+		colorHarmonyCached.SetPaletteCache(new PaletteCache(8 * COLORS));
+		generator          = colorHarmony.GetGenerator();
+		transition         = new PaletteTransition(generator.Triads(0xFF00FF), generator.Analogous(0x00A0FF), 256, PaletteTransition.OKLAB);
+
+		Random rand = new Random(42);
+		rgb    = new int[COLORS];
+		hex    = new String[COLORS];
+		colors = new int[8];
+		for (int n = 0; n < COLORS; n++) {
+			rgb[n] = rand.nextInt(1 << 24);
+			hex[n] = colorHarmony.RGB2Hex(rgb[n] >> 16, (rgb[n] >> 8) & 0xFF, rgb[n] & 0xFF);
+		}
+		batch       = new int[BATCH];
+		batchColors = new int[PaletteGenerator.SIZE * BATCH];
+		for (int n = 0; n < BATCH; n++) batch[n] = rand.nextInt(1 << 24);
+	} // setup()
+
+
+	int next() {
+		return i = (i + 1) & (COLORS - 1);
+	} // next()
+
+
+	@Benchmark
+	public int[] Monochromatic() {
+		return colorHarmony.Monochromatic(hex[next()]);
+	}
+
+	@Benchmark
+	public int[] Analogous() {
+		return colorHarmony.Analogous(hex[next()]);
+	}
+
+	@Benchmark
+	public int[] Complementary() {
+		return colorHarmony.Complementary(hex[next()]);
+	}
+
+	@Benchmark
+	public int[] Triads() {
+		return colorHarmony.Triads(hex[next()]);
+	}
+
+	@Benchmark
+	public int[] MonochromaticPacked() {
+		return colorHarmony.Monochromatic(rgb[next()], colors, 0);
+	}
+
+	@Benchmark
+	public int[] AnalogousPacked() {
+		return colorHarmony.Analogous(rgb[next()], colors, 0);
+	}
+
+	@Benchmark
+	public int[] ComplementaryPacked() {
+		return colorHarmony.Complementary(rgb[next()], colors, 0);
+	}
+
+	@Benchmark
+	public int[] TriadsPacked() {
+		return colorHarmony.Triads(rgb[next()], colors, 0);
+	}
+
+	@Benchmark
+	public int[] TriadsCached() {
+		return colorHarmonyCached.Triads(hex[next()]);
+	}
+
+	@Benchmark
+	public int[] TriadsPackedCached() {
+		return colorHarmonyCached.Triads(rgb[next()], colors, 0);
+	}
+
+	@Benchmark
+	public Palette GeneratorTriads() {
+		return generator.Triads(rgb[next()]);
+	}
+
+	@Benchmark
+	public int[] RuleTriads() {
+		return HarmonyRule.TRIADS.generate(rgb[next()], 10, 60, 20, 60, colors, 0);
+	}
+
+	@Benchmark
+	public int[] RuleSquare() {
+		return generator.generate(HarmonyRule.SQUARE, rgb[next()], colors, 0);
+	}
+
+	@Benchmark
+	public int ComplementaryLoop() {
+		int sum = 0;
+		for (int n = 0; n < BATCH; n++) sum += colorHarmony.Complementary(batch[n])[7];
+		return sum;
+	}
+
+	@Benchmark
+	public int[] ComplementaryBatch() {
+		return generator.generate(2, batch, batchColors);
+	}
+
+	@Benchmark
+	public int[] TriadsBatch() {
+		return generator.generate(3, batch, batchColors);
+	}
+
+	@Benchmark
+	public int[] GetRandomPalette() {
+		return colorHarmony.GetRandomPalette();
+	}
+
+	@Benchmark
+	public Palette RandomPaletteSeeded() {
+		return generator.RandomPalette(42, next());
+	}
+
+	@Benchmark
+	public int TransitionColorAt() {
+		return transition.colorAt(i & 7, next() / (float)COLORS);
+	}
+
+	@Benchmark
+	public int[] TransitionColorsAt() {
+		return transition.colorsAt(next() / (float)COLORS, colors, 0);
+	}
+
+	@Benchmark
+	public String RandomHexColor() {
+		return colorHarmony.RandomHexColor();
+	}
+} // PaletteBenchmark
@@ -0,0 +1,82 @@
+/*************************************************************************************
+ *
+ *	Colorharmony - benchmarks
+ *
+ *	Nearest palette search
+ *
+ *************************************************************************************/
+package com.cage.colorharmony.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.cage.colorharmony.*;
+
+
+/*************************************************************************************
+ *
+ *	<b>SearchBenchmark class</b><br><br>
+ *	k-nearest queries on a PaletteSearch of a grid of base colors (the bits per
+ *	channel of the grid are a parameter), for random target colors.
+ *
+ *************************************************************************************/
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchBenchmark {
+
+	// Number of target colors (power of two)
+	static final int COLORS = 1024;
+
+	@Param({ "5" })
+	int gridBits;
+
+	PaletteSearch search;
+
+	int[] rgb;
+	int[] targets;
+	int   i;
+
+
+	@Setup
+	public void setup() {
+		search = new PaletteSearch(new PaletteGenerator(), PaletteSearch.GridColors(gridBits));
+
+		Random rand = new Random(42);
+		rgb = new int[COLORS];
+		for (int n = 0; n < COLORS; n++) rgb[n] = rand.nextInt(1 << 24);
+		targets = new int[] { 0x3366CC, 0xCC9933, 0xEEEEEE };
+	} // setup()
+
+
+	int next() {
+		return i = (i + 1) & (COLORS - 1);
+	} // next()
+
+
+	@Benchmark
+	public PaletteMatch[] Nearest1() {
+		return search.Nearest(rgb[next()], 1, PaletteSearch.ALL_TYPES);
+	}
+
+	@Benchmark
+	public PaletteMatch[] Nearest10() {
+		return search.Nearest(rgb[next()], 10, PaletteSearch.ALL_TYPES);
+	}
+
+	@Benchmark
+	public PaletteMatch[] Nearest10Triads() {
+		return search.Nearest(rgb[next()], 10, PaletteSearch.TRIADS);
+	}
+
+	@Benchmark
+	public PaletteMatch[] NearestPalettes() {
+		targets[0] = rgb[next()];
+		return search.NearestPalettes(targets, 5, PaletteSearch.ALL_TYPES);
+	}
+} // SearchBenchmark
@@ -0,0 +1,113 @@
+/*************************************************************************************
+ *
+ *	Colorharmony - benchmarks
+ *
+ *	HTTP palette service
+ *
+ *************************************************************************************/
+package com.cage.colorharmony.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.cage.colorharmony.*;
+
+
+/*************************************************************************************
+ *
+ *	<b>ServerBenchmark class</b><br><br>
+ *	Requests per second of a PaletteServer on localhost, with keep-alive
+ *	connections (HttpURLConnection). The client threads run on the same machine,
+ *	so the result is a lower bound; run with -t for more client threads.
+ *
+ *************************************************************************************/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Thread)
+public class ServerBenchmark {
+
+	// Number of base colors (power of two)
+	static final int COLORS = 1024;
+
+	@State(Scope.Benchmark)
+	public static class Server {
+		PaletteServer server;
+
+		@Setup
+		public void setup() throws IOException {
+			PaletteServer.EnableNoDelay();
+			server = new PaletteServer(new PaletteGenerator(), 0).Start();
+		} // setup()
+
+		@TearDown
+		public void tearDown() {
+			server.close();
+		} // tearDown()
+	} // Server
+
+	URL[]  palettes;
+	URL    random;
+	byte[] body;
+	int    i;
+
+
+	@Setup
+	public void setup(Server server) throws IOException {
+		String base = "http://localhost:" + server.server.GetPort();
+
+		Random rand = new Random(42);
+		palettes = new URL[COLORS];
+		for (int n = 0; n < COLORS; n++) {
+			palettes[n] = new URL(base + "/palette/triads/" + HexCodec.toHex(rand.nextInt(1 << 24)));
+		}
+		random = new URL(base + "/random");
+		body   = new byte[1024];
+	} // setup()
+
+
+	int next() {
+		return i = (i + 1) & (COLORS - 1);
+	} // next()
+
+
+	int get(URL url, String ifNoneMatch) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection)url.openConnection();
+		if (ifNoneMatch != null) connection.setRequestProperty("If-None-Match", ifNoneMatch);
+		int status = connection.getResponseCode();
+		if (status < 400) {
+			// Read the whole body (if any), so the connection is kept alive
+			try (InputStream in = connection.getInputStream()) {
+				while (in.read(body) >= 0) {
+					// Next chunk
+				}
+			}
+		}
+		return status;
+	} // get()
+
+
+	@Benchmark
+	public int Palette() throws IOException {
+		return get(palettes[next()], null);
+	}
+
+	@Benchmark
+	public int NotModified() throws IOException {
+		return get(palettes[next()], "*");
+	}
+
+	@Benchmark
+	public int Random() throws IOException {
+		return get(random, null);
+	}
+} // ServerBenchmark
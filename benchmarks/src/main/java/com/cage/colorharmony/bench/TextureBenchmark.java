@@ -0,0 +1,77 @@
+/*************************************************************************************
+ *
+ *	Colorharmony - benchmarks
+ *
+ *	Palette lookup textures
+ *
+ *************************************************************************************/
+package com.cage.colorharmony.bench;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.cage.colorharmony.*;
+
+
+/*************************************************************************************
+ *
+ *	<b>TextureBenchmark class</b><br><br>
+ *	Writes an atlas of palettes (one palette per row) into a direct buffer with
+ *	PaletteTexture, for both formats and for rows of 8 colors and 256 texel ramps.
+ *	Manual is the hand-written RGBA8 loop (8 colors per row) for comparison. One
+ *	operation is one atlas.
+ *
+ *************************************************************************************/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TextureBenchmark {
+
+	@Param({ "0", "1" })
+	int format;
+
+	@Param({ "8", "256" })
+	int width;
+
+	@Param({ "4096" })
+	int paletteCount;
+
+	PaletteTexture texture;
+	ByteBuffer     atlas;
+	ByteBuffer     manual;
+	int[]          colors;
+
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(42);
+		int[] baseColors = new int[paletteCount];
+		for (int n = 0; n < paletteCount; n++) baseColors[n] = rand.nextInt(1 << 24);
+		colors  = new PaletteGenerator().generate(3, baseColors, new int[PaletteGenerator.SIZE * paletteCount]);
+		texture = new PaletteTexture(format, width);
+		atlas   = ByteBuffer.allocateDirect(texture.GetBytes(paletteCount)).order(ByteOrder.nativeOrder());
+		manual  = ByteBuffer.allocateDirect(4 * colors.length);
+	} // setup()
+
+
+	@Benchmark
+	public ByteBuffer Atlas() {
+		return texture.WriteAll(colors, paletteCount, atlas, 0);
+	}
+
+	@Benchmark
+	public ByteBuffer Manual() {
+		manual.clear();
+		for (int c : colors) {
+			manual.put((byte)(c >> 16)).put((byte)(c >> 8)).put((byte)c).put((byte)(c >>> 24));
+		}
+		return manual;
+	}
+} // TextureBenchmark
@@ -0,0 +1,106 @@
+/*************************************************************************************
+ *
+ *	Colorharmony - benchmarks
+ *
+ *	Bulk HSL conversions: Vector API versus scalar loops
+ *
+ *************************************************************************************/
+package com.cage.colorharmony.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.cage.colorharmony.*;
+
+
+/*************************************************************************************
+ *
+ *	<b>VectorBenchmark class</b><br><br>
+ *	The bulk RGB2HSL() and HSL2RGB() of the float backend over a frame of pixels,
+ *	in a JVM with jdk.incubator.vector (the Vector API kernels) and in one without
+ *	(the scalar loops, like in Processing). Besides frames per second, the
+ *	secondary result "bytes" is the memory traffic per second: 4 bytes of pixel
+ *	and 3 x 4 bytes of HSL floats per pixel, read or written. Needs Java 17+.
+ *
+ *************************************************************************************/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@State(Scope.Thread)
+public class VectorBenchmark {
+
+	// Bytes read and written per pixel
+	static final long BYTES_PER_PIXEL = 4 + 3 * 4;
+
+	@Param({ "2073600" })
+	int pixelCount;
+
+	ColorConvertor convertor;
+
+	int[]   pixels;
+	int[]   out;
+	float[] h, s, l;
+
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	public static class Traffic {
+		public long bytes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			bytes = 0;
+		} // reset()
+	} // Traffic
+
+
+	@Setup
+	public void setup() {
+		convertor = new ColorConvertor();
+
+		Random rand = new Random(42);
+		pixels = new int[pixelCount];
+		out    = new int[pixelCount];
+		h      = new float[pixelCount];
+		s      = new float[pixelCount];
+		l      = new float[pixelCount];
+		for (int n = 0; n < pixelCount; n++) pixels[n] = rand.nextInt();
+		convertor.RGB2HSL(pixels, h, s, l);
+	} // setup()
+
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+	public float[] RGB2HSLVector(Traffic traffic) {
+		convertor.RGB2HSL(pixels, h, s, l);
+		traffic.bytes += BYTES_PER_PIXEL * pixelCount;
+		return h;
+	}
+
+	@Benchmark
+	@Fork(1)
+	public float[] RGB2HSLScalar(Traffic traffic) {
+		convertor.RGB2HSL(pixels, h, s, l);
+		traffic.bytes += BYTES_PER_PIXEL * pixelCount;
+		return h;
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+	public int[] HSL2RGBVector(Traffic traffic) {
+		convertor.HSL2RGB(h, s, l, out);
+		traffic.bytes += BYTES_PER_PIXEL * pixelCount;
+		return out;
+	}
+
+	@Benchmark
+	@Fork(1)
+	public int[] HSL2RGBScalar(Traffic traffic) {
+		convertor.HSL2RGB(h, s, l, out);
+		traffic.bytes += BYTES_PER_PIXEL * pixelCount;
+		return out;
+	}
+} // VectorBenchmark
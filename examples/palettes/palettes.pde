@@ -16,6 +16,7 @@
  *  - ColorHarmony.P52Hex()
  *  - ColorHarmony.printVersion() 
  *  - ColorHarmony.RandomHexColor()
+ *  - ColorHarmony.SetPaletteCache()
  *  - ColorHarmony.Triads()
  *
  *  Interaction:
@@ -90,6 +91,9 @@ void setup() {
   // WRITE THE VERSION OF THE LIBRARY TO THE CONSOLE
   colorHarmony.printVersion();
 
+  // CACHE THE GENERATED PALETTES (AT MOST 500)
+  colorHarmony.SetPaletteCache(new PaletteCache(500));
+
   if (baseColorHex.equals("")) {
     // GENERATE A RANDOM BASE COLOR
     baseColorHex = colorHarmony.RandomHexColor();
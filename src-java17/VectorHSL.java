@@ -0,0 +1,203 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Bulk RGB <-> HSL with the Vector API (Java 17+, jdk.incubator.vector)
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/*************************************************************************************
+ *
+ *	<b>VectorHSL class</b><br><br>
+ *	The bulk conversions of ColorMath, a full vector of pixels per step (8 lanes
+ *	with AVX2, 16 with AVX-512). The branches of the scalar code become masks and
+ *	blends: every lane computes all cases with the same float operations in the
+ *	same order, so the results are bit-identical to the scalar loops. The last
+ *	colors (less than one vector) go through the scalar loops.<br>
+ *	This class is only compiled on JDK 17+ (META-INF/versions/17 of the jar) and
+ *	only used when the module jdk.incubator.vector is resolved
+ *	(--add-modules jdk.incubator.vector), see BulkHSL.load().
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+final class VectorHSL implements BulkHSL {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	// Same number of lanes for ints and floats (both 32 bits)
+	static final VectorSpecies<Integer> INTS   = IntVector.SPECIES_PREFERRED;
+	static final VectorSpecies<Float>   FLOATS = FloatVector.SPECIES_PREFERRED;
+
+
+	/*********************************************************************************
+	 *
+	 *	Bulk RGB to HSL, same results as ColorMath.rgb2hsl()
+	 *
+	 *********************************************************************************/
+	@Override
+	public void rgb2hsl(int[] rgb, int from, float[] h, float[] s, float[] l, int outFrom, int count) {
+		int lanes = INTS.length();
+		int n     = 0;
+		for (; n <= count - lanes; n += lanes) {
+			IntVector c = IntVector.fromArray(INTS, rgb, from + n);
+			FloatVector fR = unit(c.lanewise(VectorOperators.LSHR, 16));
+			FloatVector fG = unit(c.lanewise(VectorOperators.LSHR, 8));
+			FloatVector fB = unit(c);
+
+			FloatVector varMax   = fR.max(fG.max(fB));
+			FloatVector varMin   = fR.min(fG.min(fB));
+			FloatVector deltaMax = varMax.sub(varMin);
+			FloatVector sum      = varMax.add(varMin);
+			FloatVector lum      = sum.div(2f);
+
+			// This is a gray, no chroma (hue and saturation stay 0)
+			VectorMask<Float> chroma = deltaMax.compare(VectorOperators.NE, 0f);
+
+			FloatVector sat = deltaMax.div(FloatVector.broadcast(FLOATS, 2f).sub(varMax).sub(varMin))
+					.blend(deltaMax.div(sum), lum.compare(VectorOperators.LT, 0.5f));
+
+			// ColorMath.hue(): the del_ values of the max channel, blue wins, then green
+			FloatVector half = deltaMax.div(2f);
+			FloatVector delR = varMax.sub(fR).div(6f).add(half).div(deltaMax);
+			FloatVector delG = varMax.sub(fG).div(6f).add(half).div(deltaMax);
+			FloatVector delB = varMax.sub(fB).div(6f).add(half).div(deltaMax);
+
+			FloatVector hue = delB.sub(delG)
+					.blend(FloatVector.broadcast(FLOATS, 1.0f / 3.0f).add(delR).sub(delB), fG.compare(VectorOperators.EQ, varMax))
+					.blend(FloatVector.broadcast(FLOATS, 2.0f / 3.0f).add(delG).sub(delR), fB.compare(VectorOperators.EQ, varMax));
+			hue = hue.add(1f, hue.compare(VectorOperators.LT, 0f));
+			hue = hue.sub(1f, hue.compare(VectorOperators.GT, 1f));
+
+			int i = outFrom + n;
+			FloatVector zero = FloatVector.zero(FLOATS);
+			zero.blend(hue.mul(360f), chroma).intoArray(h, i);
+			zero.blend(sat.mul(100f), chroma).intoArray(s, i);
+			lum.mul(100f).intoArray(l, i);
+		}
+		ColorMath.rgb2hslLoop(rgb, from + n, h, s, l, outFrom + n, count - n);
+	} // rgb2hsl()
+
+
+	/*********************************************************************************
+	 *
+	 *	Bulk HSL to opaque RGB, same results as ColorMath.hsl2rgb()
+	 *
+	 *********************************************************************************/
+	@Override
+	public void hsl2rgb(float[] h, float[] s, float[] l, int[] rgb, int from, int to) {
+		int lanes = FLOATS.length();
+		int i     = from;
+		for (; i <= to - lanes; i += lanes) {
+			FloatVector fH = FloatVector.fromArray(FLOATS, h, i).div(360.0f);
+			FloatVector fS = FloatVector.fromArray(FLOATS, s, i).div(100.0f);
+			FloatVector fL = FloatVector.fromArray(FLOATS, l, i).div(100.0f);
+
+			FloatVector var2 = fL.add(fS).sub(fS.mul(fL))
+					.blend(fL.mul(fS.add(1.0f)), fL.compare(VectorOperators.LT, 0.5f));
+			FloatVector var1 = fL.mul(2.0f).sub(var2);
+
+			// Gray: all channels are l * 255
+			VectorMask<Float> gray = fS.compare(VectorOperators.EQ, 0f);
+			FloatVector grayValue = fL.mul(255f);
+
+			FloatVector fR = hue2rgb(var1, var2, fH.add(1.0f / 3.0f)).mul(255f).blend(grayValue, gray);
+			FloatVector fG = hue2rgb(var1, var2, fH).mul(255f).blend(grayValue, gray);
+			FloatVector fB = hue2rgb(var1, var2, fH.sub(1.0f / 3.0f)).mul(255f).blend(grayValue, gray);
+
+			// Lanes outside 0..2^22 (out of range input, NaN): scalar code for this step
+			if (!inRange(fR.min(fG).min(fB), fR.max(fG).max(fB))) {
+				ColorMath.hsl2rgbLoop(h, s, l, rgb, i, i + lanes);
+				continue;
+			}
+
+			channel(fR).lanewise(VectorOperators.LSHL, 16)
+					.or(channel(fG).lanewise(VectorOperators.LSHL, 8))
+					.or(channel(fB))
+					.or(ColorMath.OPAQUE)
+					.intoArray(rgb, i);
+		}
+		ColorMath.hsl2rgbLoop(h, s, l, rgb, i, to);
+	} // hsl2rgb()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL METHODS
+	 *
+	 *********************************************************************************/
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Low byte of every lane as a fraction (c / 255f, like ColorMath.UNIT)
+	 *
+	 *********************************************************************************/
+	static FloatVector unit(IntVector channel) {
+		return ((FloatVector)channel.and(0xFF).convert(VectorOperators.I2F, 0)).div(255f);
+	} // unit()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Can channel() convert all lanes (0 <= value < 2^22, not NaN)? Two
+	 *	separate tests: combining the masks is slow on Java 17
+	 *
+	 *********************************************************************************/
+	static boolean inRange(FloatVector min, FloatVector max) {
+		return min.compare(VectorOperators.GE, 0f).allTrue() && max.compare(VectorOperators.LT, 4194304f).allTrue();
+	} // inRange()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Channel value of every lane ((int) and the low byte, like
+	 *	ColorMath.pack()) for values in range (see inRange())<br>
+	 *	The F2I conversion of the Vector API is slow on Java 17, so: adding 2^23
+	 *	rounds to the nearest integer in the low mantissa bits, and lanes that were
+	 *	rounded up get one less (for values >= 0, (int) is the floor). No masks:
+	 *	those are slow on Java 17 as well.
+	 *
+	 *********************************************************************************/
+	static IntVector channel(FloatVector value) {
+		IntVector n = value.add(8388608f).reinterpretAsInts().sub(0x4B000000);
+		// value - n < 0 (sign bit set): rounded up, -1 added (value - n is never -0)
+		IntVector up = value.sub((FloatVector)n.convert(VectorOperators.I2F, 0)).reinterpretAsInts()
+				.lanewise(VectorOperators.ASHR, 31);
+		return n.add(up).and(0xFF);
+	} // channel()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: ColorMath.hue2rgb() for every lane, the cases are blended from the
+	 *	last to the first
+	 *
+	 *********************************************************************************/
+	static FloatVector hue2rgb(FloatVector temp1, FloatVector temp2, FloatVector temp3) {
+		temp3 = temp3.add(1f, temp3.compare(VectorOperators.LT, 0.0f));
+		temp3 = temp3.sub(1f, temp3.compare(VectorOperators.GT, 1.0f));
+
+		FloatVector diff = temp2.sub(temp1);
+		FloatVector rise = temp1.add(diff.mul(6.0f).mul(temp3));
+		FloatVector fall = temp1.add(diff.mul(FloatVector.broadcast(FLOATS, 2.0f / 3.0f).sub(temp3)).mul(6.0f));
+
+		return temp1
+				.blend(fall, temp3.mul(3.0f).compare(VectorOperators.LT, 2.0f))
+				.blend(temp2, temp3.mul(2.0f).compare(VectorOperators.LT, 1.0f))
+				.blend(rise, temp3.mul(6.0f).compare(VectorOperators.LT, 1.0f));
+	} // hue2rgb()
+} // VectorHSL
@@ -0,0 +1,61 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Bulk RGB <-> HSL kernels
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+
+/*************************************************************************************
+ *
+ *	<b>BulkHSL interface</b><br><br>
+ *	The bulk HSL conversions of ColorMath, for an implementation that is picked at
+ *	runtime: on Java 17+ with the module jdk.incubator.vector resolved
+ *	(java --add-modules jdk.incubator.vector ...) that is VectorHSL, which comes
+ *	from META-INF/versions/17 of the (multi-release) jar. Everywhere else, for
+ *	example in Processing, load() returns null and ColorMath uses its scalar
+ *	loops.<br>
+ *	-Dcolorharmony.vector=false switches the Vector API kernels off.
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+interface BulkHSL {
+
+	/*********************************************************************************
+	 *
+	 *	RGB to HSL for count colors from rgb[from], written to h, s and l from index
+	 *	outFrom, same results as ColorMath.rgb2hslLoop()
+	 *
+	 *********************************************************************************/
+	void rgb2hsl(int[] rgb, int from, float[] h, float[] s, float[] l, int outFrom, int count);
+
+
+	/*********************************************************************************
+	 *
+	 *	HSL to opaque RGB for rgb[from..to-1], same results as ColorMath.hsl2rgbLoop()
+	 *
+	 *********************************************************************************/
+	void hsl2rgb(float[] h, float[] s, float[] l, int[] rgb, int from, int to);
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the Vector API kernels, or null when they can't be used (Java 8..16,
+	 *	jdk.incubator.vector not resolved or switched off)
+	 *
+	 *********************************************************************************/
+	static BulkHSL load() {
+		if (!Boolean.parseBoolean(System.getProperty("colorharmony.vector", "true"))) return null;
+		try {
+			return (BulkHSL)Class.forName("com.cage.colorharmony.VectorHSL").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			// Java 8..16 (no such class) or no jdk.incubator.vector (NoClassDefFoundError)
+			return null;
+		}
+	} // load()
+} // BulkHSL
@@ -7,17 +7,18 @@
  *************************************************************************************/
 package com.cage.colorharmony;
 
-import java.awt.Color;
 import java.util.*;
 
-import processing.core.*;
-
 
 /*************************************************************************************
  *
  *	<b>ColorConvertor class</b><br><br>
  *	A helper class for the ColorHarmony class. Takes care of all kinds of conversions.
  *	<br><br>
+ *	This class doesn't depend on Processing: new ColorConvertor() works in any JVM.
+ *	Processing colors are packed as opaque ARGB integers (0xFFRRGGBB) with bit
+ *	operations; ColorHarmony takes the color mode of the sketch into account.
+ *	<br><br>
  *	Author: Rolf van Gelder | CAGE Web Design<br>
  *	http://cagewebdev.com/colorharmony-processing-library/<br>
  *	info@cagewebdev.com
@@ -30,11 +31,13 @@ public class ColorConvertor {
 	 *	Properties
 	 *
 	 *********************************************************************************/
-	// All hexadecimal characters
-	String hexadecimalChars  = "0123456789ABCDEF";
+	// HSL conversion backends (see SetHSLBackend())
+	public static final int HSL_FLOAT = 0;
+	public static final int HSL_TABLE = 1;
+	public static final int HSL_FIXED = 2;
 
-	// Processing applet
-	PApplet parent;
+	// Backend of RGB2HSL(), HSL2RGB() and the other HSL conversions
+	int hslBackend = HSL_FLOAT;
 	
 
 	/*********************************************************************************
@@ -46,6 +49,76 @@ public class ColorConvertor {
 	} // ColorConvertor()
 
 	
+	/*********************************************************************************
+	 *
+	 *	Switch the lookup table mode for RGB2HSL() (and Hex2HSL()) on or off<br>
+	 *	Example: colorHarmony.UseHSLTable(true);<br>
+	 *	In this mode, the HSL values are read from a table with all 2^24 RGB colors.
+	 *	The table takes 96 MB off-heap and is built (in parallel) on first use.<br>
+	 *	Note: the table values are quantized to 16 bits, the maximum deviation is
+	 *	0.0028 for the hue and 0.0008 for the saturation and luminosity.
+	 *
+	 *	@param enabled 	true: use the lookup table, false: calculate (default)
+	 *
+	 *********************************************************************************/
+	public void UseHSLTable(boolean enabled) {
+		hslBackend = enabled ? HSL_TABLE : HSL_FLOAT;
+	} // UseHSLTable()
+
+
+	/*********************************************************************************
+	 *
+	 *	Select the backend for the HSL conversions (RGB2HSL(), HSL2RGB(), Hex2HSL(),
+	 *	HSL2Hex() and their bulk versions)<br>
+	 *	Example: colorHarmony.SetHSLBackend(ColorConvertor.HSL_FIXED);<br>
+	 *	HSL_FLOAT - float math, the colors are truncated (default)<br>
+	 *	HSL_TABLE - RGB2HSL() reads the lookup table (see UseHSLTable()), HSL2RGB()
+	 *	uses float math<br>
+	 *	HSL_FIXED - integer (fixed-point) math: the same results on every JVM, the
+	 *	colors are rounded, so RGB2HSL() followed by HSL2RGB() always gives back the
+	 *	same color (with float math, most colors come back slightly different). The
+	 *	HSL values differ at most 0.001 from the float backend, the colors at most 1.
+	 *	Saturation and luminosity are clamped to 0..100, the hue is taken modulo 360.
+	 *
+	 *	@param backend 	HSL_FLOAT, HSL_TABLE or HSL_FIXED
+	 *
+	 *********************************************************************************/
+	public void SetHSLBackend(int backend) {
+		if (backend < HSL_FLOAT || backend > HSL_FIXED) throw new IllegalArgumentException("Unknown HSL backend: " + backend);
+		hslBackend = backend;
+	} // SetHSLBackend()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the backend of the HSL conversions<br>
+	 *	Example: int backend = colorHarmony.GetHSLBackend();
+	 *
+	 *	@return		HSL_FLOAT, HSL_TABLE or HSL_FIXED
+	 *
+	 *********************************************************************************/
+	public int GetHSLBackend() {
+		return hslBackend;
+	} // GetHSLBackend()
+
+
+	/*********************************************************************************
+	 *
+	 *	Do the bulk HSL conversions of the float backend use the Vector API?<br>
+	 *	Example: println(colorHarmony.UsesVectorAPI());<br>
+	 *	On Java 17+ started with --add-modules jdk.incubator.vector, RGB2HSL(int[],
+	 *	...) and HSL2RGB(..., int[]) process a whole vector of pixels per step (with
+	 *	the same results). Elsewhere (for example in Processing) they use the scalar
+	 *	loops. -Dcolorharmony.vector=false switches the Vector API off.
+	 *
+	 *	@return		true if the Vector API kernels are used
+	 *
+	 *********************************************************************************/
+	public static boolean UsesVectorAPI() {
+		return ColorMath.VECTOR != null;
+	} // UsesVectorAPI()
+
+
 	/*********************************************************************************
 	 *
 	 *	Convert a decimal integer value to a hexadecimal string<br>
@@ -58,13 +131,18 @@ public class ColorConvertor {
 	 *
 	 *********************************************************************************/	
     public String Decimal2Hex(int decimal) {
-        if (decimal == 0) return "0";
-        String hex = "";
-        while (decimal > 0) {
-            int digit = decimal % 16;         // rightmost digit
-            hex = hexadecimalChars.charAt(digit) + hex; // string concatenation
-            decimal = decimal / 16;
+        ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.DECIMAL2HEX);
+        String hex = "0";
+        if (decimal != 0) {
+            char[] digits = new char[8];
+            int pos = digits.length;
+            while (decimal > 0) {
+                digits[--pos] = HexCodec.HEX[decimal & 0xF];  // rightmost digit
+                decimal >>>= 4;
+            }
+            hex = new String(digits, pos, digits.length - pos);
         }
+        ColorMetrics.stop(sample);
         return hex;
     } // Decimal2Hex()
 
@@ -81,13 +159,15 @@ public class ColorConvertor {
 	 *
 	 *********************************************************************************/	
     public int Hex2Decimal(String hex) {
-        hex = hex.toUpperCase().replace("#", "");
+        ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.HEX2DECIMAL);
         int decimal = 0;
         for (int i = 0; i < hex.length(); i++) {
             char c = hex.charAt(i);
-            int d  = hexadecimalChars.indexOf(c);
+            if (c == '#') continue;
+            int d  = HexCodec.digit(c);
             decimal = 16 * decimal + d;
         }
+        ColorMetrics.stop(sample);
         return decimal;
     } // Hex2Decimal()
 
@@ -105,14 +185,16 @@ public class ColorConvertor {
 	 *
 	 *********************************************************************************/		
 	public float[] Hex2HSL(String hex) {
-		hex.toUpperCase().replace("#", "");
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.HEX2HSL);
+		float[] hsl = null;
 		if (hex.length() == 6) {
-			int[] rgb = Hex2RGB(hex);
-			return RGB2HSL(rgb[0], rgb[1], rgb[2]);
+			int[] rgb = hex2rgb(hex);
+			hsl = rgb2hsl(rgb[0], rgb[1], rgb[2]);
 		} else {
 			System.out.println("Hex2HSL(): hex color parameter should be 6 characters long");
 		}
-		return null;
+		ColorMetrics.stop(sample);
+		return hsl;
 	} // Hex2HSL()
 
 
@@ -129,13 +211,16 @@ public class ColorConvertor {
 	 *
 	 *********************************************************************************/		
 	public int Hex2P5(String hex) {
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.HEX2P5);
+		int P5color = -1;
 		if (hex.length() == 6) {
-			int[] rgb = Hex2RGB(hex);
-			return parent.color(rgb[0], rgb[1], rgb[2]);			
+			int[] rgb = hex2rgb(hex);
+			P5color = P5Color(rgb[0], rgb[1], rgb[2]);
 		} else {
 			System.out.println("Hex2P5(): hex color parameter should be 6 characters long");
 		}
-		return -1;
+		ColorMetrics.stop(sample);
+		return P5color;
 	} // Hex2P5()
 
 
@@ -152,18 +237,9 @@ public class ColorConvertor {
 	 *
 	 *********************************************************************************/			
 	public int[] Hex2RGB(String hex) {
-		int[] rgb = new int[3];
-		hex = hex.toUpperCase().replace("#", "");
-
-		 if (hex.length() == 6) {
-			// FFFFFF
-			rgb[0] = Hex2Decimal(hex.substring(0, 2));	// R
-			rgb[1] = Hex2Decimal(hex.substring(2, 4));	// G
-			rgb[2] = Hex2Decimal(hex.substring(4, 6));	// B
-		} else {
-			System.out.println("Hex2RGB(): hex color parameter should be 6 characters long");
-		}
-
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.HEX2RGB);
+		int[] rgb = hex2rgb(hex);
+		ColorMetrics.stop(sample);
 		return rgb;
 	} // Hex2RGB()
 
@@ -183,8 +259,11 @@ public class ColorConvertor {
 	 *
 	 *********************************************************************************/		
 	public String HSL2Hex(float h, float s, float l) {
-		int[] rgb = HSL2RGB(h, s, l);
-		return RGB2Hex(rgb[0], rgb[1], rgb[2]);
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.HSL2HEX);
+		int[]  rgb = hsl2rgb(h, s, l);
+		String hex = rgb2hex(rgb[0], rgb[1], rgb[2]);
+		ColorMetrics.stop(sample);
+		return hex;
 	} // HSL2Hex()
 
 
@@ -202,42 +281,9 @@ public class ColorConvertor {
 	 *
 	 *********************************************************************************/		
 	public int[] HSL2RGB(float h, float s, float l) {
-		int[] rgb = new int[3];
-
-		float R, G, B;
-
-		float var_1, var_2;
-		
-		h = h / 360.0f;
-		s = s / 100.0f;
-		l = l / 100.0f;
-		
-		if ( s == 0 ) {
-			// HSL from 0 to 1
-			R = l * 255;
-			G = l * 255;
-			B = l * 255;
-		} else {
-			if ( l < 0.5f ) {
-				var_2 = (l * ( 1.0f + s ));
-			} else {
-				float a = l + s;
-				float b = s * l;
-				var_2 = (float)(( l + s ) - ( s * l ));
-			}
-
-			var_1 = 2.0f * l - var_2;
-
-			R = 255 * HUE2RGB( var_1, var_2, h + ( 1.0f / 3.0f ) );
-			G = 255 * HUE2RGB( var_1, var_2, h );
-			B = 255 * HUE2RGB( var_1, var_2, h - ( 1.0f / 3.0f ) );
-		
-		}	
-
-		rgb[0] = (int)R;
-		rgb[1] = (int)G;
-		rgb[2] = (int)B;
-
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.HSL2RGB);
+		int[] rgb = hsl2rgb(h, s, l);
+		ColorMetrics.stop(sample);
 		return rgb;
 	} // HSL2RGB()
 
@@ -254,10 +300,10 @@ public class ColorConvertor {
 	 *
 	 *********************************************************************************/		
 	public String P52Hex(int P5color) {
-		int r = (int)parent.red(P5color);
-		int g = (int)parent.green(P5color);
-		int b = (int)parent.blue(P5color);
-		return String.format("%02X%02X%02X", r, g, b);
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.P52HEX);
+		String hex = HexCodec.toHex(P5RGB(P5color));
+		ColorMetrics.stop(sample);
+		return hex;
 	} // P52Hex()	
 
 
@@ -275,7 +321,10 @@ public class ColorConvertor {
 	 *
 	 *********************************************************************************/		
 	public String RGB2Hex(int r, int g, int b) {
-		return String.format("%02X%02X%02X", r, g, b);
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.RGB2HEX);
+		String hex = rgb2hex(r, g, b);
+		ColorMetrics.stop(sample);
+		return hex;
 	} // RGB2Hex()
 	
 
@@ -293,6 +342,371 @@ public class ColorConvertor {
 	 *
 	 *********************************************************************************/		
 	public float[] RGB2HSL(int r, int g, int b) {
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.RGB2HSL);
+		float[] hsl = rgb2hsl(r, g, b);
+		ColorMetrics.stop(sample);
+		return hsl;
+	} // RGB2HSL()
+
+
+	/*********************************************************************************
+	 *
+	 *	Convert a buffer of RGB colors to HSL values<br>
+	 *	Example: colorHarmony.RGB2HSL(img.pixels, h, s, l);<br>
+	 *	Converts rgb.length colors, without allocating anything. The alpha bytes are
+	 *	ignored. The results are identical to RGB2HSL(r, g, b) (also in the lookup
+	 *	table mode, see UseHSLTable(), and with the fixed-point backend). The float
+	 *	backend uses the Vector API when it can, see UsesVectorAPI().
+	 *
+	 *	@param rgb 	Packed colors (0xAARRGGBB, for example PImage.pixels)
+	 *	@param h 	Receives the hue values (0..360)
+	 *	@param s 	Receives the saturation values (0..100)
+	 *	@param l 	Receives the luminosity values (0..100)
+	 *
+	 *********************************************************************************/
+	public void RGB2HSL(int[] rgb, float[] h, float[] s, float[] l) {
+		checkBulk(rgb.length, h.length, s.length, l.length);
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.RGB2HSL_BULK);
+		if (hslBackend == HSL_TABLE) {
+			HSLTable.lookup(rgb, h, s, l, 0, rgb.length);
+		} else if (hslBackend == HSL_FIXED) {
+			FixedHSL.rgb2hsl(rgb, 0, h, s, l, 0, rgb.length);
+		} else {
+			ColorMath.rgb2hsl(rgb, 0, h, s, l, 0, rgb.length);
+		} // if (hslBackend == HSL_TABLE)
+		ColorMetrics.stop(sample, rgb.length);
+	} // RGB2HSL()
+
+
+	/*********************************************************************************
+	 *
+	 *	Convert buffers of HSL values to RGB colors<br>
+	 *	Example: colorHarmony.HSL2RGB(h, s, l, img.pixels);<br>
+	 *	Converts rgb.length colors, without allocating anything. The results are
+	 *	identical to HSL2RGB(h, s, l), packed as opaque colors (0xFFRRGGBB). The
+	 *	float backend uses the Vector API when it can, see UsesVectorAPI().
+	 *
+	 *	@param h 	Hue values (0..360)
+	 *	@param s 	Saturation values (0..100)
+	 *	@param l 	Luminosity values (0..100)
+	 *	@param rgb 	Receives the packed colors
+	 *
+	 *********************************************************************************/
+	public void HSL2RGB(float[] h, float[] s, float[] l, int[] rgb) {
+		checkBulk(rgb.length, h.length, s.length, l.length);
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.HSL2RGB_BULK);
+		if (hslBackend == HSL_FIXED) {
+			FixedHSL.hsl2rgb(h, s, l, rgb, 0, rgb.length);
+		} else {
+			ColorMath.hsl2rgb(h, s, l, rgb, 0, rgb.length);
+		} // if (hslBackend == HSL_FIXED)
+		ColorMetrics.stop(sample, rgb.length);
+	} // HSL2RGB()
+
+
+	/*********************************************************************************
+	 *
+	 *	Convert a packed color to CIELAB values (D65 white point)<br>
+	 *	Example: colorHarmony.RGB2Lab(0xFF0000, lab);<br>
+	 *	Result: (53.24, 80.09, 67.20)<br>
+	 *	All perceptual conversions are table driven (see LabMath) and write into the
+	 *	given array, so they can run per pixel without allocating anything.
+	 *
+	 *	@param rgb 	Packed color (0xRRGGBB, the alpha byte is ignored)
+	 *	@param lab	Receives L (0..100), a and b (about -128..127)
+	 *
+	 *	@return		The lab array
+	 *
+	 *********************************************************************************/
+	public float[] RGB2Lab(int rgb, float[] lab) {
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.RGB2LAB);
+		LabMath.lab(rgb, lab, 0);
+		ColorMetrics.stop(sample);
+		return lab;
+	} // RGB2Lab()
+
+
+	/*********************************************************************************
+	 *
+	 *	Convert a packed color to CIE LCh values (polar CIELAB)<br>
+	 *	Example: colorHarmony.RGB2LCh(0xFF0000, lch);<br>
+	 *	Result: (53.24, 104.55, 40.00)
+	 *
+	 *	@param rgb 	Packed color (0xRRGGBB, the alpha byte is ignored)
+	 *	@param lch	Receives L (0..100), chroma and hue (0..360)
+	 *
+	 *	@return		The lch array
+	 *
+	 *********************************************************************************/
+	public float[] RGB2LCh(int rgb, float[] lch) {
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.RGB2LCH);
+		LabMath.lab(rgb, lch, 0);
+		LabMath.polar(lch, 0);
+		ColorMetrics.stop(sample);
+		return lch;
+	} // RGB2LCh()
+
+
+	/*********************************************************************************
+	 *
+	 *	Convert a packed color to OKLab values<br>
+	 *	Example: colorHarmony.RGB2OKLab(0xFF0000, lab);<br>
+	 *	Result: (0.628, 0.225, 0.126)
+	 *
+	 *	@param rgb 	Packed color (0xRRGGBB, the alpha byte is ignored)
+	 *	@param lab	Receives L (0..1), a and b (about -0.4..0.4)
+	 *
+	 *	@return		The lab array
+	 *
+	 *********************************************************************************/
+	public float[] RGB2OKLab(int rgb, float[] lab) {
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.RGB2OKLAB);
+		LabMath.oklab(rgb, lab, 0);
+		ColorMetrics.stop(sample);
+		return lab;
+	} // RGB2OKLab()
+
+
+	/*********************************************************************************
+	 *
+	 *	Convert a packed color to OKLCh values (polar OKLab)<br>
+	 *	Example: colorHarmony.RGB2OKLCh(0xFF0000, lch);<br>
+	 *	Result: (0.628, 0.258, 29.23)
+	 *
+	 *	@param rgb 	Packed color (0xRRGGBB, the alpha byte is ignored)
+	 *	@param lch	Receives L (0..1), chroma and hue (0..360)
+	 *
+	 *	@return		The lch array
+	 *
+	 *********************************************************************************/
+	public float[] RGB2OKLCh(int rgb, float[] lch) {
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.RGB2OKLCH);
+		LabMath.oklab(rgb, lch, 0);
+		LabMath.polar(lch, 0);
+		ColorMetrics.stop(sample);
+		return lch;
+	} // RGB2OKLCh()
+
+
+	/*********************************************************************************
+	 *
+	 *	Convert a buffer of packed colors to CIELAB values<br>
+	 *	Example: colorHarmony.RGB2Lab(img.pixels, l, a, b);<br>
+	 *	Converts rgb.length colors, without allocating anything. The alpha bytes are
+	 *	ignored. The same goes for RGB2LCh(), RGB2OKLab() and RGB2OKLCh() with arrays.
+	 *
+	 *	@param rgb 	Packed colors (0xAARRGGBB, for example PImage.pixels)
+	 *	@param l 	Receives the L values
+	 *	@param a 	Receives the a values (chroma for LCh)
+	 *	@param b 	Receives the b values (hue for LCh)
+	 *
+	 *********************************************************************************/
+	public void RGB2Lab(int[] rgb, float[] l, float[] a, float[] b) {
+		checkBulk(rgb.length, l.length, a.length, b.length);
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.RGB2LAB_BULK);
+		LabMath.lab(rgb, l, a, b, 0, rgb.length);
+		ColorMetrics.stop(sample, rgb.length);
+	} // RGB2Lab()
+
+	public void RGB2LCh(int[] rgb, float[] l, float[] c, float[] h) {
+		checkBulk(rgb.length, l.length, c.length, h.length);
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.RGB2LCH_BULK);
+		LabMath.lab(rgb, l, c, h, 0, rgb.length);
+		LabMath.polar(c, h, 0, rgb.length);
+		ColorMetrics.stop(sample, rgb.length);
+	} // RGB2LCh()
+
+	public void RGB2OKLab(int[] rgb, float[] l, float[] a, float[] b) {
+		checkBulk(rgb.length, l.length, a.length, b.length);
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.RGB2OKLAB_BULK);
+		LabMath.oklab(rgb, l, a, b, 0, rgb.length);
+		ColorMetrics.stop(sample, rgb.length);
+	} // RGB2OKLab()
+
+	public void RGB2OKLCh(int[] rgb, float[] l, float[] c, float[] h) {
+		checkBulk(rgb.length, l.length, c.length, h.length);
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.RGB2OKLCH_BULK);
+		LabMath.oklab(rgb, l, c, h, 0, rgb.length);
+		LabMath.polar(c, h, 0, rgb.length);
+		ColorMetrics.stop(sample, rgb.length);
+	} // RGB2OKLCh()
+
+
+	/*********************************************************************************
+	 *
+	 *	Convert CIELAB values to a packed color<br>
+	 *	Example: int rgb = colorHarmony.Lab2RGB(53.24f, 80.09f, 67.20f);<br>
+	 *	Result: 0xFFFF0000<br>
+	 *	Colors outside the sRGB gamut are clipped (per channel).
+	 *
+	 *	@return		Packed color (0xFFRRGGBB)
+	 *
+	 *********************************************************************************/
+	public int Lab2RGB(float l, float a, float b) {
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.LAB2RGB);
+		int rgb = LabMath.lab2rgb(l, a, b);
+		ColorMetrics.stop(sample);
+		return rgb;
+	} // Lab2RGB()
+
+
+	/*********************************************************************************
+	 *
+	 *	Convert CIE LCh values to a packed color (out of gamut colors are clipped)<br>
+	 *	Example: int rgb = colorHarmony.LCh2RGB(53.24f, 104.55f, 40f);
+	 *
+	 *	@return		Packed color (0xFFRRGGBB)
+	 *
+	 *********************************************************************************/
+	public int LCh2RGB(float l, float c, float h) {
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.LCH2RGB);
+		int rgb = LabMath.lch2rgb(l, c, h);
+		ColorMetrics.stop(sample);
+		return rgb;
+	} // LCh2RGB()
+
+
+	/*********************************************************************************
+	 *
+	 *	Convert OKLab values to a packed color (out of gamut colors are clipped)<br>
+	 *	Example: int rgb = colorHarmony.OKLab2RGB(0.628f, 0.225f, 0.126f);
+	 *
+	 *	@return		Packed color (0xFFRRGGBB)
+	 *
+	 *********************************************************************************/
+	public int OKLab2RGB(float l, float a, float b) {
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.OKLAB2RGB);
+		int rgb = LabMath.oklab2rgb(l, a, b);
+		ColorMetrics.stop(sample);
+		return rgb;
+	} // OKLab2RGB()
+
+
+	/*********************************************************************************
+	 *
+	 *	Convert OKLCh values to a packed color (out of gamut colors are clipped)<br>
+	 *	Example: int rgb = colorHarmony.OKLCh2RGB(0.628f, 0.258f, 29.23f);
+	 *
+	 *	@return		Packed color (0xFFRRGGBB)
+	 *
+	 *********************************************************************************/
+	public int OKLCh2RGB(float l, float c, float h) {
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.OKLCH2RGB);
+		int rgb = LabMath.oklch2rgb(l, c, h);
+		ColorMetrics.stop(sample);
+		return rgb;
+	} // OKLCh2RGB()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Hex2RGB() without metrics (also used by the other conversions)
+	 *
+	 *********************************************************************************/
+	int[] hex2rgb(String hex) {
+		int[] rgb = new int[3];
+		if (hex.indexOf('#') >= 0) hex = hex.replace("#", "");
+
+		 if (hex.length() == 6) {
+			// FFFFFF
+			rgb[0] = 16 * HexCodec.digit(hex.charAt(0)) + HexCodec.digit(hex.charAt(1));	// R
+			rgb[1] = 16 * HexCodec.digit(hex.charAt(2)) + HexCodec.digit(hex.charAt(3));	// G
+			rgb[2] = 16 * HexCodec.digit(hex.charAt(4)) + HexCodec.digit(hex.charAt(5));	// B
+		} else {
+			System.out.println("Hex2RGB(): hex color parameter should be 6 characters long");
+		}
+
+		return rgb;
+	} // hex2rgb()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: HSL2RGB() without metrics
+	 *
+	 *********************************************************************************/
+	int[] hsl2rgb(float h, float s, float l) {
+		int[] rgb = new int[3];
+
+		if (hslBackend == HSL_FIXED) {
+			int c = FixedHSL.hsl2rgb(h, s, l);
+			rgb[0] = ColorMath.red(c);
+			rgb[1] = ColorMath.green(c);
+			rgb[2] = ColorMath.blue(c);
+			return rgb;
+		} // if (hslBackend == HSL_FIXED)
+
+		float R, G, B;
+
+		float var_1, var_2;
+		
+		h = h / 360.0f;
+		s = s / 100.0f;
+		l = l / 100.0f;
+		
+		if ( s == 0 ) {
+			// HSL from 0 to 1
+			R = l * 255;
+			G = l * 255;
+			B = l * 255;
+		} else {
+			if ( l < 0.5f ) {
+				var_2 = (l * ( 1.0f + s ));
+			} else {
+				float a = l + s;
+				float b = s * l;
+				var_2 = (float)(( l + s ) - ( s * l ));
+			}
+
+			var_1 = 2.0f * l - var_2;
+
+			R = 255 * HUE2RGB( var_1, var_2, h + ( 1.0f / 3.0f ) );
+			G = 255 * HUE2RGB( var_1, var_2, h );
+			B = 255 * HUE2RGB( var_1, var_2, h - ( 1.0f / 3.0f ) );
+		
+		}	
+
+		rgb[0] = (int)R;
+		rgb[1] = (int)G;
+		rgb[2] = (int)B;
+
+		return rgb;
+	} // hsl2rgb()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: RGB2Hex() without metrics
+	 *
+	 *********************************************************************************/
+	String rgb2hex(int r, int g, int b) {
+		// Values outside 0..255 keep their old (longer) format
+		if (((r | g | b) & ~0xFF) != 0) return String.format("%02X%02X%02X", r, g, b);
+		return HexCodec.toHex(ColorMath.pack(r, g, b));
+	} // rgb2hex()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: RGB2HSL() without metrics
+	 *
+	 *********************************************************************************/
+	float[] rgb2hsl(int r, int g, int b) {
+
+		if (hslBackend == HSL_TABLE) {
+			float[] hsl = new float[3];
+			HSLTable.lookup(ColorMath.pack(r, g, b), hsl);
+			return hsl;
+		} else if (hslBackend == HSL_FIXED) {
+			r &= 0xFF;
+			g &= 0xFF;
+			b &= 0xFF;
+			return new float[] {
+				FixedHSL.hue(r, g, b)        * FixedHSL.H_UNIT,
+				FixedHSL.saturation(r, g, b) * FixedHSL.SL_UNIT,
+				FixedHSL.luminosity(r, g, b) * FixedHSL.SL_UNIT
+			};
+		} // if (hslBackend == HSL_TABLE)
 
 		float[] hsl     = new float[3];
 		float[] rgb     = new float[3];
@@ -350,7 +764,41 @@ public class ColorConvertor {
 		hsl[2] = hsl[2] * 100;
 		
 		return hsl;
-	} // RGB2HSL()
+	} // rgb2hsl()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Check the array lengths of a bulk conversion
+	 *
+	 *********************************************************************************/
+	void checkBulk(int n, int hLength, int sLength, int lLength) {
+		if (hLength < n || sLength < n || lLength < n) {
+			throw new IllegalArgumentException("The value arrays should have at least " + n + " elements");
+		}
+	} // checkBulk()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: RGB values to a Processing color (opaque ARGB)<br>
+	 *	ColorHarmony overrides this for sketches with a non-default color mode
+	 *
+	 *********************************************************************************/
+	int P5Color(int r, int g, int b) {
+		return ColorMath.OPAQUE | ColorMath.pack(r, g, b);
+	} // P5Color()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Processing color to a packed color (0xRRGGBB)<br>
+	 *	ColorHarmony overrides this for sketches with a non-default color mode
+	 *
+	 *********************************************************************************/
+	int P5RGB(int P5color) {
+		return P5color & ColorMath.RGB_MASK;
+	} // P5RGB()
 
 
 	/*********************************************************************************
@@ -0,0 +1,471 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Dominant colors of images, to use as base colors
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/*************************************************************************************
+ *
+ *	<b>ColorExtractor class</b><br><br>
+ *	Finds the dominant colors of an image (for example a product photo), ranked by
+ *	the number of pixels they stand for. The colors are packed opaque colors, so
+ *	they can be used as base colors for the palette generators right away.<br>
+ *	First a histogram is made with 5 bits per channel (32768 bins, which also keep
+ *	the sum of the exact colors of their pixels). The image is split into a few
+ *	tiles per worker of the fork/join pool that are counted in parallel (each into
+ *	its own histogram, added to the result when it is done). The colors are then
+ *	quantized from the histogram only, so that part doesn't depend on the image
+ *	size:<br>
+ *	MEDIAN_CUT - split the box with the largest color variance at its median,
+ *	along the axis with the largest variance, until there are enough boxes<br>
+ *	KMEANS     - median cut, refined with k-means in OKLab (slower, but the colors
+ *	are closer to what the eye sees as the main colors)<br>
+ *	For huge images a stride can be set: only every n-th pixel is counted.
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+public class ColorExtractor {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	// Quantization methods
+	public static final int MEDIAN_CUT = 0;
+	public static final int KMEANS     = 1;
+
+	// Number of bins of the histogram (5 bits per channel)
+	static final int BINS = 1 << 15;
+
+	// Minimum and maximum number of counted pixels per histogram task: a task has
+	// its own histogram (512 KB), so it should count many more pixels than that;
+	// the sums of one task are ints, 2^23 * 255 < 2^31
+	static final int MIN_TILE = 1 << 18;
+	static final int MAX_TILE = 1 << 23;
+
+	// Number of histogram tasks per worker of the pool (for the load balance)
+	static final int TASKS_PER_WORKER = 4;
+
+	// Maximum number of k-means iterations
+	static final int ITERATIONS = 16;
+
+	final int          method;
+	final int          stride;
+	final boolean      skipTransparent;
+	final ForkJoinPool pool;
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the ColorExtractor class (median cut, all pixels)<br>
+	 *	Example: ColorExtractor extractor = new ColorExtractor();
+	 *
+	 *********************************************************************************/
+	public ColorExtractor() {
+		this(MEDIAN_CUT, 1, false);
+	} // ColorExtractor()
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the ColorExtractor class (uses the common fork/join pool)<br>
+	 *	Example: ColorExtractor extractor = new ColorExtractor(ColorExtractor.KMEANS, 4, true);
+	 *
+	 *	@param _method 				MEDIAN_CUT or KMEANS
+	 *	@param _stride				Count every n-th pixel (1 = all pixels)
+	 *	@param _skipTransparent		Skip fully transparent pixels (alpha 0)
+	 *
+	 *********************************************************************************/
+	public ColorExtractor(int _method, int _stride, boolean _skipTransparent) {
+		this(_method, _stride, _skipTransparent, ForkJoinPool.commonPool());
+	} // ColorExtractor()
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the ColorExtractor class with a specific fork/join pool
+	 *
+	 *	@param _method 				MEDIAN_CUT or KMEANS
+	 *	@param _stride				Count every n-th pixel (1 = all pixels)
+	 *	@param _skipTransparent		Skip fully transparent pixels (alpha 0)
+	 *	@param _pool				Pool that makes the histogram
+	 *
+	 *********************************************************************************/
+	public ColorExtractor(int _method, int _stride, boolean _skipTransparent, ForkJoinPool _pool) {
+		if (_method != MEDIAN_CUT && _method != KMEANS) {
+			throw new IllegalArgumentException("Unknown method: " + _method);
+		}
+		if (_stride < 1) throw new IllegalArgumentException("Stride must be at least 1");
+		method          = _method;
+		stride          = _stride;
+		skipTransparent = _skipTransparent;
+		pool            = _pool;
+	} // ColorExtractor()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the dominant colors of a pixel buffer<br>
+	 *	Example: int[] colors = extractor.DominantColors(img.pixels, 5);<br>
+	 *	Palette palette = generator.Triads(colors[0]);
+	 *
+	 *	@param pixels 	Packed colors (0xAARRGGBB, for example PImage.pixels)
+	 *	@param count	Maximum number of colors
+	 *
+	 *	@return			The colors (0xFFRRGGBB), most pixels first (fewer than count
+	 *					if the image has fewer distinct colors)
+	 *
+	 *********************************************************************************/
+	public int[] DominantColors(int[] pixels, int count) {
+		int[] colors = new int[count];
+		int n = DominantColors(pixels, colors, null);
+		if (n == count) return colors;
+		int[] found = new int[n];
+		System.arraycopy(colors, 0, found, 0, n);
+		return found;
+	} // DominantColors()
+
+
+	/*********************************************************************************
+	 *
+	 *	Find the dominant colors of a pixel buffer, with their share of the pixels<br>
+	 *	Example: int n = extractor.DominantColors(img.pixels, colors, shares);
+	 *
+	 *	@param pixels 	Packed colors (0xAARRGGBB)
+	 *	@param colors	Receives the colors (0xFFRRGGBB), most pixels first; the
+	 *					length is the maximum number of colors
+	 *	@param shares	Receives the part of the (counted) pixels per color, 0..1
+	 *					(null if not needed)
+	 *
+	 *	@return			Number of colors found
+	 *
+	 *********************************************************************************/
+	public int DominantColors(int[] pixels, int[] colors, float[] shares) {
+		if (colors.length < 1) throw new IllegalArgumentException("colors is empty");
+		long[] histogram = new long[4 * BINS];
+		int    counted   = (pixels.length + stride - 1) / stride;
+		int    tile      = Math.min(MAX_TILE, Math.max(MIN_TILE, counted / (TASKS_PER_WORKER * pool.getParallelism())));
+		HistogramTask task = new HistogramTask(this, pixels, 0, pixels.length, tile, histogram);
+		if (counted <= tile) {
+			task.compute();
+		} else {
+			pool.invoke(task);
+		}
+
+		// The non empty bins
+		int bins = 0;
+		for (int i = 0; i < BINS; i++) if (histogram[4 * i] > 0) bins++;
+		int[] bin = new int[bins];
+		bins = 0;
+		for (int i = 0; i < BINS; i++) if (histogram[4 * i] > 0) bin[bins++] = i;
+
+		long[] clusters = new long[4 * colors.length];
+		int n = MedianCut.quantize(histogram, bin, colors.length, clusters);
+		if (method == KMEANS) n = kmeans(histogram, bin, clusters, n);
+
+		// Rank by the number of pixels
+		long total = 0;
+		int[] order = new int[n];
+		for (int c = 0; c < n; c++) {
+			order[c] = c;
+			total   += clusters[4 * c];
+		}
+		for (int c = 1; c < n; c++) {
+			int o = order[c];
+			int j = c;
+			for (; j > 0 && clusters[4 * order[j - 1]] < clusters[4 * o]; j--) order[j] = order[j - 1];
+			order[j] = o;
+		}
+		for (int c = 0; c < n; c++) {
+			colors[c] = mean(clusters, order[c]);
+			if (shares != null && c < shares.length) shares[c] = clusters[4 * order[c]] / (float)total;
+		}
+		return n;
+	} // DominantColors()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL METHODS
+	 *
+	 *********************************************************************************/
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Refine the clusters with k-means over the histogram bins in OKLab
+	 *	(every bin weighs its number of pixels)
+	 *
+	 *	@return		Number of (non empty) clusters
+	 *
+	 *********************************************************************************/
+	static int kmeans(long[] histogram, int[] bin, long[] clusters, int n) {
+		// OKLab of the mean color of every bin
+		float[] lab = new float[3 * bin.length];
+		for (int i = 0; i < bin.length; i++) LabMath.oklab(mean(histogram, bin[i]), lab, 3 * i);
+
+		float[] centers = new float[3 * n];
+		for (int c = 0; c < n; c++) LabMath.oklab(mean(clusters, c), centers, 3 * c);
+
+		int[] assigned = new int[bin.length];
+		for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+			boolean changed = false;
+			for (int i = 0; i < bin.length; i++) {
+				int   nearest  = 0;
+				float distance = Float.MAX_VALUE;
+				for (int c = 0; c < n; c++) {
+					float d = PaletteSearch.distance2(lab, 3 * i, centers, 3 * c);
+					if (d < distance) {
+						distance = d;
+						nearest  = c;
+					}
+				}
+				if (iteration == 0 || assigned[i] != nearest) changed = true;
+				assigned[i] = nearest;
+			}
+			if (!changed) break;
+
+			// New centers: weighted means in OKLab
+			double[] sums    = new double[3 * n];
+			long[]   weights = new long[n];
+			for (int i = 0; i < bin.length; i++) {
+				int  c = assigned[i];
+				long w = histogram[4 * bin[i]];
+				weights[c]      += w;
+				sums[3 * c]     += w * lab[3 * i];
+				sums[3 * c + 1] += w * lab[3 * i + 1];
+				sums[3 * c + 2] += w * lab[3 * i + 2];
+			}
+			for (int c = 0; c < n; c++) {
+				if (weights[c] == 0) continue;
+				for (int k = 0; k < 3; k++) centers[3 * c + k] = (float)(sums[3 * c + k] / weights[c]);
+			}
+		}
+
+		// Clusters: pixel counts and color sums of the assigned bins
+		long[] result = new long[clusters.length];
+		for (int i = 0; i < bin.length; i++) {
+			int c = assigned[i];
+			for (int k = 0; k < 4; k++) result[4 * c + k] += histogram[4 * bin[i] + k];
+		}
+		int found = 0;
+		for (int c = 0; c < n; c++) {
+			if (result[4 * c] == 0) continue;
+			System.arraycopy(result, 4 * c, clusters, 4 * found++, 4);
+		}
+		return found;
+	} // kmeans()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Mean color of entry i of a histogram or cluster array (count, red
+	 *	sum, green sum, blue sum)
+	 *
+	 *********************************************************************************/
+	static int mean(long[] sums, int i) {
+		long n = sums[4 * i];
+		return ColorMath.OPAQUE | ColorMath.pack(
+				(int)((sums[4 * i + 1] + n / 2) / n),
+				(int)((sums[4 * i + 2] + n / 2) / n),
+				(int)((sums[4 * i + 3] + n / 2) / n));
+	} // mean()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Histogram of pixels[from..to-1], added to the histogram of the
+	 *	extractor (4 longs per bin: number of pixels, sum of red, green and blue). Big
+	 *	ranges are split until at most tile pixels are counted per task; a task
+	 *	counts into its own histogram (ints) and adds that to the result once.
+	 *
+	 *********************************************************************************/
+	static final class HistogramTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final ColorExtractor extractor;
+		final int[]  pixels;
+		final int    from, to;
+		final int    tile;
+		final long[] result;
+
+		HistogramTask(ColorExtractor _extractor, int[] _pixels, int _from, int _to, int _tile, long[] _result) {
+			extractor = _extractor;
+			pixels    = _pixels;
+			from      = _from;
+			to        = _to;
+			tile      = _tile;
+			result    = _result;
+		} // HistogramTask()
+
+		@Override
+		protected void compute() {
+			int stride = extractor.stride;
+			if ((to - from + stride - 1) / stride > tile) {
+				// Split on a multiple of the stride, so the same pixels are counted
+				int mid = from + ((to - from) / stride / 2) * stride;
+				invokeAll(new HistogramTask(extractor, pixels, from, mid, tile, result),
+						  new HistogramTask(extractor, pixels, mid, to, tile, result));
+				return;
+			}
+
+			int[]   histogram = new int[4 * BINS];
+			boolean skip      = extractor.skipTransparent;
+			for (int i = from; i < to; i += stride) {
+				int c = pixels[i];
+				if (skip && (c >>> 24) == 0) continue;
+				int r = (c >> 16) & 0xFF;
+				int g = (c >> 8) & 0xFF;
+				int b = c & 0xFF;
+				int j = 4 * ((r >> 3) << 10 | (g >> 3) << 5 | (b >> 3));
+				histogram[j]++;
+				histogram[j + 1] += r;
+				histogram[j + 2] += g;
+				histogram[j + 3] += b;
+			}
+			synchronized (result) {
+				for (int i = 0; i < histogram.length; i++) result[i] += histogram[i];
+			}
+		} // compute()
+	} // HistogramTask
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Median cut over the non empty bins of a histogram. A box is a range
+	 *	of the bin array; splitting a box sorts its range along the axis with the
+	 *	largest variance and cuts it where half of its pixels are on either side.
+	 *	The box to split is the one with the largest variance (sum of the squared
+	 *	distances of its pixels to its mean color), so big areas of almost one color
+	 *	don't take more than one color.
+	 *
+	 *********************************************************************************/
+	static final class MedianCut {
+
+		/*****************************************************************************
+		 *
+		 *	Quantize to at most count clusters, written into clusters (4 longs each)
+		 *
+		 *	@return		Number of clusters
+		 *
+		 *****************************************************************************/
+		static int quantize(long[] histogram, int[] bin, int count, long[] clusters) {
+			if (bin.length == 0) return 0;
+			// Box b: bin[from[b]..to[b]-1]
+			int[]    from     = new int[count];
+			int[]    to       = new int[count];
+			double[] variance = new double[count];
+			int      boxes    = 1;
+			to[0]       = bin.length;
+			variance[0] = variance(histogram, bin, 0, bin.length, null);
+
+			while (boxes < count) {
+				// The box with the largest variance (a box of one bin has none)
+				int    box     = -1;
+				double largest = 0;
+				for (int b = 0; b < boxes; b++) {
+					if (to[b] - from[b] > 1 && variance[b] > largest) {
+						largest = variance[b];
+						box     = b;
+					}
+				}
+				if (box < 0) break;
+
+				int cut = split(histogram, bin, from[box], to[box]);
+				from[boxes]     = cut;
+				to[boxes]       = to[box];
+				to[box]         = cut;
+				variance[box]   = variance(histogram, bin, from[box], to[box], null);
+				variance[boxes] = variance(histogram, bin, from[boxes], to[boxes], null);
+				boxes++;
+			}
+
+			for (int b = 0; b < boxes; b++) {
+				for (int i = from[b]; i < to[b]; i++) {
+					for (int k = 0; k < 4; k++) clusters[4 * b + k] += histogram[4 * bin[i] + k];
+				}
+			}
+			return boxes;
+		} // quantize()
+
+
+		/*****************************************************************************
+		 *
+		 *	Sort bin[from..to-1] along the axis with the largest variance, return the
+		 *	index of the first bin of the second half (from < cut < to)
+		 *
+		 *****************************************************************************/
+		static int split(long[] histogram, int[] bin, int from, int to) {
+			double[] axes = new double[3];
+			variance(histogram, bin, from, to, axes);
+			int axis = 0;
+			for (int k = 1; k < 3; k++) if (axes[k] > axes[axis]) axis = k;
+
+			// Counting sort on the axis (32 values)
+			int[] counts = new int[33];
+			for (int i = from; i < to; i++) counts[channel(bin[i], axis) + 1]++;
+			for (int v = 0; v < 32; v++) counts[v + 1] += counts[v];
+			int[] sorted = new int[to - from];
+			for (int i = from; i < to; i++) sorted[counts[channel(bin[i], axis)]++] = bin[i];
+			System.arraycopy(sorted, 0, bin, from, sorted.length);
+
+			// First bin past half of the pixels, at least one bin on each side
+			long pixels = 0;
+			for (int i = from; i < to; i++) pixels += histogram[4 * bin[i]];
+			long half = 0;
+			int  cut  = from;
+			while (cut < to - 1 && 2 * (half + histogram[4 * bin[cut]]) <= pixels) {
+				half += histogram[4 * bin[cut]];
+				cut++;
+			}
+			return Math.max(cut, from + 1);
+		} // split()
+
+
+		static int channel(int bin, int axis) {
+			return (bin >> (10 - 5 * axis)) & 31;
+		} // channel()
+
+
+		/*****************************************************************************
+		 *
+		 *	Variance of the box bin[from..to-1]: sum of the squared distances of the
+		 *	pixels (at the mean color of their bin) to the mean color of the box, per
+		 *	channel in axes (if not null), returns the total
+		 *
+		 *****************************************************************************/
+		static double variance(long[] histogram, int[] bin, int from, int to, double[] axes) {
+			long     n       = 0;
+			double[] sums    = new double[3];
+			double[] squares = new double[3];
+			for (int i = from; i < to; i++) {
+				int  j     = 4 * bin[i];
+				long count = histogram[j];
+				n += count;
+				for (int k = 0; k < 3; k++) {
+					double sum = histogram[j + 1 + k];
+					sums[k]    += sum;
+					squares[k] += sum * sum / count;
+				}
+			}
+			double total = 0;
+			for (int k = 0; k < 3; k++) {
+				double v = squares[k] - sums[k] * sums[k] / n;
+				if (axes != null) axes[k] = v;
+				total += v;
+			}
+			return total;
+		} // variance()
+	} // MedianCut
+} // ColorExtractor
@@ -13,7 +13,6 @@
  *************************************************************************************/
 package com.cage.colorharmony;
 
-import java.awt.Color;
 import java.lang.String;
 import java.util.Random;
 
@@ -25,6 +24,10 @@ import processing.core.*;
  *	<b>ColorHarmony class</b><br><br>
  *	A class for generating harmonized color palettes (types: monochromatic, analogous, 
  *	complementary and triads)<br><br>
+ *	This is the Processing adapter of the library: it converts the generated colors
+ *	to the color mode of the sketch. The palettes themselves are generated by the
+ *	PaletteGenerator class, which (like ColorConvertor) doesn't need Processing.
+ *	Without a sketch, use new ColorHarmony() (or PaletteGenerator directly).<br><br>
  *	Author: Rolf van Gelder | CAGE Web Design<br>
  *	http://cagewebdev.com/colorharmony-processing-library/<br>
  *	info@cagewebdev.com
@@ -49,12 +52,24 @@ public class ColorHarmony extends ColorConvertor {
 
 	String[] paletteTypes  = { "Monochromatic", "Analogous", "Complementary", "Triads" };
 
+	// Processing applet (null when used without a sketch)
+	PApplet parent;
+
 	// Current base color
 	String baseColorHex;
 
 	// Current palette type
 	int currentType;
 
+	// Generator for the palettes (stateless, so it can be shared)
+	PaletteGenerator generator;
+
+	// Clamp for images (created on the first use, the min/max values don't change)
+	GamutClamp gamutClamp;
+
+	// Random generator for the random base colors and palette types
+	Random rand = new Random();
+
 	
 	/*********************************************************************************
 	 *
@@ -64,6 +79,31 @@ public class ColorHarmony extends ColorConvertor {
 	 *********************************************************************************/
 	public ColorHarmony(PApplet _parent) {
 		this.parent = _parent;
+		generator   = new PaletteGenerator(minSaturation, maxSaturation, minLuminosity, maxLuminosity);
+	} // ColorHarmony()
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the ColorHarmony class without a Processing sketch (for batch
+	 *	jobs, servers etc.), the colors are opaque ARGB integers (0xFFRRGGBB)<br>
+	 *	Example: ColorHarmony colorHarmony = new ColorHarmony();
+	 *
+	 *********************************************************************************/
+	public ColorHarmony() {
+		this((PApplet)null);
+	} // ColorHarmony()
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the ColorHarmony class without a Processing sketch (with
+	 *	minimum and maximum saturation and luminosity values)<br>
+	 *	Example: ColorHarmony colorHarmony = new ColorHarmony(15, 55, 20, 65);
+	 *
+	 *********************************************************************************/
+	public ColorHarmony(int _minSaturation, int _maxSaturation, int _minLuminosity, int _maxLuminosity) {
+		this(null, _minSaturation, _maxSaturation, _minLuminosity, _maxLuminosity);
 	} // ColorHarmony()
 
 
@@ -82,6 +122,7 @@ public class ColorHarmony extends ColorConvertor {
 		maxSaturation = _maxSaturation;
 		minLuminosity = _minLuminosity;
 		maxLuminosity = _maxLuminosity;
+		generator     = new PaletteGenerator(minSaturation, maxSaturation, minLuminosity, maxLuminosity);
 	} // ColorHarmony()	
 	
 
@@ -111,7 +152,7 @@ public class ColorHarmony extends ColorConvertor {
 	 *
 	 *********************************************************************************/
 	public int[] Monochromatic(int P5color) {
-		return Monochromatic(P52Hex(P5color));
+		return P5Palette(0, P5RGB(P5color));
 	} // Monochromatic()
 
 
@@ -127,58 +168,7 @@ public class ColorHarmony extends ColorConvertor {
 	 *
 	 *********************************************************************************/
 	public int[] Monochromatic(String hex) {
-		currentType = 0;
-
-		String[] paletteHex = new String[8];
-		int[] P5Colors      = new int[8];
-
-		int Rtemp, Gtemp, Btemp;
-
-		hex.toUpperCase().replace("#", "");
-
-		baseColorHex = correctColorHex(hex);
-
-		// Color 1 (Corrected base color)
-		paletteHex[0] = baseColorHex;
-		P5Colors[0]   = Hex2P5(baseColorHex);
-
-		int[] RGB = Hex2RGB(paletteHex[0]);
-		int R = RGB[0];
-		int G = RGB[1];
-		int B = RGB[2];
-
-		// Color2
-		Rtemp = MonoColor(R, 2);
-		Gtemp = MonoColor(G, 2);
-		Btemp = MonoColor(B, 2);
-		paletteHex[1] = correctColorHex(RGB2Hex(Rtemp, Gtemp, Btemp));
-		P5Colors[1]   = Hex2P5(correctColorHex(RGB2Hex(Rtemp, Gtemp, Btemp)));
-
-		// Color 3
-		Rtemp = MonoColor(R, 3);
-		Gtemp = MonoColor(G, 3);
-		Btemp = MonoColor(B, 3);
-		paletteHex[2] = correctColorHex(RGB2Hex(Rtemp, Gtemp, Btemp));
-		P5Colors[2]   = Hex2P5(correctColorHex(RGB2Hex(Rtemp, Gtemp, Btemp)));
-
-		// Color 4
-		Rtemp = MonoColor(R, 4);
-		Gtemp = MonoColor(G, 4);
-		Btemp = MonoColor(B, 4);
-		paletteHex[3] = correctColorHex(RGB2Hex(Rtemp, Gtemp, Btemp));
-		P5Colors[3]   = Hex2P5(correctColorHex(RGB2Hex(Rtemp, Gtemp, Btemp)));
-
-		// Color 5
-		P5Colors[4]  = Hex2P5(correctColorHex(SecondColor(paletteHex[0])));
-		//Color 6
-		P5Colors[5]  = Hex2P5(correctColorHex(SecondColor(paletteHex[1])));
-		// Color 7
-		P5Colors[6]  = Hex2P5(correctColorHex(SecondColor(paletteHex[2])));
-		// Color 8
-		P5Colors[7]  = Hex2P5(correctColorHex(SecondColor(paletteHex[3])));
-
-		// Return array with Processing colors
-		return P5Colors;
+		return P5Palette(0, hexToRGB(hex));
 	} // Monochromatic()
 
 
@@ -208,7 +198,7 @@ public class ColorHarmony extends ColorConvertor {
 	 *
 	 *********************************************************************************/
 	public int[] Analogous(int P5color) {
-		return Analogous(P52Hex(P5color));
+		return P5Palette(1, P5RGB(P5color));
 	} // Analogous()
 
 
@@ -224,50 +214,7 @@ public class ColorHarmony extends ColorConvertor {
 	 *
 	 *********************************************************************************/
 	public int[] Analogous(String hex) {
-		currentType = 1;
-
-		String[] paletteHex = new String[8];
-		int[] P5Colors      = new int[8];
-
-		hex.toUpperCase().replace("#", "");
-		baseColorHex = correctColorHex(hex);
-
-		// Color 1 (Corrected base color)
-		paletteHex[0] = baseColorHex;
-		P5Colors[0]   = Hex2P5(baseColorHex);
-
-		float[] hsl = Hex2HSL(paletteHex[0]);
-
-		float H = hsl[0];
-		float S = hsl[1];
-		float L = hsl[2];
-
-		float H1 = FixHue(H + 30);
-		float H2 = FixHue(H - 30);
-
-		// Color 2
-		paletteHex[1] =HSL2Hex(H1, S, L);
-		P5Colors[1]   = Hex2P5(paletteHex[1]);
-
-		// Color 3
-		paletteHex[2] = "FFFFFF";
-		P5Colors[2]   = Hex2P5(paletteHex[2]);
-
-		// Color 4
-		paletteHex[3] = HSL2Hex(H2, S, L);
-		P5Colors[3]   = Hex2P5(paletteHex[3]);
-
-		// Color 5
-		P5Colors[4]  = Hex2P5(SecondColor(paletteHex[0]));
-		// Color 6
-		P5Colors[5]  = Hex2P5(SecondColor(paletteHex[1]));
-		// Color 7
-		P5Colors[6]  = Hex2P5(SecondColor(paletteHex[2]));
-		// Color 8
-		P5Colors[7]  = Hex2P5(SecondColor(paletteHex[3]));
-
-		// Return array with Processing colors
-		return P5Colors;
+		return P5Palette(1, hexToRGB(hex));
 	} // Analogous()
 
 
@@ -297,7 +244,7 @@ public class ColorHarmony extends ColorConvertor {
 	 *
 	 *********************************************************************************/
 	public int[] Complementary(int P5color) {
-		return Complementary(P52Hex(P5color));
+		return P5Palette(2, P5RGB(P5color));
 	} // Complementary()
 
 
@@ -313,69 +260,7 @@ public class ColorHarmony extends ColorConvertor {
 	 *
 	 *********************************************************************************/
 	public int[] Complementary(String hex) {
-		currentType = 2;
-
-		String[] paletteHex = new String[8];
-		int[] P5Colors      = new int[8];
-
-		hex.toLowerCase().replace("#", "");
-		baseColorHex = correctColorHex(hex);
-
-		int[] RGB = new int[3];
-
-		int R, G, B;
-
-		// Color 1 (Corrected base color)
-		paletteHex[0] = baseColorHex;
-		P5Colors[0]   = Hex2P5(baseColorHex);
-
-		RGB = Hex2RGB(paletteHex[0]);
-		R = RGB[0];
-		G = RGB[1];
-		B = RGB[2];
-		R = MonoColor(R, 2);
-		G = MonoColor(G, 2);
-		B = MonoColor(B, 2);
-
-		// Color 2
-		float[] hsl = Hex2HSL(baseColorHex);
-		float H = hsl[0];
-		H       = FixHue(H + 180);
-		float S = hsl[1];
-		float L = hsl[2];
-		paletteHex[1] = HSL2Hex(H, S, L);
-		P5Colors[1]   = Hex2P5(paletteHex[1]);
-
-		// Color 3
-		int[] RGB2 = Hex2RGB(paletteHex[1]);
-		int R2 = RGB2[0];
-		int G2 = RGB2[1];
-		int B2 = RGB2[2];
-
-		R = MonoColor(R, 2);
-		G = MonoColor(G, 2);
-		B = MonoColor(B, 2);
-		paletteHex[2] = RGB2Hex(R, G, B);
-		P5Colors[2]   = Hex2P5(paletteHex[2]);
-
-		// Color 4
-		R2 = MonoColor(R2, 2);
-		G2 = MonoColor(G2, 2);
-		B2 = MonoColor(B2, 2);		
-		paletteHex[3] = RGB2Hex(R2, G2, B2);
-		P5Colors[3]   = Hex2P5(paletteHex[3]);
-
-		// Color 5
-		P5Colors[4]  = Hex2P5(SecondColor(paletteHex[0]));
-		// Color 6
-		P5Colors[5]  = Hex2P5(SecondColor(paletteHex[1]));
-		// Color 7
-		P5Colors[6]  = Hex2P5(SecondColor(paletteHex[2]));
-		// Color 8
-		P5Colors[7]  = Hex2P5(SecondColor(paletteHex[3]));
-
-		// Return array with Processing colors
-		return P5Colors;
+		return P5Palette(2, hexToRGB(hex));
 	} // Complementary()
 
 
@@ -405,7 +290,7 @@ public class ColorHarmony extends ColorConvertor {
 	 *
 	 *********************************************************************************/
 	public int[] Triads(int P5color) {
-		return Triads(P52Hex(P5color));
+		return P5Palette(3, P5RGB(P5color));
 	} // Triads()
 
 
@@ -421,47 +306,97 @@ public class ColorHarmony extends ColorConvertor {
 	 *
 	 *********************************************************************************/
 	public int[] Triads(String hex) {
-		currentType = 3;
-
-		String[] paletteHex = new String[8];
-		int[]    P5Colors   = new int[8];
-
-		hex.toUpperCase().replace("#", "");
-		baseColorHex = correctColorHex(hex);
-
-		float[] hsl = Hex2HSL(baseColorHex);
-		float H = hsl[0];
-		float S = hsl[1];
-		float L = hsl[2];
-
-		float H1 = FixHue(H + 120);
-		float H2 = FixHue(H - 120);
-
-		// Color 1 (Corrected base color)
-		paletteHex[0] = baseColorHex;
-		P5Colors[0]   = Hex2P5(paletteHex[0]);
-		// Color 2
-		paletteHex[1] = HSL2Hex(H1, S, L);
-		P5Colors[1]   = Hex2P5(paletteHex[1]);
-		// Color 3
-		paletteHex[2] = "FFFFFF";
-		P5Colors[2]   = Hex2P5(paletteHex[2]);
-
-		// Color 4
-		paletteHex[3] = HSL2Hex(H2, S, L);
-		P5Colors[3]   = Hex2P5(HSL2Hex(H2, S, L));
-
-		// Color 5
-		P5Colors[4]  = Hex2P5(SecondColor(paletteHex[0]));
-		// Color 6
-		P5Colors[5]  = Hex2P5(SecondColor(paletteHex[1]));
-		// Color 7
-		P5Colors[6]  = Hex2P5(SecondColor(paletteHex[2]));
-		// Color 8
-		P5Colors[7]  = Hex2P5(SecondColor(paletteHex[3]));
-
-		// Return array with Processing colors
-		return P5Colors;
+		return P5Palette(3, hexToRGB(hex));
+	} // Triads()
+
+
+	/*********************************************************************************
+	 *
+	 *	Monochromatic color palette generator for a packed base color, without any
+	 *	allocations (no hexadecimal strings, no temporary arrays)<br>
+	 *	Example: colorHarmony.Monochromatic(0xFF00FF, colors, 0);<br>
+	 *	Note: the alpha byte of the base color is ignored, the generated colors are
+	 *	opaque (0xFFRRGGBB, the same as Processing colors in the default color mode).
+	 *	GetBaseColor() and GetCurrentType() are not updated by this method.
+	 *
+	 *	@param rgb 		Packed base color (0xRRGGBB)
+	 *	@param colors	Array that receives the 8 harmonized colors
+	 *	@param offset	Index in colors for the first generated color
+	 *
+	 *	@return			The colors array
+	 *
+	 *********************************************************************************/
+	public int[] Monochromatic(int rgb, int[] colors, int offset) {
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.MONOCHROMATIC);
+		generator.generate(0, rgb, colors, offset);
+		ColorMetrics.stop(sample, 0, rgb);
+		return colors;
+	} // Monochromatic()
+
+
+	/*********************************************************************************
+	 *
+	 *	Analogous color palette generator for a packed base color, without any
+	 *	allocations<br>
+	 *	Example: colorHarmony.Analogous(0xFF00FF, colors, 0);<br>
+	 *	Note: see Monochromatic(int, int[], int)
+	 *
+	 *	@param rgb 		Packed base color (0xRRGGBB)
+	 *	@param colors	Array that receives the 8 harmonized colors
+	 *	@param offset	Index in colors for the first generated color
+	 *
+	 *	@return			The colors array
+	 *
+	 *********************************************************************************/
+	public int[] Analogous(int rgb, int[] colors, int offset) {
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.ANALOGOUS);
+		generator.generate(1, rgb, colors, offset);
+		ColorMetrics.stop(sample, 1, rgb);
+		return colors;
+	} // Analogous()
+
+
+	/*********************************************************************************
+	 *
+	 *	Complementary color palette generator for a packed base color, without any
+	 *	allocations<br>
+	 *	Example: colorHarmony.Complementary(0xFF00FF, colors, 0);<br>
+	 *	Note: see Monochromatic(int, int[], int)
+	 *
+	 *	@param rgb 		Packed base color (0xRRGGBB)
+	 *	@param colors	Array that receives the 8 harmonized colors
+	 *	@param offset	Index in colors for the first generated color
+	 *
+	 *	@return			The colors array
+	 *
+	 *********************************************************************************/
+	public int[] Complementary(int rgb, int[] colors, int offset) {
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.COMPLEMENTARY);
+		generator.generate(2, rgb, colors, offset);
+		ColorMetrics.stop(sample, 2, rgb);
+		return colors;
+	} // Complementary()
+
+
+	/*********************************************************************************
+	 *
+	 *	Triads color palette generator for a packed base color, without any
+	 *	allocations<br>
+	 *	Example: colorHarmony.Triads(0xFF00FF, colors, 0);<br>
+	 *	Note: see Monochromatic(int, int[], int)
+	 *
+	 *	@param rgb 		Packed base color (0xRRGGBB)
+	 *	@param colors	Array that receives the 8 harmonized colors
+	 *	@param offset	Index in colors for the first generated color
+	 *
+	 *	@return			The colors array
+	 *
+	 *********************************************************************************/
+	public int[] Triads(int rgb, int[] colors, int offset) {
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.TRIADS);
+		generator.generate(3, rgb, colors, offset);
+		ColorMetrics.stop(sample, 3, rgb);
+		return colors;
 	} // Triads()
 
 
@@ -475,7 +410,6 @@ public class ColorHarmony extends ColorConvertor {
 	 *
 	 *********************************************************************************/
 	public int[] GetRandomPalette() {
-		Random rand = new Random();
 		currentType = rand.nextInt(4);
 		if (currentType == 0) {
 			return Monochromatic();
@@ -499,18 +433,27 @@ public class ColorHarmony extends ColorConvertor {
 	 *
 	 *********************************************************************************/
 	public String RandomHexColor() {
-		String rndString = "";
-		Random rand = new Random();
-		int ndx;
-		for (int i=0; i<6; i++) {
-			ndx = rand.nextInt(16);
-			char c = hexadecimalChars.charAt(ndx);
-			rndString += c;
-		} // for (int i=0; i<8; i++)
-		return rndString;
+		return HexCodec.toHex(rand.nextInt(1 << 24));
 	} // RandomHexColor() 
 
 
+	/*********************************************************************************
+	 *
+	 *	Set the seed for the random base colors and palette types<br>
+	 *	Example: colorHarmony.SetRandomSeed(42);<br>
+	 *	After this, RandomHexColor(), GetRandomPalette() and the palette methods
+	 *	without a base color give the same results on every run.<br>
+	 *	Note: for large numbers of reproducible palettes, see
+	 *	PaletteGenerator.RandomPalettes()
+	 *
+	 *	@param seed 	The seed
+	 *
+	 *********************************************************************************/
+	public void SetRandomSeed(long seed) {
+		rand.setSeed(seed);
+	} // SetRandomSeed()
+
+
 	/*********************************************************************************
 	 *
 	 *	Return the hexadecimal value of the current base color<br>
@@ -550,6 +493,254 @@ public class ColorHarmony extends ColorConvertor {
 	} // GetCurrentTypeText()	
 
 
+	/*********************************************************************************
+	 *
+	 *	Harmonize an image: rotate the hue of every pixel onto the nearest hue of the
+	 *	harmony and clamp saturation and luminosity to the min/max values<br>
+	 *	Example: colorHarmony.harmonize(img, 3, color(255, 0, 255));<br>
+	 *	See the Harmonizer class for the details.
+	 *
+	 *	@param img 			The image (changed in place)
+	 *	@param type			Palette type [0..3 = monochromatic, analogous, complementary, triads]
+	 *	@param baseColor	Processing color value for the base color
+	 *
+	 *********************************************************************************/
+	public void harmonize(PImage img, int type, int baseColor) {
+		img.loadPixels();
+		harmonize(img.pixels, type, baseColor);
+		img.updatePixels();
+	} // harmonize()
+
+
+	/*********************************************************************************
+	 *
+	 *	Harmonize a pixel buffer (in place)<br>
+	 *	Example: colorHarmony.harmonize(pixels, 3, color(255, 0, 255));<br>
+	 *	See the Harmonizer class for the details.
+	 *
+	 *	@param pixels 		Packed colors (0xAARRGGBB)
+	 *	@param type			Palette type [0..3 = monochromatic, analogous, complementary, triads]
+	 *	@param baseColor	Processing color value for the base color
+	 *
+	 *********************************************************************************/
+	public void harmonize(int[] pixels, int type, int baseColor) {
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.HARMONIZE);
+		new Harmonizer(minSaturation, maxSaturation, minLuminosity, maxLuminosity)
+				.harmonize(pixels, type, baseColor);
+		ColorMetrics.stop(sample, pixels.length);
+	} // harmonize()
+
+
+	/*********************************************************************************
+	 *
+	 *	Clamp the saturation and luminosity of every pixel of an image to the min/max
+	 *	values (the same correction as the base colors of the palettes)<br>
+	 *	Example: colorHarmony.Clamp(img);<br>
+	 *	See the GamutClamp class for the details.
+	 *
+	 *	@param img 			The image (changed in place)
+	 *
+	 *********************************************************************************/
+	public void Clamp(PImage img) {
+		img.loadPixels();
+		Clamp(img.pixels);
+		img.updatePixels();
+	} // Clamp()
+
+
+	/*********************************************************************************
+	 *
+	 *	Clamp the saturation and luminosity of a pixel buffer (in place)<br>
+	 *	Example: colorHarmony.Clamp(pixels);<br>
+	 *	See the GamutClamp class for the details.
+	 *
+	 *	@param pixels 		Packed colors (0xAARRGGBB)
+	 *
+	 *********************************************************************************/
+	public void Clamp(int[] pixels) {
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.CLAMP);
+		if (gamutClamp == null) {
+			gamutClamp = new GamutClamp(minSaturation, maxSaturation, minLuminosity, maxLuminosity);
+		}
+		gamutClamp.clamp(pixels);
+		ColorMetrics.stop(sample, pixels.length);
+	} // Clamp()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the dominant colors of an image, to use as base colors<br>
+	 *	Example: int[] colors = colorHarmony.DominantColors(img, 5);<br>
+	 *	int[] palette = colorHarmony.Triads(colors[0]);<br>
+	 *	Median cut over all pixels; transparent pixels of ARGB images are skipped.
+	 *	See the ColorExtractor class for the details.
+	 *
+	 *	@param img 		The image
+	 *	@param count	Maximum number of colors
+	 *
+	 *	@return			Processing color values, most pixels first
+	 *
+	 *********************************************************************************/
+	public int[] DominantColors(PImage img, int count) {
+		return DominantColors(img, count, ColorExtractor.MEDIAN_CUT, 1);
+	} // DominantColors()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the dominant colors of an image, with a quantization method and a
+	 *	stride (for huge images)<br>
+	 *	Example: int[] colors = colorHarmony.DominantColors(img, 5, ColorExtractor.KMEANS, 4);
+	 *
+	 *	@param img 		The image
+	 *	@param count	Maximum number of colors
+	 *	@param method	ColorExtractor.MEDIAN_CUT or ColorExtractor.KMEANS
+	 *	@param stride	Count every n-th pixel (1 = all pixels)
+	 *
+	 *	@return			Processing color values, most pixels first
+	 *
+	 *********************************************************************************/
+	public int[] DominantColors(PImage img, int count, int method, int stride) {
+		img.loadPixels();
+		ColorMetrics.Sample sample = ColorMetrics.start(ColorMetrics.DOMINANT_COLORS);
+		int[] colors = new ColorExtractor(method, stride, img.format == PConstants.ARGB)
+				.DominantColors(img.pixels, count);
+		ColorMetrics.stop(sample, img.pixels.length);
+		for (int i = 0; i < colors.length; i++) {
+			int c = colors[i];
+			colors[i] = P5Color(ColorMath.red(c), ColorMath.green(c), ColorMath.blue(c));
+		}
+		return colors;
+	} // DominantColors()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the WCAG contrast ratios between all colors of a palette<br>
+	 *	Example: float[] matrix = colorHarmony.ContrastMatrix(colorHarmony.Triads("#FF00FF"));<br>
+	 *	See the PaletteContrast class for the details.
+	 *
+	 *	@param colors 	Palette (8 Processing color values)
+	 *
+	 *	@return			The 8x8 contrast ratios (1..21), row by row: the ratio of
+	 *					colors i and j is at index i * 8 + j
+	 *
+	 *********************************************************************************/
+	public float[] ContrastMatrix(int[] colors) {
+		return ContrastMatrix(colors, 0, new float[PaletteGenerator.SIZE * PaletteGenerator.SIZE], 0);
+	} // ContrastMatrix()
+
+
+	/*********************************************************************************
+	 *
+	 *	Write the WCAG contrast ratios between all colors of a palette into an array<br>
+	 *	Example: colorHarmony.ContrastMatrix(colors, 0, matrix, 0);
+	 *
+	 *	@param colors 		Processing color values
+	 *	@param offset		Index in colors of the first color of the palette
+	 *	@param matrix		Receives the 8x8 contrast ratios, row by row
+	 *	@param matrixOffset	Index in matrix for the first ratio
+	 *
+	 *	@return				The matrix array
+	 *
+	 *********************************************************************************/
+	public float[] ContrastMatrix(int[] colors, int offset, float[] matrix, int matrixOffset) {
+		PaletteContrast.matrix(colors, offset, matrix, matrixOffset, new double[PaletteContrast.SIZE]);
+		return matrix;
+	} // ContrastMatrix()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the WCAG pass/fail flags of the color pairs of a palette<br>
+	 *	Example: long flags = colorHarmony.ContrastFlags(colors, PaletteContrast.AA);<br>
+	 *	if (PaletteContrast.Passes(flags, 0, 7)) ...<br>
+	 *	See the PaletteContrast class for the details.
+	 *
+	 *	@param colors 		Palette (8 Processing color values)
+	 *	@param minRatio		Minimum contrast ratio (PaletteContrast.AA, AA_LARGE, AAA,
+	 *						AAA_LARGE or any other ratio)
+	 *
+	 *	@return				Bit i * 8 + j is set when the ratio of colors i and j is
+	 *						at least minRatio
+	 *
+	 *********************************************************************************/
+	public long ContrastFlags(int[] colors, float minRatio) {
+		return PaletteContrast.flags(colors, 0, minRatio, new double[PaletteContrast.SIZE]);
+	} // ContrastFlags()
+
+
+	/*********************************************************************************
+	 *
+	 *	Use a cache for the generated palettes<br>
+	 *	Example: colorHarmony.SetPaletteCache(new PaletteCache(500));<br>
+	 *	The same cache can be shared by several ColorHarmony instances (also with
+	 *	different min/max values, they are part of the cache key).<br>
+	 *
+	 *	@param cache 	The palette cache, or null for no caching
+	 *
+	 *********************************************************************************/
+	public void SetPaletteCache(PaletteCache cache) {
+		generator = generator.WithCache(cache);
+	} // SetPaletteCache()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the palette cache<br>
+	 *	Example: println(colorHarmony.GetPaletteCache().GetHitRate());
+	 *
+	 *	@return		The palette cache (null if there is none)
+	 *
+	 *********************************************************************************/
+	public PaletteCache GetPaletteCache() {
+		return generator.GetPaletteCache();
+	} // GetPaletteCache()
+
+
+	/*********************************************************************************
+	 *
+	 *	Read the palettes from a precomputed palette index (see PaletteIndex)<br>
+	 *	Example: colorHarmony.SetPaletteIndex(PaletteIndex.Open(Paths.get("palettes.idx")));<br>
+	 *	The index must be built with the same min/max values as this instance.
+	 *
+	 *	@param index 	The palette index, or null to generate the palettes
+	 *
+	 *********************************************************************************/
+	public void SetPaletteIndex(PaletteIndex index) {
+		generator = generator.WithIndex(index);
+	} // SetPaletteIndex()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the palette index<br>
+	 *	Example: PaletteIndex index = colorHarmony.GetPaletteIndex();
+	 *
+	 *	@return		The palette index (null if there is none)
+	 *
+	 *********************************************************************************/
+	public PaletteIndex GetPaletteIndex() {
+		return generator.GetPaletteIndex();
+	} // GetPaletteIndex()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the palette generator of this instance<br>
+	 *	Example: PaletteGenerator generator = colorHarmony.GetGenerator();<br>
+	 *	The generator is stateless and immutable: one instance can be used by many
+	 *	threads at the same time, without locking (unlike this class, which keeps
+	 *	the current base color and palette type).
+	 *
+	 *	@return		The palette generator (same min/max values, palette cache and index)
+	 *
+	 *********************************************************************************/
+	public PaletteGenerator GetGenerator() {
+		return generator;
+	} // GetGenerator()
+
+
 	/*********************************************************************************
 	 *
 	 *	Displays version information of this library in the console<br>
@@ -571,136 +762,97 @@ public class ColorHarmony extends ColorConvertor {
 
 	/*********************************************************************************
 	 *
-	 *	INTERNAL: Fix the hue (if needed)
+	 *	INTERNAL: Generate a palette, make it the current palette and convert its
+	 *	colors to Processing colors
 	 *
-	 *	@param hue 	Hue value to check and fix, if needed
+	 *	@param type 	Palette type [0..3]
+	 *	@param rgb		Packed base color (0xRRGGBB)
 	 *
-	 *	@return		Fixed hue value
+	 *	@return			Processing color array with the colors of the palette
 	 *
-	 *********************************************************************************/	
-	float FixHue(float hue) {
-		if (hue < 0) {
-			return hue + 360;
-		} else if (hue > 360) {
-			return hue - 360;
-		} else {
-			return hue;
-		} // if (hue < 0)
-	} // FixHue()
-	
+	 *********************************************************************************/
+	int[] P5Palette(int type, int rgb) {
+		ColorMetrics.Sample sample = ColorMetrics.start(type);
+		int[] P5Colors = P5Palette(generator.generate(type, rgb));
+		ColorMetrics.stop(sample, type, rgb);
+		return P5Colors;
+	} // P5Palette()
+
 
 	/*********************************************************************************
 	 *
-	 *	INTERNAL: Generate a second color, based on the base color
+	 *	INTERNAL: Make a palette the current palette and convert its colors to
+	 *	Processing colors
 	 *
-	 *	@param hex 	Hexadecimal color value for the base color
+	 *	@param palette 	The generated palette
 	 *
-	 *	@return		Hexadecimal color value of the generated second color
+	 *	@return			Processing color array with the colors of the palette
 	 *
-	 *********************************************************************************/		
-	String SecondColor(String hex) {
-
-		int[] RGB = Hex2RGB(hex);
-		int R = RGB[0];
-		int G = RGB[1];
-		int B = RGB[2];
-
-		float par = 0.75f;
+	 *********************************************************************************/
+	int[] P5Palette(Palette palette) {
+		currentType  = palette.GetType();
+		baseColorHex = palette.GetBaseColor();
+
+		int[] P5Colors = palette.GetColors();
+		if (!defaultColorMode()) {
+			for (int i = 0; i < P5Colors.length; i++) {
+				int rgb = P5Colors[i];
+				P5Colors[i] = parent.color(ColorMath.red(rgb), ColorMath.green(rgb), ColorMath.blue(rgb));
+			}
+		} // if (!defaultColorMode())
+		return P5Colors;
+	} // P5Palette()
 
-		int R2 = (int)Math.floor(par * R);
-		int G2 = (int)Math.floor(par * G);
-		int B2 = (int)Math.floor(par * B);
 
-		return RGB2Hex(R2, G2, B2);
-	} // SecondColor()
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: RGB values to a Processing color, in the color mode of the sketch
+	 *
+	 *********************************************************************************/
+	@Override
+	int P5Color(int r, int g, int b) {
+		if (defaultColorMode()) return super.P5Color(r, g, b);
+		return parent.color(r, g, b);
+	} // P5Color()
 
 
 	/*********************************************************************************
 	 *
-	 *	INTERNAL: Mono color
+	 *	INTERNAL: Processing color to a packed color, in the color mode of the sketch
 	 *
-	 *	@param color 	Red, green of blue value of a color
-	 *	@param number	Sequence number of the color
+	 *********************************************************************************/
+	@Override
+	int P5RGB(int P5color) {
+		if (defaultColorMode()) return super.P5RGB(P5color);
+		return ColorMath.pack((int)parent.red(P5color), (int)parent.green(P5color), (int)parent.blue(P5color));
+	} // P5RGB()
+
+
+	/*********************************************************************************
 	 *
-	 *	@return			Value
+	 *	INTERNAL: Check if Processing colors can be packed directly (no sketch, or
+	 *	the default color mode: RGB, 0..255), so there is no need to call the sketch
 	 *
-	 *********************************************************************************/	
-	int MonoColor(int color, int number) {
-
-		int par1 = 128;
-		int par2 = 192;
-		int par3 = 90; // 64
-		int par4 = 215; // 223
-
-		int diffC = color - par1;
-		int diff  = Math.abs(diffC);
-
-		// Color 2
-		if (number == 2) {
-			if (diffC >= 1) {
-				return par2 + (int)Math.floor(0.5f * diff);
-			} else if (diffC < 0) {
-				return par2 - (int)Math.floor(0.5f * diff);
-			} else {
-				return par2;
-			} // if (diffC >= 1)
-		} // if (number == 2)
-
-		// Color 3		
-		if (number == 3) {
-			if (diffC >= 1) {
-				return par3 + (int)Math.floor(0.5f * diff);
-			} else if (diffC < 0) {
-				return par3 - (int)Math.floor(0.5f * diff);
-			} else {
-				return par3;
-			} // if (diffC >= 1)
-		} // if (number == 3)
-		
-		// Color 4
-		if (number == 4) {
-			if (diffC >= 1) {
-				return par4 + (int)Math.floor(0.25f * diff);
-			} else if (diffC < 0) {
-				return par4 - (int)Math.floor(0.25f * diff);
-			} else {
-				return par4;
-			} // if (diffC >= 1)
-		} // if (number == 4)
-
-		return -1;
-	} // MonoColor()
-	
+	 *********************************************************************************/
+	boolean defaultColorMode() {
+		if (parent == null || parent.g == null) return true;
+		PGraphics g = parent.g;
+		return g.colorMode == PConstants.RGB
+				&& g.colorModeX == 255 && g.colorModeY == 255 && g.colorModeZ == 255;
+	} // defaultColorMode()
+
 
 	/*********************************************************************************
 	 *
-	 *	INTERNAL: Correct a hex color (based of max values)
+	 *	INTERNAL: Convert a hexadecimal color string to a packed color
 	 *
-	 *	@param hex 	Hex value of the color to correct
+	 *	@param hex 	Hexadecimal color string (6 characters)
 	 *
-	 *	@return		The corrected hex value
+	 *	@return		Packed color (0xRRGGBB)
 	 *
-	 *********************************************************************************/	
-	String correctColorHex(String hex) {
-
-		float[] hsl = Hex2HSL(hex);
-
-		float hBase = hsl[0];
-		float sBase = hsl[1];
-		float lBase = hsl[2];
-		
-		if (sBase > maxSaturation) {
-			hex = HSL2Hex(hBase, maxSaturation, lBase);
-		} else if (sBase < minSaturation) {
-			hex = HSL2Hex(hBase, minSaturation, lBase);
-		} // if (sBase > s_max)
-		
-		if (lBase > maxLuminosity) {
-			hex = HSL2Hex(hBase, sBase, maxLuminosity);
-		} else if (lBase < minLuminosity) {
-			hex = HSL2Hex(hBase, sBase, minLuminosity);
-		} // if (lBase > l_max)
-		
-		return hex;
-	} // correctColorHex()	
+	 *********************************************************************************/
+	int hexToRGB(String hex) {
+		int[] rgb = hex2rgb(hex);
+		return ColorMath.pack(rgb[0], rgb[1], rgb[2]);
+	} // hexToRGB()
 } // ColorHarmony
\ No newline at end of file
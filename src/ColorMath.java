@@ -0,0 +1,312 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Allocation-free color math on packed 0xRRGGBB integers
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+
+/*************************************************************************************
+ *
+ *	<b>ColorMath class</b><br><br>
+ *	Static helper for the packed integer code paths. Every method works on plain
+ *	ints and floats, so nothing is allocated per call.<br>
+ *	The formulas are exactly the ones used by ColorConvertor.RGB2HSL() and
+ *	ColorConvertor.HSL2RGB(), so both code paths produce identical colors.
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+final class ColorMath {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	// Alpha mask for an opaque (Processing) color
+	static final int OPAQUE = 0xFF000000;
+
+	// Mask for the rgb part of a packed color
+	static final int RGB_MASK = 0x00FFFFFF;
+
+	// Channel values as fractions: UNIT[c] = c / 255f (the same floats, without
+	// the divisions)
+	static final float[] UNIT = new float[256];
+
+	static {
+		for (int c = 0; c < 256; c++) UNIT[c] = c / 255f;
+	}
+
+	// Vector API kernels for the bulk conversions (null: the scalar loops)
+	static final BulkHSL VECTOR = BulkHSL.load();
+
+
+	/*********************************************************************************
+	 *
+	 *	Static helper only
+	 *
+	 *********************************************************************************/
+	private ColorMath() {
+	} // ColorMath()
+
+
+	/*********************************************************************************
+	 *
+	 *	Pack red, green and blue values (0..255) into a 0xRRGGBB integer
+	 *
+	 *********************************************************************************/
+	static int pack(int r, int g, int b) {
+		return ((r & 0xFF) << 16) | ((g & 0xFF) << 8) | (b & 0xFF);
+	} // pack()
+
+
+	/*********************************************************************************
+	 *
+	 *	Red, green and blue values (0..255) of a packed color
+	 *
+	 *********************************************************************************/
+	static int red(int rgb) {
+		return (rgb >> 16) & 0xFF;
+	} // red()
+
+	static int green(int rgb) {
+		return (rgb >> 8) & 0xFF;
+	} // green()
+
+	static int blue(int rgb) {
+		return rgb & 0xFF;
+	} // blue()
+
+
+	/*********************************************************************************
+	 *
+	 *	Hue (0..360) of a packed color, same result as ColorConvertor.RGB2HSL()[0]
+	 *
+	 *********************************************************************************/
+	static float hue(int rgb) {
+		float fR = UNIT[red(rgb)];
+		float fG = UNIT[green(rgb)];
+		float fB = UNIT[blue(rgb)];
+
+		float varMax   = Math.max(fR, Math.max(fG, fB));
+		float varMin   = Math.min(fR, Math.min(fG, fB));
+		float deltaMax = varMax - varMin;
+
+		// This is a gray, no chroma
+		if (deltaMax == 0) return 0;
+
+		return hue(fR, fG, fB, varMax, deltaMax);
+	} // hue()
+
+
+	/*********************************************************************************
+	 *
+	 *	Hue (0..360) of a chromatic color (deltaMax > 0), same floats as the formula
+	 *	of ColorConvertor.RGB2HSL(): only the two del_ values of the max channel are
+	 *	calculated (if more channels are the max, blue wins, then green)
+	 *
+	 *********************************************************************************/
+	static float hue(float fR, float fG, float fB, float varMax, float deltaMax) {
+		float half = deltaMax / 2f;
+		float h;
+		if ( fB == varMax ) {
+			float del_G = ( ( ( varMax - fG ) / 6f ) + half ) / deltaMax;
+			float del_R = ( ( ( varMax - fR ) / 6f ) + half ) / deltaMax;
+			h = ( 2.0f / 3.0f ) + del_G - del_R;
+		} else if ( fG == varMax ) {
+			float del_R = ( ( ( varMax - fR ) / 6f ) + half ) / deltaMax;
+			float del_B = ( ( ( varMax - fB ) / 6f ) + half ) / deltaMax;
+			h = ( 1.0f / 3.0f ) + del_R - del_B;
+		} else {
+			float del_B = ( ( ( varMax - fB ) / 6f ) + half ) / deltaMax;
+			float del_G = ( ( ( varMax - fG ) / 6f ) + half ) / deltaMax;
+			h = del_B - del_G;
+		} // if ( fB == varMax )
+
+		if ( h < 0 ) h += 1;
+		if ( h > 1 ) h -= 1;
+
+		return h * 360;
+	} // hue()
+
+
+	/*********************************************************************************
+	 *
+	 *	Saturation (0..100) of a packed color, same result as ColorConvertor.RGB2HSL()[1]
+	 *
+	 *********************************************************************************/
+	static float saturation(int rgb) {
+		float fR = UNIT[red(rgb)];
+		float fG = UNIT[green(rgb)];
+		float fB = UNIT[blue(rgb)];
+
+		float varMax   = Math.max(fR, Math.max(fG, fB));
+		float varMin   = Math.min(fR, Math.min(fG, fB));
+		float deltaMax = varMax - varMin;
+
+		// This is a gray, no chroma
+		if (deltaMax == 0) return 0;
+
+		float s;
+		if ( ( varMax + varMin ) / 2 < 0.5f )
+			s = deltaMax / ( varMax + varMin );
+		else
+			s = deltaMax / ( 2f - varMax - varMin );
+
+		return s * 100;
+	} // saturation()
+
+
+	/*********************************************************************************
+	 *
+	 *	Luminosity (0..100) of a packed color, same result as ColorConvertor.RGB2HSL()[2]
+	 *
+	 *********************************************************************************/
+	static float luminosity(int rgb) {
+		float fR = UNIT[red(rgb)];
+		float fG = UNIT[green(rgb)];
+		float fB = UNIT[blue(rgb)];
+
+		float varMax = Math.max(fR, Math.max(fG, fB));
+		float varMin = Math.min(fR, Math.min(fG, fB));
+
+		return ( ( varMax + varMin ) / 2 ) * 100;
+	} // luminosity()
+
+
+	/*********************************************************************************
+	 *
+	 *	HSL values to a packed 0xRRGGBB color, same result as ColorConvertor.HSL2RGB()
+	 *
+	 *	@param h 	Hue value (0..360)
+	 *	@param s 	Saturation value (0..100)
+	 *	@param l 	Luminosity value (0..100)
+	 *
+	 *********************************************************************************/
+	static int hsl2rgb(float h, float s, float l) {
+		float R, G, B;
+
+		h = h / 360.0f;
+		s = s / 100.0f;
+		l = l / 100.0f;
+
+		if ( s == 0 ) {
+			R = l * 255;
+			G = l * 255;
+			B = l * 255;
+		} else {
+			float var_2;
+			if ( l < 0.5f ) {
+				var_2 = (l * ( 1.0f + s ));
+			} else {
+				var_2 = (( l + s ) - ( s * l ));
+			}
+			float var_1 = 2.0f * l - var_2;
+
+			R = 255 * hue2rgb( var_1, var_2, h + ( 1.0f / 3.0f ) );
+			G = 255 * hue2rgb( var_1, var_2, h );
+			B = 255 * hue2rgb( var_1, var_2, h - ( 1.0f / 3.0f ) );
+		}
+
+		return pack((int)R, (int)G, (int)B);
+	} // hsl2rgb()
+
+
+	/*********************************************************************************
+	 *
+	 *	Bulk RGB to HSL for count colors from rgb[from], written to h, s and l from
+	 *	index outFrom (the alpha bytes are ignored)<br>
+	 *	Uses the Vector API kernels when they are available (see BulkHSL), the
+	 *	scalar loop otherwise; both give the same results.
+	 *
+	 *********************************************************************************/
+	static void rgb2hsl(int[] rgb, int from, float[] h, float[] s, float[] l, int outFrom, int count) {
+		if (VECTOR != null) {
+			VECTOR.rgb2hsl(rgb, from, h, s, l, outFrom, count);
+		} else {
+			rgb2hslLoop(rgb, from, h, s, l, outFrom, count);
+		}
+	} // rgb2hsl()
+
+
+	/*********************************************************************************
+	 *
+	 *	Scalar bulk RGB to HSL (see rgb2hsl())<br>
+	 *	One min/max per color for all three values; the expressions are the ones of
+	 *	hue(), saturation() and luminosity(), so the results are bit-identical.
+	 *
+	 *********************************************************************************/
+	static void rgb2hslLoop(int[] rgb, int from, float[] h, float[] s, float[] l, int outFrom, int count) {
+		for (int n = 0; n < count; n++) {
+			int c = rgb[from + n];
+			int i = outFrom + n;
+			float fR = UNIT[(c >> 16) & 0xFF];
+			float fG = UNIT[(c >> 8)  & 0xFF];
+			float fB = UNIT[ c        & 0xFF];
+
+			float varMax   = Math.max(fR, Math.max(fG, fB));
+			float varMin   = Math.min(fR, Math.min(fG, fB));
+			float deltaMax = varMax - varMin;
+			float lum      = ( varMax + varMin ) / 2;
+
+			float hue = 0;
+			float sat = 0;
+			if (deltaMax != 0) {
+				sat = lum < 0.5f ? deltaMax / ( varMax + varMin ) : deltaMax / ( 2f - varMax - varMin );
+				hue = hue(fR, fG, fB, varMax, deltaMax);
+			}
+
+			h[i] = hue;
+			s[i] = sat * 100;
+			l[i] = lum * 100;
+		}
+	} // rgb2hslLoop()
+
+
+	/*********************************************************************************
+	 *
+	 *	Bulk HSL to opaque RGB (0xFFRRGGBB) for rgb[from..to-1], same results as
+	 *	hsl2rgb()<br>
+	 *	Uses the Vector API kernels when they are available (see BulkHSL).
+	 *
+	 *********************************************************************************/
+	static void hsl2rgb(float[] h, float[] s, float[] l, int[] rgb, int from, int to) {
+		if (VECTOR != null) {
+			VECTOR.hsl2rgb(h, s, l, rgb, from, to);
+		} else {
+			hsl2rgbLoop(h, s, l, rgb, from, to);
+		}
+	} // hsl2rgb()
+
+
+	/*********************************************************************************
+	 *
+	 *	Scalar bulk HSL to opaque RGB (see hsl2rgb())
+	 *
+	 *********************************************************************************/
+	static void hsl2rgbLoop(float[] h, float[] s, float[] l, int[] rgb, int from, int to) {
+		for (int i = from; i < to; i++) {
+			rgb[i] = OPAQUE | hsl2rgb(h[i], s[i], l[i]);
+		}
+	} // hsl2rgbLoop()
+
+
+	/*********************************************************************************
+	 *
+	 *	Used by hsl2rgb(), same formula as ColorConvertor.HUE2RGB()
+	 *
+	 *********************************************************************************/
+	static float hue2rgb(float temp1, float temp2, float temp3) {
+		if ( temp3 < 0.0f ) temp3 += 1;
+		if ( temp3 > 1.0f ) temp3 -= 1;
+		if ( ( 6.0f * temp3 ) < 1.0f ) return ( temp1 + ( temp2 - temp1 ) * 6.0f * temp3 );
+		if ( ( 2.0f * temp3 ) < 1.0f ) return ( temp2 );
+		if ( ( 3.0f * temp3 ) < 2.0f ) return ( temp1 + ( temp2 - temp1 ) * ( ( 2.0f / 3.0f ) - temp3 ) * 6.0f );
+		return ( temp1 );
+	} // hue2rgb()
+} // ColorMath
@@ -0,0 +1,402 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Optional instrumentation: call counters and latency histograms (JMX) and
+ *	Flight Recorder events
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+
+/*************************************************************************************
+ *
+ *	<b>ColorMetrics class</b><br><br>
+ *	Counts the calls of the public operations of ColorHarmony and ColorConvertor
+ *	and keeps a latency histogram per operation. The numbers are exposed through
+ *	the MBean com.cage.colorharmony:type=ColorMetrics (JConsole, VisualVM, any JMX
+ *	agent), with one attribute per operation (count, mean, p50, p99, max and the
+ *	histogram).<br>
+ *	On a JVM with Flight Recorder (Java 11+), palette generation and bulk
+ *	operations emit the JFR events com.cage.colorharmony.PaletteGeneration and
+ *	com.cage.colorharmony.BulkOperation while a recording is running, whether the
+ *	metrics are on or not (see FlightEvents).<br><br>
+ *	The metrics are off by default. Switched off, a conversion only reads one
+ *	volatile flag (palette generation and bulk operations also read the recording
+ *	flag of FlightEvents), so the calls can stay in place in production.<br>
+ *	Example: ColorMetrics.Enable();<br>
+ *	Or at startup: java -Dcolorharmony.metrics=true ...<br><br>
+ *	Nested operations are not counted twice: Hex2HSL() is one call, not a call of
+ *	Hex2RGB() plus a call of RGB2HSL().
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+public final class ColorMetrics {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	// Operations: palette generation (the ids are the palette types)
+	static final int MONOCHROMATIC   = 0;
+	static final int ANALOGOUS       = 1;
+	static final int COMPLEMENTARY   = 2;
+	static final int TRIADS          = 3;
+	// Bulk operations (with an item count)
+	static final int HARMONIZE       = 4;
+	static final int DOMINANT_COLORS = 5;
+	static final int CLAMP           = 6;
+	static final int RGB2HSL_BULK    = 7;
+	static final int HSL2RGB_BULK    = 8;
+	static final int RGB2LAB_BULK    = 9;
+	static final int RGB2LCH_BULK    = 10;
+	static final int RGB2OKLAB_BULK  = 11;
+	static final int RGB2OKLCH_BULK  = 12;
+	// Single color conversions
+	static final int DECIMAL2HEX     = 13;
+	static final int HEX2DECIMAL     = 14;
+	static final int HEX2HSL         = 15;
+	static final int HEX2P5          = 16;
+	static final int HEX2RGB         = 17;
+	static final int HSL2HEX         = 18;
+	static final int HSL2RGB         = 19;
+	static final int P52HEX          = 20;
+	static final int RGB2HEX         = 21;
+	static final int RGB2HSL         = 22;
+	static final int RGB2LAB         = 23;
+	static final int RGB2LCH         = 24;
+	static final int RGB2OKLAB       = 25;
+	static final int RGB2OKLCH       = 26;
+	static final int LAB2RGB         = 27;
+	static final int LCH2RGB         = 28;
+	static final int OKLAB2RGB       = 29;
+	static final int OKLCH2RGB       = 30;
+
+	static final int FIRST_BULK = HARMONIZE;
+	static final int FIRST_CONVERSION = DECIMAL2HEX;
+
+	static final String[] OPERATIONS = {
+		"Monochromatic", "Analogous", "Complementary", "Triads",
+		"Harmonize", "DominantColors", "Clamp", "RGB2HSLBulk", "HSL2RGBBulk",
+		"RGB2LabBulk", "RGB2LChBulk", "RGB2OKLabBulk", "RGB2OKLChBulk",
+		"Decimal2Hex", "Hex2Decimal", "Hex2HSL", "Hex2P5", "Hex2RGB", "HSL2Hex",
+		"HSL2RGB", "P52Hex", "RGB2Hex", "RGB2HSL", "RGB2Lab", "RGB2LCh",
+		"RGB2OKLab", "RGB2OKLCh", "Lab2RGB", "LCh2RGB", "OKLab2RGB", "OKLCh2RGB"
+	};
+
+	// Histogram bucket b counts the latencies of 2^b..2^(b+1)-1 nanoseconds
+	// (the last bucket also counts everything above 2^40 ns, about 18 minutes)
+	static final int BUCKETS = 41;
+
+	static final String OBJECT_NAME = "com.cage.colorharmony:type=ColorMetrics";
+
+	static volatile boolean enabled;
+	static boolean registered;
+
+	static final LongAdder[] counts     = adders(OPERATIONS.length);
+	static final LongAdder[] nanos      = adders(OPERATIONS.length);
+	static final LongAdder[] items      = adders(OPERATIONS.length);
+	static final LongAdder[] histograms = adders(OPERATIONS.length * BUCKETS);
+	static final AtomicLongArray maxima = new AtomicLongArray(OPERATIONS.length);
+
+	static {
+		if (Boolean.getBoolean("colorharmony.metrics")) Enable();
+	}
+
+
+	/*********************************************************************************
+	 *
+	 *	No instances: all methods are static
+	 *
+	 *********************************************************************************/
+	private ColorMetrics() {
+	} // ColorMetrics()
+
+
+	/*********************************************************************************
+	 *
+	 *	Switch the metrics on (and register the MBean on the platform MBean server)<br>
+	 *	Example: ColorMetrics.Enable();<br>
+	 *	The MBean stays registered after Disable(), so the numbers can still be read
+	 *	and the metrics can be switched back on (attribute Enabled).
+	 *
+	 *********************************************************************************/
+	public static void Enable() {
+		register();
+		enabled = true;
+	} // Enable()
+
+
+	/*********************************************************************************
+	 *
+	 *	Switch the metrics off (the numbers are kept, see Reset())<br>
+	 *	Example: ColorMetrics.Disable();
+	 *
+	 *********************************************************************************/
+	public static void Disable() {
+		enabled = false;
+	} // Disable()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return true if the metrics are on
+	 *
+	 *********************************************************************************/
+	public static boolean IsEnabled() {
+		return enabled;
+	} // IsEnabled()
+
+
+	/*********************************************************************************
+	 *
+	 *	Set all counters and histograms to zero<br>
+	 *	Example: ColorMetrics.Reset();<br>
+	 *	Calls that run during the reset can be counted partly.
+	 *
+	 *********************************************************************************/
+	public static void Reset() {
+		for (int op = 0; op < OPERATIONS.length; op++) {
+			counts[op].reset();
+			nanos[op].reset();
+			items[op].reset();
+			maxima.set(op, 0);
+		}
+		for (LongAdder bucket : histograms) bucket.reset();
+	} // Reset()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the names of the operations<br>
+	 *	Example: for (String op : ColorMetrics.GetOperations()) println(op + ": " + ColorMetrics.GetCount(op));
+	 *
+	 *********************************************************************************/
+	public static String[] GetOperations() {
+		return OPERATIONS.clone();
+	} // GetOperations()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the number of calls of an operation<br>
+	 *	Example: long n = ColorMetrics.GetCount("Triads");
+	 *
+	 *	@param operation 	Name of the operation (see GetOperations())
+	 *
+	 *	@return				Number of calls since the last Reset()
+	 *
+	 *********************************************************************************/
+	public static long GetCount(String operation) {
+		return counts[op(operation)].sum();
+	} // GetCount()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the mean latency of an operation in nanoseconds (0 without calls)<br>
+	 *	Example: double mean = ColorMetrics.GetMeanNanos("RGB2Lab");
+	 *
+	 *********************************************************************************/
+	public static double GetMeanNanos(String operation) {
+		int op = op(operation);
+		long n = counts[op].sum();
+		return n == 0 ? 0 : nanos[op].sum() / (double)n;
+	} // GetMeanNanos()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return a latency percentile of an operation in nanoseconds<br>
+	 *	Example: long p99 = ColorMetrics.GetPercentileNanos("Triads", 99);<br>
+	 *	The histogram has power of 2 buckets: the result is the upper bound of the
+	 *	bucket of the percentile, so it is at most 2 times the exact value.
+	 *
+	 *	@param operation 	Name of the operation (see GetOperations())
+	 *	@param percentile	0..100
+	 *
+	 *	@return				Latency in nanoseconds (0 without calls)
+	 *
+	 *********************************************************************************/
+	public static long GetPercentileNanos(String operation, double percentile) {
+		return percentile(histogram(op(operation)), percentile);
+	} // GetPercentileNanos()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL METHODS
+	 *
+	 *********************************************************************************/
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: One call of an operation, timed for the metrics and/or with a JFR
+	 *	event (null when there is neither)
+	 *
+	 *********************************************************************************/
+	static final class Sample {
+		final int     op;
+		final boolean timed;
+		final long    start;
+		final Object  event;
+
+		Sample(int _op, boolean _timed, long _start, Object _event) {
+			op    = _op;
+			timed = _timed;
+			start = _start;
+			event = _event;
+		} // Sample()
+	} // Sample
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Start timing a call (returns null when the metrics are off and no
+	 *	recording wants an event)
+	 *
+	 *********************************************************************************/
+	static Sample start(int op) {
+		boolean timed = enabled;
+		Object  event = op < FIRST_CONVERSION ? FlightEvents.start(op) : null;
+		if (!timed && event == null) return null;
+		return new Sample(op, timed, timed ? System.nanoTime() : 0, event);
+	} // start()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Stop timing a call: single color conversion, bulk operation
+	 *	(number of colors or pixels) or palette generation (type and base color)
+	 *
+	 *********************************************************************************/
+	static void stop(Sample sample) {
+		if (sample != null && sample.timed) record(sample, 0);
+	} // stop()
+
+	static void stop(Sample sample, long n) {
+		if (sample == null) return;
+		if (sample.timed) record(sample, n);
+		if (sample.event != null) FlightEvents.finish(sample.event, OPERATIONS[sample.op], n);
+	} // stop()
+
+	static void stop(Sample sample, int type, int rgb) {
+		if (sample == null) return;
+		if (sample.timed) record(sample, 0);
+		if (sample.event != null) FlightEvents.finish(sample.event, OPERATIONS[sample.op], type, rgb);
+	} // stop()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Add a call to the counters and the histogram
+	 *
+	 *********************************************************************************/
+	static void record(Sample sample, long n) {
+		int  op      = sample.op;
+		long elapsed = Math.max(0, System.nanoTime() - sample.start);
+		counts[op].increment();
+		nanos[op].add(elapsed);
+		if (n != 0) items[op].add(n);
+		histograms[op * BUCKETS + bucket(elapsed)].increment();
+		long max;
+		while (elapsed > (max = maxima.get(op)) && !maxima.compareAndSet(op, max, elapsed));
+	} // record()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Histogram bucket of a latency
+	 *
+	 *********************************************************************************/
+	static int bucket(long elapsed) {
+		return Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(elapsed | 1));
+	} // bucket()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Copy of the histogram of an operation
+	 *
+	 *********************************************************************************/
+	static long[] histogram(int op) {
+		long[] histogram = new long[BUCKETS];
+		for (int b = 0; b < BUCKETS; b++) histogram[b] = histograms[op * BUCKETS + b].sum();
+		return histogram;
+	} // histogram()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Upper bound of the bucket with the given percentile
+	 *
+	 *********************************************************************************/
+	static long percentile(long[] histogram, double percentile) {
+		long total = 0;
+		for (long n : histogram) total += n;
+		if (total == 0) return 0;
+		long rank = Math.max(1, (long)Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+		long seen = 0;
+		for (int b = 0; b < BUCKETS - 1; b++) {
+			seen += histogram[b];
+			if (seen >= rank) return (1L << (b + 1)) - 1;
+		}
+		return Long.MAX_VALUE;
+	} // percentile()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Index of an operation name
+	 *
+	 *********************************************************************************/
+	static int op(String operation) {
+		for (int op = 0; op < OPERATIONS.length; op++) {
+			if (OPERATIONS[op].equals(operation)) return op;
+		}
+		throw new IllegalArgumentException("Unknown operation: " + operation);
+	} // op()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Register the MBean (once)
+	 *
+	 *********************************************************************************/
+	static synchronized void register() {
+		if (registered) return;
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName  name   = new ObjectName(OBJECT_NAME);
+			if (!server.isRegistered(name)) server.registerMBean(new MetricsBean(), name);
+		} catch (Exception e) {
+			// No JMX (for example a restricted sandbox): the metrics still work
+			System.out.println("ColorMetrics: the MBean could not be registered (" + e + ")");
+		}
+		registered = true;
+	} // register()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Array of new LongAdders
+	 *
+	 *********************************************************************************/
+	static LongAdder[] adders(int n) {
+		LongAdder[] adders = new LongAdder[n];
+		for (int i = 0; i < n; i++) adders[i] = new LongAdder();
+		return adders;
+	} // adders()
+} // ColorMetrics
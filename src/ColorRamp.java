@@ -0,0 +1,240 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Palette color ramp for mapping scalar fields to pixels
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/*************************************************************************************
+ *
+ *	<b>ColorRamp class</b><br><br>
+ *	Maps numbers (heatmaps, noise, elevation, ...) onto the colors of a palette. The
+ *	ramp goes linearly (in RGB) from the first color of the palette to the last one,
+ *	through all colors, and is computed once into a table of 256 (SMALL) or 4096
+ *	(LARGE) packed colors: mapping a value is one table lookup, without any color
+ *	conversion. map() does whole arrays in parallel tiles on a fork/join pool.<br>
+ *	Example:<br>
+ *	ColorRamp ramp = new ColorRamp(generator.Analogous(0x3366CC), ColorRamp.SMALL);<br>
+ *	ramp.map(field, 0, 1, img.pixels);<br>
+ *	img.updatePixels();
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+public final class ColorRamp {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	// Table sizes
+	public static final int SMALL = 256;
+	public static final int LARGE = 4096;
+
+	// Number of values per tile
+	static final int TILE = 1 << 14;
+
+	final int          entries;
+	final float        maxIndex;
+	final ForkJoinPool pool;
+
+	// Colors of the ramp (0xFFRRGGBB)
+	final int[] table;
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the ColorRamp class (uses the common fork/join pool)<br>
+	 *	Example: ColorRamp ramp = new ColorRamp(generator.Triads(0xFF00FF), ColorRamp.LARGE);
+	 *
+	 *	@param palette 		Palette of the ramp
+	 *	@param _entries		Size of the table (SMALL, LARGE or any number from 2)
+	 *
+	 *********************************************************************************/
+	public ColorRamp(Palette palette, int _entries) {
+		this(palette.colors, _entries, ForkJoinPool.commonPool());
+	} // ColorRamp()
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the ColorRamp class with a color array (for example a palette
+	 *	of ColorHarmony)<br>
+	 *	Example: ColorRamp ramp = new ColorRamp(colorHarmony.Analogous("#3366CC"), ColorRamp.SMALL);
+	 *
+	 *	@param colors 		Colors of the ramp (0xRRGGBB, the alpha bytes are ignored)
+	 *	@param _entries		Size of the table (SMALL, LARGE or any number from 2)
+	 *
+	 *********************************************************************************/
+	public ColorRamp(int[] colors, int _entries) {
+		this(colors, _entries, ForkJoinPool.commonPool());
+	} // ColorRamp()
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the ColorRamp class with a specific fork/join pool<br>
+	 *	Example: ColorRamp ramp = new ColorRamp(colors, ColorRamp.SMALL, new ForkJoinPool(4));
+	 *
+	 *	@param colors 		Colors of the ramp (0xRRGGBB, the alpha bytes are ignored)
+	 *	@param _entries		Size of the table (SMALL, LARGE or any number from 2)
+	 *	@param _pool		Pool that processes the tiles of map()
+	 *
+	 *********************************************************************************/
+	public ColorRamp(int[] colors, int _entries, ForkJoinPool _pool) {
+		if (colors.length == 0) throw new IllegalArgumentException("The ramp needs at least one color");
+		if (_entries < 2) throw new IllegalArgumentException("entries must be at least 2");
+
+		entries  = _entries;
+		maxIndex = entries - 1;
+		pool     = _pool;
+		table    = new int[entries];
+
+		// The same ramp as a PaletteTexture row of entries texels
+		PaletteTexture ramp = new PaletteTexture(PaletteTexture.RGBA8, colors.length, entries, entries);
+		for (int i = 0; i < entries; i++) {
+			table[i] = ColorMath.OPAQUE | (ramp.texel(colors, 0, i) & ColorMath.RGB_MASK);
+		}
+	} // ColorRamp()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the color at a point of the ramp<br>
+	 *	Example: fill(ramp.colorAt(noise(x, y)));
+	 *
+	 *	@param t 	0 = first color, 1 = last color (clamped to 0..1)
+	 *
+	 *	@return		The color (0xFFRRGGBB)
+	 *
+	 *********************************************************************************/
+	public int colorAt(float t) {
+		return table[index(t * maxIndex)];
+	} // colorAt()
+
+
+	/*********************************************************************************
+	 *
+	 *	Map an array of values to colors<br>
+	 *	Example: ramp.map(elevation, 0, 8848, img.pixels);<br>
+	 *	min gets the first color and max the last one; values outside min..max are
+	 *	clamped (NaN gets the first color). Arrays of more than 16384 values are
+	 *	split into tiles that are mapped in parallel.
+	 *
+	 *	@param values 		Values to map
+	 *	@param min			Value of the first color
+	 *	@param max			Value of the last color (min = max: every value gets the
+	 *						first color)
+	 *	@param outPixels	Receives the colors (0xFFRRGGBB, may be img.pixels)
+	 *
+	 *	@return				The outPixels array
+	 *
+	 *********************************************************************************/
+	public int[] map(float[] values, float min, float max, int[] outPixels) {
+		if (outPixels.length < values.length) {
+			throw new IllegalArgumentException("map(): outPixels is smaller than values");
+		}
+		float scale = max > min ? maxIndex / (max - min) : 0;
+
+		if (values.length <= TILE) {
+			mapTile(values, min, scale, outPixels, 0, values.length);
+		} else {
+			pool.invoke(new MapTask(values, min, scale, outPixels, 0, values.length));
+		}
+		return outPixels;
+	} // map()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the size of the table
+	 *
+	 *********************************************************************************/
+	public int GetEntries() {
+		return entries;
+	} // GetEntries()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return a copy of the table (entries colors, 0xFFRRGGBB)
+	 *
+	 *********************************************************************************/
+	public int[] GetTable() {
+		return table.clone();
+	} // GetTable()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL METHODS
+	 *
+	 *********************************************************************************/
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Table index of a position (0..maxIndex, clamped, rounded)
+	 *
+	 *********************************************************************************/
+	int index(float position) {
+		// NaN: (int)NaN = 0
+		return (int)Math.max(0f, Math.min(maxIndex, position + 0.5f));
+	} // index()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Map values[from..to-1]
+	 *
+	 *********************************************************************************/
+	void mapTile(float[] values, float min, float scale, int[] out, int from, int to) {
+		int[] table = this.table;
+		for (int i = from; i < to; i++) {
+			out[i] = table[index((values[i] - min) * scale)];
+		}
+	} // mapTile()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Split the values into tiles
+	 *
+	 *********************************************************************************/
+	final class MapTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final float[] values;
+		final float   min, scale;
+		final int[]   out;
+		final int     from, to;
+
+		MapTask(float[] _values, float _min, float _scale, int[] _out, int _from, int _to) {
+			values = _values;
+			min    = _min;
+			scale  = _scale;
+			out    = _out;
+			from   = _from;
+			to     = _to;
+		} // MapTask()
+
+		@Override
+		protected void compute() {
+			if (to - from > TILE) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new MapTask(values, min, scale, out, from, mid), new MapTask(values, min, scale, out, mid, to));
+				return;
+			}
+			mapTile(values, min, scale, out, from, to);
+		} // compute()
+	} // MapTask
+} // ColorRamp
@@ -0,0 +1,198 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Integer-only (fixed-point) RGB <-> HSL conversions
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+
+/*************************************************************************************
+ *
+ *	<b>FixedHSL class</b><br><br>
+ *	RGB to HSL and back with integer arithmetic only, for the HSL_FIXED backend of
+ *	ColorConvertor. The results are the same on every JVM and platform, and the
+ *	colors are rounded (not truncated), so RGB -> HSL -> RGB gives back the same
+ *	color for all 2^24 colors.<br>
+ *	Fixed-point formats:<br>
+ *	H - 0..TURN-1, TURN = 360 degrees (2^14 steps per 30 degrees)<br>
+ *	S and L - 0..ONE, ONE = 100% (2^16)<br>
+ *	HSL to RGB uses the sector-free form f(n) = L - a * clamp(min(k - 3, 9 - k), -1, 1)
+ *	with k = (n + H / 30 degrees) mod 12, so there is no branch per hue sector.
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+final class FixedHSL {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	// Saturation and luminosity: ONE = 100%
+	static final int ONE = 1 << 16;
+
+	// Hue: TWELFTH = 30 degrees, TURN = 360 degrees
+	static final int TWELFTH_BITS = 14;
+	static final int TWELFTH      = 1 << TWELFTH_BITS;
+	static final int TURN         = 12 * TWELFTH;
+
+	// Degrees and percentages to fixed-point and back
+	static final float H_SCALE  = TURN / 360f;
+	static final float SL_SCALE = ONE / 100f;
+	static final float H_UNIT   = 360f / TURN;
+	static final float SL_UNIT  = 100f / ONE;
+
+
+	/*********************************************************************************
+	 *
+	 *	Static helper only
+	 *
+	 *********************************************************************************/
+	private FixedHSL() {
+	} // FixedHSL()
+
+
+	/*********************************************************************************
+	 *
+	 *	Hue (0..TURN-1) of r, g and b (0..255), 0 for grays
+	 *
+	 *********************************************************************************/
+	static int hue(int r, int g, int b) {
+		int max = Math.max(r, Math.max(g, b));
+		int d   = max - Math.min(r, Math.min(g, b));
+		if (d == 0) return 0;
+
+		// Position on the color wheel in sixths, times d: sector * d + (x - y)
+		int v = max == r ? g - b : max == g ? 2 * d + b - r : 4 * d + r - g;
+		if (v < 0) v += 6 * d;
+		int h = (v * (2 * TWELFTH) + (d >> 1)) / d;
+		return h == TURN ? 0 : h;
+	} // hue()
+
+
+	/*********************************************************************************
+	 *
+	 *	Saturation (0..ONE) of r, g and b (0..255)
+	 *
+	 *********************************************************************************/
+	static int saturation(int r, int g, int b) {
+		int max = Math.max(r, Math.max(g, b));
+		int min = Math.min(r, Math.min(g, b));
+		int d   = max - min;
+		if (d == 0) return 0;
+		// 255 * (1 - |2L - 1|)
+		int den = 255 - Math.abs(max + min - 255);
+		return ((d << 16) + (den >> 1)) / den;
+	} // saturation()
+
+
+	/*********************************************************************************
+	 *
+	 *	Luminosity (0..ONE) of r, g and b (0..255)
+	 *
+	 *********************************************************************************/
+	static int luminosity(int r, int g, int b) {
+		int sum = Math.max(r, Math.max(g, b)) + Math.min(r, Math.min(g, b));
+		return (sum * ONE + 255) / 510;
+	} // luminosity()
+
+
+	/*********************************************************************************
+	 *
+	 *	Fixed-point HSL to a packed 0xRRGGBB color
+	 *
+	 *	@param h 	Hue (0..TURN-1)
+	 *	@param s 	Saturation (0..ONE)
+	 *	@param l 	Luminosity (0..ONE)
+	 *
+	 *********************************************************************************/
+	static int rgb(int h, int s, int l) {
+		// Chroma / 2
+		int a = (int)(((long)s * Math.min(l, ONE - l)) >> 16);
+		return (channel(h, a, l, 0) << 16) | (channel(h, a, l, 8) << 8) | channel(h, a, l, 4);
+	} // rgb()
+
+
+	/*********************************************************************************
+	 *
+	 *	One channel (0..255) of rgb(): n = 0 (red), 8 (green) or 4 (blue)
+	 *
+	 *********************************************************************************/
+	static int channel(int h, int a, int l, int n) {
+		int k = h + n * TWELFTH;
+		if (k >= TURN) k -= TURN;
+		int v = Math.max(-TWELFTH, Math.min(TWELFTH, Math.min(k - 3 * TWELFTH, 9 * TWELFTH - k)));
+		// f = L - a * v / TWELFTH, scaled by 2^(16 + 14) and rounded to 0..255
+		long f = ((long)l << TWELFTH_BITS) - (long)a * v;
+		return (int)((f * 255 + (1L << 29)) >> 30);
+	} // channel()
+
+
+	/*********************************************************************************
+	 *
+	 *	Degrees (any value, taken modulo 360) to a fixed-point hue
+	 *
+	 *********************************************************************************/
+	static int fromDegrees(float degrees) {
+		int h = Math.round(degrees * H_SCALE) % TURN;
+		return h < 0 ? h + TURN : h;
+	} // fromDegrees()
+
+
+	/*********************************************************************************
+	 *
+	 *	Percentage (clamped to 0..100) to fixed-point saturation or luminosity
+	 *
+	 *********************************************************************************/
+	static int fromPercent(float value) {
+		return Math.max(0, Math.min(ONE, Math.round(value * SL_SCALE)));
+	} // fromPercent()
+
+
+	/*********************************************************************************
+	 *
+	 *	HSL in degrees and percentages to a packed 0xRRGGBB color
+	 *
+	 *********************************************************************************/
+	static int hsl2rgb(float h, float s, float l) {
+		return rgb(fromDegrees(h), fromPercent(s), fromPercent(l));
+	} // hsl2rgb()
+
+
+	/*********************************************************************************
+	 *
+	 *	Bulk RGB to HSL (degrees and percentages) for count colors from rgb[from],
+	 *	written to h, s and l from index outFrom (the alpha bytes are ignored)
+	 *
+	 *********************************************************************************/
+	static void rgb2hsl(int[] rgb, int from, float[] h, float[] s, float[] l, int outFrom, int count) {
+		for (int n = 0; n < count; n++) {
+			int c = rgb[from + n];
+			int i = outFrom + n;
+			int r = (c >> 16) & 0xFF;
+			int g = (c >> 8)  & 0xFF;
+			int b =  c        & 0xFF;
+			h[i] = hue(r, g, b)        * H_UNIT;
+			s[i] = saturation(r, g, b) * SL_UNIT;
+			l[i] = luminosity(r, g, b) * SL_UNIT;
+		}
+	} // rgb2hsl()
+
+
+	/*********************************************************************************
+	 *
+	 *	Bulk HSL (degrees and percentages) to opaque RGB (0xFFRRGGBB) for
+	 *	rgb[from..to-1]
+	 *
+	 *********************************************************************************/
+	static void hsl2rgb(float[] h, float[] s, float[] l, int[] rgb, int from, int to) {
+		for (int i = from; i < to; i++) {
+			rgb[i] = ColorMath.OPAQUE | hsl2rgb(h[i], s[i], l[i]);
+		}
+	} // hsl2rgb()
+} // FixedHSL
@@ -0,0 +1,267 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Flight Recorder events for ColorMetrics
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/*************************************************************************************
+ *
+ *	<b>FlightEvents class</b><br><br>
+ *	The JFR events com.cage.colorharmony.PaletteGeneration (operation, palette type
+ *	and base color) and com.cage.colorharmony.BulkOperation (operation and number of
+ *	colors or pixels). The library is compiled for Java 8, which has no jdk.jfr API,
+ *	so the event types are made at runtime with jdk.jfr.EventFactory (through
+ *	reflection). Without Flight Recorder no events are made; the counters of
+ *	ColorMetrics work anyway.<br>
+ *	The events don't depend on the metrics being on: a FlightRecorderListener
+ *	(registered when this class is loaded, at the first palette or bulk operation)
+ *	keeps a flag that tells whether a recording is running, so without a recording
+ *	an operation only reads that flag. The event types are made when the first
+ *	operation runs during a recording, and an event is only made while a recording
+ *	has the event type enabled.<br>
+ *	-Dcolorharmony.jfr=false switches the events off.
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+final class FlightEvents {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	static final String CATEGORY = "ColorHarmony";
+
+	static boolean initialized;
+
+	// A recording is running (kept up to date by the FlightRecorderListener)
+	static volatile boolean recording;
+
+	// jdk.jfr.EventFactory instances (null without Flight Recorder)
+	static volatile Object paletteFactory;
+	static volatile Object bulkFactory;
+
+	// One event of each type, only to ask if the type is enabled
+	static Object paletteProbe;
+	static Object bulkProbe;
+
+	static Method newEvent;
+	static Method isEnabled;
+	static Method begin;
+	static Method end;
+	static Method shouldCommit;
+	static Method commit;
+	static Method set;
+
+	static {
+		if (Boolean.parseBoolean(System.getProperty("colorharmony.jfr", "true"))) listen();
+	}
+
+
+	/*********************************************************************************
+	 *
+	 *	No instances: all methods are static
+	 *
+	 *********************************************************************************/
+	private FlightEvents() {
+	} // FlightEvents()
+
+
+	/*********************************************************************************
+	 *
+	 *	Make the event types (once), if the JVM has Flight Recorder (this takes a few
+	 *	hundred milliseconds, so it waits for the first recording)
+	 *
+	 *********************************************************************************/
+	static synchronized void init() {
+		if (initialized) return;
+		initialized = true;
+		try {
+			Class<?> factory = Class.forName("jdk.jfr.EventFactory");
+			Class<?> event   = Class.forName("jdk.jfr.Event");
+			newEvent     = factory.getMethod("newEvent");
+			isEnabled    = event.getMethod("isEnabled");
+			begin        = event.getMethod("begin");
+			end          = event.getMethod("end");
+			shouldCommit = event.getMethod("shouldCommit");
+			commit       = event.getMethod("commit");
+			set          = event.getMethod("set", int.class, Object.class);
+
+			Object palette = create("com.cage.colorharmony.PaletteGeneration", "Palette Generation",
+					"A palette generated by ColorHarmony",
+					new Class<?>[] { String.class, int.class, int.class },
+					new String[] { "operation", "paletteType", "baseColor" },
+					new String[] { "Operation", "Palette Type", "Base Color (0xRRGGBB)" });
+			Object bulk = create("com.cage.colorharmony.BulkOperation", "Bulk Color Operation",
+					"A conversion or operation over a buffer of colors or pixels",
+					new Class<?>[] { String.class, long.class },
+					new String[] { "operation", "items" },
+					new String[] { "Operation", "Colors or Pixels" });
+			paletteProbe   = newEvent.invoke(palette);
+			bulkProbe      = newEvent.invoke(bulk);
+			paletteFactory = palette;
+			bulkFactory    = bulk;
+		} catch (Throwable e) {
+			// No Flight Recorder (Java 8, or a JVM without the jdk.jfr module)
+			paletteFactory = null;
+			bulkFactory    = null;
+		}
+	} // init()
+
+
+	/*********************************************************************************
+	 *
+	 *	Begin an event for a palette generation or bulk operation (null if no
+	 *	recording wants it)
+	 *
+	 *********************************************************************************/
+	static Object start(int op) {
+		if (!recording) return null;
+		if (!initialized) init();
+		boolean palette = op < ColorMetrics.FIRST_BULK;
+		Object  factory = palette ? paletteFactory : bulkFactory;
+		if (factory == null) return null;
+		try {
+			if (!(Boolean)isEnabled.invoke(palette ? paletteProbe : bulkProbe)) return null;
+			Object event = newEvent.invoke(factory);
+			begin.invoke(event);
+			return event;
+		} catch (Exception e) {
+			return null;
+		}
+	} // start()
+
+
+	/*********************************************************************************
+	 *
+	 *	End an event, set its fields (in the order of the event type) and commit it
+	 *
+	 *********************************************************************************/
+	static void finish(Object event, Object... values) {
+		try {
+			end.invoke(event);
+			if (!(Boolean)shouldCommit.invoke(event)) return;
+			for (int i = 0; i < values.length; i++) set.invoke(event, i, values[i]);
+			commit.invoke(event);
+		} catch (Exception e) {
+			// An event that fails is dropped
+		}
+	} // finish()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL METHODS
+	 *
+	 *********************************************************************************/
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Register a jdk.jfr.FlightRecorderListener (a proxy, the interface
+	 *	isn't there at compile time) that updates the recording flag
+	 *
+	 *********************************************************************************/
+	static void listen() {
+		try {
+			final Class<?> recorder = Class.forName("jdk.jfr.FlightRecorder");
+			Class<?> listener = Class.forName("jdk.jfr.FlightRecorderListener");
+			Object proxy = Proxy.newProxyInstance(FlightEvents.class.getClassLoader(), new Class<?>[] { listener },
+					new InvocationHandler() {
+						@Override
+						public Object invoke(Object proxy, Method method, Object[] args) {
+							String name = method.getName();
+							if (name.equals("recorderInitialized") || name.equals("recordingStateChanged")) {
+								update(recorder);
+							} else if (name.equals("equals")) {
+								return proxy == args[0];
+							} else if (name.equals("hashCode")) {
+								return System.identityHashCode(proxy);
+							} else if (name.equals("toString")) {
+								return "FlightEvents";
+							}
+							return null;
+						}
+					});
+			// Also calls recorderInitialized() if Flight Recorder already runs
+			// (java -XX:StartFlightRecording ...)
+			recorder.getMethod("addListener", listener).invoke(null, proxy);
+		} catch (Throwable e) {
+			// No Flight Recorder: recording stays false
+		}
+	} // listen()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Set the recording flag: is any recording running?
+	 *
+	 *********************************************************************************/
+	static synchronized void update(Class<?> recorder) {
+		boolean running = false;
+		try {
+			Object flightRecorder = recorder.getMethod("getFlightRecorder").invoke(null);
+			for (Object r : (List<?>)recorder.getMethod("getRecordings").invoke(flightRecorder)) {
+				if ("RUNNING".equals(String.valueOf(r.getClass().getMethod("getState").invoke(r)))) running = true;
+			}
+		} catch (Throwable e) {
+			// No recordings to ask about
+		}
+		recording = running;
+	} // update()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Make an event type with jdk.jfr.EventFactory.create()
+	 *
+	 *********************************************************************************/
+	static Object create(String name, String label, String description,
+			Class<?>[] types, String[] fields, String[] labels) throws Exception {
+		Class<?> valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor");
+		Constructor<?> descriptor = valueDescriptor.getConstructor(Class.class, String.class, List.class);
+
+		List<Object> annotations = new ArrayList<Object>();
+		annotations.add(annotation("jdk.jfr.Name", name));
+		annotations.add(annotation("jdk.jfr.Label", label));
+		annotations.add(annotation("jdk.jfr.Description", description));
+		annotations.add(annotation("jdk.jfr.Category", new String[] { CATEGORY }));
+
+		List<Object> values = new ArrayList<Object>();
+		for (int i = 0; i < fields.length; i++) {
+			values.add(descriptor.newInstance(types[i], fields[i],
+					Collections.singletonList(annotation("jdk.jfr.Label", labels[i]))));
+		}
+		return Class.forName("jdk.jfr.EventFactory").getMethod("create", List.class, List.class)
+				.invoke(null, annotations, values);
+	} // create()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: new jdk.jfr.AnnotationElement(type, value)
+	 *
+	 *********************************************************************************/
+	@SuppressWarnings("unchecked")
+	static Object annotation(String type, Object value) throws Exception {
+		Class<? extends Annotation> annotation = (Class<? extends Annotation>)Class.forName(type);
+		return Class.forName("jdk.jfr.AnnotationElement").getConstructor(Class.class, Object.class)
+				.newInstance(annotation, value);
+	} // annotation()
+} // FlightEvents
@@ -0,0 +1,269 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Clamp the saturation and luminosity of whole images
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/*************************************************************************************
+ *
+ *	<b>GamutClamp class</b><br><br>
+ *	Applies the min/max saturation and luminosity correction of the palettes (the
+ *	one the base colors get) to every pixel of a buffer, for example to keep the
+ *	frames of a video within the tones of a brand. Pixels within the limits are
+ *	not changed, the alpha bytes are kept.<br>
+ *	The saturation and luminosity of a color only depend on its largest and its
+ *	smallest channel, so the constructor computes a table (64 KB) that tells for
+ *	every max/min pair whether a color must be corrected: for the pixels within the
+ *	limits, that is one table lookup. The other pixels get the correction of the
+ *	palettes (PackedPalettes.correct()), through a small cache per tile (images
+ *	have many pixels of the same color). Like for the palettes, a corrected color
+ *	can be just outside the limits again (rounding to 0..255), so clamping twice
+ *	may change a few more pixels.<br>
+ *	The buffer is split into tiles which are processed in parallel on a fork/join
+ *	pool.<br>
+ *	Example:<br>
+ *	GamutClamp clamp = new GamutClamp(10, 60, 20, 60);<br>
+ *	clamp.clamp(img.pixels);<br>
+ *	img.updatePixels();
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+public class GamutClamp {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	// Number of pixels per tile
+	static final int TILE = 1 << 14;
+
+	// Size of the cache of corrected colors per tile (power of two)
+	static final int CACHE_BITS = 12;
+
+	final int minSaturation;
+	final int maxSaturation;
+	final int minLuminosity;
+	final int maxLuminosity;
+
+	final ForkJoinPool pool;
+
+	// 1 = a color with largest channel max and smallest channel min (index
+	// max << 8 | min) must be corrected, 0 = it is within the limits
+	final byte[] outside = new byte[1 << 16];
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the GamutClamp class (uses the common fork/join pool)<br>
+	 *	Example: GamutClamp clamp = new GamutClamp(10, 60, 20, 60);
+	 *
+	 *	@param _minSaturation 	Minimum saturation (0..100)
+	 *	@param _maxSaturation 	Maximum saturation (0..100)
+	 *	@param _minLuminosity 	Minimum luminosity (0..100)
+	 *	@param _maxLuminosity 	Maximum luminosity (0..100)
+	 *
+	 *********************************************************************************/
+	public GamutClamp(int _minSaturation, int _maxSaturation, int _minLuminosity, int _maxLuminosity) {
+		this(_minSaturation, _maxSaturation, _minLuminosity, _maxLuminosity, ForkJoinPool.commonPool());
+	} // GamutClamp()
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the GamutClamp class with a specific fork/join pool<br>
+	 *	Example: GamutClamp clamp = new GamutClamp(10, 60, 20, 60, new ForkJoinPool(4));
+	 *
+	 *	@param _minSaturation 	Minimum saturation (0..100)
+	 *	@param _maxSaturation 	Maximum saturation (0..100)
+	 *	@param _minLuminosity 	Minimum luminosity (0..100)
+	 *	@param _maxLuminosity 	Maximum luminosity (0..100)
+	 *	@param _pool			Pool that processes the tiles
+	 *
+	 *********************************************************************************/
+	public GamutClamp(int _minSaturation, int _maxSaturation, int _minLuminosity, int _maxLuminosity, ForkJoinPool _pool) {
+		minSaturation = _minSaturation;
+		maxSaturation = _maxSaturation;
+		minLuminosity = _minLuminosity;
+		maxLuminosity = _maxLuminosity;
+		pool          = _pool;
+
+		for (int max = 0; max < 256; max++) {
+			for (int min = 0; min <= max; min++) {
+				// Same saturation and luminosity as every color with this max and min
+				int rgb = ColorMath.pack(max, min, min);
+				float s = ColorMath.saturation(rgb);
+				float l = ColorMath.luminosity(rgb);
+				if (s > maxSaturation || s < minSaturation || l > maxLuminosity || l < minLuminosity) {
+					outside[max << 8 | min] = 1;
+				}
+			}
+		}
+	} // GamutClamp()
+
+
+	/*********************************************************************************
+	 *
+	 *	Clamp a pixel buffer in place<br>
+	 *	Example: clamp.clamp(img.pixels);
+	 *
+	 *	@param pixels 		Packed colors (0xAARRGGBB, for example PImage.pixels)
+	 *
+	 *********************************************************************************/
+	public void clamp(int[] pixels) {
+		clamp(pixels, pixels);
+	} // clamp()
+
+
+	/*********************************************************************************
+	 *
+	 *	Clamp a pixel buffer into another buffer<br>
+	 *	Example: clamp.clamp(movie.pixels, frame.pixels);
+	 *
+	 *	@param src 			Packed colors (0xAARRGGBB)
+	 *	@param dst			Receives the clamped colors (may be src)
+	 *
+	 *********************************************************************************/
+	public void clamp(int[] src, int[] dst) {
+		if (dst.length < src.length) {
+			throw new IllegalArgumentException("clamp(): dst is smaller than src");
+		}
+		if (src.length <= TILE) {
+			clampTile(src, dst, 0, src.length);
+		} else {
+			pool.invoke(new ClampTask(src, dst, 0, src.length));
+		}
+	} // clamp()
+
+
+	/*********************************************************************************
+	 *
+	 *	Clamp a single color<br>
+	 *	Example: int c = clamp.clamp(0xFF3366CC);
+	 *
+	 *	@param color 		Packed color (0xAARRGGBB)
+	 *
+	 *	@return				The clamped color (with the alpha byte of color)
+	 *
+	 *********************************************************************************/
+	public int clamp(int color) {
+		if (!isOutside(color)) return color;
+		return (color & ColorMath.OPAQUE) | correct(color & ColorMath.RGB_MASK);
+	} // clamp()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL METHODS
+	 *
+	 *********************************************************************************/
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Does a color need a correction?
+	 *
+	 *********************************************************************************/
+	boolean isOutside(int rgb) {
+		int r = ColorMath.red(rgb);
+		int g = ColorMath.green(rgb);
+		int b = ColorMath.blue(rgb);
+		int max = Math.max(r, Math.max(g, b));
+		int min = Math.min(r, Math.min(g, b));
+		return outside[max << 8 | min] != 0;
+	} // isOutside()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Correct a color (0xRRGGBB), like the base colors of the palettes
+	 *
+	 *********************************************************************************/
+	int correct(int rgb) {
+		return PackedPalettes.correct(rgb, minSaturation, maxSaturation, minLuminosity, maxLuminosity);
+	} // correct()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Clamp src[from..to-1] into dst
+	 *
+	 *********************************************************************************/
+	void clampTile(int[] src, int[] dst, int from, int to) {
+		byte[] outside = this.outside;
+
+		// Cache of corrected colors (key -1 = empty), allocated for the first
+		// pixel that needs a correction
+		int[] keys   = null;
+		int[] values = null;
+
+		for (int i = from; i < to; i++) {
+			int c = src[i];
+			int r = ColorMath.red(c);
+			int g = ColorMath.green(c);
+			int b = ColorMath.blue(c);
+			int max = Math.max(r, Math.max(g, b));
+			int min = Math.min(r, Math.min(g, b));
+
+			if (outside[max << 8 | min] == 0) {
+				dst[i] = c;
+				continue;
+			}
+
+			if (keys == null) {
+				keys   = new int[1 << CACHE_BITS];
+				values = new int[1 << CACHE_BITS];
+				Arrays.fill(keys, -1);
+			}
+
+			int rgb  = c & ColorMath.RGB_MASK;
+			int slot = (rgb * 0x9E3779B1) >>> (32 - CACHE_BITS);
+			if (keys[slot] != rgb) {
+				keys[slot]   = rgb;
+				values[slot] = correct(rgb);
+			}
+			dst[i] = (c & ColorMath.OPAQUE) | values[slot];
+		}
+	} // clampTile()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Split the buffer into tiles
+	 *
+	 *********************************************************************************/
+	final class ClampTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final int[] src, dst;
+		final int from, to;
+
+		ClampTask(int[] _src, int[] _dst, int _from, int _to) {
+			src  = _src;
+			dst  = _dst;
+			from = _from;
+			to   = _to;
+		} // ClampTask()
+
+		@Override
+		protected void compute() {
+			if (to - from > TILE) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new ClampTask(src, dst, from, mid), new ClampTask(src, dst, mid, to));
+				return;
+			}
+			clampTile(src, dst, from, to);
+		} // compute()
+	} // ClampTask
+} // GamutClamp
@@ -0,0 +1,157 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Precomputed RGB to HSL lookup table for all 2^24 colors
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/*************************************************************************************
+ *
+ *	<b>HSLTable class</b><br><br>
+ *	Lookup table with the HSL values of every 24 bit RGB color. The table is held
+ *	off-heap in a direct buffer (3 unsigned shorts per color, 96 MB in total) and
+ *	is built lazily, in parallel, on first use.<br>
+ *	H, S and L are quantized to 16 bits over their full range, so the maximum error
+ *	compared with ColorConvertor.RGB2HSL() is half a step:
+ *	0.0028 for the hue (0..360) and 0.0008 for saturation and luminosity (0..100).
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+final class HSLTable {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	// Number of colors in the table
+	static final int ENTRIES = 1 << 24;
+
+	// Quantization scales (value * scale = 0..65535)
+	static final float H_SCALE = 65535f / 360f;
+	static final float SL_SCALE = 65535f / 100f;
+
+	// Number of colors per build task
+	static final int CHUNK = 1 << 16;
+
+	// The table, null until first use
+	private static volatile ShortBuffer table;
+
+
+	/*********************************************************************************
+	 *
+	 *	Static helper only
+	 *
+	 *********************************************************************************/
+	private HSLTable() {
+	} // HSLTable()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the table, build it first if needed
+	 *
+	 *********************************************************************************/
+	static ShortBuffer table() {
+		ShortBuffer t = table;
+		if (t == null) {
+			synchronized (HSLTable.class) {
+				t = table;
+				if (t == null) {
+					t = build();
+					table = t;
+				}
+			}
+		}
+		return t;
+	} // table()
+
+
+	/*********************************************************************************
+	 *
+	 *	Look up the HSL values of a packed color and write them into hsl[0..2]
+	 *
+	 *********************************************************************************/
+	static void lookup(int rgb, float[] hsl) {
+		ShortBuffer t = table();
+		int i = (rgb & ColorMath.RGB_MASK) * 3;
+		hsl[0] = (t.get(i)     & 0xFFFF) / H_SCALE;
+		hsl[1] = (t.get(i + 1) & 0xFFFF) / SL_SCALE;
+		hsl[2] = (t.get(i + 2) & 0xFFFF) / SL_SCALE;
+	} // lookup()
+
+
+	/*********************************************************************************
+	 *
+	 *	Bulk look up for rgb[from..to-1]
+	 *
+	 *********************************************************************************/
+	static void lookup(int[] rgb, float[] h, float[] s, float[] l, int from, int to) {
+		ShortBuffer t = table();
+		for (int i = from; i < to; i++) {
+			int j = (rgb[i] & ColorMath.RGB_MASK) * 3;
+			h[i] = (t.get(j)     & 0xFFFF) / H_SCALE;
+			s[i] = (t.get(j + 1) & 0xFFFF) / SL_SCALE;
+			l[i] = (t.get(j + 2) & 0xFFFF) / SL_SCALE;
+		}
+	} // lookup()
+
+
+	/*********************************************************************************
+	 *
+	 *	Build the table, using all available cores
+	 *
+	 *********************************************************************************/
+	static ShortBuffer build() {
+		ShortBuffer t = ByteBuffer.allocateDirect(ENTRIES * 3 * 2)
+				.order(ByteOrder.nativeOrder()).asShortBuffer();
+		ForkJoinPool.commonPool().invoke(new BuildTask(t, 0, ENTRIES));
+		return t;
+	} // build()
+
+
+	/*********************************************************************************
+	 *
+	 *	Fill part of the table (absolute puts only, so the tasks don't interfere)
+	 *
+	 *********************************************************************************/
+	static final class BuildTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final ShortBuffer t;
+		final int from, to;
+
+		BuildTask(ShortBuffer _t, int _from, int _to) {
+			t    = _t;
+			from = _from;
+			to   = _to;
+		} // BuildTask()
+
+		@Override
+		protected void compute() {
+			if (to - from > CHUNK) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new BuildTask(t, from, mid), new BuildTask(t, mid, to));
+				return;
+			}
+			for (int rgb = from; rgb < to; rgb++) {
+				int i = rgb * 3;
+				t.put(i,     (short)Math.round(ColorMath.hue(rgb)        * H_SCALE));
+				t.put(i + 1, (short)Math.round(ColorMath.saturation(rgb) * SL_SCALE));
+				t.put(i + 2, (short)Math.round(ColorMath.luminosity(rgb) * SL_SCALE));
+			}
+		} // compute()
+	} // BuildTask
+} // HSLTable
@@ -0,0 +1,256 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Push whole images toward a harmonized palette
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/*************************************************************************************
+ *
+ *	<b>Harmonizer class</b><br><br>
+ *	Harmonizes pixel buffers: the hue of every pixel is rotated onto the nearest hue
+ *	of the harmony (derived from a base color), saturation and luminosity are
+ *	clamped to the min/max values. The alpha bytes are kept.<br>
+ *	Harmony hues per palette type:<br>
+ *	0 = monochromatic: H<br>
+ *	1 = analogous:     H, H + 30, H - 30<br>
+ *	2 = complementary: H, H + 180<br>
+ *	3 = triads:        H, H + 120, H - 120<br>
+ *	where H is the hue of the (corrected) base color, like in the palettes. Gray
+ *	pixels (no hue) get H.<br>
+ *	The buffer is split into tiles which are processed in parallel on a fork/join
+ *	pool. The HSL math is the one of ColorConvertor.
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+public class Harmonizer {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	// Number of pixels per tile
+	static final int TILE = 1 << 14;
+
+	final int minSaturation;
+	final int maxSaturation;
+	final int minLuminosity;
+	final int maxLuminosity;
+
+	final ForkJoinPool pool;
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the Harmonizer class (uses the common fork/join pool)<br>
+	 *	Example: Harmonizer harmonizer = new Harmonizer(10, 60, 20, 60);
+	 *
+	 *	@param _minSaturation 	Minimum saturation (0..100)
+	 *	@param _maxSaturation 	Maximum saturation (0..100)
+	 *	@param _minLuminosity 	Minimum luminosity (0..100)
+	 *	@param _maxLuminosity 	Maximum luminosity (0..100)
+	 *
+	 *********************************************************************************/
+	public Harmonizer(int _minSaturation, int _maxSaturation, int _minLuminosity, int _maxLuminosity) {
+		this(_minSaturation, _maxSaturation, _minLuminosity, _maxLuminosity, ForkJoinPool.commonPool());
+	} // Harmonizer()
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the Harmonizer class with a specific fork/join pool<br>
+	 *	Example: Harmonizer harmonizer = new Harmonizer(10, 60, 20, 60, new ForkJoinPool(4));
+	 *
+	 *	@param _minSaturation 	Minimum saturation (0..100)
+	 *	@param _maxSaturation 	Maximum saturation (0..100)
+	 *	@param _minLuminosity 	Minimum luminosity (0..100)
+	 *	@param _maxLuminosity 	Maximum luminosity (0..100)
+	 *	@param _pool			Pool that processes the tiles
+	 *
+	 *********************************************************************************/
+	public Harmonizer(int _minSaturation, int _maxSaturation, int _minLuminosity, int _maxLuminosity, ForkJoinPool _pool) {
+		minSaturation = _minSaturation;
+		maxSaturation = _maxSaturation;
+		minLuminosity = _minLuminosity;
+		maxLuminosity = _maxLuminosity;
+		pool          = _pool;
+	} // Harmonizer()
+
+
+	/*********************************************************************************
+	 *
+	 *	Harmonize a pixel buffer in place<br>
+	 *	Example: harmonizer.harmonize(img.pixels, 3, 0xFF00FF);
+	 *
+	 *	@param pixels 		Packed colors (0xAARRGGBB, for example PImage.pixels)
+	 *	@param type			Palette type (0..3)
+	 *	@param baseColor	Base color (0xRRGGBB, the alpha byte is ignored)
+	 *
+	 *********************************************************************************/
+	public void harmonize(int[] pixels, int type, int baseColor) {
+		harmonize(pixels, pixels, type, baseColor);
+	} // harmonize()
+
+
+	/*********************************************************************************
+	 *
+	 *	Harmonize a pixel buffer into another buffer<br>
+	 *	Example: harmonizer.harmonize(src.pixels, dst.pixels, 3, 0xFF00FF);
+	 *
+	 *	@param src 			Packed colors (0xAARRGGBB)
+	 *	@param dst			Receives the harmonized colors (may be src)
+	 *	@param type			Palette type (0..3)
+	 *	@param baseColor	Base color (0xRRGGBB, the alpha byte is ignored)
+	 *
+	 *********************************************************************************/
+	public void harmonize(int[] src, int[] dst, int type, int baseColor) {
+		if (dst.length < src.length) {
+			throw new IllegalArgumentException("harmonize(): dst is smaller than src");
+		}
+		float[] hues = harmonyHues(type, baseColor);
+
+		if (src.length <= TILE) {
+			harmonizeTile(src, dst, hues, 0, src.length);
+		} else {
+			pool.invoke(new HarmonizeTask(src, dst, hues, 0, src.length));
+		}
+	} // harmonize()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the harmony hues for a palette type and base color<br>
+	 *	Example: float[] hues = harmonizer.harmonyHues(3, 0xFF00FF);
+	 *
+	 *	@param type			Palette type (0..3)
+	 *	@param baseColor	Base color (0xRRGGBB, the alpha byte is ignored)
+	 *
+	 *	@return				The hues (0..360), the hue of the base color first
+	 *
+	 *********************************************************************************/
+	public float[] harmonyHues(int type, int baseColor) {
+		float H = ColorMath.hue(PackedPalettes.correct(baseColor,
+				minSaturation, maxSaturation, minLuminosity, maxLuminosity));
+
+		switch (type) {
+		case 0:
+			return new float[] { H };
+		case 1:
+			return new float[] { H, PackedPalettes.fixHue(H + 30),  PackedPalettes.fixHue(H - 30) };
+		case 2:
+			return new float[] { H, PackedPalettes.fixHue(H + 180) };
+		case 3:
+			return new float[] { H, PackedPalettes.fixHue(H + 120), PackedPalettes.fixHue(H - 120) };
+		default:
+			throw new IllegalArgumentException("Unknown palette type: " + type);
+		} // switch (type)
+	} // harmonyHues()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL METHODS
+	 *
+	 *********************************************************************************/
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Harmonize src[from..to-1] into dst
+	 *
+	 *********************************************************************************/
+	void harmonizeTile(int[] src, int[] dst, float[] hues, int from, int to) {
+		// One pass per pixel, without scratch arrays: the HSL expressions are the
+		// ones of ColorMath.rgb2hsl(), so the results are the same
+		for (int i = from; i < to; i++) {
+			int c = src[i];
+			float fR = ColorMath.UNIT[ColorMath.red(c)];
+			float fG = ColorMath.UNIT[ColorMath.green(c)];
+			float fB = ColorMath.UNIT[ColorMath.blue(c)];
+
+			float varMax   = Math.max(fR, Math.max(fG, fB));
+			float varMin   = Math.min(fR, Math.min(fG, fB));
+			float deltaMax = varMax - varMin;
+			float lum      = ( varMax + varMin ) / 2;
+
+			float hue = 0;
+			float sat = 0;
+			if (deltaMax != 0) {
+				sat = lum < 0.5f ? deltaMax / ( varMax + varMin ) : deltaMax / ( 2f - varMax - varMin );
+				hue = ColorMath.hue(fR, fG, fB, varMax, deltaMax);
+			}
+			float s = sat * 100;
+			float l = lum * 100;
+
+			dst[i] = (c & ColorMath.OPAQUE) | ColorMath.hsl2rgb(
+					nearestHue(hues, hue, s),
+					Math.min(Math.max(s, minSaturation), maxSaturation),
+					Math.min(Math.max(l, minLuminosity), maxLuminosity));
+		}
+	} // harmonizeTile()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: The harmony hue closest to h (on the color wheel)
+	 *
+	 *********************************************************************************/
+	static float nearestHue(float[] hues, float h, float s) {
+		// Gray: no hue to rotate, take the base hue
+		if (s == 0) return hues[0];
+
+		float best     = hues[0];
+		float bestDist = 360;
+		for (int k = 0; k < hues.length; k++) {
+			float d = Math.abs(h - hues[k]);
+			if (d > 180) d = 360 - d;
+			if (d < bestDist) {
+				bestDist = d;
+				best     = hues[k];
+			}
+		}
+		return best;
+	} // nearestHue()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Split the buffer into tiles
+	 *
+	 *********************************************************************************/
+	final class HarmonizeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final int[] src, dst;
+		final float[] hues;
+		final int from, to;
+
+		HarmonizeTask(int[] _src, int[] _dst, float[] _hues, int _from, int _to) {
+			src  = _src;
+			dst  = _dst;
+			hues = _hues;
+			from = _from;
+			to   = _to;
+		} // HarmonizeTask()
+
+		@Override
+		protected void compute() {
+			if (to - from > TILE) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new HarmonizeTask(src, dst, hues, from, mid), new HarmonizeTask(src, dst, hues, mid, to));
+				return;
+			}
+			harmonizeTile(src, dst, hues, from, to);
+		} // compute()
+	} // HarmonizeTask
+} // Harmonizer
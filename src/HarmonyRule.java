@@ -0,0 +1,515 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Data-driven palette rules, compiled into flat evaluation plans
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+
+/*************************************************************************************
+ *
+ *	<b>HarmonyRule class</b><br><br>
+ *	A palette type described as data: one expression per slot (color) of the
+ *	palette. A rule is compiled once into a flat plan (an int array of opcodes, the
+ *	hue/saturation/luminosity offsets and 256-entry channel tables), which generates
+ *	palettes without any allocation. The four palette types of ColorHarmony are
+ *	built-in rules (MONOCHROMATIC, ANALOGOUS, COMPLEMENTARY and TRIADS) and give the
+ *	same colors as before.<br><br>
+ *	A slot expression is a source followed by zero or more steps, applied from left
+ *	to right:<br>
+ *	Sources:<br>
+ *	base - the base color, corrected with the min/max values of the generator<br>
+ *	cN - color N (1..) of the palette, N must be an earlier slot<br>
+ *	#RRGGBB - a fixed color<br>
+ *	Steps:<br>
+ *	hue D - rotate the hue by D degrees (for example hue +30)<br>
+ *	sat D, lum D - add D to the saturation or luminosity (0..100, clamped)<br>
+ *	mono P F - per channel c: P + F * |c - 128| for c &gt;= 128, P - F * |c - 128|
+ *	below 128 (rounded down, clamped to 0..255)<br>
+ *	shade F - per channel: F * c (rounded down, clamped to 0..255)<br>
+ *	correct - correct the color with the min/max values of the generator<br>
+ *	Hue, sat and lum steps in a row are one HSL round trip; mono and shade steps in a
+ *	row are merged into one channel table.<br>
+ *	Example:<br>
+ *	HarmonyRule rule = new HarmonyRule("Split complementary", "base", "base hue +150",
+ *	"base hue -150", "#FFFFFF", "c1 shade 0.75", "c2 shade 0.75", "c3 shade 0.75", "c4 shade 0.75");<br>
+ *	int[] colors = generator.generate(rule, 0xFF00FF, new int[rule.GetSize()], 0);
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+public final class HarmonyRule {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	// Steps of the plan: opcode | (argument << OP_BITS)
+	static final int OP_BITS = 3;
+	static final int OP_MASK = (1 << OP_BITS) - 1;
+
+	// Opcodes
+	static final int BASE    = 0;	// color = corrected base color
+	static final int SLOT    = 1;	// color = slot [arg]
+	static final int COLOR   = 2;	// color = arg (0xRRGGBB)
+	static final int TABLE   = 3;	// channels through tables[arg..arg+255]
+	static final int HSL     = 4;	// HSL round trip with offsets[arg..arg+2]
+	static final int CORRECT = 5;	// correct the color
+	static final int STORE   = 6;	// slot [arg] = color
+
+	// Built-in rules: the palette types of ColorHarmony
+	public static final HarmonyRule MONOCHROMATIC = new HarmonyRule(0, "Monochromatic",
+			"base",
+			"base mono 192 0.5 correct",
+			"base mono 90 0.5 correct",
+			"base mono 215 0.25 correct",
+			"c1 shade 0.75 correct",
+			"c2 shade 0.75 correct",
+			"c3 shade 0.75 correct",
+			"c4 shade 0.75 correct");
+
+	public static final HarmonyRule ANALOGOUS = new HarmonyRule(1, "Analogous",
+			"base",
+			"base hue +30",
+			"#FFFFFF",
+			"base hue -30",
+			"c1 shade 0.75",
+			"c2 shade 0.75",
+			"c3 shade 0.75",
+			"c4 shade 0.75");
+
+	public static final HarmonyRule COMPLEMENTARY = new HarmonyRule(2, "Complementary",
+			"base",
+			"base hue +180",
+			"base mono 192 0.5 mono 192 0.5",
+			"c2 mono 192 0.5",
+			"c1 shade 0.75",
+			"c2 shade 0.75",
+			"c3 shade 0.75",
+			"c4 shade 0.75");
+
+	public static final HarmonyRule TRIADS = new HarmonyRule(3, "Triads",
+			"base",
+			"base hue +120",
+			"#FFFFFF",
+			"base hue -120",
+			"c1 shade 0.75",
+			"c2 shade 0.75",
+			"c3 shade 0.75",
+			"c4 shade 0.75");
+
+	// More rules in the same layout (base, 3 colors, 4 shades)
+	public static final HarmonyRule SPLIT_COMPLEMENTARY = new HarmonyRule("Split complementary",
+			"base", "base hue +150", "#FFFFFF", "base hue -150",
+			"c1 shade 0.75", "c2 shade 0.75", "c3 shade 0.75", "c4 shade 0.75");
+
+	public static final HarmonyRule TETRADIC = new HarmonyRule("Tetradic",
+			"base", "base hue +60", "base hue +180", "base hue -120",
+			"c1 shade 0.75", "c2 shade 0.75", "c3 shade 0.75", "c4 shade 0.75");
+
+	public static final HarmonyRule SQUARE = new HarmonyRule("Square",
+			"base", "base hue +90", "base hue +180", "base hue -90",
+			"c1 shade 0.75", "c2 shade 0.75", "c3 shade 0.75", "c4 shade 0.75");
+
+	// The built-in rules by palette type
+	static final HarmonyRule[] TYPES = { MONOCHROMATIC, ANALOGOUS, COMPLEMENTARY, TRIADS };
+
+	final int      type;
+	final String   name;
+	final String[] slots;
+
+	// The plan
+	final int[]   code;
+	final float[] offsets;
+	final int[]   tables;
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the HarmonyRule class<br>
+	 *	Example: HarmonyRule square = new HarmonyRule("Square", "base", "base hue +90", "base hue +180", "base hue -90");
+	 *
+	 *	@param _name 	Name of the rule
+	 *	@param _slots	One expression per color of the palette (at least one)
+	 *
+	 *	@throws IllegalArgumentException if an expression is not valid
+	 *
+	 *********************************************************************************/
+	public HarmonyRule(String _name, String... _slots) {
+		this(-1, _name, _slots);
+	} // HarmonyRule()
+
+
+	HarmonyRule(int _type, String _name, String... _slots) {
+		if (_slots.length == 0) throw new IllegalArgumentException("A rule needs at least one slot");
+		type  = _type;
+		name  = _name;
+		slots = _slots.clone();
+
+		Compiler compiler = new Compiler();
+		for (int s = 0; s < slots.length; s++) compiler.slot(s, slots[s]);
+		code    = compiler.code();
+		offsets = compiler.offsets();
+		tables  = compiler.tables();
+	} // HarmonyRule()
+
+
+	/*********************************************************************************
+	 *
+	 *	Make a rule from a text with the slot expressions on separate lines (or
+	 *	separated by ';')<br>
+	 *	Example: HarmonyRule rule = HarmonyRule.Parse("Square", "base; base hue +90; base hue +180; base hue -90");
+	 *
+	 *	@param name 	Name of the rule
+	 *	@param text		Slot expressions (empty lines are skipped)
+	 *
+	 *	@throws IllegalArgumentException if an expression is not valid
+	 *
+	 *********************************************************************************/
+	public static HarmonyRule Parse(String name, String text) {
+		List<String> slots = new ArrayList<String>();
+		for (String slot : text.split("[;\\r\\n]")) {
+			if (!slot.trim().isEmpty()) slots.add(slot.trim());
+		}
+		return new HarmonyRule(name, slots.toArray(new String[0]));
+	} // Parse()
+
+
+	/*********************************************************************************
+	 *
+	 *	Generate a palette with this rule (no allocations)<br>
+	 *	Example: rule.generate(0xFF00FF, 10, 60, 20, 60, colors, 0);<br>
+	 *	PaletteGenerator.generate(rule, rgb, colors, offset) does the same with the
+	 *	min/max values of the generator.
+	 *
+	 *	@param rgb 		Base color (0xRRGGBB, the alpha byte is ignored)
+	 *	@param minS		Minimum saturation (0..100)
+	 *	@param maxS		Maximum saturation (0..100)
+	 *	@param minL		Minimum luminosity (0..100)
+	 *	@param maxL		Maximum luminosity (0..100)
+	 *	@param out		Array that receives the GetSize() colors (0xFFRRGGBB)
+	 *	@param offset	Index in out for the first color
+	 *
+	 *	@return			The out array
+	 *
+	 *********************************************************************************/
+	public int[] generate(int rgb, int minS, int maxS, int minL, int maxL, int[] out, int offset) {
+		int[]   code    = this.code;
+		int[]   tables  = this.tables;
+		float[] offsets = this.offsets;
+
+		int base = PackedPalettes.correct(rgb, minS, maxS, minL, maxL);
+		int c    = base;
+
+		// HSL of the last color that had an HSL step (colors often share a source)
+		int   hslColor = -1;
+		float H = 0, S = 0, L = 0;
+
+		for (int op : code) {
+			int arg = op >> OP_BITS;
+			switch (op & OP_MASK) {
+			case BASE:
+				c = base;
+				break;
+			case SLOT:
+				c = out[offset + arg] & ColorMath.RGB_MASK;
+				break;
+			case COLOR:
+				c = arg;
+				break;
+			case TABLE:
+				c = (tables[arg + ColorMath.red(c)] << 16) | (tables[arg + ColorMath.green(c)] << 8) | tables[arg + ColorMath.blue(c)];
+				break;
+			case HSL:
+				if (c != hslColor) {
+					hslColor = c;
+					H = ColorMath.hue(c);
+					S = ColorMath.saturation(c);
+					L = ColorMath.luminosity(c);
+				}
+				c = ColorMath.hsl2rgb(PackedPalettes.fixHue(H + offsets[arg]),
+						offsets[arg + 1] == 0 ? S : clamp(S + offsets[arg + 1]),
+						offsets[arg + 2] == 0 ? L : clamp(L + offsets[arg + 2]));
+				break;
+			case CORRECT:
+				c = PackedPalettes.correct(c, minS, maxS, minL, maxL);
+				break;
+			case STORE:
+				out[offset + arg] = ColorMath.OPAQUE | c;
+				break;
+			} // switch (op & OP_MASK)
+		}
+		return out;
+	} // generate()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the number of colors of the palettes of this rule
+	 *
+	 *********************************************************************************/
+	public int GetSize() {
+		return slots.length;
+	} // GetSize()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the name of the rule
+	 *
+	 *********************************************************************************/
+	public String GetName() {
+		return name;
+	} // GetName()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the palette type of a built-in rule (0..3), -1 for other rules
+	 *
+	 *********************************************************************************/
+	public int GetType() {
+		return type;
+	} // GetType()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the slot expressions of the rule
+	 *
+	 *********************************************************************************/
+	public String[] GetSlots() {
+		return slots.clone();
+	} // GetSlots()
+
+
+	@Override
+	public String toString() {
+		return name + " " + Arrays.toString(slots);
+	} // toString()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL METHODS
+	 *
+	 *********************************************************************************/
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Clamp a saturation or luminosity to 0..100
+	 *
+	 *********************************************************************************/
+	static float clamp(float value) {
+		return Math.max(0f, Math.min(100f, value));
+	} // clamp()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Channel table of a mono or shade step
+	 *
+	 *********************************************************************************/
+	static int[] channelTable(boolean mono, float par, float factor) {
+		int[] table = new int[256];
+		for (int c = 0; c < 256; c++) {
+			int v;
+			if (mono) {
+				int diff = (int)(factor * Math.abs(c - 128));
+				v = c < 128 ? (int)par - diff : (int)par + diff;
+			} else {
+				v = (int)(factor * c);
+			}
+			table[c] = Math.max(0, Math.min(255, v));
+		}
+		return table;
+	} // channelTable()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Compiles the slot expressions into the plan
+	 *
+	 *********************************************************************************/
+	static final class Compiler {
+		final List<Integer> code    = new ArrayList<Integer>();
+		final List<Float>   offsets = new ArrayList<Float>();
+		final List<int[]>   tables  = new ArrayList<int[]>();
+
+		// Channel table and HSL offsets of the steps that are being merged
+		int[]   table;
+		float[] hsl;
+
+		String  expression;
+
+
+		/*****************************************************************************
+		 *
+		 *	Compile the expression of slot s
+		 *
+		 *****************************************************************************/
+		void slot(int s, String _expression) {
+			expression = _expression;
+			String[] tokens = _expression.trim().toLowerCase(Locale.ROOT).split("\\s+");
+			if (tokens[0].isEmpty()) throw error("empty expression");
+
+			String source = tokens[0];
+			if (source.equals("base")) {
+				emit(BASE, 0);
+			} else if (source.startsWith("#")) {
+				long rgb = HexCodec.decode(source, 0, source.length());
+				if (rgb == HexCodec.INVALID) throw error("not a color: " + source);
+				emit(COLOR, (int)rgb & ColorMath.RGB_MASK);
+			} else if (source.startsWith("c")) {
+				int n = integer(source.substring(1));
+				if (n < 1 || n > s) throw error("c" + n + " is not an earlier slot");
+				emit(SLOT, n - 1);
+			} else {
+				throw error("unknown source: " + source);
+			}
+
+			for (int t = 1; t < tokens.length; t++) {
+				String step = tokens[t];
+				if (step.equals("hue") || step.equals("sat") || step.equals("lum")) {
+					flushTable();
+					if (hsl == null) hsl = new float[3];
+					hsl[step.equals("hue") ? 0 : step.equals("sat") ? 1 : 2] += number(tokens, ++t);
+				} else if (step.equals("mono")) {
+					flushHSL();
+					float par = number(tokens, ++t);
+					merge(channelTable(true, par, factor(tokens, ++t)));
+				} else if (step.equals("shade")) {
+					flushHSL();
+					merge(channelTable(false, 0, factor(tokens, ++t)));
+				} else if (step.equals("correct")) {
+					flush();
+					emit(CORRECT, 0);
+				} else {
+					throw error("unknown step: " + step);
+				}
+			}
+			flush();
+			emit(STORE, s);
+		} // slot()
+
+
+		/*****************************************************************************
+		 *
+		 *	Merge a channel table into the pending one (first the pending table, then
+		 *	the new one)
+		 *
+		 *****************************************************************************/
+		void merge(int[] next) {
+			if (table == null) {
+				table = next;
+				return;
+			}
+			for (int c = 0; c < 256; c++) table[c] = next[table[c]];
+		} // merge()
+
+
+		void flush() {
+			flushTable();
+			flushHSL();
+		} // flush()
+
+
+		void flushTable() {
+			if (table == null) return;
+			// Equal tables are stored once
+			int index = -1;
+			for (int i = 0; i < tables.size() && index < 0; i++) {
+				if (Arrays.equals(tables.get(i), table)) index = i;
+			}
+			if (index < 0) {
+				index = tables.size();
+				tables.add(table);
+			}
+			emit(TABLE, 256 * index);
+			table = null;
+		} // flushTable()
+
+
+		void flushHSL() {
+			if (hsl == null) return;
+			emit(HSL, offsets.size());
+			for (float v : hsl) offsets.add(v);
+			hsl = null;
+		} // flushHSL()
+
+
+		void emit(int opcode, int arg) {
+			code.add(opcode | (arg << OP_BITS));
+		} // emit()
+
+
+		/*****************************************************************************
+		 *
+		 *	Parse numbers
+		 *
+		 *****************************************************************************/
+		float number(String[] tokens, int t) {
+			if (t >= tokens.length) throw error("number expected after " + tokens[t - 1]);
+			try {
+				float v = Float.parseFloat(tokens[t]);
+				if (Float.isNaN(v) || Float.isInfinite(v)) throw error("not a number: " + tokens[t]);
+				return v;
+			} catch (NumberFormatException e) {
+				throw error("not a number: " + tokens[t]);
+			}
+		} // number()
+
+		float factor(String[] tokens, int t) {
+			float factor = number(tokens, t);
+			if (factor < 0) throw error("factor can't be negative: " + tokens[t]);
+			return factor;
+		} // factor()
+
+		int integer(String token) {
+			try {
+				return Integer.parseInt(token);
+			} catch (NumberFormatException e) {
+				throw error("unknown source: c" + token);
+			}
+		} // integer()
+
+		IllegalArgumentException error(String message) {
+			return new IllegalArgumentException("Rule \"" + expression + "\": " + message);
+		} // error()
+
+
+		/*****************************************************************************
+		 *
+		 *	The plan as arrays
+		 *
+		 *****************************************************************************/
+		int[] code() {
+			int[] array = new int[code.size()];
+			for (int i = 0; i < array.length; i++) array[i] = code.get(i);
+			return array;
+		} // code()
+
+		float[] offsets() {
+			float[] array = new float[offsets.size()];
+			for (int i = 0; i < array.length; i++) array[i] = offsets.get(i);
+			return array;
+		} // offsets()
+
+		int[] tables() {
+			int[] array = new int[256 * tables.size()];
+			for (int i = 0; i < tables.size(); i++) System.arraycopy(tables.get(i), 0, array, 256 * i, 256);
+			return array;
+		} // tables()
+	} // Compiler
+} // HarmonyRule
@@ -0,0 +1,344 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Table-driven hexadecimal color parser and formatter
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import java.nio.ByteBuffer;
+
+
+/*************************************************************************************
+ *
+ *	<b>HexCodec class</b><br><br>
+ *	Parses and formats hexadecimal color strings with lookup tables, without
+ *	allocating anything (the methods returning a String allocate just the result).
+ *	<br><br>
+ *	Accepted formats (the '#' is optional, upper and lower case digits):<br>
+ *	#RGB      - short form, every digit is doubled (opaque)<br>
+ *	#RRGGBB   - opaque color<br>
+ *	#AARRGGBB - color with alpha<br>
+ *	The decode() methods return the color as an ARGB value (0..0xFFFFFFFF) in a
+ *	long, or INVALID (-1) for anything else. Nothing is printed.<br>
+ *	The format() methods write 6 upper case digits (RRGGBB, the alpha byte is
+ *	ignored), formatARGB() writes 8 (AARRGGBB). No '#' is written.
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+public final class HexCodec {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	// Result of decode() for invalid input
+	public static final long INVALID = -1;
+
+	// Digit value of every (7 bit) character, -1 = not a hexadecimal digit
+	static final byte[] DIGITS = new byte[128];
+
+	// Upper case hexadecimal digits
+	static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+	// Both digits of every byte value: PAIRS[2 * b] and PAIRS[2 * b + 1]
+	static final char[] PAIRS = new char[512];
+
+	static {
+		for (int c = 0; c < DIGITS.length; c++) DIGITS[c] = -1;
+		for (int d = 0; d < 16; d++) {
+			DIGITS[HEX[d]] = (byte)d;
+			DIGITS[Character.toLowerCase(HEX[d])] = (byte)d;
+		}
+		for (int b = 0; b < 256; b++) {
+			PAIRS[2 * b]     = HEX[b >> 4];
+			PAIRS[2 * b + 1] = HEX[b & 0xF];
+		}
+	} // static
+
+
+	/*********************************************************************************
+	 *
+	 *	Static helper only
+	 *
+	 *********************************************************************************/
+	private HexCodec() {
+	} // HexCodec()
+
+
+	/*********************************************************************************
+	 *
+	 *	Value of a hexadecimal digit (0..15), or -1 if c is not a hexadecimal digit
+	 *
+	 *********************************************************************************/
+	public static int digit(int c) {
+		return c < 128 && c >= 0 ? DIGITS[c] : -1;
+	} // digit()
+
+
+	/*********************************************************************************
+	 *
+	 *	Parse a hexadecimal color<br>
+	 *	Example: int argb = HexCodec.parse("#FF00FF");
+	 *
+	 *	@param hex 	#RGB, #RRGGBB or #AARRGGBB (the '#' is optional)
+	 *
+	 *	@return		ARGB color (opaque for #RGB and #RRGGBB)
+	 *
+	 *	@throws IllegalArgumentException if hex is not a valid color
+	 *
+	 *********************************************************************************/
+	public static int parse(CharSequence hex) {
+		long argb = decode(hex, 0, hex.length());
+		if (argb == INVALID) {
+			throw new IllegalArgumentException("Not a hexadecimal color: " + hex);
+		}
+		return (int)argb;
+	} // parse()
+
+
+	/*********************************************************************************
+	 *
+	 *	Check a hexadecimal color<br>
+	 *	Example: if (HexCodec.isValid(hex)) ...
+	 *
+	 *	@return		true for #RGB, #RRGGBB or #AARRGGBB (the '#' is optional)
+	 *
+	 *********************************************************************************/
+	public static boolean isValid(CharSequence hex) {
+		return decode(hex, 0, hex.length()) != INVALID;
+	} // isValid()
+
+
+	/*********************************************************************************
+	 *
+	 *	Decode a hexadecimal color from hex[from..to-1]
+	 *
+	 *	@return		ARGB color (0..0xFFFFFFFF), or INVALID
+	 *
+	 *********************************************************************************/
+	public static long decode(CharSequence hex, int from, int to) {
+		if (from < to && hex.charAt(from) == '#') from++;
+		int n = to - from;
+		if (n != 3 && n != 6 && n != 8) return INVALID;
+
+		int value = 0;
+		int bad   = 0;
+		for (int i = from; i < to; i++) {
+			int d = digit(hex.charAt(i));
+			bad  |= d;
+			value = (value << 4) | (d & 0xF);
+		}
+		return bad < 0 ? INVALID : expand(value, n);
+	} // decode()
+
+
+	/*********************************************************************************
+	 *
+	 *	Decode a hexadecimal color from hex[from..to-1]
+	 *
+	 *	@return		ARGB color (0..0xFFFFFFFF), or INVALID
+	 *
+	 *********************************************************************************/
+	public static long decode(char[] hex, int from, int to) {
+		if (from < to && hex[from] == '#') from++;
+		int n = to - from;
+		if (n != 3 && n != 6 && n != 8) return INVALID;
+
+		int value = 0;
+		int bad   = 0;
+		for (int i = from; i < to; i++) {
+			int d = digit(hex[i]);
+			bad  |= d;
+			value = (value << 4) | (d & 0xF);
+		}
+		return bad < 0 ? INVALID : expand(value, n);
+	} // decode()
+
+
+	/*********************************************************************************
+	 *
+	 *	Decode a hexadecimal color from the (ASCII) bytes hex[from..to-1]
+	 *
+	 *	@return		ARGB color (0..0xFFFFFFFF), or INVALID
+	 *
+	 *********************************************************************************/
+	public static long decode(byte[] hex, int from, int to) {
+		if (from < to && hex[from] == '#') from++;
+		int n = to - from;
+		if (n != 3 && n != 6 && n != 8) return INVALID;
+
+		int value = 0;
+		int bad   = 0;
+		for (int i = from; i < to; i++) {
+			int d = digit(hex[i]);
+			bad  |= d;
+			value = (value << 4) | (d & 0xF);
+		}
+		return bad < 0 ? INVALID : expand(value, n);
+	} // decode()
+
+
+	/*********************************************************************************
+	 *
+	 *	Decode a hexadecimal color from the (ASCII) bytes at the absolute indexes
+	 *	from..to-1 of a buffer (the position of the buffer is not changed)
+	 *
+	 *	@return		ARGB color (0..0xFFFFFFFF), or INVALID
+	 *
+	 *********************************************************************************/
+	public static long decode(ByteBuffer hex, int from, int to) {
+		if (from < to && hex.get(from) == '#') from++;
+		int n = to - from;
+		if (n != 3 && n != 6 && n != 8) return INVALID;
+
+		int value = 0;
+		int bad   = 0;
+		for (int i = from; i < to; i++) {
+			int d = digit(hex.get(i));
+			bad  |= d;
+			value = (value << 4) | (d & 0xF);
+		}
+		return bad < 0 ? INVALID : expand(value, n);
+	} // decode()
+
+
+	/*********************************************************************************
+	 *
+	 *	Format a color as 6 upper case digits (RRGGBB)<br>
+	 *	Example: HexCodec.format(0xFF00FF, sb);
+	 *
+	 *	@param rgb 	Color (the alpha byte is ignored)
+	 *	@param sb	Receives the digits
+	 *
+	 *	@return		sb
+	 *
+	 *********************************************************************************/
+	public static StringBuilder format(int rgb, StringBuilder sb) {
+		return sb.append(PAIRS, ((rgb >> 15) & 0x1FE), 2)
+				.append(PAIRS, ((rgb >> 7) & 0x1FE), 2)
+				.append(PAIRS, ((rgb << 1) & 0x1FE), 2);
+	} // format()
+
+
+	/*********************************************************************************
+	 *
+	 *	Format a color as 6 upper case digits into dst[offset..offset+5]
+	 *
+	 *	@return		Index after the last digit
+	 *
+	 *********************************************************************************/
+	public static int format(int rgb, char[] dst, int offset) {
+		offset = pair((rgb >> 16) & 0xFF, dst, offset);
+		offset = pair((rgb >> 8) & 0xFF, dst, offset);
+		return pair(rgb & 0xFF, dst, offset);
+	} // format()
+
+
+	/*********************************************************************************
+	 *
+	 *	Format a color as 6 upper case (ASCII) digits into a buffer, at its position
+	 *
+	 *	@return		dst
+	 *
+	 *********************************************************************************/
+	public static ByteBuffer format(int rgb, ByteBuffer dst) {
+		return pair(rgb & 0xFF, pair((rgb >> 8) & 0xFF, pair((rgb >> 16) & 0xFF, dst)));
+	} // format()
+
+
+	/*********************************************************************************
+	 *
+	 *	Format a color as 8 upper case digits (AARRGGBB)
+	 *
+	 *	@return		sb
+	 *
+	 *********************************************************************************/
+	public static StringBuilder formatARGB(int argb, StringBuilder sb) {
+		return format(argb, sb.append(PAIRS, ((argb >>> 23) & 0x1FE), 2));
+	} // formatARGB()
+
+
+	/*********************************************************************************
+	 *
+	 *	Format a color as 8 upper case digits into dst[offset..offset+7]
+	 *
+	 *	@return		Index after the last digit
+	 *
+	 *********************************************************************************/
+	public static int formatARGB(int argb, char[] dst, int offset) {
+		return format(argb, dst, pair(argb >>> 24, dst, offset));
+	} // formatARGB()
+
+
+	/*********************************************************************************
+	 *
+	 *	Format a color as 8 upper case (ASCII) digits into a buffer, at its position
+	 *
+	 *	@return		dst
+	 *
+	 *********************************************************************************/
+	public static ByteBuffer formatARGB(int argb, ByteBuffer dst) {
+		return format(argb, pair(argb >>> 24, dst));
+	} // formatARGB()
+
+
+	/*********************************************************************************
+	 *
+	 *	Format a color as a String with 6 upper case digits<br>
+	 *	Example: String hex = HexCodec.toHex(0xFF00FF);<br>
+	 *	Result: "FF00FF"
+	 *
+	 *********************************************************************************/
+	public static String toHex(int rgb) {
+		char[] digits = new char[6];
+		format(rgb, digits, 0);
+		return new String(digits);
+	} // toHex()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL METHODS
+	 *
+	 *********************************************************************************/
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Make an ARGB color from the digits of a 3, 6 or 8 digit color
+	 *
+	 *********************************************************************************/
+	static long expand(int value, int n) {
+		if (n == 8) return value & 0xFFFFFFFFL;
+		if (n == 3) {
+			// RGB -> RRGGBB
+			int r = (value >> 8) & 0xF;
+			int g = (value >> 4) & 0xF;
+			int b =  value       & 0xF;
+			value = (r << 20) | (r << 16) | (g << 12) | (g << 8) | (b << 4) | b;
+		}
+		return (ColorMath.OPAQUE | value) & 0xFFFFFFFFL;
+	} // expand()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Write the two digits of a byte value
+	 *
+	 *********************************************************************************/
+	static int pair(int b, char[] dst, int offset) {
+		dst[offset]     = PAIRS[2 * b];
+		dst[offset + 1] = PAIRS[2 * b + 1];
+		return offset + 2;
+	} // pair()
+
+	static ByteBuffer pair(int b, ByteBuffer dst) {
+		return dst.put((byte)PAIRS[2 * b]).put((byte)PAIRS[2 * b + 1]);
+	} // pair()
+} // HexCodec
@@ -0,0 +1,333 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Table driven CIELAB and OKLab math on packed colors
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+
+/*************************************************************************************
+ *
+ *	<b>LabMath class</b><br><br>
+ *	Conversions between packed sRGB colors (0xRRGGBB) and the perceptual color
+ *	spaces CIELAB (D65 white point), OKLab and their polar forms (LCh, OKLCh).<br>
+ *	The expensive steps are table lookups: sRGB to linear light is a table of the
+ *	256 channel values, the cube roots come from a table over the mantissa (with
+ *	linear interpolation, relative error below 1e-6) and linear light to sRGB is a
+ *	table of 65536 steps. Nothing calls Math.pow() or Math.cbrt() per color.<br>
+ *	Ranges: CIELAB L 0..100, a and b about -128..127; OKLab L 0..1, a and b about
+ *	-0.4..0.4; hues in degrees (0..360).
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+final class LabMath {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	// D65 white point
+	static final float XN = 0.95047f;
+	static final float ZN = 1.08883f;
+
+	// CIELAB constants (exact fractions of the CIE standard)
+	static final float EPSILON = 216f / 24389f;
+	static final float KAPPA   = 24389f / 27f;
+
+	// Linear light (0..1) of every sRGB channel value
+	static final float[] LINEAR = new float[256];
+
+	// Cube roots: CBRT[r][i] = cbrt((1 + i / 1024) * 2^r), for r = 0..2
+	static final int CBRT_BITS = 10;
+	static final float[][] CBRT = new float[3][(1 << CBRT_BITS) + 1];
+
+	// sRGB channel value of linear light i / ENCODE_STEPS
+	static final int ENCODE_STEPS = 65535;
+	static final byte[] ENCODE = new byte[ENCODE_STEPS + 1];
+
+	static {
+		for (int c = 0; c < LINEAR.length; c++) {
+			double v = c / 255.0;
+			LINEAR[c] = (float)(v <= 0.04045 ? v / 12.92 : Math.pow((v + 0.055) / 1.055, 2.4));
+		}
+		for (int r = 0; r < 3; r++) {
+			for (int i = 0; i < CBRT[r].length; i++) {
+				CBRT[r][i] = (float)Math.cbrt((1 + i / (double)(1 << CBRT_BITS)) * (1 << r));
+			}
+		}
+		for (int i = 0; i < ENCODE.length; i++) {
+			double v = i / (double)ENCODE_STEPS;
+			v = v <= 0.0031308 ? 12.92 * v : 1.055 * Math.pow(v, 1 / 2.4) - 0.055;
+			ENCODE[i] = (byte)Math.round(v * 255);
+		}
+	} // static
+
+
+	/*********************************************************************************
+	 *
+	 *	Static helper only
+	 *
+	 *********************************************************************************/
+	private LabMath() {
+	} // LabMath()
+
+
+	/*********************************************************************************
+	 *
+	 *	CIELAB values of a packed color, written into lab[offset..offset+2]
+	 *
+	 *********************************************************************************/
+	static void lab(int rgb, float[] lab, int offset) {
+		float r = LINEAR[(rgb >> 16) & 0xFF];
+		float g = LINEAR[(rgb >> 8) & 0xFF];
+		float b = LINEAR[rgb & 0xFF];
+
+		// Linear sRGB -> XYZ, relative to the white point
+		float fx = labF((0.4124564f * r + 0.3575761f * g + 0.1804375f * b) * (1 / XN));
+		float fy = labF( 0.2126729f * r + 0.7151522f * g + 0.0721750f * b);
+		float fz = labF((0.0193339f * r + 0.1191920f * g + 0.9503041f * b) * (1 / ZN));
+
+		lab[offset]     = 116 * fy - 16;
+		lab[offset + 1] = 500 * (fx - fy);
+		lab[offset + 2] = 200 * (fy - fz);
+	} // lab()
+
+
+	/*********************************************************************************
+	 *
+	 *	Bulk CIELAB for rgb[from..to-1]
+	 *
+	 *********************************************************************************/
+	static void lab(int[] rgb, float[] l, float[] a, float[] b, int from, int to) {
+		for (int i = from; i < to; i++) {
+			int   c  = rgb[i];
+			float lr = LINEAR[(c >> 16) & 0xFF];
+			float lg = LINEAR[(c >> 8) & 0xFF];
+			float lb = LINEAR[c & 0xFF];
+
+			float fx = labF((0.4124564f * lr + 0.3575761f * lg + 0.1804375f * lb) * (1 / XN));
+			float fy = labF( 0.2126729f * lr + 0.7151522f * lg + 0.0721750f * lb);
+			float fz = labF((0.0193339f * lr + 0.1191920f * lg + 0.9503041f * lb) * (1 / ZN));
+
+			l[i] = 116 * fy - 16;
+			a[i] = 500 * (fx - fy);
+			b[i] = 200 * (fy - fz);
+		}
+	} // lab()
+
+
+	/*********************************************************************************
+	 *
+	 *	OKLab values of a packed color, written into lab[offset..offset+2]
+	 *
+	 *********************************************************************************/
+	static void oklab(int rgb, float[] lab, int offset) {
+		float r = LINEAR[(rgb >> 16) & 0xFF];
+		float g = LINEAR[(rgb >> 8) & 0xFF];
+		float b = LINEAR[rgb & 0xFF];
+
+		// Linear sRGB -> LMS cone responses, cube roots
+		float l = cbrt(0.4122214708f * r + 0.5363325363f * g + 0.0514459929f * b);
+		float m = cbrt(0.2119034982f * r + 0.6806995451f * g + 0.1073969566f * b);
+		float s = cbrt(0.0883024619f * r + 0.2817188376f * g + 0.6299787005f * b);
+
+		lab[offset]     = 0.2104542553f * l + 0.7936177850f * m - 0.0040720468f * s;
+		lab[offset + 1] = 1.9779984951f * l - 2.4285922050f * m + 0.4505937099f * s;
+		lab[offset + 2] = 0.0259040371f * l + 0.7827717662f * m - 0.8086757660f * s;
+	} // oklab()
+
+
+	/*********************************************************************************
+	 *
+	 *	Bulk OKLab for rgb[from..to-1]
+	 *
+	 *********************************************************************************/
+	static void oklab(int[] rgb, float[] l, float[] a, float[] b, int from, int to) {
+		for (int i = from; i < to; i++) {
+			int   c  = rgb[i];
+			float lr = LINEAR[(c >> 16) & 0xFF];
+			float lg = LINEAR[(c >> 8) & 0xFF];
+			float lb = LINEAR[c & 0xFF];
+
+			float cl = cbrt(0.4122214708f * lr + 0.5363325363f * lg + 0.0514459929f * lb);
+			float cm = cbrt(0.2119034982f * lr + 0.6806995451f * lg + 0.1073969566f * lb);
+			float cs = cbrt(0.0883024619f * lr + 0.2817188376f * lg + 0.6299787005f * lb);
+
+			l[i] = 0.2104542553f * cl + 0.7936177850f * cm - 0.0040720468f * cs;
+			a[i] = 1.9779984951f * cl - 2.4285922050f * cm + 0.4505937099f * cs;
+			b[i] = 0.0259040371f * cl + 0.7827717662f * cm - 0.8086757660f * cs;
+		}
+	} // oklab()
+
+
+	/*********************************************************************************
+	 *
+	 *	Lab values in lch[offset..offset+2] to polar form in place: L, chroma, hue
+	 *
+	 *********************************************************************************/
+	static void polar(float[] lch, int offset) {
+		float a = lch[offset + 1];
+		float b = lch[offset + 2];
+		lch[offset + 1] = (float)Math.sqrt(a * a + b * b);
+		lch[offset + 2] = hue(a, b);
+	} // polar()
+
+
+	/*********************************************************************************
+	 *
+	 *	Bulk polar form in place for index from..to-1: a -> chroma, b -> hue
+	 *
+	 *********************************************************************************/
+	static void polar(float[] a, float[] b, int from, int to) {
+		for (int i = from; i < to; i++) {
+			float ai = a[i];
+			float bi = b[i];
+			a[i] = (float)Math.sqrt(ai * ai + bi * bi);
+			b[i] = hue(ai, bi);
+		}
+	} // polar()
+
+
+	/*********************************************************************************
+	 *
+	 *	CIELAB to a packed color (opaque, out of gamut colors are clipped)
+	 *
+	 *********************************************************************************/
+	static int lab2rgb(float l, float a, float b) {
+		float fy = (l + 16) / 116;
+		float fx = fy + a / 500;
+		float fz = fy - b / 200;
+
+		float xr = fx * fx * fx;
+		float yr = fy * fy * fy;
+		float zr = fz * fz * fz;
+		if (xr <= EPSILON) xr = (116 * fx - 16) / KAPPA;
+		if (l <= KAPPA * EPSILON) yr = l / KAPPA;
+		if (zr <= EPSILON) zr = (116 * fz - 16) / KAPPA;
+
+		float x = xr * XN;
+		float z = zr * ZN;
+		return rgb( 3.2404542f * x - 1.5371385f * yr - 0.4985314f * z,
+				   -0.9692660f * x + 1.8760108f * yr + 0.0415560f * z,
+					0.0556434f * x - 0.2040259f * yr + 1.0572252f * z);
+	} // lab2rgb()
+
+
+	/*********************************************************************************
+	 *
+	 *	OKLab to a packed color (opaque, out of gamut colors are clipped)
+	 *
+	 *********************************************************************************/
+	static int oklab2rgb(float l, float a, float b) {
+		float cl = l + 0.3963377774f * a + 0.2158037573f * b;
+		float cm = l - 0.1055613458f * a - 0.0638541728f * b;
+		float cs = l - 0.0894841775f * a - 1.2914855480f * b;
+
+		float ll = cl * cl * cl;
+		float mm = cm * cm * cm;
+		float ss = cs * cs * cs;
+		return rgb( 4.0767416621f * ll - 3.3077115913f * mm + 0.2309699292f * ss,
+				   -1.2684380046f * ll + 2.6097574011f * mm - 0.3413193965f * ss,
+				   -0.0041960863f * ll - 0.7034186147f * mm + 1.7076147010f * ss);
+	} // oklab2rgb()
+
+
+	/*********************************************************************************
+	 *
+	 *	CIE LCh (hue in degrees) to a packed color (opaque, out of gamut colors are
+	 *	clipped)
+	 *
+	 *********************************************************************************/
+	static int lch2rgb(float l, float c, float h) {
+		double radians = Math.toRadians(h);
+		return lab2rgb(l, (float)(c * Math.cos(radians)), (float)(c * Math.sin(radians)));
+	} // lch2rgb()
+
+
+	/*********************************************************************************
+	 *
+	 *	OKLCh (hue in degrees) to a packed color (opaque, out of gamut colors are
+	 *	clipped)
+	 *
+	 *********************************************************************************/
+	static int oklch2rgb(float l, float c, float h) {
+		double radians = Math.toRadians(h);
+		return oklab2rgb(l, (float)(c * Math.cos(radians)), (float)(c * Math.sin(radians)));
+	} // oklch2rgb()
+
+
+	/*********************************************************************************
+	 *
+	 *	Linear light (0..1) to a packed opaque color
+	 *
+	 *********************************************************************************/
+	static int rgb(float r, float g, float b) {
+		return ColorMath.OPAQUE | encode(r) << 16 | encode(g) << 8 | encode(b);
+	} // rgb()
+
+
+	/*********************************************************************************
+	 *
+	 *	Linear light to an sRGB channel value (0..255), clipped
+	 *
+	 *********************************************************************************/
+	static int encode(float v) {
+		if (!(v > 0)) return 0;
+		if (v >= 1) return 255;
+		return ENCODE[(int)(v * ENCODE_STEPS + 0.5f)] & 0xFF;
+	} // encode()
+
+
+	/*********************************************************************************
+	 *
+	 *	Hue angle in degrees (0..360) of a and b
+	 *
+	 *********************************************************************************/
+	static float hue(float a, float b) {
+		float h = (float)Math.toDegrees(Math.atan2(b, a));
+		return h < 0 ? h + 360 : h;
+	} // hue()
+
+
+	/*********************************************************************************
+	 *
+	 *	CIELAB companding function
+	 *
+	 *********************************************************************************/
+	static float labF(float t) {
+		return t > EPSILON ? cbrt(t) : (KAPPA * t + 16) / 116;
+	} // labF()
+
+
+	/*********************************************************************************
+	 *
+	 *	Cube root of a non negative value: x = m * 2^e (1 <= m < 2), so
+	 *	cbrt(x) = cbrt(m * 2^(e mod 3)) * 2^(e div 3), the first factor comes from the
+	 *	table (interpolated over the lower mantissa bits)
+	 *
+	 *********************************************************************************/
+	static float cbrt(float x) {
+		if (!(x >= Float.MIN_NORMAL)) return 0;
+		int bits = Float.floatToRawIntBits(x);
+		// Exponent + 129 (a multiple of 3 > 126), so the division rounds down
+		int e = (bits >>> 23) + 2;
+		int q = e / 3;
+		int r = e - 3 * q;
+
+		int   m = bits & 0x7FFFFF;
+		int   i = m >>> (23 - CBRT_BITS);
+		float f = (m & ((1 << (23 - CBRT_BITS)) - 1)) * (1f / (1 << (23 - CBRT_BITS)));
+
+		float[] table = CBRT[r];
+		float root = table[i] + (table[i + 1] - table[i]) * f;
+
+		// 2^(q - 43)
+		return root * Float.intBitsToFloat((q - 43 + 127) << 23);
+	} // cbrt()
+} // LabMath
@@ -0,0 +1,167 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	JMX view of ColorMetrics
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import javax.management.*;
+import javax.management.openmbean.*;
+
+
+/*************************************************************************************
+ *
+ *	<b>MetricsBean class</b><br><br>
+ *	The MBean com.cage.colorharmony:type=ColorMetrics. Attributes: Enabled
+ *	(read/write) and one composite attribute per operation (Triads, RGB2Lab, ...)
+ *	with count, totalNanos, meanNanos, p50Nanos, p99Nanos, maxNanos, items (colors
+ *	or pixels of bulk operations) and histogram (calls per power of 2 nanoseconds).
+ *	Operation: reset().
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+final class MetricsBean implements DynamicMBean {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	static final String ENABLED = "Enabled";
+	static final String RESET   = "reset";
+
+	static final String[] ITEMS = {
+		"count", "totalNanos", "meanNanos", "p50Nanos", "p99Nanos", "maxNanos", "items", "histogram"
+	};
+
+	final CompositeType type;
+	final MBeanInfo     info;
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the MetricsBean class
+	 *
+	 *********************************************************************************/
+	MetricsBean() throws OpenDataException {
+		type = new CompositeType("com.cage.colorharmony.OperationMetrics", "Metrics of an operation", ITEMS,
+				new String[] {
+					"Number of calls", "Total time (ns)", "Mean time (ns)",
+					"Median time (ns, upper bound of the histogram bucket)",
+					"99th percentile (ns, upper bound of the histogram bucket)",
+					"Longest call (ns)", "Colors or pixels (bulk operations)",
+					"Calls per latency bucket: bucket b counts 2^b..2^(b+1)-1 ns"
+				},
+				new OpenType<?>[] {
+					SimpleType.LONG, SimpleType.LONG, SimpleType.DOUBLE, SimpleType.LONG,
+					SimpleType.LONG, SimpleType.LONG, SimpleType.LONG,
+					ArrayType.getPrimitiveArrayType(long[].class)
+				});
+
+		String[] operations = ColorMetrics.OPERATIONS;
+		MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[operations.length + 1];
+		attributes[0] = new MBeanAttributeInfo(ENABLED, "boolean", "Metrics on or off", true, true, true);
+		for (int op = 0; op < operations.length; op++) {
+			attributes[op + 1] = new OpenMBeanAttributeInfoSupport(operations[op],
+					"Metrics of " + operations[op] + "()", type, true, false, false);
+		}
+		MBeanOperationInfo[] ops = {
+			new MBeanOperationInfo(RESET, "Set all counters and histograms to zero",
+					new MBeanParameterInfo[0], "void", MBeanOperationInfo.ACTION)
+		};
+		info = new MBeanInfo(MetricsBean.class.getName(), "ColorHarmony metrics",
+				attributes, null, ops, null);
+	} // MetricsBean()
+
+
+	@Override
+	public MBeanInfo getMBeanInfo() {
+		return info;
+	} // getMBeanInfo()
+
+
+	@Override
+	public Object getAttribute(String attribute) throws AttributeNotFoundException, MBeanException {
+		if (ENABLED.equals(attribute)) return ColorMetrics.IsEnabled();
+		try {
+			return metrics(ColorMetrics.op(attribute));
+		} catch (IllegalArgumentException e) {
+			throw new AttributeNotFoundException(attribute);
+		} catch (OpenDataException e) {
+			throw new MBeanException(e);
+		}
+	} // getAttribute()
+
+
+	@Override
+	public void setAttribute(Attribute attribute) throws AttributeNotFoundException, InvalidAttributeValueException {
+		if (!ENABLED.equals(attribute.getName())) throw new AttributeNotFoundException(attribute.getName());
+		if (!(attribute.getValue() instanceof Boolean)) throw new InvalidAttributeValueException("Enabled must be a boolean");
+		if ((Boolean)attribute.getValue()) {
+			ColorMetrics.Enable();
+		} else {
+			ColorMetrics.Disable();
+		}
+	} // setAttribute()
+
+
+	@Override
+	public AttributeList getAttributes(String[] attributes) {
+		AttributeList list = new AttributeList();
+		for (String attribute : attributes) {
+			try {
+				list.add(new Attribute(attribute, getAttribute(attribute)));
+			} catch (JMException e) {
+				// Unknown attributes are left out
+			}
+		}
+		return list;
+	} // getAttributes()
+
+
+	@Override
+	public AttributeList setAttributes(AttributeList attributes) {
+		AttributeList list = new AttributeList();
+		for (Attribute attribute : attributes.asList()) {
+			try {
+				setAttribute(attribute);
+				list.add(attribute);
+			} catch (JMException e) {
+				// Attributes that can't be set are left out
+			}
+		}
+		return list;
+	} // setAttributes()
+
+
+	@Override
+	public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+		if (RESET.equals(actionName) && (params == null || params.length == 0)) {
+			ColorMetrics.Reset();
+			return null;
+		}
+		throw new ReflectionException(new NoSuchMethodException(actionName));
+	} // invoke()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Composite value with the metrics of an operation
+	 *
+	 *********************************************************************************/
+	CompositeData metrics(int op) throws OpenDataException {
+		long[] histogram = ColorMetrics.histogram(op);
+		long   count     = ColorMetrics.counts[op].sum();
+		long   total     = ColorMetrics.nanos[op].sum();
+		return new CompositeDataSupport(type, ITEMS, new Object[] {
+			count, total, count == 0 ? 0.0 : total / (double)count,
+			ColorMetrics.percentile(histogram, 50), ColorMetrics.percentile(histogram, 99),
+			ColorMetrics.maxima.get(op), ColorMetrics.items[op].sum(), histogram
+		});
+	} // metrics()
+} // MetricsBean
@@ -0,0 +1,274 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Allocation-free palette generators on packed 0xRRGGBB integers
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+
+/*************************************************************************************
+ *
+ *	<b>PackedPalettes class</b><br><br>
+ *	The palette generators behind PaletteGenerator and ColorHarmony. They work on
+ *	packed 0xRRGGBB integers only, without hexadecimal string round trips.<br>
+ *	All generators write 8 opaque colors (0xFFRRGGBB) into out[offset..offset+7].<br>
+ *	HarmonyRule describes the same four palettes as data (HarmonyRule.MONOCHROMATIC,
+ *	...) with identical colors (test/HarmonyRuleTest.java); these hand-written
+ *	versions stay the fast path for the palette types: running the plans is about
+ *	a third slower.
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+final class PackedPalettes {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	// Color 3 of the analogous and triads palettes
+	static final int WHITE = 0xFFFFFF;
+
+
+	/*********************************************************************************
+	 *
+	 *	Static helper only
+	 *
+	 *********************************************************************************/
+	private PackedPalettes() {
+	} // PackedPalettes()
+
+
+	/*********************************************************************************
+	 *
+	 *	Monochromatic palette
+	 *
+	 *********************************************************************************/
+	static void monochromatic(int rgb, int minS, int maxS, int minL, int maxL, int[] out, int offset) {
+		int c1 = correct(rgb, minS, maxS, minL, maxL);
+
+		int R = ColorMath.red(c1);
+		int G = ColorMath.green(c1);
+		int B = ColorMath.blue(c1);
+
+		int c2 = correct(ColorMath.pack(monoColor(R, 2), monoColor(G, 2), monoColor(B, 2)), minS, maxS, minL, maxL);
+		int c3 = correct(ColorMath.pack(monoColor(R, 3), monoColor(G, 3), monoColor(B, 3)), minS, maxS, minL, maxL);
+		int c4 = correct(ColorMath.pack(monoColor(R, 4), monoColor(G, 4), monoColor(B, 4)), minS, maxS, minL, maxL);
+
+		// The second colors are corrected as well
+		store(out, offset, c1, c2, c3, c4,
+				correct(secondColor(c1), minS, maxS, minL, maxL),
+				correct(secondColor(c2), minS, maxS, minL, maxL),
+				correct(secondColor(c3), minS, maxS, minL, maxL),
+				correct(secondColor(c4), minS, maxS, minL, maxL));
+	} // monochromatic()
+
+
+	/*********************************************************************************
+	 *
+	 *	Analogous palette
+	 *
+	 *********************************************************************************/
+	static void analogous(int rgb, int minS, int maxS, int minL, int maxL, int[] out, int offset) {
+		int c1 = correct(rgb, minS, maxS, minL, maxL);
+
+		float H = ColorMath.hue(c1);
+		float S = ColorMath.saturation(c1);
+		float L = ColorMath.luminosity(c1);
+
+		int c2 = ColorMath.hsl2rgb(fixHue(H + 30), S, L);
+		int c4 = ColorMath.hsl2rgb(fixHue(H - 30), S, L);
+
+		store(out, offset, c1, c2, WHITE, c4,
+				secondColor(c1), secondColor(c2), secondColor(WHITE), secondColor(c4));
+	} // analogous()
+
+
+	/*********************************************************************************
+	 *
+	 *	Complementary palette
+	 *
+	 *********************************************************************************/
+	static void complementary(int rgb, int minS, int maxS, int minL, int maxL, int[] out, int offset) {
+		int c1 = correct(rgb, minS, maxS, minL, maxL);
+
+		int c2 = ColorMath.hsl2rgb(fixHue(ColorMath.hue(c1) + 180),
+				ColorMath.saturation(c1), ColorMath.luminosity(c1));
+
+		// MonoColor() is applied twice to the base color
+		int c3 = ColorMath.pack(
+				monoColor(monoColor(ColorMath.red(c1),   2), 2),
+				monoColor(monoColor(ColorMath.green(c1), 2), 2),
+				monoColor(monoColor(ColorMath.blue(c1),  2), 2));
+		int c4 = ColorMath.pack(
+				monoColor(ColorMath.red(c2),   2),
+				monoColor(ColorMath.green(c2), 2),
+				monoColor(ColorMath.blue(c2),  2));
+
+		store(out, offset, c1, c2, c3, c4,
+				secondColor(c1), secondColor(c2), secondColor(c3), secondColor(c4));
+	} // complementary()
+
+
+	/*********************************************************************************
+	 *
+	 *	Triads palette
+	 *
+	 *********************************************************************************/
+	static void triads(int rgb, int minS, int maxS, int minL, int maxL, int[] out, int offset) {
+		int c1 = correct(rgb, minS, maxS, minL, maxL);
+
+		float H = ColorMath.hue(c1);
+		float S = ColorMath.saturation(c1);
+		float L = ColorMath.luminosity(c1);
+
+		int c2 = ColorMath.hsl2rgb(fixHue(H + 120), S, L);
+		int c4 = ColorMath.hsl2rgb(fixHue(H - 120), S, L);
+
+		store(out, offset, c1, c2, WHITE, c4,
+				secondColor(c1), secondColor(c2), secondColor(WHITE), secondColor(c4));
+	} // triads()
+
+
+	/*********************************************************************************
+	 *
+	 *	Palette of the given type [0..3 = monochromatic, analogous, complementary, triads]
+	 *
+	 *********************************************************************************/
+	static void generate(int type, int rgb, int minS, int maxS, int minL, int maxL, int[] out, int offset) {
+		switch (type) {
+		case 0:
+			monochromatic(rgb, minS, maxS, minL, maxL, out, offset);
+			break;
+		case 1:
+			analogous(rgb, minS, maxS, minL, maxL, out, offset);
+			break;
+		case 2:
+			complementary(rgb, minS, maxS, minL, maxL, out, offset);
+			break;
+		case 3:
+			triads(rgb, minS, maxS, minL, maxL, out, offset);
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown palette type: " + type);
+		} // switch (type)
+	} // generate()
+
+
+	/*********************************************************************************
+	 *
+	 *	Write the 8 colors (made opaque) into out[offset..offset+7]
+	 *
+	 *********************************************************************************/
+	static void store(int[] out, int offset, int c1, int c2, int c3, int c4, int c5, int c6, int c7, int c8) {
+		out[offset]     = ColorMath.OPAQUE | c1;
+		out[offset + 1] = ColorMath.OPAQUE | c2;
+		out[offset + 2] = ColorMath.OPAQUE | c3;
+		out[offset + 3] = ColorMath.OPAQUE | c4;
+		out[offset + 4] = ColorMath.OPAQUE | c5;
+		out[offset + 5] = ColorMath.OPAQUE | c6;
+		out[offset + 6] = ColorMath.OPAQUE | c7;
+		out[offset + 7] = ColorMath.OPAQUE | c8;
+	} // store()
+
+
+	/*********************************************************************************
+	 *
+	 *	Correct a packed color (based on the min and max values)<br>
+	 *	One pass: the HSL values come from one min/max of the channels (the
+	 *	expressions of ColorMath.rgb2hsl()) and there is at most one HSL to RGB
+	 *	conversion
+	 *
+	 *********************************************************************************/
+	static int correct(int rgb, int minS, int maxS, int minL, int maxL) {
+		rgb &= ColorMath.RGB_MASK;
+
+		float fR = ColorMath.UNIT[ColorMath.red(rgb)];
+		float fG = ColorMath.UNIT[ColorMath.green(rgb)];
+		float fB = ColorMath.UNIT[ColorMath.blue(rgb)];
+
+		float varMax   = Math.max(fR, Math.max(fG, fB));
+		float varMin   = Math.min(fR, Math.min(fG, fB));
+		float deltaMax = varMax - varMin;
+		float lum      = ( varMax + varMin ) / 2;
+
+		float hBase = 0;
+		float sat   = 0;
+		if (deltaMax != 0) {
+			sat   = lum < 0.5f ? deltaMax / ( varMax + varMin ) : deltaMax / ( 2f - varMax - varMin );
+			hBase = ColorMath.hue(fR, fG, fB, varMax, deltaMax);
+		}
+		float sBase = sat * 100;
+		float lBase = lum * 100;
+
+		// Note: the luminosity correction uses the uncorrected saturation and
+		// replaces the saturation correction, so it is checked first
+		if (lBase > maxL) return ColorMath.hsl2rgb(hBase, sBase, maxL);
+		if (lBase < minL) return ColorMath.hsl2rgb(hBase, sBase, minL);
+		if (sBase > maxS) return ColorMath.hsl2rgb(hBase, maxS, lBase);
+		if (sBase < minS) return ColorMath.hsl2rgb(hBase, minS, lBase);
+		return rgb;
+	} // correct()
+
+
+	/*********************************************************************************
+	 *
+	 *	Fix the hue (if needed)
+	 *
+	 *********************************************************************************/
+	static float fixHue(float hue) {
+		if (hue < 0) {
+			return hue + 360;
+		} else if (hue > 360) {
+			return hue - 360;
+		} else {
+			return hue;
+		} // if (hue < 0)
+	} // fixHue()
+
+
+	/*********************************************************************************
+	 *
+	 *	Generate a second (darker) color, based on a color<br>
+	 *	floor(0.75 * c) per channel, in integers: (3 * c) >> 2
+	 *
+	 *********************************************************************************/
+	static int secondColor(int rgb) {
+		return ColorMath.pack(
+				(3 * ColorMath.red(rgb))   >> 2,
+				(3 * ColorMath.green(rgb)) >> 2,
+				(3 * ColorMath.blue(rgb))  >> 2);
+	} // secondColor()
+
+
+	/*********************************************************************************
+	 *
+	 *	Mono color: red, green or blue value for color 2, 3 or 4 of a monochromatic
+	 *	palette<br>
+	 *	par +/- floor(factor * |color - 128|), factor 0.5 or 0.25 is a shift
+	 *
+	 *********************************************************************************/
+	static int monoColor(int color, int number) {
+		int diffC = color - 128;
+
+		int par;
+		int shift;
+		if (number == 2) {
+			par = 192; shift = 1;
+		} else if (number == 3) {
+			par = 90;  shift = 1;
+		} else if (number == 4) {
+			par = 215; shift = 2;
+		} else {
+			return -1;
+		} // if (number == 2)
+
+		int diff = Math.abs(diffC) >> shift;
+		return diffC < 0 ? par - diff : par + diff;
+	} // monoColor()
+} // PackedPalettes
@@ -0,0 +1,178 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Immutable result of a palette generator
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import java.util.Arrays;
+
+
+/*************************************************************************************
+ *
+ *	<b>Palette class</b><br><br>
+ *	A generated palette: the colors, the (corrected) base color and the palette
+ *	type. Palettes can't be changed, so they can be shared between threads.<br>
+ *	The colors are opaque packed colors (0xFFRRGGBB), the same as Processing colors
+ *	in the default color mode.
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+public final class Palette {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	static final String[] TYPE_NAMES = { "Monochromatic", "Analogous", "Complementary", "Triads" };
+
+	final int   type;
+	final int[] colors;
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the Palette class (the colors array is not copied, it must not
+	 *	be changed afterwards)
+	 *
+	 *********************************************************************************/
+	Palette(int _type, int[] _colors) {
+		type   = _type;
+		colors = _colors;
+	} // Palette()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the colors of the palette<br>
+	 *	Example: int[] colors = palette.GetColors();
+	 *
+	 *	@return		A copy of the palette colors
+	 *
+	 *********************************************************************************/
+	public int[] GetColors() {
+		return colors.clone();
+	} // GetColors()
+
+
+	/*********************************************************************************
+	 *
+	 *	Copy the colors of the palette into an array (no allocations)<br>
+	 *	Example: palette.CopyColors(colors, 0);
+	 *
+	 *	@param out 		Array that receives the colors
+	 *	@param offset	Index in out for the first color
+	 *
+	 *********************************************************************************/
+	public void CopyColors(int[] out, int offset) {
+		System.arraycopy(colors, 0, out, offset, colors.length);
+	} // CopyColors()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return one color of the palette<br>
+	 *	Example: int c = palette.GetColor(3);
+	 *
+	 *	@param index 	Index of the color (0..GetSize()-1)
+	 *
+	 *	@return			The color (0xFFRRGGBB)
+	 *
+	 *********************************************************************************/
+	public int GetColor(int index) {
+		return colors[index];
+	} // GetColor()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the number of colors in the palette<br>
+	 *	Example: int size = palette.GetSize();
+	 *
+	 *********************************************************************************/
+	public int GetSize() {
+		return colors.length;
+	} // GetSize()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the hexadecimal value of the (corrected) base color<br>
+	 *	Example: String baseHex = palette.GetBaseColor();
+	 *
+	 *	@return		Base color (hexadecimal string, 6 characters)
+	 *
+	 *********************************************************************************/
+	public String GetBaseColor() {
+		return HexCodec.toHex(GetBaseRGB());
+	} // GetBaseColor()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the (corrected) base color as a packed color<br>
+	 *	Example: int base = palette.GetBaseRGB();
+	 *
+	 *	@return		Base color (0xRRGGBB)
+	 *
+	 *********************************************************************************/
+	public int GetBaseRGB() {
+		return colors[0] & ColorMath.RGB_MASK;
+	} // GetBaseRGB()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the palette type [int 0..3 = monochromatic, analogous, complementary, triads]<br>
+	 *	Example: int type = palette.GetType();
+	 *
+	 *********************************************************************************/
+	public int GetType() {
+		return type;
+	} // GetType()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the palette type description<br>
+	 *	Example: String typeDescription = palette.GetTypeText();
+	 *
+	 *	@return		"Monochromatic", "Analogous", "Complementary" or "Triads"
+	 *
+	 *********************************************************************************/
+	public String GetTypeText() {
+		return TYPE_NAMES[type];
+	} // GetTypeText()
+
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof Palette)) return false;
+		Palette other = (Palette)o;
+		return type == other.type && Arrays.equals(colors, other.colors);
+	} // equals()
+
+
+	@Override
+	public int hashCode() {
+		return 31 * type + Arrays.hashCode(colors);
+	} // hashCode()
+
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(GetTypeText()).append(" #").append(GetBaseColor()).append(" [");
+		for (int i = 0; i < colors.length; i++) {
+			if (i > 0) sb.append(", ");
+			HexCodec.format(colors[i], sb.append('#'));
+		}
+		return sb.append(']').toString();
+	} // toString()
+} // Palette
@@ -0,0 +1,365 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Bounded cache for generated palettes
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import java.util.Arrays;
+
+
+/*************************************************************************************
+ *
+ *	<b>PaletteCache class</b><br><br>
+ *	A palette only depends on the base color, the palette type and the min/max
+ *	saturation and luminosity values, so it can be cached. The key is a packed long
+ *	made with key().<br>
+ *	The cache holds at most maxSize palettes. It is split into segments with their
+ *	own lock, so many threads can read it at the same time. The entries are stored
+ *	in flat arrays: looking up a palette doesn't allocate anything.<br>
+ *	Example:<br>
+ *	PaletteCache cache = new PaletteCache(1000, PaletteCache.LRU);<br>
+ *	colorHarmony.SetPaletteCache(cache);
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+public class PaletteCache {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	// Eviction policies: least recently used or first in, first out
+	public static final int LRU  = 0;
+	public static final int FIFO = 1;
+
+	// Maximum number of segments (a power of two)
+	static final int MAX_SEGMENTS = 16;
+
+	// The segment of a key comes from the high bits of its hash, the slot in the
+	// segment table from the low bits (independent indices)
+	static final int SEGMENT_SHIFT = 28;
+
+	// Colors per palette
+	static final int SLOTS = 8;
+
+	final int maxSize;
+	final int policy;
+	final Segment[] segments;
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the PaletteCache class (LRU eviction)<br>
+	 *	Example: PaletteCache cache = new PaletteCache(1000);
+	 *
+	 *	@param _maxSize 	Maximum number of cached palettes
+	 *
+	 *********************************************************************************/
+	public PaletteCache(int _maxSize) {
+		this(_maxSize, LRU);
+	} // PaletteCache()
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the PaletteCache class<br>
+	 *	Example: PaletteCache cache = new PaletteCache(1000, PaletteCache.FIFO);
+	 *
+	 *	@param _maxSize 	Maximum number of cached palettes
+	 *	@param _policy		Eviction policy (PaletteCache.LRU or PaletteCache.FIFO)
+	 *
+	 *********************************************************************************/
+	public PaletteCache(int _maxSize, int _policy) {
+		if (_maxSize < 1) {
+			throw new IllegalArgumentException("PaletteCache(): maxSize should be at least 1");
+		}
+		if (_policy != LRU && _policy != FIFO) {
+			throw new IllegalArgumentException("PaletteCache(): unknown eviction policy " + _policy);
+		}
+		maxSize = _maxSize;
+		policy  = _policy;
+
+		int count = Integer.highestOneBit(Math.min(MAX_SEGMENTS, maxSize));
+		segments  = new Segment[count];
+		// Every segment gets an equal share, the total never exceeds maxSize
+		for (int i = 0; i < count; i++) {
+			segments[i] = new Segment(maxSize / count + (i < maxSize % count ? 1 : 0), policy == LRU);
+		}
+	} // PaletteCache()
+
+
+	/*********************************************************************************
+	 *
+	 *	Make the cache key for a palette<br>
+	 *	Example: long key = PaletteCache.key(0xFF00FF, 0, 10, 60, 20, 60);
+	 *
+	 *	@param rgb 		Base color (0xRRGGBB, the alpha byte is ignored)
+	 *	@param type		Palette type (0..3)
+	 *	@param minS		Minimum saturation (0..100)
+	 *	@param maxS		Maximum saturation (0..100)
+	 *	@param minL		Minimum luminosity (0..100)
+	 *	@param maxL		Maximum luminosity (0..100)
+	 *
+	 *	@return			The key, or -1 if the values can't be packed (type outside
+	 *					0..7 or a bound outside 0..127)
+	 *
+	 *********************************************************************************/
+	public static long key(int rgb, int type, int minS, int maxS, int minL, int maxL) {
+		if (((type & ~0x7) | ((minS | maxS | minL | maxL) & ~0x7F)) != 0) return -1;
+		return (rgb & ColorMath.RGB_MASK)
+				| ((long)type << 24)
+				| ((long)minS << 27)
+				| ((long)maxS << 34)
+				| ((long)minL << 41)
+				| ((long)maxL << 48);
+	} // key()
+
+
+	/*********************************************************************************
+	 *
+	 *	Copy a cached palette into out[offset..offset+7]
+	 *
+	 *	@param key 		Cache key (see key())
+	 *	@param out		Array that receives the 8 colors
+	 *	@param offset	Index in out for the first color
+	 *
+	 *	@return			true if the palette was found
+	 *
+	 *********************************************************************************/
+	public boolean get(long key, int[] out, int offset) {
+		if (key < 0) return false;
+		return segmentFor(key).get(key, out, offset);
+	} // get()
+
+
+	/*********************************************************************************
+	 *
+	 *	Store a palette (8 colors from colors[offset..offset+7]) in the cache
+	 *
+	 *	@param key 		Cache key (see key())
+	 *	@param colors	Array with the palette colors
+	 *	@param offset	Index in colors of the first color
+	 *
+	 *********************************************************************************/
+	public void put(long key, int[] colors, int offset) {
+		if (key < 0) return;
+		segmentFor(key).put(key, colors, offset);
+	} // put()
+
+
+	/*********************************************************************************
+	 *
+	 *	Remove all palettes from the cache (the statistics are kept)
+	 *
+	 *********************************************************************************/
+	public void Clear() {
+		for (Segment segment : segments) segment.clear();
+	} // Clear()
+
+
+	/*********************************************************************************
+	 *
+	 *	Statistics<br>
+	 *	Example: println(cache.GetHits() + " hits, " + cache.GetMisses() + " misses");
+	 *
+	 *********************************************************************************/
+	public long GetHits() {
+		long total = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) { total += segment.hits; }
+		}
+		return total;
+	} // GetHits()
+
+	public long GetMisses() {
+		long total = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) { total += segment.misses; }
+		}
+		return total;
+	} // GetMisses()
+
+	public long GetEvictions() {
+		long total = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) { total += segment.evictions; }
+		}
+		return total;
+	} // GetEvictions()
+
+	public float GetHitRate() {
+		long hits     = GetHits();
+		long lookups  = hits + GetMisses();
+		return lookups == 0 ? 0 : (float)hits / lookups;
+	} // GetHitRate()
+
+	public int GetSize() {
+		int total = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) { total += segment.size; }
+		}
+		return total;
+	} // GetSize()
+
+	public int GetMaxSize() {
+		return maxSize;
+	} // GetMaxSize()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL METHODS
+	 *
+	 *********************************************************************************/
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Spread the key bits (the rgb part is in the low bits)
+	 *
+	 *********************************************************************************/
+	static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int)(h ^ (h >>> 32));
+	} // hash()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: The segment for a key
+	 *
+	 *********************************************************************************/
+	Segment segmentFor(long key) {
+		return segments[(hash(key) >>> SEGMENT_SHIFT) & (segments.length - 1)];
+	} // segmentFor()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: One part of the cache<br>
+	 *	Entries live in fixed arrays. An open addressing table (linear probing) maps
+	 *	keys to entries, a linked list over the entries keeps the eviction order
+	 *	(head = first to evict).
+	 *
+	 *********************************************************************************/
+	static final class Segment {
+		final int capacity;
+		final boolean accessOrder;
+
+		final long[] keys;
+		final int[]  colors;
+		final int[]  prev, next;
+		// Hash slot -> entry + 1 (0 = empty)
+		final int[]  table;
+		final int    mask;
+
+		int head = -1, tail = -1, size;
+		long hits, misses, evictions;
+
+		Segment(int _capacity, boolean _accessOrder) {
+			capacity    = _capacity;
+			accessOrder = _accessOrder;
+			keys        = new long[capacity];
+			colors      = new int[capacity * SLOTS];
+			prev        = new int[capacity];
+			next        = new int[capacity];
+			int slots   = Integer.highestOneBit(capacity * 2 - 1) << 1;
+			table       = new int[slots];
+			mask        = slots - 1;
+		} // Segment()
+
+		synchronized boolean get(long key, int[] out, int offset) {
+			int slot = find(key);
+			if (slot < 0) {
+				misses++;
+				return false;
+			}
+			int entry = table[slot] - 1;
+			System.arraycopy(colors, entry * SLOTS, out, offset, SLOTS);
+			if (accessOrder) moveToTail(entry);
+			hits++;
+			return true;
+		} // get()
+
+		synchronized void put(long key, int[] src, int offset) {
+			int slot = find(key);
+			int entry;
+			if (slot >= 0) {
+				entry = table[slot] - 1;
+				if (accessOrder) moveToTail(entry);
+			} else {
+				if (size == capacity) {
+					// Evict the head, reuse its entry
+					entry = head;
+					removeSlot(find(keys[entry]));
+					unlink(entry);
+					evictions++;
+				} else {
+					entry = size++;
+				}
+				keys[entry] = key;
+				int i = hash(key) & mask;
+				while (table[i] != 0) i = (i + 1) & mask;
+				table[i] = entry + 1;
+				linkTail(entry);
+			}
+			System.arraycopy(src, offset, colors, entry * SLOTS, SLOTS);
+		} // put()
+
+		synchronized void clear() {
+			Arrays.fill(table, 0);
+			head = tail = -1;
+			size = 0;
+		} // clear()
+
+		int find(long key) {
+			int i = hash(key) & mask;
+			while (table[i] != 0) {
+				if (keys[table[i] - 1] == key) return i;
+				i = (i + 1) & mask;
+			}
+			return -1;
+		} // find()
+
+		// Backward shift deletion, keeps the probe sequences intact
+		void removeSlot(int i) {
+			int j = i;
+			while (true) {
+				j = (j + 1) & mask;
+				if (table[j] == 0) break;
+				int k = hash(keys[table[j] - 1]) & mask;
+				boolean stays = (i <= j) ? (i < k && k <= j) : (i < k || k <= j);
+				if (!stays) {
+					table[i] = table[j];
+					i = j;
+				}
+			}
+			table[i] = 0;
+		} // removeSlot()
+
+		void linkTail(int entry) {
+			prev[entry] = tail;
+			next[entry] = -1;
+			if (tail >= 0) next[tail] = entry; else head = entry;
+			tail = entry;
+		} // linkTail()
+
+		void unlink(int entry) {
+			if (prev[entry] >= 0) next[prev[entry]] = next[entry]; else head = next[entry];
+			if (next[entry] >= 0) prev[next[entry]] = prev[entry]; else tail = prev[entry];
+		} // unlink()
+
+		void moveToTail(int entry) {
+			if (entry == tail) return;
+			unlink(entry);
+			linkTail(entry);
+		} // moveToTail()
+	} // Segment
+} // PaletteCache
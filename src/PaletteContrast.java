@@ -0,0 +1,414 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	WCAG contrast ratios between the colors of palettes
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/*************************************************************************************
+ *
+ *	<b>PaletteContrast class</b><br><br>
+ *	Computes the WCAG 2 contrast ratios between all colors of a palette (an 8x8
+ *	matrix) and checks them against a minimum ratio (AA, AAA, ...), to find the
+ *	color pairs of a palette that can be used for text and background.<br>
+ *	The relative luminance of a color uses a table of the 256 linearized sRGB
+ *	channel values, so a ratio costs a few lookups and one division. The pass/fail
+ *	flags of a palette are the 64 bits of a long: bit row * 8 + column is set when
+ *	the pair passes. Matrices() and Flags() do whole arrays of palettes (like the
+ *	output of PaletteGenerator.generate()) in parallel on a fork/join pool, without
+ *	allocations per palette.<br>
+ *	Example:<br>
+ *	PaletteContrast contrast = new PaletteContrast();<br>
+ *	long flags = contrast.Flags(colors, 0, PaletteContrast.AA);<br>
+ *	if (PaletteContrast.Passes(flags, 0, 7)) ...
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+public final class PaletteContrast {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	// Minimum contrast ratios of WCAG 2 (normal text and large text)
+	public static final float AA        = 4.5f;
+	public static final float AA_LARGE  = 3f;
+	public static final float AAA       = 7f;
+	public static final float AAA_LARGE = 4.5f;
+
+	// Number of colors of a palette
+	static final int SIZE = PaletteGenerator.SIZE;
+
+	// Flag bits of the pairs of a color with itself
+	static final long DIAGONAL = 0x8040201008040201L;
+
+	// Number of palettes per tile
+	static final int BATCH = 1024;
+
+	// Linearized sRGB channel values (0..255 to 0..1)
+	static final double[] LINEAR = new double[256];
+
+	static {
+		for (int c = 0; c < 256; c++) {
+			double v = c / 255.0;
+			LINEAR[c] = v <= 0.04045 ? v / 12.92 : Math.pow((v + 0.055) / 1.055, 2.4);
+		}
+	} // static
+
+	final ForkJoinPool pool;
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the PaletteContrast class (uses the common fork/join pool)<br>
+	 *	Example: PaletteContrast contrast = new PaletteContrast();
+	 *
+	 *********************************************************************************/
+	public PaletteContrast() {
+		this(ForkJoinPool.commonPool());
+	} // PaletteContrast()
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the PaletteContrast class with a specific fork/join pool<br>
+	 *	Example: PaletteContrast contrast = new PaletteContrast(new ForkJoinPool(4));
+	 *
+	 *	@param _pool		Pool that processes the palettes of Matrices() and Flags()
+	 *
+	 *********************************************************************************/
+	public PaletteContrast(ForkJoinPool _pool) {
+		pool = _pool;
+	} // PaletteContrast()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the relative luminance of a color (WCAG 2)<br>
+	 *	Example: double y = PaletteContrast.Luminance(0x3366CC);
+	 *
+	 *	@param rgb 		Packed color (0xRRGGBB, the alpha byte is ignored)
+	 *
+	 *	@return			The relative luminance (0 = black, 1 = white)
+	 *
+	 *********************************************************************************/
+	public static double Luminance(int rgb) {
+		return 0.2126 * LINEAR[ColorMath.red(rgb)]
+				+ 0.7152 * LINEAR[ColorMath.green(rgb)]
+				+ 0.0722 * LINEAR[ColorMath.blue(rgb)];
+	} // Luminance()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the contrast ratio of two colors (WCAG 2)<br>
+	 *	Example: float ratio = PaletteContrast.Ratio(0xFFFFFF, 0x3366CC);
+	 *
+	 *	@param rgb1 	Packed color (0xRRGGBB, the alpha byte is ignored)
+	 *	@param rgb2 	Packed color (0xRRGGBB, the alpha byte is ignored)
+	 *
+	 *	@return			The contrast ratio (1..21, the order of the colors does not
+	 *					matter)
+	 *
+	 *********************************************************************************/
+	public static float Ratio(int rgb1, int rgb2) {
+		return (float)ratio(Luminance(rgb1), Luminance(rgb2));
+	} // Ratio()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the contrast matrix of a palette<br>
+	 *	Example: float[] matrix = contrast.Matrix(generator.Triads(0xFF00FF));
+	 *
+	 *	@param palette 		The palette
+	 *
+	 *	@return				The 8x8 contrast ratios, row by row (ratio of colors i
+	 *						and j at index i * 8 + j)
+	 *
+	 *********************************************************************************/
+	public float[] Matrix(Palette palette) {
+		return Matrix(palette.colors, 0, new float[SIZE * SIZE], 0);
+	} // Matrix()
+
+
+	/*********************************************************************************
+	 *
+	 *	Write the contrast matrix of a palette into an array<br>
+	 *	Example: contrast.Matrix(colorHarmony.Triads("#FF00FF"), 0, matrix, 0);
+	 *
+	 *	@param colors 		Colors (0xRRGGBB, the alpha bytes are ignored)
+	 *	@param offset		Index in colors of the first color of the palette
+	 *	@param out			Receives the 8x8 contrast ratios, row by row
+	 *	@param outOffset	Index in out for the first ratio
+	 *
+	 *	@return				The out array
+	 *
+	 *********************************************************************************/
+	public float[] Matrix(int[] colors, int offset, float[] out, int outOffset) {
+		matrix(colors, offset, out, outOffset, new double[SIZE]);
+		return out;
+	} // Matrix()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the pass/fail flags of a palette for a minimum contrast ratio<br>
+	 *	Example: long flags = contrast.Flags(colors, 0, PaletteContrast.AA);
+	 *
+	 *	@param colors 		Colors (0xRRGGBB, the alpha bytes are ignored)
+	 *	@param offset		Index in colors of the first color of the palette
+	 *	@param minRatio		Minimum contrast ratio (AA, AA_LARGE, AAA, AAA_LARGE or
+	 *						any other ratio)
+	 *
+	 *	@return				Bit i * 8 + j is set when the ratio of colors i and j is
+	 *						at least minRatio
+	 *
+	 *********************************************************************************/
+	public long Flags(int[] colors, int offset, float minRatio) {
+		return flags(colors, offset, minRatio, new double[SIZE]);
+	} // Flags()
+
+
+	/*********************************************************************************
+	 *
+	 *	Write the contrast matrices of count palettes into one array<br>
+	 *	Example: contrast.Matrices(colors, baseColors.length, new float[64 * baseColors.length]);<br>
+	 *	The palettes follow each other in colors (8 colors each, like the output of
+	 *	PaletteGenerator.generate()); the matrix of palette n starts at out[64 * n].
+	 *	More than 1024 palettes are split into tiles that run in parallel.
+	 *
+	 *	@param colors 		Colors (0xRRGGBB, the alpha bytes are ignored)
+	 *	@param count		Number of palettes
+	 *	@param out			Receives the matrices (at least 64 * count elements)
+	 *
+	 *	@return				The out array
+	 *
+	 *********************************************************************************/
+	public float[] Matrices(int[] colors, int count, float[] out) {
+		check(colors, count, out.length, SIZE * SIZE, "Matrices");
+		if (count <= BATCH) {
+			matrixBatch(colors, out, 0, count);
+		} else {
+			pool.invoke(new ContrastTask(colors, out, null, 0, 0, count));
+		}
+		return out;
+	} // Matrices()
+
+
+	/*********************************************************************************
+	 *
+	 *	Write the pass/fail flags of count palettes into one array<br>
+	 *	Example: contrast.Flags(colors, baseColors.length, PaletteContrast.AA, new long[baseColors.length]);<br>
+	 *	The palettes follow each other in colors (8 colors each); out[n] gets the
+	 *	flags of palette n. More than 1024 palettes are split into tiles that run in
+	 *	parallel.
+	 *
+	 *	@param colors 		Colors (0xRRGGBB, the alpha bytes are ignored)
+	 *	@param count		Number of palettes
+	 *	@param minRatio		Minimum contrast ratio
+	 *	@param out			Receives the flags (at least count elements)
+	 *
+	 *	@return				The out array
+	 *
+	 *********************************************************************************/
+	public long[] Flags(int[] colors, int count, float minRatio, long[] out) {
+		check(colors, count, out.length, 1, "Flags");
+		if (count <= BATCH) {
+			flagsBatch(colors, minRatio, out, 0, count);
+		} else {
+			pool.invoke(new ContrastTask(colors, null, out, minRatio, 0, count));
+		}
+		return out;
+	} // Flags()
+
+
+	/*********************************************************************************
+	 *
+	 *	Does a color pair pass?<br>
+	 *	Example: if (PaletteContrast.Passes(flags, 0, 7)) ...
+	 *
+	 *	@param flags 	Flags of a palette (see Flags())
+	 *	@param i		Index of the first color (0..7)
+	 *	@param j		Index of the second color (0..7)
+	 *
+	 *	@return			true if the ratio of the pair is at least the minimum ratio
+	 *
+	 *********************************************************************************/
+	public static boolean Passes(long flags, int i, int j) {
+		return (flags >>> (i * SIZE + j) & 1) != 0;
+	} // Passes()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the accessibility score of a palette: the number of different color
+	 *	pairs that pass<br>
+	 *	Example: int score = PaletteContrast.Score(contrast.Flags(colors, 0, PaletteContrast.AA));
+	 *
+	 *	@param flags 	Flags of a palette (see Flags())
+	 *
+	 *	@return			0..28 (a pair is counted once, a color with itself never
+	 *					passes a minimum ratio above 1)
+	 *
+	 *********************************************************************************/
+	public static int Score(long flags) {
+		// The matrix is symmetric: every pair has two bits
+		return Long.bitCount(flags & ~DIAGONAL) >>> 1;
+	} // Score()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL METHODS
+	 *
+	 *********************************************************************************/
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Check the array sizes of the bulk methods
+	 *
+	 *********************************************************************************/
+	static void check(int[] colors, int count, int outLength, int perPalette, String method) {
+		if (colors.length < (long)SIZE * count) {
+			throw new IllegalArgumentException(method + "(): colors needs " + (long)SIZE * count + " elements");
+		}
+		if (outLength < (long)perPalette * count) {
+			throw new IllegalArgumentException(method + "(): out needs " + (long)perPalette * count + " elements");
+		}
+	} // check()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Contrast ratio of two relative luminances
+	 *
+	 *********************************************************************************/
+	static double ratio(double y1, double y2) {
+		return y1 > y2 ? (y1 + 0.05) / (y2 + 0.05) : (y2 + 0.05) / (y1 + 0.05);
+	} // ratio()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Contrast matrix of the palette at colors[offset], luminance is
+	 *	scratch for the SIZE luminances (every luminance is computed once)
+	 *
+	 *********************************************************************************/
+	static void matrix(int[] colors, int offset, float[] out, int outOffset, double[] luminance) {
+		for (int i = 0; i < SIZE; i++) {
+			luminance[i] = Luminance(colors[offset + i]);
+		}
+		for (int i = 0; i < SIZE; i++) {
+			double yi = luminance[i];
+			out[outOffset + i * SIZE + i] = 1f;
+			for (int j = i + 1; j < SIZE; j++) {
+				float r = (float)ratio(yi, luminance[j]);
+				out[outOffset + i * SIZE + j] = r;
+				out[outOffset + j * SIZE + i] = r;
+			}
+		}
+	} // matrix()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Pass/fail flags of the palette at colors[offset], luminance is
+	 *	scratch for the SIZE luminances
+	 *
+	 *********************************************************************************/
+	static long flags(int[] colors, int offset, float minRatio, double[] luminance) {
+		for (int i = 0; i < SIZE; i++) {
+			luminance[i] = Luminance(colors[offset + i]);
+		}
+		long flags = minRatio <= 1 ? DIAGONAL : 0;
+		for (int i = 0; i < SIZE; i++) {
+			double yi = luminance[i];
+			for (int j = i + 1; j < SIZE; j++) {
+				// The unrounded ratio is compared (4.499 does not pass 4.5)
+				if (ratio(yi, luminance[j]) >= minRatio) {
+					flags |= 1L << (i * SIZE + j) | 1L << (j * SIZE + i);
+				}
+			}
+		}
+		return flags;
+	} // flags()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Matrices of the palettes from..to-1 (one scratch array for all)
+	 *
+	 *********************************************************************************/
+	static void matrixBatch(int[] colors, float[] out, int from, int to) {
+		double[] luminance = new double[SIZE];
+		for (int n = from; n < to; n++) {
+			matrix(colors, SIZE * n, out, SIZE * SIZE * n, luminance);
+		}
+	} // matrixBatch()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Flags of the palettes from..to-1 (one scratch array for all)
+	 *
+	 *********************************************************************************/
+	static void flagsBatch(int[] colors, float minRatio, long[] out, int from, int to) {
+		double[] luminance = new double[SIZE];
+		for (int n = from; n < to; n++) {
+			out[n] = flags(colors, SIZE * n, minRatio, luminance);
+		}
+	} // flagsBatch()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Split the palettes into tiles (matrices when matrices is not null,
+	 *	flags otherwise)
+	 *
+	 *********************************************************************************/
+	static final class ContrastTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final int[]   colors;
+		final float[] matrices;
+		final long[]  flags;
+		final float   minRatio;
+		final int     from, to;
+
+		ContrastTask(int[] _colors, float[] _matrices, long[] _flags, float _minRatio, int _from, int _to) {
+			colors   = _colors;
+			matrices = _matrices;
+			flags    = _flags;
+			minRatio = _minRatio;
+			from     = _from;
+			to       = _to;
+		} // ContrastTask()
+
+		@Override
+		protected void compute() {
+			if (to - from > BATCH) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new ContrastTask(colors, matrices, flags, minRatio, from, mid),
+						new ContrastTask(colors, matrices, flags, minRatio, mid, to));
+				return;
+			}
+			if (matrices != null) {
+				matrixBatch(colors, matrices, from, to);
+			} else {
+				flagsBatch(colors, minRatio, flags, from, to);
+			}
+		} // compute()
+	} // ContrastTask
+} // PaletteContrast
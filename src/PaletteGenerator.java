@@ -0,0 +1,409 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Stateless, thread-safe palette generator
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+
+/*************************************************************************************
+ *
+ *	<b>PaletteGenerator class</b><br><br>
+ *	Generates harmonized palettes (types: monochromatic, analogous, complementary and
+ *	triads). A generator has no state besides its (final) min/max values, an
+ *	optional palette cache and an optional precomputed palette index, so one
+ *	instance can be shared by any number of threads without locking.<br>
+ *	Example:<br>
+ *	PaletteGenerator generator = new PaletteGenerator(10, 60, 20, 60);<br>
+ *	Palette palette = generator.Triads(0xFF00FF);
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+public final class PaletteGenerator {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	// Number of colors per palette
+	public static final int SIZE = 8;
+
+	// Number of palette types
+	public static final int TYPES = 4;
+
+	// Number of base colors per task of a batch
+	static final int BATCH = 1024;
+
+	final int minSaturation;
+	final int maxSaturation;
+	final int minLuminosity;
+	final int maxLuminosity;
+
+	// Cache for generated palettes (null = no caching)
+	final PaletteCache cache;
+
+	// Precomputed palettes (null = generate every palette)
+	final PaletteIndex index;
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the PaletteGenerator class (default min/max values: 10, 60, 20, 60)<br>
+	 *	Example: PaletteGenerator generator = new PaletteGenerator();
+	 *
+	 *********************************************************************************/
+	public PaletteGenerator() {
+		this(10, 60, 20, 60);
+	} // PaletteGenerator()
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the PaletteGenerator class (with minimum and maximum saturation
+	 *	and luminosity values)<br>
+	 *	Example: PaletteGenerator generator = new PaletteGenerator(15, 55, 20, 65);<br>
+	 *	Range for the min/max values: 0..100
+	 *
+	 *********************************************************************************/
+	public PaletteGenerator(int _minSaturation, int _maxSaturation, int _minLuminosity, int _maxLuminosity) {
+		this(_minSaturation, _maxSaturation, _minLuminosity, _maxLuminosity, null);
+	} // PaletteGenerator()
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the PaletteGenerator class (with min/max values and a cache)<br>
+	 *	Example: PaletteGenerator generator = new PaletteGenerator(15, 55, 20, 65, new PaletteCache(500));
+	 *
+	 *********************************************************************************/
+	public PaletteGenerator(int _minSaturation, int _maxSaturation, int _minLuminosity, int _maxLuminosity, PaletteCache _cache) {
+		this(_minSaturation, _maxSaturation, _minLuminosity, _maxLuminosity, _cache, null);
+	} // PaletteGenerator()
+
+
+	PaletteGenerator(int _minSaturation, int _maxSaturation, int _minLuminosity, int _maxLuminosity, PaletteCache _cache, PaletteIndex _index) {
+		minSaturation = _minSaturation;
+		maxSaturation = _maxSaturation;
+		minLuminosity = _minLuminosity;
+		maxLuminosity = _maxLuminosity;
+		cache         = _cache;
+		index         = _index;
+	} // PaletteGenerator()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return a generator with the same min/max values and another cache<br>
+	 *	Example: generator = generator.WithCache(new PaletteCache(500));
+	 *
+	 *	@param _cache 	The palette cache, or null for no caching
+	 *
+	 *********************************************************************************/
+	public PaletteGenerator WithCache(PaletteCache _cache) {
+		return new PaletteGenerator(minSaturation, maxSaturation, minLuminosity, maxLuminosity, _cache, index);
+	} // WithCache()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return a generator with the same min/max values that reads the palettes from
+	 *	a precomputed index<br>
+	 *	Example: generator = generator.WithIndex(PaletteIndex.Open(Paths.get("palettes.idx")));<br>
+	 *	Reading the index is faster than the cache, so the cache isn't used anymore.
+	 *
+	 *	@param _index 	The palette index, or null to generate the palettes
+	 *
+	 *	@throws IllegalArgumentException if the index was built for other min/max values
+	 *
+	 *********************************************************************************/
+	public PaletteGenerator WithIndex(PaletteIndex _index) {
+		if (_index != null && !_index.Matches(this)) {
+			throw new IllegalArgumentException("Palette index was built for other min/max values");
+		}
+		return new PaletteGenerator(minSaturation, maxSaturation, minLuminosity, maxLuminosity, cache, _index);
+	} // WithIndex()
+
+
+	/*********************************************************************************
+	 *
+	 *	Palette generators for a packed base color<br>
+	 *	Example: Palette palette = generator.Monochromatic(0xFF00FF);
+	 *
+	 *	@param rgb 	Base color (0xRRGGBB, the alpha byte is ignored)
+	 *
+	 *	@return		The generated palette
+	 *
+	 *********************************************************************************/
+	public Palette Monochromatic(int rgb) {
+		return generate(0, rgb);
+	} // Monochromatic()
+
+	public Palette Analogous(int rgb) {
+		return generate(1, rgb);
+	} // Analogous()
+
+	public Palette Complementary(int rgb) {
+		return generate(2, rgb);
+	} // Complementary()
+
+	public Palette Triads(int rgb) {
+		return generate(3, rgb);
+	} // Triads()
+
+
+	/*********************************************************************************
+	 *
+	 *	Generate a palette of a given type<br>
+	 *	Example: Palette palette = generator.generate(2, 0xFF00FF);
+	 *
+	 *	@param type 	Palette type [0..3 = monochromatic, analogous, complementary, triads]
+	 *	@param rgb 		Base color (0xRRGGBB, the alpha byte is ignored)
+	 *
+	 *	@return			The generated palette
+	 *
+	 *********************************************************************************/
+	public Palette generate(int type, int rgb) {
+		return new Palette(type, generate(type, rgb, new int[SIZE], 0));
+	} // generate()
+
+
+	/*********************************************************************************
+	 *
+	 *	Generate a palette of a given type into an array (no allocations)<br>
+	 *	Example: generator.generate(2, 0xFF00FF, colors, 0);
+	 *
+	 *	@param type 	Palette type [0..3 = monochromatic, analogous, complementary, triads]
+	 *	@param rgb 		Base color (0xRRGGBB, the alpha byte is ignored)
+	 *	@param colors	Array that receives the 8 colors (0xFFRRGGBB)
+	 *	@param offset	Index in colors for the first color
+	 *
+	 *	@return			The colors array
+	 *
+	 *********************************************************************************/
+	public int[] generate(int type, int rgb, int[] colors, int offset) {
+		if (index != null) return index.generate(type, rgb, colors, offset);
+
+		if (cache == null) {
+			PackedPalettes.generate(type, rgb, minSaturation, maxSaturation, minLuminosity, maxLuminosity, colors, offset);
+			return colors;
+		} // if (cache == null)
+
+		long key = PaletteCache.key(rgb, type, minSaturation, maxSaturation, minLuminosity, maxLuminosity);
+		if (!cache.get(key, colors, offset)) {
+			PackedPalettes.generate(type, rgb, minSaturation, maxSaturation, minLuminosity, maxLuminosity, colors, offset);
+			cache.put(key, colors, offset);
+		} // if (!cache.get(key, colors, offset))
+		return colors;
+	} // generate()
+
+
+	/*********************************************************************************
+	 *
+	 *	Generate a palette with a harmony rule into an array (no allocations)<br>
+	 *	Example: generator.generate(HarmonyRule.SQUARE, 0xFF00FF, colors, 0);<br>
+	 *	The built-in rules of the palette types (HarmonyRule.TRIADS, ...) are the same
+	 *	as generate(type, rgb, colors, offset), with the cache and index of this
+	 *	generator.
+	 *
+	 *	@param rule 	Harmony rule
+	 *	@param rgb 		Base color (0xRRGGBB, the alpha byte is ignored)
+	 *	@param colors	Array that receives the rule.GetSize() colors (0xFFRRGGBB)
+	 *	@param offset	Index in colors for the first color
+	 *
+	 *	@return			The colors array
+	 *
+	 *********************************************************************************/
+	public int[] generate(HarmonyRule rule, int rgb, int[] colors, int offset) {
+		if (rule.type >= 0) return generate(rule.type, rgb, colors, offset);
+		return rule.generate(rgb, minSaturation, maxSaturation, minLuminosity, maxLuminosity, colors, offset);
+	} // generate()
+
+
+	/*********************************************************************************
+	 *
+	 *	Generate the palettes of an array of base colors into one flat array (uses the
+	 *	common fork/join pool)<br>
+	 *	Example: int[] colors = generator.generate(2, baseColors, new int[8 * baseColors.length]);<br>
+	 *	The palette of baseColors[i] is written to out[8*i..8*i+7], the same colors as
+	 *	generate(type, baseColors[i]).GetColors().
+	 *
+	 *	@param type 		Palette type [0..3 = monochromatic, analogous, complementary, triads]
+	 *	@param baseColors	Base colors (0xRRGGBB, the alpha bytes are ignored)
+	 *	@param out			Array that receives the colors (0xFFRRGGBB), at least 8 per base color
+	 *
+	 *	@return				The out array
+	 *
+	 *********************************************************************************/
+	public int[] generate(int type, int[] baseColors, int[] out) {
+		return generate(type, baseColors, out, ForkJoinPool.commonPool());
+	} // generate()
+
+
+	/*********************************************************************************
+	 *
+	 *	Generate the palettes of an array of base colors into one flat array, with a
+	 *	specific fork/join pool<br>
+	 *	Example: generator.generate(2, baseColors, colors, new ForkJoinPool(4));<br>
+	 *	Batches of up to 1024 base colors run in the calling thread.
+	 *
+	 *	@param type 		Palette type [0..3 = monochromatic, analogous, complementary, triads]
+	 *	@param baseColors	Base colors (0xRRGGBB, the alpha bytes are ignored)
+	 *	@param out			Array that receives the colors (0xFFRRGGBB), at least 8 per base color
+	 *	@param pool			Pool that generates the batches
+	 *
+	 *	@return				The out array
+	 *
+	 *********************************************************************************/
+	public int[] generate(int type, int[] baseColors, int[] out, ForkJoinPool pool) {
+		if (type < 0 || type >= TYPES) {
+			throw new IllegalArgumentException("Unknown palette type: " + type);
+		}
+		if (out.length < (long)SIZE * baseColors.length) {
+			throw new IllegalArgumentException("generate(): out needs " + (long)SIZE * baseColors.length + " elements");
+		}
+		if (baseColors.length <= BATCH) {
+			generateBatch(type, baseColors, out, 0, baseColors.length);
+		} else {
+			pool.invoke(new GenerateTask(type, baseColors, out, 0, baseColors.length));
+		}
+		return out;
+	} // generate()
+
+
+	/*********************************************************************************
+	 *
+	 *	Generate a palette with random palette type and random base color<br>
+	 *	Example: Palette palette = generator.RandomPalette();
+	 *
+	 *********************************************************************************/
+	public Palette RandomPalette() {
+		ThreadLocalRandom rand = ThreadLocalRandom.current();
+		return generate(rand.nextInt(TYPES), rand.nextInt(1 << 24));
+	} // RandomPalette()
+
+
+	/*********************************************************************************
+	 *
+	 *	Random palette number index of a seed (random type and base color)<br>
+	 *	Example: Palette palette = generator.RandomPalette(42, 1000);<br>
+	 *	Always returns the same palette for the same seed and index.
+	 *
+	 *	@param seed 	Seed of the random palettes
+	 *	@param index	Number of the palette (0..)
+	 *
+	 *********************************************************************************/
+	public Palette RandomPalette(long seed, long index) {
+		return PaletteSpliterator.palette(this, seed, index);
+	} // RandomPalette()
+
+
+	/*********************************************************************************
+	 *
+	 *	Stream of count random palettes (random type and base color) for a seed<br>
+	 *	Example: generator.RandomPalettes(42, 1000000).parallel().forEach(...);<br>
+	 *	The stream is reproducible: palette i is always RandomPalette(seed, i), so a
+	 *	seed gives the same palettes in the same order, also for parallel streams
+	 *	with any number of threads.
+	 *
+	 *	@param seed 	Seed of the random palettes
+	 *	@param count	Number of palettes
+	 *
+	 *	@return			A sequential stream (call parallel() for a parallel one)
+	 *
+	 *********************************************************************************/
+	public Stream<Palette> RandomPalettes(long seed, long count) {
+		return StreamSupport.stream(new PaletteSpliterator(this, seed, 0, count), false);
+	} // RandomPalettes()
+
+
+	/*********************************************************************************
+	 *
+	 *	Min/max values, cache and index of this generator
+	 *
+	 *********************************************************************************/
+	public int GetMinSaturation() {
+		return minSaturation;
+	} // GetMinSaturation()
+
+	public int GetMaxSaturation() {
+		return maxSaturation;
+	} // GetMaxSaturation()
+
+	public int GetMinLuminosity() {
+		return minLuminosity;
+	} // GetMinLuminosity()
+
+	public int GetMaxLuminosity() {
+		return maxLuminosity;
+	} // GetMaxLuminosity()
+
+	public PaletteCache GetPaletteCache() {
+		return cache;
+	} // GetPaletteCache()
+
+	public PaletteIndex GetPaletteIndex() {
+		return index;
+	} // GetPaletteIndex()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Palettes of baseColors[from..to-1] into out[8*from..8*to-1]
+	 *
+	 *********************************************************************************/
+	void generateBatch(int type, int[] baseColors, int[] out, int from, int to) {
+		if (index == null && cache == null) {
+			for (int i = from; i < to; i++) {
+				PackedPalettes.generate(type, baseColors[i], minSaturation, maxSaturation, minLuminosity, maxLuminosity, out, SIZE * i);
+			}
+			return;
+		} // if (index == null && cache == null)
+		for (int i = from; i < to; i++) {
+			generate(type, baseColors[i], out, SIZE * i);
+		}
+	} // generateBatch()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Split the base colors into batches
+	 *
+	 *********************************************************************************/
+	final class GenerateTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final int type;
+		final int[] baseColors, out;
+		final int from, to;
+
+		GenerateTask(int _type, int[] _baseColors, int[] _out, int _from, int _to) {
+			type       = _type;
+			baseColors = _baseColors;
+			out        = _out;
+			from       = _from;
+			to         = _to;
+		} // GenerateTask()
+
+		@Override
+		protected void compute() {
+			if (to - from > BATCH) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new GenerateTask(type, baseColors, out, from, mid), new GenerateTask(type, baseColors, out, mid, to));
+				return;
+			}
+			generateBatch(type, baseColors, out, from, to);
+		} // compute()
+	} // GenerateTask
+} // PaletteGenerator
@@ -0,0 +1,355 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Precomputed, memory-mapped palettes of every base color
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/*************************************************************************************
+ *
+ *	<b>PaletteIndex class</b><br><br>
+ *	The palettes are deterministic, so all of them (2^24 base colors, 4 types, 8
+ *	colors) can be generated once for a set of min/max values and stored in a file.
+ *	Build() writes the file (in parallel), Open() maps it into memory: generating a
+ *	palette is then a read of 24 bytes at a fixed offset, and opening the index takes
+ *	the same (short) time for any file size, the operating system loads the pages
+ *	when they are used.<br><br>
+ *	File layout (big endian):<br>
+ *	header (64 bytes) - "CHPI", version, min/max saturation and luminosity, number
+ *	of types and colors per palette<br>
+ *	palettes - for every type (0..3) and base color (0..0xFFFFFF): 8 colors of 3
+ *	bytes (RGB), 1.5 GB in total<br><br>
+ *	Use it directly or through a generator:<br>
+ *	PaletteIndex.Build(Paths.get("palettes.idx"), new PaletteGenerator());<br>
+ *	PaletteIndex index = PaletteIndex.Open(Paths.get("palettes.idx"));<br>
+ *	Palette palette = index.Triads(0xFF00FF);<br>
+ *	An index can't be changed, so it can be shared by any number of threads.
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+public final class PaletteIndex {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	// "CHPI"
+	static final int MAGIC = 0x43485049;
+
+	// File format version
+	static final int VERSION = 1;
+
+	// Size of the file header
+	static final int HEADER = 64;
+
+	// Number of base colors per type
+	static final int COLORS = 1 << 24;
+
+	// Bytes per palette (8 colors of 3 bytes)
+	static final int PALETTE_BYTES = PaletteGenerator.SIZE * 3;
+
+	// Bytes per type (one mapping per type, mappings are limited to 2 GB)
+	static final long TYPE_BYTES = (long)COLORS * PALETTE_BYTES;
+
+	// Size of the file
+	static final long FILE_SIZE = HEADER + PaletteGenerator.TYPES * TYPE_BYTES;
+
+	// Number of palettes per build task (1.5 MB of output)
+	static final int CHUNK = 1 << 16;
+
+	final int minSaturation;
+	final int maxSaturation;
+	final int minLuminosity;
+	final int maxLuminosity;
+
+	// The palettes of every type
+	final MappedByteBuffer[] types;
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the PaletteIndex class (use Open())
+	 *
+	 *********************************************************************************/
+	PaletteIndex(int _minSaturation, int _maxSaturation, int _minLuminosity, int _maxLuminosity, MappedByteBuffer[] _types) {
+		minSaturation = _minSaturation;
+		maxSaturation = _maxSaturation;
+		minLuminosity = _minLuminosity;
+		maxLuminosity = _maxLuminosity;
+		types         = _types;
+	} // PaletteIndex()
+
+
+	/*********************************************************************************
+	 *
+	 *	Build the index file for the min/max values of a generator, using all available
+	 *	cores<br>
+	 *	Example: PaletteIndex.Build(Paths.get("palettes.idx"), new PaletteGenerator(10, 60, 20, 60));
+	 *
+	 *	@param path 		File to write (an existing file is overwritten)
+	 *	@param generator	Generator with the min/max values (its cache is not used)
+	 *
+	 *********************************************************************************/
+	public static void Build(Path path, PaletteGenerator generator) throws IOException {
+		Build(path, generator, ForkJoinPool.commonPool());
+	} // Build()
+
+
+	/*********************************************************************************
+	 *
+	 *	Build the index file, with the threads of a given pool
+	 *
+	 *	@param path 		File to write (an existing file is overwritten)
+	 *	@param generator	Generator with the min/max values (its cache is not used)
+	 *	@param pool			Pool that generates the palettes
+	 *
+	 *********************************************************************************/
+	public static void Build(Path path, PaletteGenerator generator, ForkJoinPool pool) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			write(channel, header(generator), 0);
+
+			try {
+				pool.invoke(new BuildTask(channel, generator, 0, PaletteGenerator.TYPES * COLORS));
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+		}
+	} // Build()
+
+
+	/*********************************************************************************
+	 *
+	 *	Open an index file<br>
+	 *	Example: PaletteIndex index = PaletteIndex.Open(Paths.get("palettes.idx"));
+	 *
+	 *	@param path 	Index file, written by Build()
+	 *
+	 *	@return			The index
+	 *
+	 *	@throws IOException if the file can't be read or isn't a (complete) index file
+	 *
+	 *********************************************************************************/
+	public static PaletteIndex Open(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER);
+			while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+			}
+			header.flip();
+			if (header.remaining() < HEADER || header.getInt(0) != MAGIC) {
+				throw new IOException("Not a palette index file: " + path);
+			}
+			if (header.getInt(4) != VERSION
+					|| header.getInt(24) != PaletteGenerator.TYPES || header.getInt(28) != PaletteGenerator.SIZE) {
+				throw new IOException("Unsupported palette index file: " + path);
+			}
+			if (channel.size() != FILE_SIZE) {
+				throw new IOException("Incomplete palette index file: " + path);
+			}
+
+			MappedByteBuffer[] types = new MappedByteBuffer[PaletteGenerator.TYPES];
+			for (int t = 0; t < types.length; t++) {
+				types[t] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER + t * TYPE_BYTES, TYPE_BYTES);
+			}
+			// The mappings stay valid after closing the channel
+			return new PaletteIndex(header.getInt(8), header.getInt(12), header.getInt(16), header.getInt(20), types);
+		}
+	} // Open()
+
+
+	/*********************************************************************************
+	 *
+	 *	Palettes of a packed base color<br>
+	 *	Example: Palette palette = index.Monochromatic(0xFF00FF);
+	 *
+	 *	@param rgb 	Base color (0xRRGGBB, the alpha byte is ignored)
+	 *
+	 *	@return		The palette
+	 *
+	 *********************************************************************************/
+	public Palette Monochromatic(int rgb) {
+		return generate(0, rgb);
+	} // Monochromatic()
+
+	public Palette Analogous(int rgb) {
+		return generate(1, rgb);
+	} // Analogous()
+
+	public Palette Complementary(int rgb) {
+		return generate(2, rgb);
+	} // Complementary()
+
+	public Palette Triads(int rgb) {
+		return generate(3, rgb);
+	} // Triads()
+
+
+	/*********************************************************************************
+	 *
+	 *	Palette of a given type<br>
+	 *	Example: Palette palette = index.generate(2, 0xFF00FF);
+	 *
+	 *	@param type 	Palette type [0..3 = monochromatic, analogous, complementary, triads]
+	 *	@param rgb 		Base color (0xRRGGBB, the alpha byte is ignored)
+	 *
+	 *********************************************************************************/
+	public Palette generate(int type, int rgb) {
+		return new Palette(type, generate(type, rgb, new int[PaletteGenerator.SIZE], 0));
+	} // generate()
+
+
+	/*********************************************************************************
+	 *
+	 *	Copy the palette of a given type into an array (no allocations)<br>
+	 *	Example: index.generate(2, 0xFF00FF, colors, 0);
+	 *
+	 *	@param type 	Palette type [0..3 = monochromatic, analogous, complementary, triads]
+	 *	@param rgb 		Base color (0xRRGGBB, the alpha byte is ignored)
+	 *	@param colors	Array that receives the 8 colors (0xFFRRGGBB)
+	 *	@param offset	Index in colors for the first color
+	 *
+	 *	@return			The colors array
+	 *
+	 *********************************************************************************/
+	public int[] generate(int type, int rgb, int[] colors, int offset) {
+		if (type < 0 || type >= PaletteGenerator.TYPES) {
+			throw new IllegalArgumentException("Unknown palette type: " + type);
+		}
+		MappedByteBuffer m = types[type];
+		int p = (rgb & ColorMath.RGB_MASK) * PALETTE_BYTES;
+		for (int i = offset; i < offset + PaletteGenerator.SIZE; i++, p += 3) {
+			colors[i] = ColorMath.OPAQUE | (m.get(p) & 0xFF) << 16 | (m.getShort(p + 1) & 0xFFFF);
+		}
+		return colors;
+	} // generate()
+
+
+	/*********************************************************************************
+	 *
+	 *	Check if the index was built with the min/max values of a generator
+	 *
+	 *********************************************************************************/
+	public boolean Matches(PaletteGenerator generator) {
+		return minSaturation == generator.minSaturation && maxSaturation == generator.maxSaturation
+				&& minLuminosity == generator.minLuminosity && maxLuminosity == generator.maxLuminosity;
+	} // Matches()
+
+
+	/*********************************************************************************
+	 *
+	 *	Min/max values of the palettes in the index (from the file header)
+	 *
+	 *********************************************************************************/
+	public int GetMinSaturation() {
+		return minSaturation;
+	} // GetMinSaturation()
+
+	public int GetMaxSaturation() {
+		return maxSaturation;
+	} // GetMaxSaturation()
+
+	public int GetMinLuminosity() {
+		return minLuminosity;
+	} // GetMinLuminosity()
+
+	public int GetMaxLuminosity() {
+		return maxLuminosity;
+	} // GetMaxLuminosity()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL METHODS
+	 *
+	 *********************************************************************************/
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: The file header for the min/max values of a generator
+	 *
+	 *********************************************************************************/
+	static ByteBuffer header(PaletteGenerator generator) {
+		ByteBuffer header = ByteBuffer.allocate(HEADER);
+		header.putInt(MAGIC).putInt(VERSION)
+				.putInt(generator.minSaturation).putInt(generator.maxSaturation)
+				.putInt(generator.minLuminosity).putInt(generator.maxLuminosity)
+				.putInt(PaletteGenerator.TYPES).putInt(PaletteGenerator.SIZE);
+		header.clear();
+		return header;
+	} // header()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Write a whole buffer at a file position
+	 *
+	 *********************************************************************************/
+	static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) position += channel.write(buffer, position);
+	} // write()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Generate the palettes from..to-1 (palette number = type * 2^24 + base
+	 *	color) and write them at their position in the file. Positional writes don't
+	 *	change the channel position, so the tasks can write at the same time.
+	 *
+	 *********************************************************************************/
+	static final class BuildTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final FileChannel      channel;
+		final PaletteGenerator generator;
+		final int from, to;
+
+		BuildTask(FileChannel _channel, PaletteGenerator _generator, int _from, int _to) {
+			channel   = _channel;
+			generator = _generator;
+			from      = _from;
+			to        = _to;
+		} // BuildTask()
+
+		@Override
+		protected void compute() {
+			if (to - from > CHUNK) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new BuildTask(channel, generator, from, mid), new BuildTask(channel, generator, mid, to));
+				return;
+			}
+			ByteBuffer buffer = ByteBuffer.allocate((to - from) * PALETTE_BYTES).order(ByteOrder.BIG_ENDIAN);
+			int[] colors = new int[PaletteGenerator.SIZE];
+			for (int n = from; n < to; n++) {
+				PackedPalettes.generate(n >>> 24, n & ColorMath.RGB_MASK,
+						generator.minSaturation, generator.maxSaturation,
+						generator.minLuminosity, generator.maxLuminosity, colors, 0);
+				for (int c : colors) buffer.put((byte)(c >> 16)).putShort((short)c);
+			}
+			buffer.flip();
+			try {
+				write(channel, buffer, HEADER + (long)from * PALETTE_BYTES);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		} // compute()
+	} // BuildTask
+} // PaletteIndex
@@ -0,0 +1,124 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Result of a nearest palette search
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+
+/*************************************************************************************
+ *
+ *	<b>PaletteMatch class</b><br><br>
+ *	One result of PaletteSearch: the base color and palette type that generate the
+ *	palette, the slot (index) of the matching color in the palette and the distance
+ *	to the target (CIE76 delta E, the distance in CIELAB).<br>
+ *	For a search with a set of target colors, the slot is -1 and the distance is the
+ *	average distance of the targets to their nearest palette color.
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+public final class PaletteMatch {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	final int     baseRGB;
+	final int     slot;
+	final float   distance;
+	final Palette palette;
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the PaletteMatch class
+	 *
+	 *********************************************************************************/
+	PaletteMatch(int _baseRGB, int _slot, float _distance, Palette _palette) {
+		baseRGB  = _baseRGB;
+		slot     = _slot;
+		distance = _distance;
+		palette  = _palette;
+	} // PaletteMatch()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the base color to generate the palette with<br>
+	 *	Example: Palette palette = generator.generate(match.GetType(), match.GetBaseRGB());<br>
+	 *	This is the color given to the generator, the (corrected) base color of the
+	 *	palette itself can be different.
+	 *
+	 *	@return		Base color (0xRRGGBB)
+	 *
+	 *********************************************************************************/
+	public int GetBaseRGB() {
+		return baseRGB;
+	} // GetBaseRGB()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the palette type [int 0..3 = monochromatic, analogous, complementary, triads]
+	 *
+	 *********************************************************************************/
+	public int GetType() {
+		return palette.type;
+	} // GetType()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the index of the matching color in the palette (-1 for a search with a
+	 *	set of target colors)
+	 *
+	 *********************************************************************************/
+	public int GetSlot() {
+		return slot;
+	} // GetSlot()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the matching color (0xFFRRGGBB), or the base color of the palette for a
+	 *	search with a set of target colors
+	 *
+	 *********************************************************************************/
+	public int GetColor() {
+		return palette.colors[slot < 0 ? 0 : slot];
+	} // GetColor()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the distance to the target (delta E, 0 = same color)
+	 *
+	 *********************************************************************************/
+	public float GetDistance() {
+		return distance;
+	} // GetDistance()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the generated palette
+	 *
+	 *********************************************************************************/
+	public Palette GetPalette() {
+		return palette;
+	} // GetPalette()
+
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder(palette.GetTypeText()).append(" #");
+		HexCodec.format(baseRGB, sb).append(" slot ").append(slot).append(" dE ").append(distance);
+		return sb.toString();
+	} // toString()
+} // PaletteMatch
@@ -0,0 +1,519 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Nearest palette search over the palette colors in CIELAB
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/*************************************************************************************
+ *
+ *	<b>PaletteSearch class</b><br><br>
+ *	Answers "which base color and palette type give a palette with a color close to
+ *	this one". The palettes of a set of base colors (all types) are generated and
+ *	every palette color is stored in a k-d tree over CIELAB, one tree per palette
+ *	type. A query is a k-nearest neighbour search in the trees of the wanted types,
+ *	the distance is CIE76 delta E.<br>
+ *	Example:<br>
+ *	PaletteSearch search = new PaletteSearch(generator, PaletteSearch.GridColors(5));<br>
+ *	PaletteMatch[] matches = search.Nearest(0x3366CC, 10, PaletteSearch.ALL_TYPES);<br><br>
+ *	The palettes are generated and the trees are built in parallel. After that the
+ *	search can't be changed, so it can be used by any number of threads.
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+public final class PaletteSearch {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	// Type masks (1 << type), combine with |
+	public static final int MONOCHROMATIC = 1;
+	public static final int ANALOGOUS     = 2;
+	public static final int COMPLEMENTARY = 4;
+	public static final int TRIADS        = 8;
+	public static final int ALL_TYPES     = 15;
+
+	// Number of base colors per generate task
+	static final int CHUNK = 1 << 10;
+
+	// Subtrees with more points are built in parallel
+	static final int PARALLEL = 1 << 14;
+
+	// Subtrees with this number of points or less are searched linearly
+	static final int LEAF = 8;
+
+	// Minimum number of candidate palettes per target color for a set of targets
+	static final int CANDIDATES = 64;
+
+	final PaletteGenerator generator;
+	final int[]            baseColors;
+
+	// Per type: CIELAB values of the points (3 floats per point)
+	final float[][] points;
+
+	// Per type: (base color << 3) | slot of the points
+	final int[][] ids;
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the PaletteSearch class: a grid of 32 x 32 x 32 base colors,
+	 *	built on the common fork/join pool<br>
+	 *	Example: PaletteSearch search = new PaletteSearch(new PaletteGenerator());
+	 *
+	 *********************************************************************************/
+	public PaletteSearch(PaletteGenerator _generator) {
+		this(_generator, GridColors(5), ForkJoinPool.commonPool());
+	} // PaletteSearch()
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the PaletteSearch class with a set of base colors<br>
+	 *	Example: PaletteSearch search = new PaletteSearch(generator, PaletteSearch.GridColors(6));
+	 *
+	 *	@param _generator 	Generator of the palettes
+	 *	@param _baseColors	Base colors (0xRRGGBB) to generate the palettes for
+	 *
+	 *********************************************************************************/
+	public PaletteSearch(PaletteGenerator _generator, int[] _baseColors) {
+		this(_generator, _baseColors, ForkJoinPool.commonPool());
+	} // PaletteSearch()
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the PaletteSearch class with a set of base colors and a
+	 *	specific fork/join pool
+	 *
+	 *	@param _generator 	Generator of the palettes
+	 *	@param _baseColors	Base colors (0xRRGGBB) to generate the palettes for
+	 *	@param pool			Pool that generates the palettes and builds the trees
+	 *
+	 *********************************************************************************/
+	public PaletteSearch(PaletteGenerator _generator, int[] _baseColors, ForkJoinPool pool) {
+		generator  = _generator;
+		baseColors = _baseColors.clone();
+		for (int i = 0; i < baseColors.length; i++) baseColors[i] &= ColorMath.RGB_MASK;
+
+		int n  = baseColors.length * PaletteGenerator.SIZE;
+		points = new float[PaletteGenerator.TYPES][3 * n];
+		ids    = new int[PaletteGenerator.TYPES][n];
+
+		pool.invoke(new GenerateTask(this, 0, baseColors.length));
+		RecursiveAction[] trees = new RecursiveAction[PaletteGenerator.TYPES];
+		for (int t = 0; t < trees.length; t++) trees[t] = new TreeTask(points[t], ids[t], 0, n, 0);
+		pool.invoke(new RecursiveAction() {
+			@Override
+			protected void compute() {
+				invokeAll(trees);
+			}
+		});
+	} // PaletteSearch()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return a grid of base colors with 2^bits values per channel (evenly spread
+	 *	over 0..255, including 0 and 255)<br>
+	 *	Example: int[] baseColors = PaletteSearch.GridColors(5); // 32768 colors
+	 *
+	 *	@param bits 	Bits per channel (1..8)
+	 *
+	 *********************************************************************************/
+	public static int[] GridColors(int bits) {
+		if (bits < 1 || bits > 8) throw new IllegalArgumentException("Bits must be 1..8");
+		int steps = 1 << bits;
+		int[] values = new int[steps];
+		for (int i = 0; i < steps; i++) values[i] = i * 255 / (steps - 1);
+
+		int[] colors = new int[steps * steps * steps];
+		int n = 0;
+		for (int r : values) {
+			for (int g : values) {
+				for (int b : values) colors[n++] = ColorMath.pack(r, g, b);
+			}
+		}
+		return colors;
+	} // GridColors()
+
+
+	/*********************************************************************************
+	 *
+	 *	Find the palette colors nearest to a target color<br>
+	 *	Example: PaletteMatch[] matches = search.Nearest(0x3366CC, 10, PaletteSearch.TRIADS | PaletteSearch.ANALOGOUS);
+	 *
+	 *	@param rgb 		Target color (0xRRGGBB, the alpha byte is ignored)
+	 *	@param k		Number of results
+	 *	@param types	Palette types to search (mask, ALL_TYPES for all types)
+	 *
+	 *	@return			Up to k matches, nearest first (a palette can match more
+	 *					than once, with different slots)
+	 *
+	 *********************************************************************************/
+	public PaletteMatch[] Nearest(int rgb, int k, int types) {
+		if (k < 1) throw new IllegalArgumentException("k must be at least 1");
+		float[] target = new float[3];
+		LabMath.lab(rgb, target, 0);
+		Neighbours found = nearest(target, k, types);
+
+		PaletteMatch[] matches = new PaletteMatch[found.size];
+		for (int i = matches.length - 1; i >= 0; i--) {
+			float distance = (float)Math.sqrt(found.distances[0]);
+			int   code     = found.poll();
+			int   type     = code >>> 27;
+			int   base     = (code >>> 3) & ColorMath.RGB_MASK;
+			matches[i] = new PaletteMatch(base, code & 7, distance, generator.generate(type, base));
+		}
+		return matches;
+	} // Nearest()
+
+
+	/*********************************************************************************
+	 *
+	 *	Find the palettes nearest to a set of target colors: the palettes with the
+	 *	smallest average distance of the targets to their nearest palette color<br>
+	 *	Example: PaletteMatch[] matches = search.NearestPalettes(new int[] { 0x3366CC, 0xCC9933 }, 5, PaletteSearch.ALL_TYPES);<br>
+	 *	The candidates are the palettes of the nearest colors of every target, which
+	 *	are then compared with all targets.
+	 *
+	 *	@param targets 	Target colors (0xRRGGBB, the alpha bytes are ignored)
+	 *	@param k		Number of results
+	 *	@param types	Palette types to search (mask, ALL_TYPES for all types)
+	 *
+	 *	@return			Up to k matches (slot -1), nearest first
+	 *
+	 *********************************************************************************/
+	public PaletteMatch[] NearestPalettes(int[] targets, int k, int types) {
+		if (k < 1) throw new IllegalArgumentException("k must be at least 1");
+		float[] labs = new float[3 * targets.length];
+		for (int i = 0; i < targets.length; i++) LabMath.lab(targets[i], labs, 3 * i);
+
+		// Candidates: (type << 24) | base color
+		Set<Integer> candidates = new LinkedHashSet<Integer>();
+		int perTarget = Math.max(CANDIDATES, k * PaletteGenerator.SIZE);
+		float[] target = new float[3];
+		for (int i = 0; i < targets.length; i++) {
+			System.arraycopy(labs, 3 * i, target, 0, 3);
+			Neighbours found = nearest(target, perTarget, types);
+			while (found.size > 0) candidates.add(found.poll() >>> 3);
+		}
+
+		// Score the candidates with all targets, keep the best k
+		Neighbours best   = new Neighbours(k);
+		int[]      colors = new int[PaletteGenerator.SIZE];
+		float[]    lab    = new float[3 * PaletteGenerator.SIZE];
+		for (int candidate : candidates) {
+			generator.generate(candidate >>> 24, candidate & ColorMath.RGB_MASK, colors, 0);
+			for (int s = 0; s < colors.length; s++) LabMath.lab(colors[s], lab, 3 * s);
+			float sum = 0;
+			for (int i = 0; i < labs.length; i += 3) {
+				float nearest = Float.MAX_VALUE;
+				for (int s = 0; s < lab.length; s += 3) {
+					nearest = Math.min(nearest, distance2(labs, i, lab, s));
+				}
+				sum += (float)Math.sqrt(nearest);
+			}
+			best.offer(sum / targets.length, candidate);
+		}
+
+		PaletteMatch[] matches = new PaletteMatch[best.size];
+		for (int i = matches.length - 1; i >= 0; i--) {
+			float distance  = best.distances[0];
+			int   candidate = best.poll();
+			int   base      = candidate & ColorMath.RGB_MASK;
+			matches[i] = new PaletteMatch(base, -1, distance, generator.generate(candidate >>> 24, base));
+		}
+		return matches;
+	} // NearestPalettes()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the number of base colors and the number of palette colors per type
+	 *
+	 *********************************************************************************/
+	public int GetBaseColorCount() {
+		return baseColors.length;
+	} // GetBaseColorCount()
+
+	public int GetPointCount() {
+		return ids[0].length;
+	} // GetPointCount()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the palette generator
+	 *
+	 *********************************************************************************/
+	public PaletteGenerator GetGenerator() {
+		return generator;
+	} // GetGenerator()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL METHODS
+	 *
+	 *********************************************************************************/
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: The k nearest points of the wanted types, codes are
+	 *	(type << 27) | (base color << 3) | slot, distances are squared
+	 *
+	 *********************************************************************************/
+	Neighbours nearest(float[] target, int k, int types) {
+		Neighbours found   = new Neighbours(k);
+		float[]    offsets = new float[3];
+		for (int t = 0; t < PaletteGenerator.TYPES; t++) {
+			if ((types & (1 << t)) != 0) search(points[t], ids[t], t << 27, target, found, offsets, 0, 0, ids[t].length, 0);
+		}
+		return found;
+	} // nearest()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Search the subtree lo..hi-1 (the median of the axis of this depth is
+	 *	at the middle, smaller values before it, larger values after it).<br>
+	 *	offsets[axis] is the distance of the target to the cell of the subtree along
+	 *	each axis, bound the squared distance to the cell (sum of the squared offsets):
+	 *	a far subtree is only searched if its cell is closer than the worst neighbour.
+	 *
+	 *********************************************************************************/
+	static void search(float[] p, int[] id, int type, float[] target, Neighbours found,
+			float[] offsets, float bound, int lo, int hi, int depth) {
+		if (hi - lo <= LEAF) {
+			for (int i = lo; i < hi; i++) found.offer(distance2(target, 0, p, 3 * i), type | id[i]);
+			return;
+		}
+		int mid  = (lo + hi) >>> 1;
+		int axis = depth % 3;
+		found.offer(distance2(target, 0, p, 3 * mid), type | id[mid]);
+
+		float d = target[axis] - p[3 * mid + axis];
+		if (d < 0) {
+			search(p, id, type, target, found, offsets, bound, lo, mid, depth + 1);
+		} else {
+			search(p, id, type, target, found, offsets, bound, mid + 1, hi, depth + 1);
+		}
+
+		float offset = offsets[axis];
+		float farBound = bound - offset * offset + d * d;
+		if (farBound < found.worst()) {
+			offsets[axis] = d;
+			if (d < 0) {
+				search(p, id, type, target, found, offsets, farBound, mid + 1, hi, depth + 1);
+			} else {
+				search(p, id, type, target, found, offsets, farBound, lo, mid, depth + 1);
+			}
+			offsets[axis] = offset;
+		}
+	} // search()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Squared distance of a[i..i+2] and b[j..j+2]
+	 *
+	 *********************************************************************************/
+	static float distance2(float[] a, int i, float[] b, int j) {
+		float dl = a[i]     - b[j];
+		float da = a[i + 1] - b[j + 1];
+		float db = a[i + 2] - b[j + 2];
+		return dl * dl + da * da + db * db;
+	} // distance2()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Generate the palettes of baseColors[from..to-1] and store their
+	 *	colors as points (every base color has its own points, so the tasks don't
+	 *	interfere)
+	 *
+	 *********************************************************************************/
+	static final class GenerateTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final PaletteSearch search;
+		final int from, to;
+
+		GenerateTask(PaletteSearch _search, int _from, int _to) {
+			search = _search;
+			from   = _from;
+			to     = _to;
+		} // GenerateTask()
+
+		@Override
+		protected void compute() {
+			if (to - from > CHUNK) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new GenerateTask(search, from, mid), new GenerateTask(search, mid, to));
+				return;
+			}
+			int[] colors = new int[PaletteGenerator.SIZE];
+			for (int i = from; i < to; i++) {
+				int base = search.baseColors[i];
+				for (int t = 0; t < PaletteGenerator.TYPES; t++) {
+					search.generator.generate(t, base, colors, 0);
+					for (int s = 0; s < colors.length; s++) {
+						int n = i * PaletteGenerator.SIZE + s;
+						LabMath.lab(colors[s], search.points[t], 3 * n);
+						search.ids[t][n] = (base << 3) | s;
+					}
+				}
+			}
+		} // compute()
+	} // GenerateTask
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Build the k-d tree of the points lo..hi-1: put the median of the axis
+	 *	in the middle and build both halves (in parallel when they are big enough)
+	 *
+	 *********************************************************************************/
+	static final class TreeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final float[] p;
+		final int[]   id;
+		final int lo, hi, depth;
+
+		TreeTask(float[] _p, int[] _id, int _lo, int _hi, int _depth) {
+			p     = _p;
+			id    = _id;
+			lo    = _lo;
+			hi    = _hi;
+			depth = _depth;
+		} // TreeTask()
+
+		@Override
+		protected void compute() {
+			build(lo, hi, depth);
+		} // compute()
+
+		void build(int from, int to, int level) {
+			if (to - from <= LEAF) return;
+			int mid = (from + to) >>> 1;
+			select(from, to - 1, mid, level % 3);
+			if (to - from > PARALLEL) {
+				invokeAll(new TreeTask(p, id, from, mid, level + 1), new TreeTask(p, id, mid + 1, to, level + 1));
+			} else {
+				build(from, mid, level + 1);
+				build(mid + 1, to, level + 1);
+			}
+		} // build()
+
+		// Quickselect: the point with rank k (on the axis) at index k
+		void select(int left, int right, int k, int axis) {
+			while (right > left) {
+				float pivot = p[3 * ((left + right) >>> 1) + axis];
+				int i = left;
+				int j = right;
+				while (i <= j) {
+					while (p[3 * i + axis] < pivot) i++;
+					while (p[3 * j + axis] > pivot) j--;
+					if (i <= j) swap(i++, j--);
+				}
+				if (k <= j) right = j;
+				else if (k >= i) left = i;
+				else return;
+			}
+		} // select()
+
+		void swap(int i, int j) {
+			for (int a = 0; a < 3; a++) {
+				float f = p[3 * i + a];
+				p[3 * i + a] = p[3 * j + a];
+				p[3 * j + a] = f;
+			}
+			int t = id[i];
+			id[i] = id[j];
+			id[j] = t;
+		} // swap()
+	} // TreeTask
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: The best k (distance, code) pairs so far, a max-heap on the distance
+	 *
+	 *********************************************************************************/
+	static final class Neighbours {
+		final float[] distances;
+		final int[]   codes;
+		int size;
+
+		Neighbours(int k) {
+			distances = new float[k];
+			codes     = new int[k];
+		} // Neighbours()
+
+		// Distance to beat (infinite until there are k pairs)
+		float worst() {
+			return size < codes.length ? Float.POSITIVE_INFINITY : distances[0];
+		} // worst()
+
+		void offer(float distance, int code) {
+			if (size < codes.length) {
+				// Sift up
+				int i = size++;
+				while (i > 0) {
+					int parent = (i - 1) >>> 1;
+					if (distances[parent] >= distance) break;
+					distances[i] = distances[parent];
+					codes[i]     = codes[parent];
+					i = parent;
+				}
+				distances[i] = distance;
+				codes[i]     = code;
+			} else if (distance < distances[0]) {
+				siftDown(distance, code);
+			}
+		} // offer()
+
+		// Remove the pair with the largest distance, return its code
+		int poll() {
+			int code = codes[0];
+			size--;
+			if (size > 0) {
+				float distance = distances[size];
+				int   last     = codes[size];
+				siftDown(distance, last);
+			}
+			return code;
+		} // poll()
+
+		void siftDown(float distance, int code) {
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= size) break;
+				if (child + 1 < size && distances[child + 1] > distances[child]) child++;
+				if (distances[child] <= distance) break;
+				distances[i] = distances[child];
+				codes[i]     = codes[child];
+				i = child;
+			}
+			distances[i] = distance;
+			codes[i]     = code;
+		} // siftDown()
+	} // Neighbours
+} // PaletteSearch
@@ -0,0 +1,433 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Lightweight HTTP/JSON palette service
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+
+/*************************************************************************************
+ *
+ *	<b>PaletteServer class</b><br><br>
+ *	Serves the palettes of a PaletteGenerator over HTTP, with the server of the JDK
+ *	(com.sun.net.httpserver). No sketch or PApplet is needed.<br><br>
+ *	Resources (GET or HEAD):<br>
+ *	/palette/{type}/{hex} - the palette of a base color, for example
+ *	/palette/triads/FF00FF or /palette/3/F0F. The type is a name (monochromatic,
+ *	analogous, complementary, triads; any case) or a number 0..3, the color has 3
+ *	or 6 hexadecimal digits<br>
+ *	/random - a random palette<br>
+ *	/random?seed={seed}&amp;index={index} - palette number index of a seed, the same
+ *	as generator.RandomPalette(seed, index)<br><br>
+ *	The response is the JSON object of PaletteWriter.JSON:<br>
+ *	{"type":"Triads","base":"#FF00FF","colors":["#FF00FF",...]}<br>
+ *	The ETag of a palette is its PaletteCache key (base color, type and the min/max
+ *	values of the generator), so it is known before the palette is generated: a
+ *	request with a matching If-None-Match header gets 304 Not Modified without any
+ *	palette work. A random palette without a seed can't be requested again, so it
+ *	gets no ETag (and Cache-Control: no-store). Errors are JSON too: {"error":"..."} with status 400, 404 or 405.<br><br>
+ *	Every request runs in its own virtual thread on Java 21+; on older JVMs the
+ *	requests run in a pool of daemon threads that grows as needed.<br>
+ *	The JDK server sends the headers and the body of a response separately, so with
+ *	Nagle's algorithm on (the default) every response on a keep-alive connection
+ *	waits for the delayed ACK of the client (about 40 ms). EnableNoDelay() switches
+ *	TCP_NODELAY on; it sets a system property, so it is a choice for the whole JVM
+ *	and must be made before its first HttpServer is created.<br>
+ *	Example:<br>
+ *	PaletteServer.EnableNoDelay();<br>
+ *	PaletteServer server = new PaletteServer(new PaletteGenerator(), 8080).Start();<br>
+ *	...<br>
+ *	server.close();
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+public final class PaletteServer implements Closeable {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	// Paths of the resources
+	public static final String PALETTE = "/palette/";
+	public static final String RANDOM  = "/random";
+
+	// Cache-Control of palettes that only depend on the URL (and of random ones
+	// without a seed)
+	static final String CACHE_PALETTE = "public, max-age=86400";
+	static final String CACHE_RANDOM  = "no-store";
+
+	static final String JSON = "application/json";
+
+	// Room for the JSON of one palette (about 160 bytes)
+	static final int MAX_JSON = 256;
+
+	// Names of the fallback threads
+	static final AtomicInteger threads = new AtomicInteger();
+
+	// TCP_NODELAY for the sockets of the JDK server (read once, when the JVM makes
+	// its first server)
+	static final String NODELAY = "sun.net.httpserver.nodelay";
+
+	final PaletteGenerator generator;
+	final HttpServer       server;
+	final ExecutorService  executor;
+	final boolean          virtual;
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the PaletteServer class: listen on a port of the loopback
+	 *	address (localhost)<br>
+	 *	Example: PaletteServer server = new PaletteServer(new PaletteGenerator(), 8080).Start();
+	 *
+	 *	@param _generator 	Generator of the palettes
+	 *	@param port			Port number (0 = any free port, see GetPort())
+	 *
+	 *********************************************************************************/
+	public PaletteServer(PaletteGenerator _generator, int port) throws IOException {
+		this(_generator, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+	} // PaletteServer()
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the PaletteServer class: listen on a given address<br>
+	 *	Example: new PaletteServer(generator, new InetSocketAddress(8080)) listens on
+	 *	all network interfaces.
+	 *
+	 *	@param _generator 	Generator of the palettes
+	 *	@param address		Address and port to listen on
+	 *
+	 *********************************************************************************/
+	public PaletteServer(PaletteGenerator _generator, InetSocketAddress address) throws IOException {
+		generator = _generator;
+		server    = HttpServer.create(address, 0);
+
+		ExecutorService virtualThreads = virtualThreads();
+		virtual  = virtualThreads != null;
+		executor = virtual ? virtualThreads : Executors.newCachedThreadPool(task -> {
+			Thread thread = new Thread(task, "ColorHarmony-http-" + threads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		server.setExecutor(executor);
+		server.createContext(PALETTE, this::palette);
+		server.createContext(RANDOM, this::random);
+		server.createContext("/", exchange -> error(exchange, 404, "Not found"));
+	} // PaletteServer()
+
+
+	/*********************************************************************************
+	 *
+	 *	Switch TCP_NODELAY on for the HTTP servers of the JDK (the system property
+	 *	sun.net.httpserver.nodelay, unless it is set already). Without it a keep-alive
+	 *	connection does some 25 requests per second.<br>
+	 *	Example: PaletteServer.EnableNoDelay();<br>
+	 *	Call this before the first server of the JVM is created (by this class or any
+	 *	other code): the JDK reads the property once. It applies to all those servers.
+	 *
+	 *	@return		true if TCP_NODELAY is on (false if the property is set to
+	 *				something else or can't be set)
+	 *
+	 *********************************************************************************/
+	public static boolean EnableNoDelay() {
+		try {
+			if (System.getProperty(NODELAY) == null) System.setProperty(NODELAY, "true");
+			return Boolean.getBoolean(NODELAY);
+		} catch (SecurityException e) {
+			return false;
+		}
+	} // EnableNoDelay()
+
+
+	/*********************************************************************************
+	 *
+	 *	Start handling requests<br>
+	 *	Example: server.Start();
+	 *
+	 *	@return		This server
+	 *
+	 *********************************************************************************/
+	public PaletteServer Start() {
+		server.start();
+		return this;
+	} // Start()
+
+
+	/*********************************************************************************
+	 *
+	 *	Stop the server: requests that are being handled get one second to finish
+	 *
+	 *********************************************************************************/
+	@Override
+	public void close() {
+		server.stop(1);
+		executor.shutdown();
+	} // close()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the port the server listens on (useful after port 0)
+	 *
+	 *********************************************************************************/
+	public int GetPort() {
+		return server.getAddress().getPort();
+	} // GetPort()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return true if every request runs in its own virtual thread (Java 21+)
+	 *
+	 *********************************************************************************/
+	public boolean UsesVirtualThreads() {
+		return virtual;
+	} // UsesVirtualThreads()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the generator of the palettes
+	 *
+	 *********************************************************************************/
+	public PaletteGenerator GetGenerator() {
+		return generator;
+	} // GetGenerator()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL METHODS
+	 *
+	 *********************************************************************************/
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: /palette/{type}/{hex}
+	 *
+	 *********************************************************************************/
+	void palette(HttpExchange exchange) throws IOException {
+		try {
+			if (!readOnly(exchange)) return;
+			String path  = exchange.getRequestURI().getPath();
+			int    slash = path.indexOf('/', PALETTE.length());
+			if (slash < 0 || path.indexOf('/', slash + 1) >= 0) {
+				error(exchange, 404, "Use /palette/{type}/{hex}");
+				return;
+			}
+			int type = type(path.substring(PALETTE.length(), slash));
+			int from = slash + 1;
+			if (from < path.length() && path.charAt(from) == '#') from++;
+			// RGB or RRGGBB: HexCodec also takes AARRGGBB, but a palette has no alpha
+			long rgb = path.length() - from == 8 ? HexCodec.INVALID : HexCodec.decode(path, from, path.length());
+			if (type < 0) {
+				error(exchange, 400, "Unknown palette type");
+			} else if (rgb == HexCodec.INVALID) {
+				error(exchange, 400, "Not a hexadecimal color");
+			} else {
+				send(exchange, type, (int)rgb, true);
+			}
+		} finally {
+			exchange.close();
+		}
+	} // palette()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: /random and /random?seed={seed}&index={index}
+	 *
+	 *********************************************************************************/
+	void random(HttpExchange exchange) throws IOException {
+		try {
+			if (!readOnly(exchange)) return;
+			if (!RANDOM.equals(exchange.getRequestURI().getPath())) {
+				error(exchange, 404, "Not found");
+				return;
+			}
+			String query = exchange.getRequestURI().getRawQuery();
+			String seed  = parameter(query, "seed");
+			if (seed == null) {
+				ThreadLocalRandom rand = ThreadLocalRandom.current();
+				send(exchange, rand.nextInt(PaletteGenerator.TYPES), rand.nextInt(1 << 24), false);
+				return;
+			}
+			String index = parameter(query, "index");
+			long   bits;
+			try {
+				bits = PaletteSpliterator.bits(Long.parseLong(seed), index == null ? 0 : Long.parseLong(index));
+			} catch (NumberFormatException e) {
+				error(exchange, 400, "seed and index must be integers");
+				return;
+			}
+			send(exchange, PaletteSpliterator.type(bits), PaletteSpliterator.rgb(bits), true);
+		} finally {
+			exchange.close();
+		}
+	} // random()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Send a palette, or 304 if the client has it already (only for a
+	 *	palette that the URL addresses: it has an ETag)
+	 *
+	 *********************************************************************************/
+	void send(HttpExchange exchange, int type, int rgb, boolean addressable) throws IOException {
+		Headers headers = exchange.getResponseHeaders();
+		headers.set("Cache-Control", addressable ? CACHE_PALETTE : CACHE_RANDOM);
+		long key = addressable ? PaletteCache.key(rgb, type, generator.minSaturation, generator.maxSaturation,
+				generator.minLuminosity, generator.maxLuminosity) : -1;
+		if (key != -1) {
+			String etag = "\"" + Long.toHexString(key) + "\"";
+			headers.set("ETag", etag);
+			if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+				exchange.sendResponseHeaders(304, -1);
+				return;
+			}
+		} // if (key != -1)
+
+		int[] colors = generator.generate(type, rgb, new int[PaletteGenerator.SIZE], 0);
+		ByteBuffer json = PaletteWriter.json(type, colors, 0, PaletteGenerator.SIZE, ByteBuffer.allocate(MAX_JSON));
+		send(exchange, 200, json.array(), json.position());
+	} // send()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Send a JSON body (no body for HEAD requests)
+	 *
+	 *********************************************************************************/
+	static void send(HttpExchange exchange, int status, byte[] body, int length) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", JSON);
+		if ("HEAD".equals(exchange.getRequestMethod())) {
+			exchange.sendResponseHeaders(status, -1);
+			return;
+		}
+		exchange.sendResponseHeaders(status, length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(body, 0, length);
+		out.flush();
+	} // send()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Send {"error":"message"}
+	 *
+	 *********************************************************************************/
+	static void error(HttpExchange exchange, int status, String message) throws IOException {
+		try {
+			byte[] body = ("{\"error\":\"" + message + "\"}\n").getBytes(StandardCharsets.US_ASCII);
+			send(exchange, status, body, body.length);
+		} finally {
+			exchange.close();
+		}
+	} // error()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Check the method (GET or HEAD), send 405 for other methods
+	 *
+	 *********************************************************************************/
+	static boolean readOnly(HttpExchange exchange) throws IOException {
+		// Read the (empty) request body: for responses without a body (304, HEAD)
+		// the JDK server keeps the connection only if the request was read to the end
+		exchange.getRequestBody().close();
+		String method = exchange.getRequestMethod();
+		if ("GET".equals(method) || "HEAD".equals(method)) return true;
+		exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+		error(exchange, 405, "Method not allowed");
+		return false;
+	} // readOnly()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Palette type of a name (any case) or number, -1 if unknown
+	 *
+	 *********************************************************************************/
+	static int type(String name) {
+		if (name.length() == 1 && name.charAt(0) >= '0' && name.charAt(0) < '0' + PaletteGenerator.TYPES) {
+			return name.charAt(0) - '0';
+		}
+		for (int type = 0; type < PaletteGenerator.TYPES; type++) {
+			if (Palette.TYPE_NAMES[type].equalsIgnoreCase(name)) return type;
+		}
+		return -1;
+	} // type()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Value of a query parameter (null if missing)
+	 *
+	 *********************************************************************************/
+	static String parameter(String query, String name) {
+		if (query == null) return null;
+		for (String pair : query.split("&")) {
+			int eq = pair.indexOf('=');
+			if (eq == name.length() && pair.startsWith(name)) return pair.substring(eq + 1);
+		}
+		return null;
+	} // parameter()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Check if an If-None-Match header (* or a list of tags, weak or
+	 *	strong) matches an ETag
+	 *
+	 *********************************************************************************/
+	static boolean matches(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null) return false;
+		for (String tag : ifNoneMatch.split(",")) {
+			tag = tag.trim();
+			if (tag.startsWith("W/")) tag = tag.substring(2);
+			if (tag.equals("*") || tag.equals(etag)) return true;
+		}
+		return false;
+	} // matches()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Executors.newVirtualThreadPerTaskExecutor() (Java 21+, the library
+	 *	is compiled for Java 8), or null
+	 *
+	 *********************************************************************************/
+	static ExecutorService virtualThreads() {
+		try {
+			return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// Older JVM, or virtual threads are a preview feature that isn't enabled
+			return null;
+		}
+	} // virtualThreads()
+} // PaletteServer
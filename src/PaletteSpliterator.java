@@ -0,0 +1,140 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Seeded source of random palettes for (parallel) streams
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+
+/*************************************************************************************
+ *
+ *	<b>PaletteSpliterator class</b><br><br>
+ *	Spliterator over the random palettes index..end-1 of a seed. Palette i only
+ *	depends on (seed, i): its random bits come from the SplitMix64 mixing function
+ *	of java.util.SplittableRandom, applied to the seed and the index. So a stream
+ *	gives identical palettes (in the same order) for a given seed, sequential or
+ *	parallel, with any number of threads.<br>
+ *	Splitting halves the index range, so parallel streams scale with the cores.
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+final class PaletteSpliterator implements Spliterator<Palette> {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	// SplittableRandom's golden ratio increment
+	static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	// Don't split ranges smaller than this
+	static final long MIN_SPLIT = 1 << 10;
+
+	final PaletteGenerator generator;
+	final long seed;
+	long index;
+	final long end;
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the PaletteSpliterator class
+	 *
+	 *********************************************************************************/
+	PaletteSpliterator(PaletteGenerator _generator, long _seed, long _index, long _end) {
+		generator = _generator;
+		seed      = _seed;
+		index     = _index;
+		end       = _end;
+	} // PaletteSpliterator()
+
+
+	/*********************************************************************************
+	 *
+	 *	Random palette i of a seed
+	 *
+	 *********************************************************************************/
+	static Palette palette(PaletteGenerator generator, long seed, long i) {
+		long bits = bits(seed, i);
+		return generator.generate(type(bits), rgb(bits));
+	} // palette()
+
+
+	/*********************************************************************************
+	 *
+	 *	Random bits of palette i of a seed: the top 24 bits are the base color, the
+	 *	next 2 bits the palette type
+	 *
+	 *********************************************************************************/
+	static long bits(long seed, long i) {
+		return mix64(seed + (i + 1) * GOLDEN_GAMMA);
+	} // bits()
+
+	static int type(long bits) {
+		return (int)((bits >>> 38) & 3);
+	} // type()
+
+	static int rgb(long bits) {
+		return (int)(bits >>> 40);
+	} // rgb()
+
+
+	/*********************************************************************************
+	 *
+	 *	SplitMix64 finalizer (same as SplittableRandom.mix64())
+	 *
+	 *********************************************************************************/
+	static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	} // mix64()
+
+
+	@Override
+	public boolean tryAdvance(Consumer<? super Palette> action) {
+		if (index >= end) return false;
+		action.accept(palette(generator, seed, index++));
+		return true;
+	} // tryAdvance()
+
+
+	@Override
+	public void forEachRemaining(Consumer<? super Palette> action) {
+		long i = index;
+		index  = end;
+		for (; i < end; i++) action.accept(palette(generator, seed, i));
+	} // forEachRemaining()
+
+
+	@Override
+	public Spliterator<Palette> trySplit() {
+		long size = end - index;
+		if (size < 2 * MIN_SPLIT) return null;
+		long mid = index + (size >>> 1);
+		Spliterator<Palette> prefix = new PaletteSpliterator(generator, seed, index, mid);
+		index = mid;
+		return prefix;
+	} // trySplit()
+
+
+	@Override
+	public long estimateSize() {
+		return end - index;
+	} // estimateSize()
+
+
+	@Override
+	public int characteristics() {
+		return ORDERED | SIZED | SUBSIZED | IMMUTABLE | NONNULL;
+	} // characteristics()
+} // PaletteSpliterator
@@ -0,0 +1,396 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Palettes and color ramps as lookup textures in NIO buffers
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+
+/*************************************************************************************
+ *
+ *	<b>PaletteTexture class</b><br><br>
+ *	Writes palettes into (direct) buffers as rows of a lookup texture, ready for
+ *	glTexImage2D() or glTexSubImage2D(). A row has width texels: with width =
+ *	palette size every texel is one color of the palette, with a larger width the
+ *	row is a ramp that goes linearly (in RGB) from the first color to the last one,
+ *	through all colors of the palette. Row r of an atlas starts at texel r * stride,
+ *	so thousands of palettes can be written into one atlas (one palette per row).
+ *	<br><br>
+ *	Formats:<br>
+ *	RGBA8   - 4 bytes per texel: red, green, blue, alpha (GL_RGBA, GL_UNSIGNED_BYTE)<br>
+ *	RGBA32F - 4 floats per texel, 0..1 (GL_RGBA, GL_FLOAT; written in the byte order
+ *	of the buffer)<br>
+ *	IntBuffers get RGBA8 texels and FloatBuffers RGBA32F texels (one int or 4
+ *	floats per texel). The bytes of an RGBA8 texel are always in the order R, G, B,
+ *	A in memory, whatever the byte order of the buffer.<br><br>
+ *	All writes use absolute indices from the start of the buffer: the position of
+ *	the buffer doesn't change (use slice() for an offset), and different rows can be
+ *	written by different threads. The palettes can be the int arrays of ColorHarmony
+ *	(Processing colors) or PaletteGenerator: no red()/green()/blue() calls needed.
+ *	GetTexel() reads a texel back, to check a layout on the CPU.<br>
+ *	Example:<br>
+ *	PaletteTexture texture = new PaletteTexture(PaletteTexture.RGBA8, 256);<br>
+ *	ByteBuffer atlas = ByteBuffer.allocateDirect(texture.GetBytes(1000)).order(ByteOrder.nativeOrder());<br>
+ *	for (int row = 0; row &lt; 1000; row++) texture.Write(generator.Triads(baseColors[row]), atlas, row);
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+public final class PaletteTexture {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	// Formats
+	public static final int RGBA8   = 0;
+	public static final int RGBA32F = 1;
+
+	// Bytes per texel of the formats
+	static final int[] TEXEL_BYTES = { 4, 16 };
+
+	// Weights of the ramp: 0..WEIGHT
+	static final int WEIGHT_BITS = 16;
+	static final int WEIGHT      = 1 << WEIGHT_BITS;
+
+	final int format;
+	final int size;
+	final int width;
+	final int stride;
+
+	// Texel x: color left[x] of the palette, mixed with color left[x] + 1 by weight[x]
+	final int[]   left;
+	final int[]   weight;
+	final float[] fraction;
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the PaletteTexture class: palettes of 8 colors, one row after
+	 *	the other (stride = width)<br>
+	 *	Example: PaletteTexture texture = new PaletteTexture(PaletteTexture.RGBA8, 8);
+	 *
+	 *	@param _format	RGBA8 or RGBA32F
+	 *	@param _width	Texels per row (8 = the colors of the palette, more = a ramp)
+	 *
+	 *********************************************************************************/
+	public PaletteTexture(int _format, int _width) {
+		this(_format, PaletteGenerator.SIZE, _width, _width);
+	} // PaletteTexture()
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the PaletteTexture class<br>
+	 *	Example: PaletteTexture texture = new PaletteTexture(PaletteTexture.RGBA32F, 8, 256, 512);
+	 *
+	 *	@param _format	RGBA8 or RGBA32F
+	 *	@param _size	Number of colors per palette (at least 1)
+	 *	@param _width	Texels per row (_size = the colors of the palette, more = a ramp)
+	 *	@param _stride	Texels from the start of a row to the start of the next row
+	 *					(at least _width, like GL_UNPACK_ROW_LENGTH)
+	 *
+	 *********************************************************************************/
+	public PaletteTexture(int _format, int _size, int _width, int _stride) {
+		if (_format != RGBA8 && _format != RGBA32F) throw new IllegalArgumentException("Unknown format: " + _format);
+		if (_size < 1) throw new IllegalArgumentException("size must be at least 1");
+		if (_width < 1) throw new IllegalArgumentException("width must be at least 1");
+		if (_stride < _width) throw new IllegalArgumentException("stride must be at least the width");
+
+		format   = _format;
+		size     = _size;
+		width    = _width;
+		stride   = _stride;
+		left     = new int[width];
+		weight   = new int[width];
+		fraction = new float[width];
+
+		// Position of texel x in the palette: x * (size - 1) / (width - 1)
+		long den = Math.max(1, width - 1);
+		for (int x = 0; x < width; x++) {
+			long pos = (long)x * (size - 1);
+			int  i   = (int)(pos / den);
+			long rem = pos - i * den;
+			if (i == size - 1 && size > 1) {
+				// Last color: mix the one before with weight 1
+				i--;
+				rem = den;
+			}
+			left[x]     = i;
+			weight[x]   = (int)((rem * WEIGHT + den / 2) / den);
+			fraction[x] = rem / (float)den;
+		}
+	} // PaletteTexture()
+
+
+	/*********************************************************************************
+	 *
+	 *	Write a palette into row of a texture<br>
+	 *	Example: texture.Write(generator.Triads(0xFF00FF), atlas, 0);
+	 *
+	 *	@param palette 	Palette (GetSize() colors)
+	 *	@param dst		Texture (RGBA8: 4 bytes per texel, RGBA32F: 16 bytes per texel)
+	 *	@param row		Row of the texture
+	 *
+	 *	@return			The dst buffer
+	 *
+	 *********************************************************************************/
+	public ByteBuffer Write(Palette palette, ByteBuffer dst, int row) {
+		return Write(palette.colors, 0, dst, row);
+	} // Write()
+
+
+	/*********************************************************************************
+	 *
+	 *	Write a palette from an array into row of a texture<br>
+	 *	Example: texture.Write(colorHarmony.Triads("#FF00FF"), 0, atlas, 0);
+	 *
+	 *	@param colors 	Colors (0xAARRGGBB, for example Processing colors)
+	 *	@param offset	Index in colors of the first color of the palette
+	 *	@param dst		Texture (RGBA8: 4 bytes per texel, RGBA32F: 16 bytes per texel)
+	 *	@param row		Row of the texture
+	 *
+	 *	@return			The dst buffer
+	 *
+	 *********************************************************************************/
+	public ByteBuffer Write(int[] colors, int offset, ByteBuffer dst, int row) {
+		int texel = row * stride;
+		if (format == RGBA8) {
+			boolean little = dst.order() == ByteOrder.LITTLE_ENDIAN;
+			for (int x = 0; x < width; x++) {
+				dst.putInt(4 * (texel + x), rgba(texel(colors, offset, x), little));
+			}
+		} else {
+			for (int x = 0, i = 16 * texel; x < width; x++, i += 16) {
+				int a = colors[offset + left[x]];
+				int b = colors[offset + Math.min(left[x] + 1, size - 1)];
+				float f = fraction[x];
+				dst.putFloat(i,      mix(a, b, 16, f));
+				dst.putFloat(i + 4,  mix(a, b, 8, f));
+				dst.putFloat(i + 8,  mix(a, b, 0, f));
+				dst.putFloat(i + 12, mix(a, b, 24, f));
+			}
+		}
+		return dst;
+	} // Write()
+
+
+	/*********************************************************************************
+	 *
+	 *	Write a palette from an array into row of an RGBA8 texture, one int per texel<br>
+	 *	Example: texture.Write(colors, 0, atlas.asIntBuffer(), 0);
+	 *
+	 *	@param colors 	Colors (0xAARRGGBB, for example Processing colors)
+	 *	@param offset	Index in colors of the first color of the palette
+	 *	@param dst		Texture (the format of this PaletteTexture is not used)
+	 *	@param row		Row of the texture
+	 *
+	 *	@return			The dst buffer
+	 *
+	 *********************************************************************************/
+	public IntBuffer Write(int[] colors, int offset, IntBuffer dst, int row) {
+		int     texel  = row * stride;
+		boolean little = dst.order() == ByteOrder.LITTLE_ENDIAN;
+		for (int x = 0; x < width; x++) {
+			dst.put(texel + x, rgba(texel(colors, offset, x), little));
+		}
+		return dst;
+	} // Write()
+
+
+	/*********************************************************************************
+	 *
+	 *	Write a palette from an array into row of an RGBA32F texture, 4 floats per
+	 *	texel<br>
+	 *	Example: texture.Write(colors, 0, atlas.asFloatBuffer(), 0);
+	 *
+	 *	@param colors 	Colors (0xAARRGGBB, for example Processing colors)
+	 *	@param offset	Index in colors of the first color of the palette
+	 *	@param dst		Texture (the format of this PaletteTexture is not used)
+	 *	@param row		Row of the texture
+	 *
+	 *	@return			The dst buffer
+	 *
+	 *********************************************************************************/
+	public FloatBuffer Write(int[] colors, int offset, FloatBuffer dst, int row) {
+		for (int x = 0, i = 4 * row * stride; x < width; x++, i += 4) {
+			int a = colors[offset + left[x]];
+			int b = colors[offset + Math.min(left[x] + 1, size - 1)];
+			float f = fraction[x];
+			dst.put(i,     mix(a, b, 16, f));
+			dst.put(i + 1, mix(a, b, 8, f));
+			dst.put(i + 2, mix(a, b, 0, f));
+			dst.put(i + 3, mix(a, b, 24, f));
+		}
+		return dst;
+	} // Write()
+
+
+	/*********************************************************************************
+	 *
+	 *	Write count palettes from one array (size colors each, for example the output
+	 *	of PaletteGenerator.generate(type, baseColors, out)) into the rows
+	 *	firstRow..firstRow+count-1 of a texture<br>
+	 *	Example: texture.WriteAll(colors, baseColors.length, atlas, 0);
+	 *
+	 *	@param colors 		Colors of the palettes, one palette after the other
+	 *	@param count		Number of palettes
+	 *	@param dst			Texture
+	 *	@param firstRow		Row of the first palette
+	 *
+	 *	@return				The dst buffer
+	 *
+	 *********************************************************************************/
+	public ByteBuffer WriteAll(int[] colors, int count, ByteBuffer dst, int firstRow) {
+		for (int p = 0; p < count; p++) Write(colors, p * size, dst, firstRow + p);
+		return dst;
+	} // WriteAll()
+
+	public IntBuffer WriteAll(int[] colors, int count, IntBuffer dst, int firstRow) {
+		for (int p = 0; p < count; p++) Write(colors, p * size, dst, firstRow + p);
+		return dst;
+	} // WriteAll()
+
+	public FloatBuffer WriteAll(int[] colors, int count, FloatBuffer dst, int firstRow) {
+		for (int p = 0; p < count; p++) Write(colors, p * size, dst, firstRow + p);
+		return dst;
+	} // WriteAll()
+
+
+	/*********************************************************************************
+	 *
+	 *	Read a texel of a texture in the format of this PaletteTexture<br>
+	 *	Example: int argb = texture.GetTexel(atlas, 255, 10);
+	 *
+	 *	@param src 		Texture
+	 *	@param x		Column (0..width-1)
+	 *	@param row		Row
+	 *
+	 *	@return			The color (0xAARRGGBB; RGBA32F channels rounded to 0..255)
+	 *
+	 *********************************************************************************/
+	public int GetTexel(ByteBuffer src, int x, int row) {
+		int texel = row * stride + x;
+		if (format == RGBA8) {
+			return argb(src.getInt(4 * texel), src.order() == ByteOrder.LITTLE_ENDIAN);
+		}
+		int i = 16 * texel;
+		return (channel(src.getFloat(i + 12)) << 24) | (channel(src.getFloat(i)) << 16)
+				| (channel(src.getFloat(i + 4)) << 8) | channel(src.getFloat(i + 8));
+	} // GetTexel()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the number of bytes of a texture with a number of rows
+	 *
+	 *********************************************************************************/
+	public int GetBytes(int rows) {
+		return rows <= 0 ? 0 : ((rows - 1) * stride + width) * TEXEL_BYTES[format];
+	} // GetBytes()
+
+
+	/*********************************************************************************
+	 *
+	 *	Format, palette size, width and stride (in texels) of the texture
+	 *
+	 *********************************************************************************/
+	public int GetFormat() {
+		return format;
+	} // GetFormat()
+
+	public int GetSize() {
+		return size;
+	} // GetSize()
+
+	public int GetWidth() {
+		return width;
+	} // GetWidth()
+
+	public int GetStride() {
+		return stride;
+	} // GetStride()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL METHODS
+	 *
+	 *********************************************************************************/
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Color (0xAARRGGBB) of texel x of a palette
+	 *
+	 *********************************************************************************/
+	int texel(int[] colors, int offset, int x) {
+		int a = colors[offset + left[x]];
+		int w = weight[x];
+		if (w == 0) return a;
+		int b = colors[offset + left[x] + 1];
+		if (w == WEIGHT) return b;
+		int c = 0;
+		for (int shift = 0; shift < 32; shift += 8) {
+			int ca = (a >>> shift) & 0xFF;
+			int cb = (b >>> shift) & 0xFF;
+			c |= ((ca * (WEIGHT - w) + cb * w + (WEIGHT >> 1)) >>> WEIGHT_BITS) << shift;
+		}
+		return c;
+	} // texel()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Channel (at shift) of a mixed with b by f, as 0..1
+	 *
+	 *********************************************************************************/
+	static float mix(int a, int b, int shift, float f) {
+		float ca = (a >>> shift) & 0xFF;
+		float cb = (b >>> shift) & 0xFF;
+		return (ca + (cb - ca) * f) * (1f / 255f);
+	} // mix()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: 0xAARRGGBB to an int that has the bytes R, G, B, A in memory
+	 *
+	 *********************************************************************************/
+	static int rgba(int argb, boolean little) {
+		// Little endian: 0xAABBGGRR, big endian: 0xRRGGBBAA
+		return little ? (argb & 0xFF00FF00) | ((argb >>> 16) & 0xFF) | ((argb & 0xFF) << 16)
+				: (argb << 8) | (argb >>> 24);
+	} // rgba()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Inverse of rgba()
+	 *
+	 *********************************************************************************/
+	static int argb(int rgba, boolean little) {
+		return little ? (rgba & 0xFF00FF00) | ((rgba >>> 16) & 0xFF) | ((rgba & 0xFF) << 16)
+				: (rgba >>> 8) | (rgba << 24);
+	} // argb()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: 0..1 to 0..255
+	 *
+	 *********************************************************************************/
+	static int channel(float v) {
+		return Math.max(0, Math.min(255, Math.round(v * 255f)));
+	} // channel()
+} // PaletteTexture
@@ -0,0 +1,219 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Precomputed interpolation between two palettes, for animations
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+
+/*************************************************************************************
+ *
+ *	<b>PaletteTransition class</b><br><br>
+ *	Animates from one palette to another. All in-between colors are computed once,
+ *	when the transition is made: every slot gets a table of steps colors. Sampling
+ *	the transition (colorAt()) is a table lookup without any allocation, so it can be
+ *	done for many palettes in every frame of a draw() loop.<br>
+ *	Interpolation spaces:<br>
+ *	HSL   - hue along the shortest way around the color wheel, saturation and
+ *	luminosity linear (a gray takes the hue of the other color)<br>
+ *	OKLAB - straight line in OKLab (perceptually even, no muddy middle colors)<br>
+ *	Example:<br>
+ *	PaletteTransition transition = new PaletteTransition(from, to, 256, PaletteTransition.OKLAB);<br>
+ *	fill(transition.colorAt(3, frameCount / 120f));
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+public final class PaletteTransition {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	// Interpolation spaces
+	public static final int HSL   = 0;
+	public static final int OKLAB = 1;
+
+	final int   size;
+	final int   steps;
+	final float maxStep;
+
+	// Colors of slot s at step i: table[s * steps + i] (0xFFRRGGBB)
+	final int[] table;
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the PaletteTransition class<br>
+	 *	Example: PaletteTransition transition = new PaletteTransition(generator.Triads(c1), generator.Triads(c2), 256, PaletteTransition.HSL);
+	 *
+	 *	@param from 	First palette
+	 *	@param to		Last palette (same size)
+	 *	@param _steps	Number of colors per slot, including both ends (at least 2)
+	 *	@param space	HSL or OKLAB
+	 *
+	 *********************************************************************************/
+	public PaletteTransition(Palette from, Palette to, int _steps, int space) {
+		this(from.colors, to.colors, _steps, space);
+	} // PaletteTransition()
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the PaletteTransition class with color arrays (for example
+	 *	the palettes of ColorHarmony)<br>
+	 *	Example: PaletteTransition transition = new PaletteTransition(colorHarmony.Triads("#FF00FF"), colorHarmony.Analogous("#00A0FF"), 256, PaletteTransition.OKLAB);
+	 *
+	 *	@param from 	Colors of the first palette (0xRRGGBB, the alpha bytes are ignored)
+	 *	@param to		Colors of the last palette (same length)
+	 *	@param _steps	Number of colors per slot, including both ends (at least 2)
+	 *	@param space	HSL or OKLAB
+	 *
+	 *********************************************************************************/
+	public PaletteTransition(int[] from, int[] to, int _steps, int space) {
+		if (from.length != to.length) throw new IllegalArgumentException("The palettes must have the same size");
+		if (_steps < 2) throw new IllegalArgumentException("steps must be at least 2");
+		if (space != HSL && space != OKLAB) throw new IllegalArgumentException("Unknown space: " + space);
+
+		size    = from.length;
+		steps   = _steps;
+		maxStep = steps - 1;
+		table   = new int[size * steps];
+		for (int s = 0; s < size; s++) {
+			if (space == HSL) {
+				hsl(from[s], to[s], s * steps);
+			} else {
+				oklab(from[s], to[s], s * steps);
+			}
+		}
+	} // PaletteTransition()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the color of a slot at a point of the transition<br>
+	 *	Example: fill(transition.colorAt(0, t));
+	 *
+	 *	@param slot 	Index of the color in the palette
+	 *	@param t		0 = first palette, 1 = last palette (clamped to 0..1)
+	 *
+	 *	@return			The color (0xFFRRGGBB)
+	 *
+	 *********************************************************************************/
+	public int colorAt(int slot, float t) {
+		return table[slot * steps + step(t)];
+	} // colorAt()
+
+
+	/*********************************************************************************
+	 *
+	 *	Copy all colors at a point of the transition into an array<br>
+	 *	Example: transition.colorsAt(t, colors, 0);
+	 *
+	 *	@param t		0 = first palette, 1 = last palette (clamped to 0..1)
+	 *	@param colors	Receives the colors (0xFFRRGGBB)
+	 *	@param offset	Index in colors for the first color
+	 *
+	 *	@return			The colors array
+	 *
+	 *********************************************************************************/
+	public int[] colorsAt(float t, int[] colors, int offset) {
+		int i = step(t);
+		for (int s = 0; s < size; s++, i += steps) colors[offset + s] = table[i];
+		return colors;
+	} // colorsAt()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the number of colors per palette and the number of steps per slot
+	 *
+	 *********************************************************************************/
+	public int GetSize() {
+		return size;
+	} // GetSize()
+
+	public int GetSteps() {
+		return steps;
+	} // GetSteps()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL METHODS
+	 *
+	 *********************************************************************************/
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Step (0..steps-1) of t, t is clamped to 0..1
+	 *
+	 *********************************************************************************/
+	int step(float t) {
+		if (!(t > 0)) return 0;
+		if (t >= 1) return steps - 1;
+		return (int)(t * maxStep + 0.5f);
+	} // step()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Fill table[offset..offset+steps-1] from c1 to c2 in HSL
+	 *
+	 *********************************************************************************/
+	void hsl(int c1, int c2, int offset) {
+		float h1 = ColorMath.hue(c1);
+		float s1 = ColorMath.saturation(c1);
+		float l1 = ColorMath.luminosity(c1);
+		float h2 = ColorMath.hue(c2);
+		float s2 = ColorMath.saturation(c2);
+		float l2 = ColorMath.luminosity(c2);
+
+		// A gray has no hue: keep the hue of the other color
+		if (s1 == 0) h1 = h2;
+		if (s2 == 0) h2 = h1;
+
+		// Shortest way around the color wheel
+		float dh = h2 - h1;
+		if (dh > 180) dh -= 360;
+		if (dh < -180) dh += 360;
+
+		for (int i = 0; i < steps; i++) {
+			float f = i / maxStep;
+			float h = h1 + dh * f;
+			if (h < 0) h += 360;
+			if (h >= 360) h -= 360;
+			table[offset + i] = ColorMath.OPAQUE | ColorMath.hsl2rgb(h, s1 + (s2 - s1) * f, l1 + (l2 - l1) * f);
+		}
+		// Exact ends
+		table[offset]             = ColorMath.OPAQUE | (c1 & ColorMath.RGB_MASK);
+		table[offset + steps - 1] = ColorMath.OPAQUE | (c2 & ColorMath.RGB_MASK);
+	} // hsl()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Fill table[offset..offset+steps-1] from c1 to c2 in OKLab
+	 *
+	 *********************************************************************************/
+	void oklab(int c1, int c2, int offset) {
+		float[] lab = new float[6];
+		LabMath.oklab(c1, lab, 0);
+		LabMath.oklab(c2, lab, 3);
+		for (int i = 0; i < steps; i++) {
+			float f = i / maxStep;
+			table[offset + i] = LabMath.oklab2rgb(
+					lab[0] + (lab[3] - lab[0]) * f,
+					lab[1] + (lab[4] - lab[1]) * f,
+					lab[2] + (lab[5] - lab[2]) * f);
+		}
+		table[offset]             = ColorMath.OPAQUE | (c1 & ColorMath.RGB_MASK);
+		table[offset + steps - 1] = ColorMath.OPAQUE | (c2 & ColorMath.RGB_MASK);
+	} // oklab()
+} // PaletteTransition
@@ -0,0 +1,428 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Streaming palette export (Adobe ASE, GIMP GPL, CSS and JSON lines)
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+
+/*************************************************************************************
+ *
+ *	<b>PaletteWriter class</b><br><br>
+ *	Writes palettes to a file, one after another. The records are encoded into one
+ *	(reused) direct buffer, which is written to the channel when it is full, so the
+ *	memory use doesn't depend on the number of palettes. Nothing is allocated per
+ *	palette; the hexadecimal digits come from HexCodec.<br><br>
+ *	Formats:<br>
+ *	ASE  - Adobe Swatch Exchange, one group of RGB swatches per palette<br>
+ *	GPL  - GIMP palette, 8 columns<br>
+ *	CSS  - custom properties (--palette-[number]-[slot]: #RRGGBB;) in a :root rule<br>
+ *	JSON - JSON lines, one object per palette:<br>
+ *	{"type":"Triads","base":"#FF00FF","colors":["#FF00FF",...]}<br><br>
+ *	Always close the writer: it writes the last buffer, the end of the file (CSS)
+ *	and the number of blocks (ASE, in the header).<br>
+ *	A writer is not thread safe.
+ *	<br><br>
+ *	Author: Rolf van Gelder | CAGE Web Design<br>
+ *	http://cagewebdev.com/colorharmony-processing-library/<br>
+ *	info@cagewebdev.com
+ *
+ *************************************************************************************/
+public final class PaletteWriter implements Closeable {
+
+	/*********************************************************************************
+	 *
+	 *	Properties
+	 *
+	 *********************************************************************************/
+	// Formats
+	public static final int ASE  = 0;
+	public static final int GPL  = 1;
+	public static final int CSS  = 2;
+	public static final int JSON = 3;
+
+	// Default size of the buffer
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+	// Room for the largest record of one palette (ASE: about 400 bytes)
+	static final int MAX_RECORD = 1024;
+
+	// Name of the GPL palette
+	static final String GPL_NAME = "ColorHarmony";
+
+	// Decimal values 0..255, right aligned in 3 characters (for GPL)
+	static final byte[] DECIMALS = new byte[3 * 256];
+
+	static {
+		for (int v = 0; v < 256; v++) {
+			DECIMALS[3 * v]     = (byte)(v < 100 ? ' ' : '0' + v / 100);
+			DECIMALS[3 * v + 1] = (byte)(v < 10 ? ' ' : '0' + v / 10 % 10);
+			DECIMALS[3 * v + 2] = (byte)('0' + v % 10);
+		}
+	} // static
+
+	final FileChannel channel;
+	final boolean     ownChannel;
+	final int         format;
+	final ByteBuffer  buffer;
+	final long        start;
+
+	// Scratch for the UTF-16 names of ASE
+	final char[] name = new char[32];
+
+	long    count;
+	long    blocks;
+	boolean closed;
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the PaletteWriter class: create (or overwrite) a file<br>
+	 *	Example: PaletteWriter writer = new PaletteWriter(Paths.get("palettes.ase"), PaletteWriter.ASE);
+	 *
+	 *	@param path 	File to write
+	 *	@param format	ASE, GPL, CSS or JSON
+	 *
+	 *********************************************************************************/
+	public PaletteWriter(Path path, int format) throws IOException {
+		this(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING), true, format, DEFAULT_BUFFER_SIZE);
+	} // PaletteWriter()
+
+
+	/*********************************************************************************
+	 *
+	 *	Constructor for the PaletteWriter class: write to an open channel, from its
+	 *	current position (the channel is not closed by close())
+	 *
+	 *	@param channel 		Channel to write to
+	 *	@param format		ASE, GPL, CSS or JSON
+	 *	@param bufferSize	Size of the buffer in bytes (at least 1024)
+	 *
+	 *********************************************************************************/
+	public PaletteWriter(FileChannel channel, int format, int bufferSize) throws IOException {
+		this(channel, false, format, bufferSize);
+	} // PaletteWriter()
+
+
+	PaletteWriter(FileChannel _channel, boolean _ownChannel, int _format, int bufferSize) throws IOException {
+		if (_format < ASE || _format > JSON) {
+			if (_ownChannel) _channel.close();
+			throw new IllegalArgumentException("Unknown format: " + _format);
+		}
+		if (bufferSize < MAX_RECORD) {
+			if (_ownChannel) _channel.close();
+			throw new IllegalArgumentException("Buffer too small: " + bufferSize);
+		}
+		channel    = _channel;
+		ownChannel = _ownChannel;
+		format     = _format;
+		buffer     = ByteBuffer.allocateDirect(bufferSize);
+		start      = channel.position();
+		writeHeader();
+	} // PaletteWriter()
+
+
+	/*********************************************************************************
+	 *
+	 *	Write a palette<br>
+	 *	Example: writer.Write(generator.Triads(0xFF00FF));
+	 *
+	 *********************************************************************************/
+	public void Write(Palette palette) throws IOException {
+		Write(palette.type, palette.colors, 0, palette.colors.length);
+	} // Write()
+
+
+	/*********************************************************************************
+	 *
+	 *	Write a palette from a packed colors array (as filled by the generators)<br>
+	 *	Example: writer.Write(3, colors, 0, 8);
+	 *
+	 *	@param type 	Palette type [int 0..3 = monochromatic, analogous, complementary, triads]
+	 *	@param colors	Colors (0xRRGGBB, the alpha byte is ignored), the first color
+	 *					is the base color
+	 *	@param offset	Index of the first color
+	 *	@param size		Number of colors (1..8)
+	 *
+	 *********************************************************************************/
+	public void Write(int type, int[] colors, int offset, int size) throws IOException {
+		if (closed) throw new IOException("PaletteWriter is closed");
+		if (type < 0 || type >= Palette.TYPE_NAMES.length) {
+			throw new IllegalArgumentException("Unknown palette type: " + type);
+		}
+		if (size < 1 || size > PaletteGenerator.SIZE) {
+			throw new IllegalArgumentException("Palette size must be 1.." + PaletteGenerator.SIZE);
+		}
+		if (buffer.remaining() < MAX_RECORD) flushBuffer();
+
+		switch (format) {
+			case ASE:
+				writeASE(type, colors, offset, size);
+				break;
+			case GPL:
+				writeGPL(type, colors, offset, size);
+				break;
+			case CSS:
+				writeCSS(colors, offset, size);
+				break;
+			default:
+				writeJSON(type, colors, offset, size);
+		}
+		count++;
+	} // Write()
+
+
+	/*********************************************************************************
+	 *
+	 *	Write all palettes of a stream, in order<br>
+	 *	Example: writer.WriteAll(generator.RandomPalettes(seed, 10000000));
+	 *
+	 *	@return		Number of palettes written
+	 *
+	 *********************************************************************************/
+	public long WriteAll(Stream<Palette> palettes) throws IOException {
+		long n = 0;
+		for (Iterator<Palette> it = palettes.iterator(); it.hasNext(); n++) Write(it.next());
+		return n;
+	} // WriteAll()
+
+
+	/*********************************************************************************
+	 *
+	 *	Write the buffered records to the channel
+	 *
+	 *********************************************************************************/
+	public void Flush() throws IOException {
+		if (closed) throw new IOException("PaletteWriter is closed");
+		flushBuffer();
+	} // Flush()
+
+
+	/*********************************************************************************
+	 *
+	 *	Return the number of palettes written
+	 *
+	 *********************************************************************************/
+	public long GetCount() {
+		return count;
+	} // GetCount()
+
+
+	/*********************************************************************************
+	 *
+	 *	Finish the file and close it (if the writer opened it)
+	 *
+	 *********************************************************************************/
+	@Override
+	public void close() throws IOException {
+		if (closed) return;
+		closed = true;
+		try {
+			if (format == CSS) buffer.put((byte)'}').put((byte)'\n');
+			flushBuffer();
+			if (format == ASE) {
+				// The number of blocks is only known now
+				ByteBuffer header = ByteBuffer.allocate(4);
+				header.putInt(0, (int)blocks);
+				channel.write(header, start + 8);
+			}
+		} finally {
+			if (ownChannel) channel.close();
+		}
+	} // close()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL METHODS
+	 *
+	 *********************************************************************************/
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Write the start of the file
+	 *
+	 *********************************************************************************/
+	void writeHeader() {
+		switch (format) {
+			case ASE:
+				// Signature, version 1.0, number of blocks (filled in by close())
+				buffer.put((byte)'A').put((byte)'S').put((byte)'E').put((byte)'F')
+						.putShort((short)1).putShort((short)0).putInt(0);
+				break;
+			case GPL:
+				ascii("GIMP Palette\nName: " + GPL_NAME + "\nColumns: 8\n#\n");
+				break;
+			case CSS:
+				ascii(":root {\n");
+				break;
+			default:
+		}
+	} // writeHeader()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Adobe Swatch Exchange: a group (named "[type] [base]") with the
+	 *	swatches (named "[RRGGBB]"), big endian
+	 *
+	 *********************************************************************************/
+	void writeASE(int type, int[] colors, int offset, int size) {
+		String typeName = Palette.TYPE_NAMES[type];
+		int    length   = typeName.length();
+		typeName.getChars(0, length, name, 0);
+		name[length] = ' ';
+		int nameEnd = HexCodec.format(colors[offset], name, length + 1);
+
+		// Group start: name length (with the terminating 0) and the UTF-16 name
+		buffer.putShort((short)0xC001).putInt(2 + 2 * (nameEnd + 1)).putShort((short)(nameEnd + 1));
+		utf16(nameEnd);
+
+		for (int i = offset; i < offset + size; i++) {
+			int rgb = colors[i];
+			HexCodec.format(rgb, name, 0);
+			// Swatch: name, color model, 3 floats (0..1), color type (2 = normal)
+			buffer.putShort((short)0x0001).putInt(2 + 2 * 7 + 4 + 12 + 2).putShort((short)7);
+			utf16(6);
+			buffer.put((byte)'R').put((byte)'G').put((byte)'B').put((byte)' ')
+					.putFloat(ColorMath.red(rgb) / 255f)
+					.putFloat(ColorMath.green(rgb) / 255f)
+					.putFloat(ColorMath.blue(rgb) / 255f)
+					.putShort((short)2);
+		}
+		// Group end
+		buffer.putShort((short)0xC002).putInt(0);
+		blocks += size + 2;
+	} // writeASE()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: GIMP palette: "RRR GGG BBB\t[type] [base] [slot]" per color
+	 *
+	 *********************************************************************************/
+	void writeGPL(int type, int[] colors, int offset, int size) {
+		int base = colors[offset];
+		for (int i = 0; i < size; i++) {
+			int rgb = colors[offset + i];
+			buffer.put(DECIMALS, 3 * ColorMath.red(rgb), 3).put((byte)' ')
+					.put(DECIMALS, 3 * ColorMath.green(rgb), 3).put((byte)' ')
+					.put(DECIMALS, 3 * ColorMath.blue(rgb), 3).put((byte)'\t');
+			ascii(Palette.TYPE_NAMES[type]);
+			buffer.put((byte)' ');
+			HexCodec.format(base, buffer).put((byte)' ').put((byte)('1' + i)).put((byte)'\n');
+		}
+	} // writeGPL()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: CSS custom properties: "  --palette-[number]-[slot]: #RRGGBB;"
+	 *
+	 *********************************************************************************/
+	void writeCSS(int[] colors, int offset, int size) {
+		for (int i = 0; i < size; i++) {
+			ascii("  --palette-");
+			decimal(count + 1);
+			buffer.put((byte)'-').put((byte)('1' + i)).put((byte)':').put((byte)' ').put((byte)'#');
+			HexCodec.format(colors[offset + i], buffer).put((byte)';').put((byte)'\n');
+		}
+	} // writeCSS()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: JSON line
+	 *
+	 *********************************************************************************/
+	void writeJSON(int type, int[] colors, int offset, int size) {
+		json(type, colors, offset, size, buffer);
+	} // writeJSON()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Put the JSON object of a palette (and a newline), also used by
+	 *	PaletteServer
+	 *
+	 *********************************************************************************/
+	static ByteBuffer json(int type, int[] colors, int offset, int size, ByteBuffer buffer) {
+		ascii("{\"type\":\"", buffer);
+		ascii(Palette.TYPE_NAMES[type], buffer);
+		ascii("\",\"base\":\"#", buffer);
+		HexCodec.format(colors[offset], buffer);
+		ascii("\",\"colors\":[", buffer);
+		for (int i = 0; i < size; i++) {
+			if (i > 0) buffer.put((byte)',');
+			HexCodec.format(colors[offset + i], buffer.put((byte)'"').put((byte)'#')).put((byte)'"');
+		}
+		ascii("]}\n", buffer);
+		return buffer;
+	} // json()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Write the buffer to the channel and clear it
+	 *
+	 *********************************************************************************/
+	void flushBuffer() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) channel.write(buffer);
+		buffer.clear();
+	} // flushBuffer()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Put the characters of a (7 bit) string
+	 *
+	 *********************************************************************************/
+	void ascii(String s) {
+		ascii(s, buffer);
+	} // ascii()
+
+	static void ascii(String s, ByteBuffer buffer) {
+		for (int i = 0, n = s.length(); i < n; i++) buffer.put((byte)s.charAt(i));
+	} // ascii()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Put name[0..length-1] as UTF-16, with a terminating 0
+	 *
+	 *********************************************************************************/
+	void utf16(int length) {
+		for (int i = 0; i < length; i++) buffer.putChar(name[i]);
+		buffer.putChar((char)0);
+	} // utf16()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Put the decimal digits of a (positive) number
+	 *
+	 *********************************************************************************/
+	void decimal(long value) {
+		int end = name.length;
+		int i   = end;
+		do {
+			name[--i] = (char)('0' + value % 10);
+			value /= 10;
+		} while (value > 0);
+		while (i < end) buffer.put((byte)name[i++]);
+	} // decimal()
+} // PaletteWriter
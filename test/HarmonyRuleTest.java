@@ -0,0 +1,102 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	The built-in harmony rules against the palette generators
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+
+/*************************************************************************************
+ *
+ *	<b>HarmonyRuleTest class</b><br><br>
+ *	PaletteGenerator sends the built-in rules (HarmonyRule.MONOCHROMATIC, ...) to
+ *	the hand-written generators of PackedPalettes, so their plans only run when
+ *	rule.generate() is called directly. These tests keep both descriptions of the
+ *	palette types the same: every plan must give the colors of
+ *	PackedPalettes.generate() for a spread of base colors and min/max values.
+ *
+ *************************************************************************************/
+public class HarmonyRuleTest {
+
+	// Min/max saturation and luminosity: none, the ColorHarmony defaults, a single
+	// value and limits that correct most colors
+	static final int[][] LIMITS = {
+		{ 0, 100, 0, 100 },
+		{ 10, 60, 20, 60 },
+		{ 30, 30, 50, 50 },
+		{ 0, 20, 70, 100 },
+		{ 80, 100, 0, 30 }
+	};
+
+	// Step through the 2^24 colors (a prime, so all channel values are visited)
+	static final int STEP = 97;
+
+
+	@Test
+	public void builtInTypes() {
+		for (int type = 0; type < PaletteGenerator.TYPES; type++) {
+			assertEquals(type, HarmonyRule.TYPES[type].GetType());
+			assertEquals(PaletteGenerator.SIZE, HarmonyRule.TYPES[type].GetSize());
+		}
+	} // builtInTypes()
+
+
+	@Test
+	public void monochromatic() {
+		assertSamePalettes(0);
+	} // monochromatic()
+
+
+	@Test
+	public void analogous() {
+		assertSamePalettes(1);
+	} // analogous()
+
+
+	@Test
+	public void complementary() {
+		assertSamePalettes(2);
+	} // complementary()
+
+
+	@Test
+	public void triads() {
+		assertSamePalettes(3);
+	} // triads()
+
+
+	/*********************************************************************************
+	 *
+	 *	The plan of the built-in rule of a type against PackedPalettes.generate(),
+	 *	also with an alpha byte in the base color and for the grays
+	 *
+	 *********************************************************************************/
+	static void assertSamePalettes(int type) {
+		HarmonyRule rule     = HarmonyRule.TYPES[type];
+		int[]       expected = new int[PaletteGenerator.SIZE];
+		int[]       actual   = new int[PaletteGenerator.SIZE];
+		for (int[] limits : LIMITS) {
+			for (int rgb = 0; rgb < 1 << 24; rgb += STEP) {
+				assertSamePalette(type, rule, rgb | (rgb << 7 & ColorMath.OPAQUE), limits, expected, actual);
+			}
+			for (int gray = 0; gray < 256; gray++) {
+				assertSamePalette(type, rule, gray * 0x010101, limits, expected, actual);
+			}
+		}
+	} // assertSamePalettes()
+
+
+	static void assertSamePalette(int type, HarmonyRule rule, int rgb, int[] limits, int[] expected, int[] actual) {
+		PackedPalettes.generate(type, rgb, limits[0], limits[1], limits[2], limits[3], expected, 0);
+		rule.generate(rgb, limits[0], limits[1], limits[2], limits[3], actual, 0);
+		assertArrayEquals(rule.GetName() + " of " + Integer.toHexString(rgb) + " with " + limits[0] + ".." + limits[1]
+				+ " / " + limits[2] + ".." + limits[3], expected, actual);
+	} // assertSamePalette()
+} // HarmonyRuleTest
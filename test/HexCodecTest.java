@@ -0,0 +1,147 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Parsing and formatting of hexadecimal colors
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+
+/*************************************************************************************
+ *
+ *	<b>HexCodecTest class</b><br><br>
+ *	Every decode() variant gets the same input, so the String, char[], byte[] and
+ *	ByteBuffer parsers must agree.
+ *
+ *************************************************************************************/
+public class HexCodecTest {
+
+	@Test
+	public void acceptedLengths() {
+		assertDecodes(0xFFFF00FFL, "#FF00FF");
+		assertDecodes(0xFFFF00FFL, "ff00ff");
+		assertDecodes(0xFF3366CCL, "#3366Cc");
+		assertDecodes(0xFF3366CCL, "36c");
+		assertDecodes(0xFF3366CCL, "#36C");
+		assertDecodes(0x803366CCL, "#803366CC");
+		assertDecodes(0x003366CCL, "003366cc");
+		assertDecodes(0xFFFFFFFFL, "#FFFFFFFF");
+		assertDecodes(0xFF000000L, "000");
+	} // acceptedLengths()
+
+
+	@Test
+	public void invalidColors() {
+		String[] invalid = {
+			"", "#", "##FF00FF", "F", "FF", "#FF00", "FF00F", "FF00FFF", "#FF00FFFF0", "FF00FF00FF",
+			"GG00FF", "#FF00FG", "FF 0FF", "-FF00F", "+F0", "FF00FF#", "0xFF00FF", "\uFF26\uFF2600FF", "FF00F\u00E9"
+		};
+		for (String hex : invalid) {
+			assertDecodes(HexCodec.INVALID, hex);
+			assertFalse(hex, HexCodec.isValid(hex));
+			try {
+				HexCodec.parse(hex);
+				throw new AssertionError("parse(\"" + hex + "\") did not throw");
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	} // invalidColors()
+
+
+	@Test
+	public void digits() {
+		for (int c = -1; c < 0x10000; c++) {
+			int expected = Character.digit(c, 16);
+			// Only ASCII digits, Character.digit() also accepts full width digits
+			if (c >= 128) expected = -1;
+			assertEquals(Integer.toString(c), expected, HexCodec.digit(c));
+		}
+	} // digits()
+
+
+	@Test
+	public void rangesOfLongerInput() {
+		String line = "color: #3366CC;";
+		assertEquals(0xFF3366CCL, HexCodec.decode(line, 7, 14));
+		assertEquals(0xFF3366CCL, HexCodec.decode(line.toCharArray(), 8, 14));
+		assertEquals(0xFF3366CCL, HexCodec.decode(line.getBytes(StandardCharsets.US_ASCII), 7, 14));
+
+		// Absolute indexes, the position of the buffer stays where it was
+		ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.US_ASCII));
+		buffer.position(3);
+		assertEquals(0xFF3366CCL, HexCodec.decode(buffer, 7, 14));
+		assertEquals(3, buffer.position());
+	} // rangesOfLongerInput()
+
+
+	@Test
+	public void parse() {
+		assertEquals(0xFFFF00FF, HexCodec.parse("#FF00FF"));
+		assertEquals(0x80FF00FF, HexCodec.parse("80ff00ff"));
+		assertTrue(HexCodec.isValid(new StringBuilder("#abc")));
+	} // parse()
+
+
+	/*********************************************************************************
+	 *
+	 *	All format() variants give the digits of toHex(), formatARGB() adds the alpha
+	 *	byte, and the digits decode to the same color
+	 *
+	 *********************************************************************************/
+	@Test
+	public void formatAgreesWithToHex() {
+		for (long n = 0; n < 1L << 32; n += 0x10001L * 97) {
+			int    argb = (int)n;
+			String hex  = HexCodec.toHex(argb);
+			String full = String.format("%08X", argb);
+			assertEquals(full.substring(2), hex);
+
+			assertEquals(hex, HexCodec.format(argb, new StringBuilder()).toString());
+			char[] chars = new char[8];
+			assertEquals(7, HexCodec.format(argb, chars, 1));
+			assertEquals(hex, new String(chars, 1, 6));
+			assertEquals(hex, ascii(HexCodec.format(argb, ByteBuffer.allocate(6))));
+
+			assertEquals(full, HexCodec.formatARGB(argb, new StringBuilder()).toString());
+			assertEquals(8, HexCodec.formatARGB(argb, chars, 0));
+			assertEquals(full, new String(chars));
+			assertEquals(full, ascii(HexCodec.formatARGB(argb, ByteBuffer.allocate(8))));
+
+			assertEquals(argb | ColorMath.OPAQUE, HexCodec.parse(hex));
+			assertEquals(argb, HexCodec.parse("#" + full));
+		}
+	} // formatAgreesWithToHex()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL METHODS
+	 *
+	 *********************************************************************************/
+
+
+	// The same result from every decode() variant
+	static void assertDecodes(long expected, String hex) {
+		byte[] bytes = hex.getBytes(StandardCharsets.UTF_8);
+		assertEquals(hex, expected, HexCodec.decode(hex, 0, hex.length()));
+		assertEquals(hex, expected, HexCodec.decode(hex.toCharArray(), 0, hex.length()));
+		assertEquals(hex, expected, HexCodec.decode(bytes, 0, bytes.length));
+		assertEquals(hex, expected, HexCodec.decode(ByteBuffer.wrap(bytes), 0, bytes.length));
+	} // assertDecodes()
+
+
+	static String ascii(ByteBuffer buffer) {
+		return new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+	} // ascii()
+} // HexCodecTest
@@ -0,0 +1,231 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Eviction, statistics and concurrent use of the palette cache
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+
+/*************************************************************************************
+ *
+ *	<b>PaletteCacheTest class</b><br><br>
+ *	Eviction is per segment, so the eviction tests only use keys of one segment
+ *	(4 entries in a cache of 64 palettes with 16 segments).
+ *
+ *************************************************************************************/
+public class PaletteCacheTest {
+
+	@Test
+	public void lruEvictsLeastRecentlyUsed() {
+		PaletteCache cache = new PaletteCache(64, PaletteCache.LRU);
+		long[] keys = keysOfSegment(cache, 5);
+		for (int i = 0; i < 4; i++) put(cache, keys[i]);
+
+		// Using the first key makes the second the least recently used one
+		assertTrue(cache.get(keys[0], new int[PaletteCache.SLOTS], 0));
+		put(cache, keys[4]);
+
+		assertTrue(contains(cache, keys[0]));
+		assertFalse(contains(cache, keys[1]));
+		assertTrue(contains(cache, keys[2]));
+		assertTrue(contains(cache, keys[3]));
+		assertTrue(contains(cache, keys[4]));
+		assertEquals(1, cache.GetEvictions());
+	} // lruEvictsLeastRecentlyUsed()
+
+
+	@Test
+	public void fifoEvictsFirstInserted() {
+		PaletteCache cache = new PaletteCache(64, PaletteCache.FIFO);
+		long[] keys = keysOfSegment(cache, 6);
+		for (int i = 0; i < 4; i++) put(cache, keys[i]);
+
+		// Reads and updates don't change the order
+		assertTrue(cache.get(keys[0], new int[PaletteCache.SLOTS], 0));
+		put(cache, keys[0]);
+		put(cache, keys[4]);
+		put(cache, keys[5]);
+
+		assertFalse(contains(cache, keys[0]));
+		assertFalse(contains(cache, keys[1]));
+		assertTrue(contains(cache, keys[2]));
+		assertTrue(contains(cache, keys[3]));
+		assertTrue(contains(cache, keys[4]));
+		assertTrue(contains(cache, keys[5]));
+		assertEquals(2, cache.GetEvictions());
+	} // fifoEvictsFirstInserted()
+
+
+	@Test
+	public void hitsAndMisses() {
+		PaletteCache cache = new PaletteCache(100);
+		int[] out = new int[PaletteCache.SLOTS + 2];
+		long key = PaletteCache.key(0xFF00FF, 3, 10, 60, 20, 60);
+
+		assertFalse(cache.get(key, out, 2));
+		put(cache, key);
+		assertTrue(cache.get(key, out, 2));
+		assertArrayEquals(palette(key), Arrays.copyOfRange(out, 2, out.length));
+		assertTrue(cache.get(key, out, 0));
+
+		// Keys that can't be packed are never stored and don't count as lookups
+		assertEquals(-1, PaletteCache.key(0xFF00FF, 3, 10, 160, 20, 60));
+		cache.put(-1, out, 0);
+		assertFalse(cache.get(-1, out, 0));
+
+		assertEquals(2, cache.GetHits());
+		assertEquals(1, cache.GetMisses());
+		assertEquals(2f / 3f, cache.GetHitRate(), 1e-6f);
+		assertEquals(1, cache.GetSize());
+		assertEquals(100, cache.GetMaxSize());
+
+		// Clear() removes the palettes and keeps the statistics
+		cache.Clear();
+		assertEquals(0, cache.GetSize());
+		assertFalse(cache.get(key, out, 0));
+		assertEquals(2, cache.GetHits());
+		assertEquals(2, cache.GetMisses());
+	} // hitsAndMisses()
+
+
+	@Test
+	public void neverExceedsMaxSize() {
+		for (int maxSize : new int[] { 1, 3, 15, 17, 1000 }) {
+			PaletteCache cache = new PaletteCache(maxSize);
+			for (int rgb = 0; rgb < 5000; rgb++) put(cache, PaletteCache.key(rgb, 0, 0, 100, 0, 100));
+			assertTrue(cache.GetSize() <= maxSize);
+			assertEquals(5000 - cache.GetSize(), cache.GetEvictions());
+		}
+	} // neverExceedsMaxSize()
+
+
+	/*********************************************************************************
+	 *
+	 *	Readers get the palette of their key (or a miss) while other threads keep
+	 *	storing and evicting palettes
+	 *
+	 *********************************************************************************/
+	@Test
+	public void concurrentReaders() throws InterruptedException {
+		final PaletteCache cache = new PaletteCache(2000);
+		final int threads = 8;
+		final int lookups = 200000;
+		final AtomicLong wrong = new AtomicLong();
+		final AtomicLong found = new AtomicLong();
+
+		List<Thread> workers = new ArrayList<Thread>();
+		for (int t = 0; t < threads; t++) {
+			final boolean writer = t % 4 == 0;
+			final int seed = t;
+			workers.add(new Thread(new Runnable() {
+				@Override
+				public void run() {
+					int[] out = new int[PaletteCache.SLOTS];
+					int rgb = seed * 7919;
+					for (int n = 0; n < lookups; n++) {
+						rgb = (rgb * 1103515245 + 12345) & 0xFFF;
+						long key = PaletteCache.key(rgb, n & 3, 10, 60, 20, 60);
+						if (writer) {
+							put(cache, key);
+						} else if (cache.get(key, out, 0)) {
+							found.incrementAndGet();
+							if (!Arrays.equals(palette(key), out)) wrong.incrementAndGet();
+						}
+					}
+				} // run()
+			}));
+		}
+		for (Thread worker : workers) worker.start();
+		for (Thread worker : workers) worker.join();
+
+		assertEquals(0, wrong.get());
+		assertEquals(found.get(), cache.GetHits());
+		assertEquals((long)(threads - threads / 4) * lookups, cache.GetHits() + cache.GetMisses());
+		assertTrue(cache.GetSize() <= 2000);
+	} // concurrentReaders()
+
+
+	/*********************************************************************************
+	 *
+	 *	The segment and the slot of a key come from independent hash bits: a full
+	 *	cache of random keys needs few probes per key
+	 *
+	 *********************************************************************************/
+	@Test
+	public void shortProbeSequences() {
+		for (int maxSize : new int[] { 500, 10000, 100000 }) {
+			PaletteCache cache = new PaletteCache(maxSize);
+			Random random = new Random(maxSize);
+			for (int i = 0; i < maxSize; i++) {
+				put(cache, PaletteCache.key(random.nextInt(1 << 24), random.nextInt(4), 10, 60, 20, 60));
+			}
+
+			long probes = 0, entries = 0;
+			for (PaletteCache.Segment segment : cache.segments) {
+				for (int slot = 0; slot < segment.table.length; slot++) {
+					if (segment.table[slot] == 0) continue;
+					int home = PaletteCache.hash(segment.keys[segment.table[slot] - 1]) & segment.mask;
+					probes += ((slot - home) & segment.mask) + 1;
+					entries++;
+				}
+			}
+			assertTrue(maxSize + ": " + probes + " probes for " + entries + " keys", probes < 2 * entries);
+		}
+	} // shortProbeSequences()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL METHODS
+	 *
+	 *********************************************************************************/
+
+
+	// Keys that all go to the first segment
+	static long[] keysOfSegment(PaletteCache cache, int count) {
+		long[] keys = new long[count];
+		int found = 0;
+		for (int rgb = 0; found < count; rgb++) {
+			long key = PaletteCache.key(rgb, 0, 10, 60, 20, 60);
+			if (cache.segmentFor(key) == cache.segments[0]) keys[found++] = key;
+		}
+		return keys;
+	} // keysOfSegment()
+
+
+	// A palette that tells which key it was stored with
+	static int[] palette(long key) {
+		int[] colors = new int[PaletteCache.SLOTS];
+		for (int i = 0; i < colors.length; i++) colors[i] = (int)(key >>> i) ^ i;
+		return colors;
+	} // palette()
+
+
+	static void put(PaletteCache cache, long key) {
+		cache.put(key, palette(key), 0);
+	} // put()
+
+
+	// Checks the palette without counting a lookup
+	static boolean contains(PaletteCache cache, long key) {
+		PaletteCache.Segment segment = cache.segmentFor(key);
+		synchronized (segment) {
+			return segment.find(key) >= 0;
+		}
+	} // contains()
+} // PaletteCacheTest
@@ -0,0 +1,190 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Palette index file: header, layout and min/max checks
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/*************************************************************************************
+ *
+ *	<b>PaletteIndexTest class</b><br><br>
+ *	A complete index is 1.5 GB, so the tests build a small one: the header of
+ *	Build() and the palettes of the first and the last chunk of base colors of
+ *	every type (the ends of the four mappings), written by the build tasks into a
+ *	sparse file of the full size.
+ *
+ *************************************************************************************/
+public class PaletteIndexTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	final PaletteGenerator generator = new PaletteGenerator(10, 60, 20, 60);
+
+
+	@Test
+	public void palettesMatchTheGenerator() throws IOException {
+		PaletteIndex index = PaletteIndex.Open(build(generator));
+		assertTrue(index.Matches(generator));
+		assertEquals(10, index.GetMinSaturation());
+		assertEquals(60, index.GetMaxSaturation());
+		assertEquals(20, index.GetMinLuminosity());
+		assertEquals(60, index.GetMaxLuminosity());
+
+		assertEquals(generator.Triads(0xFF00FF), index.Triads(0xFF00FF));
+		assertEquals(generator.Monochromatic(0xFFFFFF), index.Monochromatic(0xFFFFFF));
+		assertEquals(generator.Analogous(0), index.Analogous(0));
+		assertEquals(generator.Complementary(0x00FFFF), index.Complementary(0x00FFFF));
+
+		int[] expected = new int[PaletteGenerator.SIZE];
+		int[] actual   = new int[PaletteGenerator.SIZE + 1];
+		for (int type = 0; type < PaletteGenerator.TYPES; type++) {
+			for (int n = 0; n < PaletteIndex.CHUNK; n += 13) {
+				for (int rgb : new int[] { n, PaletteIndex.COLORS - 1 - n }) {
+					generator.generate(type, rgb, expected, 0);
+					index.generate(type, rgb | ColorMath.OPAQUE, actual, 1);
+					assertArrayEquals(type + " " + Integer.toHexString(rgb), expected,
+							Arrays.copyOfRange(actual, 1, actual.length));
+				}
+			}
+		}
+	} // palettesMatchTheGenerator()
+
+
+	@Test
+	public void generatorUsesTheIndex() throws IOException {
+		PaletteIndex index = PaletteIndex.Open(build(generator));
+		PaletteGenerator indexed = generator.WithIndex(index);
+		assertSame(index, indexed.GetPaletteIndex());
+		for (int rgb = 0; rgb < PaletteIndex.CHUNK; rgb += 101) {
+			assertEquals(generator.Triads(rgb), indexed.Triads(rgb));
+			assertEquals(generator.Monochromatic(rgb), indexed.Monochromatic(rgb));
+		}
+	} // generatorUsesTheIndex()
+
+
+	/*********************************************************************************
+	 *
+	 *	An index built for other min/max values (or with other values in its header)
+	 *	is rejected by a generator
+	 *
+	 *********************************************************************************/
+	@Test
+	public void otherMinMaxValuesAreRejected() throws IOException {
+		Path path = build(generator);
+		PaletteIndex index = PaletteIndex.Open(path);
+		PaletteGenerator other = new PaletteGenerator(0, 100, 0, 100);
+		assertFalse(index.Matches(other));
+		assertRejected(other, index);
+
+		// Max luminosity 70 instead of 60 in the header
+		patch(path, 20, 70);
+		index = PaletteIndex.Open(path);
+		assertEquals(70, index.GetMaxLuminosity());
+		assertFalse(index.Matches(generator));
+		assertRejected(generator, index);
+		assertTrue(index.Matches(new PaletteGenerator(10, 60, 20, 70)));
+
+		// No index: back to generating
+		assertNull(generator.WithIndex(null).GetPaletteIndex());
+	} // otherMinMaxValuesAreRejected()
+
+
+	@Test
+	public void invalidFilesAreRejected() throws IOException {
+		assertNotOpened(patch(build(generator), 0, 0x43485050), "Not a palette index");
+		assertNotOpened(patch(build(generator), 4, PaletteIndex.VERSION + 1), "Unsupported");
+		assertNotOpened(patch(build(generator), 24, PaletteGenerator.TYPES + 1), "Unsupported");
+		assertNotOpened(patch(build(generator), 28, PaletteGenerator.SIZE - 1), "Unsupported");
+
+		Path path = build(generator);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.truncate(PaletteIndex.FILE_SIZE - 1);
+		}
+		assertNotOpened(path, "Incomplete");
+
+		assertNotOpened(folder.newFile().toPath(), "Not a palette index");
+	} // invalidFilesAreRejected()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL METHODS
+	 *
+	 *********************************************************************************/
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL: Small index: the first and the last chunk of every type in a sparse
+	 *	file of the full size
+	 *
+	 *********************************************************************************/
+	Path build(PaletteGenerator generator) throws IOException {
+		Path path = folder.newFile().toPath();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			PaletteIndex.write(channel, PaletteIndex.header(generator), 0);
+			for (int type = 0; type < PaletteGenerator.TYPES; type++) {
+				int first = type * PaletteIndex.COLORS;
+				int last  = first + PaletteIndex.COLORS - PaletteIndex.CHUNK;
+				new PaletteIndex.BuildTask(channel, generator, first, first + PaletteIndex.CHUNK).invoke();
+				new PaletteIndex.BuildTask(channel, generator, last, last + PaletteIndex.CHUNK).invoke();
+			}
+			assertEquals(PaletteIndex.FILE_SIZE, channel.size());
+		}
+		return path;
+	} // build()
+
+
+	// Overwrite an int of the header
+	static Path patch(Path path, int offset, int value) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			ByteBuffer buffer = ByteBuffer.allocate(4);
+			buffer.putInt(0, value);
+			PaletteIndex.write(channel, buffer, offset);
+		}
+		return path;
+	} // patch()
+
+
+	static void assertRejected(PaletteGenerator generator, PaletteIndex index) {
+		try {
+			generator.WithIndex(index);
+			fail("WithIndex() accepted an index for other min/max values");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	} // assertRejected()
+
+
+	static void assertNotOpened(Path path, String message) {
+		try {
+			PaletteIndex.Open(path);
+			fail("Open() accepted " + message);
+		} catch (IOException e) {
+			assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+		}
+	} // assertNotOpened()
+} // PaletteIndexTest
@@ -0,0 +1,260 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	The HTTP palette service on localhost
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+
+/*************************************************************************************
+ *
+ *	<b>PaletteServerTest class</b><br><br>
+ *	One server on a free port of the loopback address for all tests, requests with
+ *	HttpURLConnection.
+ *
+ *************************************************************************************/
+public class PaletteServerTest {
+
+	static PaletteGenerator generator;
+	static PaletteServer    server;
+
+
+	@BeforeClass
+	public static void start() throws IOException {
+		generator = new PaletteGenerator(10, 60, 20, 60);
+		server    = new PaletteServer(generator, 0).Start();
+		assertTrue(server.GetPort() > 0);
+	} // start()
+
+
+	@AfterClass
+	public static void stop() {
+		server.close();
+	} // stop()
+
+
+	@Test
+	public void palette() throws IOException {
+		Response response = get("/palette/triads/FF00FF", null);
+		assertEquals(200, response.status);
+		assertEquals(PaletteServer.JSON, response.header("Content-Type"));
+		assertEquals(PaletteServer.CACHE_PALETTE, response.header("Cache-Control"));
+		assertEquals(json(3, 0xFF00FF), response.body);
+
+		// Type number or any case, 3 digits, '#' (encoded)
+		assertEquals(json(3, 0xFF00FF), get("/palette/3/F0F", null).body);
+		assertEquals(json(3, 0xFF00FF), get("/palette/TRIADS/%23ff00ff", null).body);
+		assertEquals(json(0, 0x3366CC), get("/palette/monochromatic/3366CC", null).body);
+		assertEquals(json(1, 0x3366CC), get("/palette/Analogous/36c", null).body);
+		assertEquals(json(2, 0), get("/palette/2/000000", null).body);
+	} // palette()
+
+
+	/*********************************************************************************
+	 *
+	 *	The ETag is the cache key of the palette: a matching If-None-Match (the tag,
+	 *	a weak tag, a list or *) gets 304 without a body, another tag gets the palette
+	 *
+	 *********************************************************************************/
+	@Test
+	public void notModified() throws IOException {
+		String etag = get("/palette/triads/FF00FF", null).header("ETag");
+		assertEquals("\"" + Long.toHexString(PaletteCache.key(0xFF00FF, 3, 10, 60, 20, 60)) + "\"", etag);
+		assertEquals(etag, get("/palette/3/f0f", null).header("ETag"));
+
+		for (String ifNoneMatch : new String[] { etag, "W/" + etag, "\"1\", " + etag, "*" }) {
+			Response response = get("/palette/triads/FF00FF", ifNoneMatch);
+			assertEquals(ifNoneMatch, 304, response.status);
+			assertEquals(etag, response.header("ETag"));
+			assertEquals("", response.body);
+		}
+
+		String other = get("/palette/complementary/FF00FF", null).header("ETag");
+		Response response = get("/palette/triads/FF00FF", other);
+		assertEquals(200, response.status);
+		assertEquals(json(3, 0xFF00FF), response.body);
+	} // notModified()
+
+
+	@Test
+	public void head() throws IOException {
+		Response get  = get("/palette/analogous/3366CC", null);
+		Response head = request("HEAD", "/palette/analogous/3366CC", null);
+		assertEquals(200, head.status);
+		assertEquals("", head.body);
+		assertEquals(get.header("ETag"), head.header("ETag"));
+		assertEquals(PaletteServer.JSON, head.header("Content-Type"));
+		assertEquals(404, request("HEAD", "/nothing", null).status);
+	} // head()
+
+
+	@Test
+	public void badRequest() throws IOException {
+		assertError(400, "Unknown palette type", get("/palette/tetrads/FF00FF", null));
+		assertError(400, "Unknown palette type", get("/palette/4/FF00FF", null));
+		assertError(400, "Not a hexadecimal color", get("/palette/triads/GG00FF", null));
+		assertError(400, "Not a hexadecimal color", get("/palette/triads/FF00F", null));
+		assertError(400, "Not a hexadecimal color", get("/palette/triads/", null));
+		assertError(400, "seed and index must be integers", get("/random?seed=abc", null));
+		assertError(400, "seed and index must be integers", get("/random?seed=1&index=x", null));
+	} // badRequest()
+
+
+	/*********************************************************************************
+	 *
+	 *	HexCodec takes 8 digits (AARRGGBB), the service doesn't: a palette has no
+	 *	alpha
+	 *
+	 *********************************************************************************/
+	@Test
+	public void eightDigitsAreRejected() throws IOException {
+		assertError(400, "Not a hexadecimal color", get("/palette/triads/80FF00FF", null));
+		assertError(400, "Not a hexadecimal color", get("/palette/triads/%2380FF00FF", null));
+		assertEquals(200, get("/palette/triads/%23FF00FF", null).status);
+	} // eightDigitsAreRejected()
+
+
+	@Test
+	public void notFound() throws IOException {
+		assertError(404, "Not found", get("/", null));
+		assertError(404, "Not found", get("/palettes", null));
+		assertError(404, "Not found", get("/random/1", null));
+		assertError(404, "Use /palette/{type}/{hex}", get("/palette/triads", null));
+		assertError(404, "Use /palette/{type}/{hex}", get("/palette/triads/FF00FF/1", null));
+	} // notFound()
+
+
+	@Test
+	public void methodNotAllowed() throws IOException {
+		for (String method : new String[] { "POST", "PUT", "DELETE" }) {
+			for (String path : new String[] { "/palette/triads/FF00FF", "/random" }) {
+				Response response = request(method, path, null);
+				assertError(405, "Method not allowed", response);
+				assertEquals("GET, HEAD", response.header("Allow"));
+			}
+		}
+	} // methodNotAllowed()
+
+
+	@Test
+	public void randomWithSeed() throws IOException {
+		Response response = get("/random?seed=42&index=7", null);
+		assertEquals(200, response.status);
+		assertEquals(PaletteServer.CACHE_PALETTE, response.header("Cache-Control"));
+		assertNotNull(response.header("ETag"));
+		assertEquals(json(generator.RandomPalette(42, 7)), response.body);
+
+		assertEquals(304, get("/random?index=7&seed=42", response.header("ETag")).status);
+		assertEquals(json(generator.RandomPalette(-5, 0)), get("/random?seed=-5", null).body);
+	} // randomWithSeed()
+
+
+	/*********************************************************************************
+	 *
+	 *	A random palette without a seed can't be addressed again: no ETag, never 304
+	 *
+	 *********************************************************************************/
+	@Test
+	public void randomWithoutSeed() throws IOException {
+		for (String ifNoneMatch : new String[] { null, "*" }) {
+			Response response = get("/random", ifNoneMatch);
+			assertEquals(200, response.status);
+			assertEquals(PaletteServer.CACHE_RANDOM, response.header("Cache-Control"));
+			assertNull(response.header("ETag"));
+			assertTrue(response.body, response.body.startsWith("{\"type\":\""));
+		}
+	} // randomWithoutSeed()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL METHODS
+	 *
+	 *********************************************************************************/
+
+
+	static final class Response {
+		int                status;
+		HttpURLConnection  connection;
+		String             body;
+
+		String header(String name) {
+			return connection.getHeaderField(name);
+		} // header()
+	} // Response
+
+
+	static Response get(String path, String ifNoneMatch) throws IOException {
+		return request("GET", path, ifNoneMatch);
+	} // get()
+
+
+	static Response request(String method, String path, String ifNoneMatch) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection)new URL("http", "localhost", server.GetPort(), path).openConnection();
+		connection.setRequestMethod(method);
+		if (ifNoneMatch != null) connection.setRequestProperty("If-None-Match", ifNoneMatch);
+		if ("POST".equals(method) || "PUT".equals(method)) {
+			connection.setDoOutput(true);
+			try (OutputStream out = connection.getOutputStream()) {
+				out.write('x');
+			}
+		}
+
+		Response response   = new Response();
+		response.connection = connection;
+		response.status     = connection.getResponseCode();
+		InputStream in = response.status < 400 ? connection.getInputStream() : connection.getErrorStream();
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		if (in != null) {
+			try {
+				byte[] buffer = new byte[1024];
+				for (int n; (n = in.read(buffer)) > 0;) body.write(buffer, 0, n);
+			} finally {
+				in.close();
+			}
+		}
+		response.body = new String(body.toByteArray(), StandardCharsets.US_ASCII);
+		return response;
+	} // request()
+
+
+	static void assertError(int status, String message, Response response) {
+		assertEquals(status, response.status);
+		assertEquals(PaletteServer.JSON, response.header("Content-Type"));
+		if (!"HEAD".equals(response.connection.getRequestMethod())) {
+			assertEquals("{\"error\":\"" + message + "\"}\n", response.body);
+		}
+	} // assertError()
+
+
+	// The JSON line of PaletteWriter for a palette of the generator
+	static String json(int type, int rgb) {
+		return json(generator.generate(type, rgb));
+	} // json()
+
+	static String json(Palette palette) {
+		ByteBuffer json = PaletteWriter.json(palette.type, palette.colors, 0, palette.colors.length,
+				ByteBuffer.allocate(PaletteServer.MAX_JSON));
+		return new String(json.array(), 0, json.position(), StandardCharsets.US_ASCII);
+	} // json()
+} // PaletteServerTest
@@ -0,0 +1,158 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Reproducible random palette streams
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+
+/*************************************************************************************
+ *
+ *	<b>PaletteSpliteratorTest class</b><br><br>
+ *	A seed must give the same palettes in the same order, sequential or parallel,
+ *	with any number of threads and however the range is split.
+ *
+ *************************************************************************************/
+public class PaletteSpliteratorTest {
+
+	static final long SEED  = 42;
+	static final int  COUNT = 20000;
+
+	final PaletteGenerator generator = new PaletteGenerator(10, 60, 20, 60);
+
+
+	@Test
+	public void sequentialMatchesRandomPalette() {
+		List<Palette> palettes = sequential();
+		assertEquals(COUNT, palettes.size());
+		for (int i = 0; i < COUNT; i += 7) {
+			assertEquals(generator.RandomPalette(SEED, i), palettes.get(i));
+		}
+
+		// Another seed gives other palettes
+		assertNotEquals(palettes, generator.RandomPalettes(SEED + 1, COUNT).collect(Collectors.toList()));
+	} // sequentialMatchesRandomPalette()
+
+
+	@Test
+	public void parallelMatchesSequential() {
+		assertEquals(sequential(), generator.RandomPalettes(SEED, COUNT).parallel().collect(Collectors.toList()));
+	} // parallelMatchesSequential()
+
+
+	@Test
+	public void poolSizeDoesNotMatter() throws Exception {
+		List<Palette> expected = sequential();
+		assertEquals(expected, collectIn(new ForkJoinPool(1)));
+		assertEquals(expected, collectIn(new ForkJoinPool(8)));
+	} // poolSizeDoesNotMatter()
+
+
+	/*********************************************************************************
+	 *
+	 *	Split the range down to the smallest parts, traverse the parts in reverse
+	 *	order on 8 threads: joined in split order they are the sequential stream
+	 *
+	 *********************************************************************************/
+	@Test
+	public void splitPartsMatchSequential() throws Exception {
+		List<Spliterator<Palette>> parts = new ArrayList<Spliterator<Palette>>();
+		split(new PaletteSpliterator(generator, SEED, 0, COUNT), parts);
+		assertEquals(16, parts.size());
+
+		long total = 0;
+		for (Spliterator<Palette> part : parts) {
+			assertNull(part.trySplit());
+			total += part.estimateSize();
+		}
+		assertEquals(COUNT, total);
+
+		ForkJoinPool pool = new ForkJoinPool(8);
+		List<Future<List<Palette>>> results = new ArrayList<Future<List<Palette>>>();
+		for (int i = parts.size() - 1; i >= 0; i--) {
+			final Spliterator<Palette> part = parts.get(i);
+			final boolean oneByOne = i % 2 == 0;
+			results.add(0, pool.submit(() -> {
+				List<Palette> palettes = new ArrayList<Palette>();
+				if (oneByOne) {
+					while (part.tryAdvance(palettes::add)) {}
+				} else {
+					part.forEachRemaining(palettes::add);
+				}
+				assertFalse(part.tryAdvance(palettes::add));
+				return palettes;
+			}));
+		}
+
+		List<Palette> joined = new ArrayList<Palette>();
+		for (Future<List<Palette>> result : results) joined.addAll(result.get());
+		pool.shutdown();
+		assertEquals(sequential(), joined);
+	} // splitPartsMatchSequential()
+
+
+	@Test
+	public void splitAfterAdvance() {
+		PaletteSpliterator spliterator = new PaletteSpliterator(generator, SEED, 0, COUNT);
+		List<Palette> palettes = new ArrayList<Palette>();
+		for (int i = 0; i < 100; i++) spliterator.tryAdvance(palettes::add);
+
+		// The prefix starts where the traversal stopped
+		Spliterator<Palette> prefix = spliterator.trySplit();
+		assertNotNull(prefix);
+		assertEquals(COUNT - 100, prefix.estimateSize() + spliterator.estimateSize());
+		prefix.forEachRemaining(palettes::add);
+		spliterator.forEachRemaining(palettes::add);
+		assertEquals(sequential(), palettes);
+	} // splitAfterAdvance()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL METHODS
+	 *
+	 *********************************************************************************/
+
+
+	List<Palette> sequential() {
+		return generator.RandomPalettes(SEED, COUNT).collect(Collectors.toList());
+	} // sequential()
+
+
+	List<Palette> collectIn(ForkJoinPool pool) throws Exception {
+		try {
+			return pool.submit(() -> generator.RandomPalettes(SEED, COUNT).parallel().collect(Collectors.toList())).get();
+		} finally {
+			pool.shutdown();
+		}
+	} // collectIn()
+
+
+	// Parts in the order of their palettes (a prefix comes before the rest)
+	static void split(Spliterator<Palette> spliterator, List<Spliterator<Palette>> parts) {
+		Spliterator<Palette> prefix = spliterator.trySplit();
+		if (prefix == null) {
+			parts.add(spliterator);
+			return;
+		}
+		split(prefix, parts);
+		split(spliterator, parts);
+	} // split()
+} // PaletteSpliteratorTest
@@ -0,0 +1,238 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Buffer layout of palette textures, checked on the CPU
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import org.junit.Test;
+
+
+/*************************************************************************************
+ *
+ *	<b>PaletteTextureTest class</b><br><br>
+ *	The palette has a different alpha byte in every color, so a swapped channel
+ *	shows up in every texel.
+ *
+ *************************************************************************************/
+public class PaletteTextureTest {
+
+	static final ByteOrder[] ORDERS = { ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN };
+
+	// Fill value of the bytes that must not be written
+	static final byte UNTOUCHED = 0x5A;
+
+	final int[] colors = palette();
+
+
+	@Test
+	public void rgba8ByteOrder() {
+		PaletteTexture texture = new PaletteTexture(PaletteTexture.RGBA8, 8);
+		for (ByteOrder order : ORDERS) {
+			ByteBuffer buffer = ByteBuffer.allocate(texture.GetBytes(1)).order(order);
+			texture.Write(colors, 0, buffer, 0);
+			assertRGBA8(order.toString(), buffer);
+			for (int x = 0; x < 8; x++) assertEquals(colors[x], texture.GetTexel(buffer, x, 0));
+		}
+	} // rgba8ByteOrder()
+
+
+	@Test
+	public void rgba8IntBuffer() {
+		PaletteTexture texture = new PaletteTexture(PaletteTexture.RGBA8, 8);
+		for (ByteOrder order : ORDERS) {
+			ByteBuffer bytes = ByteBuffer.allocate(texture.GetBytes(1)).order(order);
+			IntBuffer  ints  = bytes.asIntBuffer();
+			texture.Write(colors, 0, ints, 0);
+			assertRGBA8(order.toString(), bytes);
+
+			// Direct buffers in the native order, as they are passed to OpenGL
+			ByteBuffer direct = ByteBuffer.allocateDirect(texture.GetBytes(1)).order(ByteOrder.nativeOrder());
+			texture.Write(colors, 0, direct.asIntBuffer(), 0);
+			assertRGBA8("direct", direct);
+		}
+	} // rgba8IntBuffer()
+
+
+	/*********************************************************************************
+	 *
+	 *	4 floats per texel (red, green, blue, alpha as 0..1) in the byte order of
+	 *	the buffer
+	 *
+	 *********************************************************************************/
+	@Test
+	public void rgba32fLayout() {
+		PaletteTexture texture = new PaletteTexture(PaletteTexture.RGBA32F, 8);
+		for (ByteOrder order : ORDERS) {
+			ByteBuffer buffer = ByteBuffer.allocate(texture.GetBytes(1)).order(order);
+			texture.Write(colors, 0, buffer, 0);
+			assertRGBA32F(order.toString(), buffer.asFloatBuffer());
+			for (int x = 0; x < 8; x++) assertEquals(colors[x], texture.GetTexel(buffer, x, 0));
+
+			ByteBuffer  bytes  = ByteBuffer.allocate(texture.GetBytes(1)).order(order);
+			FloatBuffer floats = bytes.asFloatBuffer();
+			texture.Write(colors, 0, floats, 0);
+			assertRGBA32F(order + " FloatBuffer", floats);
+			assertEquals(buffer, bytes);
+		}
+	} // rgba32fLayout()
+
+
+	/*********************************************************************************
+	 *
+	 *	A ramp starts with the first color and ends with the last one; with width
+	 *	1 + 7k texel ik is color i
+	 *
+	 *********************************************************************************/
+	@Test
+	public void rampEnds() {
+		for (int format : new int[] { PaletteTexture.RGBA8, PaletteTexture.RGBA32F }) {
+			for (int width : new int[] { 2, 9, 100, 256, 1024 }) {
+				PaletteTexture texture = new PaletteTexture(format, width);
+				ByteBuffer buffer = ByteBuffer.allocate(texture.GetBytes(2));
+				texture.Write(colors, 0, buffer, 1);
+				assertEquals(format + " " + width, colors[0], texture.GetTexel(buffer, 0, 1));
+				assertEquals(format + " " + width, colors[7], texture.GetTexel(buffer, width - 1, 1));
+			}
+
+			PaletteTexture texture = new PaletteTexture(format, 1 + 7 * 30);
+			ByteBuffer buffer = ByteBuffer.allocate(texture.GetBytes(1));
+			texture.Write(colors, 0, buffer, 0);
+			for (int i = 0; i < 8; i++) assertEquals(colors[i], texture.GetTexel(buffer, 30 * i, 0));
+			// Half way between colors 0 and 1
+			assertEquals(mix(colors[0], colors[1]), texture.GetTexel(buffer, 15, 0));
+		}
+
+		// Width 1: the first color
+		PaletteTexture texture = new PaletteTexture(PaletteTexture.RGBA8, 8, 1, 1);
+		ByteBuffer buffer = ByteBuffer.allocate(texture.GetBytes(1));
+		assertEquals(colors[0], texture.GetTexel(texture.Write(colors, 0, buffer, 0), 0, 0));
+	} // rampEnds()
+
+
+	/*********************************************************************************
+	 *
+	 *	With stride &gt; width the texels between the rows keep their values, and
+	 *	nothing is written after GetBytes(rows)
+	 *
+	 *********************************************************************************/
+	@Test
+	public void strideLeavesPadding() {
+		int[] atlas = new int[3 * 8];
+		for (int p = 0; p < 3; p++) System.arraycopy(colors, 0, atlas, 8 * p, 8);
+
+		for (int format : new int[] { PaletteTexture.RGBA8, PaletteTexture.RGBA32F }) {
+			PaletteTexture texture = new PaletteTexture(format, 8, 10, 16);
+			int texelBytes = PaletteTexture.TEXEL_BYTES[format];
+
+			ByteBuffer viaBytes  = untouched(texture.GetBytes(3) + 64);
+			ByteBuffer viaOthers = untouched(texture.GetBytes(3) + 64);
+			texture.WriteAll(atlas, 3, viaBytes, 0);
+			if (format == PaletteTexture.RGBA8) {
+				texture.WriteAll(atlas, 3, viaOthers.asIntBuffer(), 0);
+			} else {
+				texture.WriteAll(atlas, 3, viaOthers.asFloatBuffer(), 0);
+			}
+
+			for (ByteBuffer buffer : new ByteBuffer[] { viaBytes, viaOthers }) {
+				assertEquals(0, buffer.position());
+				for (int i = 0; i < buffer.capacity(); i++) {
+					int texel   = i / texelBytes;
+					boolean row = texel < 2 * 16 + 10 && texel % 16 < 10;
+					if (!row) assertEquals(format + " byte " + i, UNTOUCHED, buffer.get(i));
+				}
+				for (int r = 0; r < 3; r++) {
+					assertEquals(colors[0], texture.GetTexel(buffer, 0, r));
+					assertEquals(colors[7], texture.GetTexel(buffer, 9, r));
+				}
+			}
+			assertEquals(viaBytes, viaOthers);
+		}
+	} // strideLeavesPadding()
+
+
+	@Test
+	public void bytes() {
+		PaletteTexture rgba8 = new PaletteTexture(PaletteTexture.RGBA8, 8, 10, 16);
+		assertEquals(0, rgba8.GetBytes(0));
+		assertEquals(0, rgba8.GetBytes(-1));
+		assertEquals(4 * 10, rgba8.GetBytes(1));
+		assertEquals(4 * (2 * 16 + 10), rgba8.GetBytes(3));
+
+		PaletteTexture rgba32f = new PaletteTexture(PaletteTexture.RGBA32F, 256);
+		assertEquals(16 * 256, rgba32f.GetBytes(1));
+		assertEquals(16 * 256 * 1000, rgba32f.GetBytes(1000));
+
+		// A buffer of GetBytes(rows) takes the last row
+		ByteBuffer buffer = ByteBuffer.allocate(rgba8.GetBytes(3));
+		rgba8.Write(colors, 0, buffer, 2);
+		assertEquals(colors[7], rgba8.GetTexel(buffer, 9, 2));
+	} // bytes()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL METHODS
+	 *
+	 *********************************************************************************/
+
+
+	// 8 colors with different red, green, blue and alpha bytes
+	static int[] palette() {
+		int[] colors = new int[8];
+		for (int i = 0; i < colors.length; i++) {
+			colors[i] = (0xF0 - 16 * i) << 24 | (0x10 + 30 * i) << 16 | (0x80 ^ 17 * i) << 8 | (0x03 + 9 * i);
+		}
+		return colors;
+	} // palette()
+
+
+	// Bytes R, G, B, A of texel x at 4 * x
+	void assertRGBA8(String message, ByteBuffer buffer) {
+		for (int x = 0; x < 8; x++) {
+			int c = colors[x];
+			assertEquals(message, (byte)(c >> 16), buffer.get(4 * x));
+			assertEquals(message, (byte)(c >> 8), buffer.get(4 * x + 1));
+			assertEquals(message, (byte)c, buffer.get(4 * x + 2));
+			assertEquals(message, (byte)(c >>> 24), buffer.get(4 * x + 3));
+		}
+	} // assertRGBA8()
+
+
+	// Floats red, green, blue, alpha of texel x at 4 * x
+	void assertRGBA32F(String message, FloatBuffer buffer) {
+		for (int x = 0; x < 8; x++) {
+			int c = colors[x];
+			assertEquals(message, ((c >> 16) & 0xFF) / 255f, buffer.get(4 * x), 1e-6f);
+			assertEquals(message, ((c >> 8) & 0xFF) / 255f, buffer.get(4 * x + 1), 1e-6f);
+			assertEquals(message, (c & 0xFF) / 255f, buffer.get(4 * x + 2), 1e-6f);
+			assertEquals(message, (c >>> 24) / 255f, buffer.get(4 * x + 3), 1e-6f);
+		}
+	} // assertRGBA32F()
+
+
+	static ByteBuffer untouched(int bytes) {
+		ByteBuffer buffer = ByteBuffer.allocate(bytes);
+		for (int i = 0; i < bytes; i++) buffer.put(i, UNTOUCHED);
+		return buffer;
+	} // untouched()
+
+
+	// Channels of a and b averaged (rounded half up)
+	static int mix(int a, int b) {
+		int c = 0;
+		for (int shift = 0; shift < 32; shift += 8) {
+			c |= ((((a >>> shift) & 0xFF) + ((b >>> shift) & 0xFF) + 1) >> 1) << shift;
+		}
+		return c;
+	} // mix()
+} // PaletteTextureTest
@@ -0,0 +1,322 @@
+/*************************************************************************************
+ *
+ *	Colorharmony
+ *
+ *	Palette export, parsed back
+ *
+ *************************************************************************************/
+package com.cage.colorharmony;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+/*************************************************************************************
+ *
+ *	<b>PaletteWriterTest class</b><br><br>
+ *	Every format is written to a temporary file and parsed back into palettes,
+ *	which must be the ones that were written. A palette is stored as an int[] with
+ *	the type first, then the colors (0xRRGGBB).
+ *
+ *************************************************************************************/
+public class PaletteWriterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	final PaletteGenerator generator = new PaletteGenerator(10, 60, 20, 60);
+
+
+	@Test
+	public void ase() throws IOException {
+		List<int[]> palettes = palettes(500);
+		assertPalettes(palettes, readASE(ByteBuffer.wrap(Files.readAllBytes(write(PaletteWriter.ASE, palettes)))));
+	} // ase()
+
+
+	/*********************************************************************************
+	 *
+	 *	Written to an open channel (after other data), with the smallest buffer: the
+	 *	number of blocks is patched into the header at the start of the palettes
+	 *
+	 *********************************************************************************/
+	@Test
+	public void aseAtChannelPosition() throws IOException {
+		List<int[]> palettes = palettes(100);
+		Path path = folder.newFile().toPath();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap("prefix".getBytes(StandardCharsets.US_ASCII)));
+			try (PaletteWriter writer = new PaletteWriter(channel, PaletteWriter.ASE, PaletteWriter.MAX_RECORD)) {
+				writeAll(writer, palettes);
+			}
+			assertTrue(channel.isOpen());
+		}
+
+		ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(path));
+		file.position(6);
+		assertPalettes(palettes, readASE(file.slice()));
+	} // aseAtChannelPosition()
+
+
+	@Test
+	public void gpl() throws IOException {
+		List<int[]> palettes = palettes(500);
+		List<String> lines = lines(write(PaletteWriter.GPL, palettes));
+		assertEquals(Arrays.asList("GIMP Palette", "Name: ColorHarmony", "Columns: 8", "#"), lines.subList(0, 4));
+
+		// "RRR GGG BBB\t[type] [base] [slot]", a new palette starts at slot 1
+		Pattern line = Pattern.compile("([ \\d]{3}) ([ \\d]{3}) ([ \\d]{3})\t(\\w+) ([0-9A-F]{6}) ([1-8])");
+		List<int[]> read = new ArrayList<int[]>();
+		List<Integer> colors = new ArrayList<Integer>();
+		int type = -1;
+		for (String text : lines.subList(4, lines.size())) {
+			Matcher m = match(line, text);
+			if (m.group(6).equals("1")) {
+				if (type >= 0) read.add(palette(type, colors));
+				type = type(m.group(4));
+				colors.clear();
+			}
+			assertEquals(text, colors.size() + 1, Integer.parseInt(m.group(6)));
+			int rgb = ColorMath.pack(decimal(m.group(1)), decimal(m.group(2)), decimal(m.group(3)));
+			colors.add(rgb);
+			assertEquals(text, colors.get(0).intValue(), Integer.parseInt(m.group(5), 16));
+		}
+		read.add(palette(type, colors));
+		assertPalettes(palettes, read);
+	} // gpl()
+
+
+	/*********************************************************************************
+	 *
+	 *	CSS has no palette types: only the colors are compared
+	 *
+	 *********************************************************************************/
+	@Test
+	public void css() throws IOException {
+		List<int[]> palettes = palettes(500);
+		List<String> lines = lines(write(PaletteWriter.CSS, palettes));
+		assertEquals(":root {", lines.get(0));
+		assertEquals("}", lines.get(lines.size() - 1));
+
+		Pattern line = Pattern.compile("  --palette-(\\d+)-([1-8]): #([0-9A-F]{6});");
+		int n = 0;
+		for (int p = 0; p < palettes.size(); p++) {
+			int[] palette = palettes.get(p);
+			for (int i = 1; i < palette.length; i++) {
+				Matcher m = match(line, lines.get(++n));
+				assertEquals(p + 1, Integer.parseInt(m.group(1)));
+				assertEquals(i, Integer.parseInt(m.group(2)));
+				assertEquals(palette[i], Integer.parseInt(m.group(3), 16));
+			}
+		}
+		assertEquals(lines.size() - 2, n);
+	} // css()
+
+
+	@Test
+	public void json() throws IOException {
+		List<int[]> palettes = palettes(500);
+		Pattern line = Pattern.compile("\\{\"type\":\"(\\w+)\",\"base\":\"#([0-9A-F]{6})\",\"colors\":\\[(.*)\\]\\}");
+		List<int[]> read = new ArrayList<int[]>();
+		for (String text : lines(write(PaletteWriter.JSON, palettes))) {
+			Matcher m = match(line, text);
+			List<Integer> colors = new ArrayList<Integer>();
+			for (String color : m.group(3).split(",")) {
+				assertTrue(text, color.matches("\"#[0-9A-F]{6}\""));
+				colors.add(Integer.parseInt(color.substring(2, 8), 16));
+			}
+			assertEquals(text, colors.get(0).intValue(), Integer.parseInt(m.group(2), 16));
+			read.add(palette(type(m.group(1)), colors));
+		}
+		assertPalettes(palettes, read);
+	} // json()
+
+
+	@Test
+	public void writeAllStream() throws IOException {
+		Path path = folder.newFile().toPath();
+		try (PaletteWriter writer = new PaletteWriter(path, PaletteWriter.JSON)) {
+			assertEquals(1000, writer.WriteAll(generator.RandomPalettes(7, 1000)));
+			assertEquals(1000, writer.GetCount());
+		}
+		List<String> lines = lines(path);
+		assertEquals(1000, lines.size());
+		assertTrue(lines.get(999).contains(generator.RandomPalette(7, 999).GetBaseColor()));
+	} // writeAllStream()
+
+
+	@Test
+	public void closedWriter() throws IOException {
+		PaletteWriter writer = new PaletteWriter(folder.newFile().toPath(), PaletteWriter.GPL);
+		writer.close();
+		writer.close();
+		try {
+			writer.Write(generator.Triads(0xFF00FF));
+			throw new AssertionError("Write() after close()");
+		} catch (IOException e) {
+			assertFalse(writer.channel.isOpen());
+		}
+	} // closedWriter()
+
+
+	/*********************************************************************************
+	 *
+	 *	INTERNAL METHODS
+	 *
+	 *********************************************************************************/
+
+
+	// Generated palettes of every type, with 1..8 colors
+	List<int[]> palettes(int count) {
+		List<int[]> palettes = new ArrayList<int[]>();
+		for (int n = 0; n < count; n++) {
+			Palette palette = generator.RandomPalette(3, n);
+			int size = n % 3 == 0 ? 1 + n % PaletteGenerator.SIZE : PaletteGenerator.SIZE;
+			int[] entry = new int[1 + size];
+			entry[0] = palette.GetType();
+			for (int i = 0; i < size; i++) entry[1 + i] = palette.GetColor(i) & ColorMath.RGB_MASK;
+			palettes.add(entry);
+		}
+		return palettes;
+	} // palettes()
+
+
+	static void writeAll(PaletteWriter writer, List<int[]> palettes) throws IOException {
+		for (int[] palette : palettes) {
+			int[] colors = Arrays.copyOfRange(palette, 1, palette.length);
+			for (int i = 0; i < colors.length; i++) colors[i] |= ColorMath.OPAQUE;
+			writer.Write(palette[0], colors, 0, colors.length);
+		}
+	} // writeAll()
+
+
+	Path write(int format, List<int[]> palettes) throws IOException {
+		Path path = folder.newFile().toPath();
+		try (PaletteWriter writer = new PaletteWriter(path, format)) {
+			writeAll(writer, palettes);
+			assertEquals(palettes.size(), writer.GetCount());
+		}
+		return path;
+	} // write()
+
+
+	/*********************************************************************************
+	 *
+	 *	Parse an Adobe Swatch Exchange file (big endian): header, then per palette a
+	 *	group start named "[type] [base]", the RGB swatches and a group end
+	 *
+	 *********************************************************************************/
+	static List<int[]> readASE(ByteBuffer file) {
+		assertEquals(0x41534546, file.getInt());
+		assertEquals(1, file.getShort());
+		assertEquals(0, file.getShort());
+		int blocks = file.getInt();
+
+		List<int[]> palettes = new ArrayList<int[]>();
+		List<Integer> colors = new ArrayList<Integer>();
+		int type = -1;
+		for (int b = 0; b < blocks; b++) {
+			int kind   = file.getShort() & 0xFFFF;
+			int length = file.getInt();
+			int end    = file.position() + length;
+			if (kind == 0xC001) {
+				String[] name = utf16(file).split(" ");
+				type = type(name[0]);
+				colors.clear();
+				colors.add(Integer.parseInt(name[1], 16));
+			} else if (kind == 0x0001) {
+				String name = utf16(file);
+				byte[] model = new byte[4];
+				file.get(model);
+				assertEquals("RGB ", new String(model, StandardCharsets.US_ASCII));
+				int rgb = ColorMath.pack(channel(file.getFloat()), channel(file.getFloat()), channel(file.getFloat()));
+				assertEquals(2, file.getShort());
+				assertEquals(rgb, Integer.parseInt(name, 16));
+				colors.add(rgb);
+			} else {
+				assertEquals(0xC002, kind);
+				// The group name is the base color, then the swatches
+				int[] palette = palette(type, colors.subList(1, colors.size()));
+				assertEquals(colors.get(0).intValue(), palette[1]);
+				palettes.add(palette);
+			}
+			assertEquals(end, file.position());
+		}
+		assertFalse(file.hasRemaining());
+		return palettes;
+	} // readASE()
+
+
+	// Name length (with the terminating 0), UTF-16 characters, 0
+	static String utf16(ByteBuffer file) {
+		int length = file.getShort();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length - 1; i++) sb.append(file.getChar());
+		assertEquals(0, file.getChar());
+		return sb.toString();
+	} // utf16()
+
+
+	static int channel(float value) {
+		return Math.round(value * 255);
+	} // channel()
+
+
+	static int decimal(String digits) {
+		return Integer.parseInt(digits.trim());
+	} // decimal()
+
+
+	static int type(String name) {
+		int type = Arrays.asList(Palette.TYPE_NAMES).indexOf(name);
+		assertTrue(name, type >= 0);
+		return type;
+	} // type()
+
+
+	static int[] palette(int type, List<Integer> colors) {
+		int[] palette = new int[1 + colors.size()];
+		palette[0] = type;
+		for (int i = 0; i < colors.size(); i++) palette[1 + i] = colors.get(i);
+		return palette;
+	} // palette()
+
+
+	static void assertPalettes(List<int[]> expected, List<int[]> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertArrayEquals("palette " + i, expected.get(i), actual.get(i));
+		}
+	} // assertPalettes()
+
+
+	static List<String> lines(Path path) throws IOException {
+		return Files.readAllLines(path, StandardCharsets.US_ASCII);
+	} // lines()
+
+
+	static Matcher match(Pattern pattern, String text) {
+		Matcher m = pattern.matcher(text);
+		assertTrue(text, m.matches());
+		return m;
+	} // match()
+} // PaletteWriterTest